@@ -0,0 +1,12 @@
+{
+    "command": "CreateSortedHash160File",
+    "createSortedHash160File" : {
+        "sortedHash160File" : "sortedHash160.bin",
+        "prefixBits" : 16,
+        "lmdbConfigurationReadOnly" : {
+            "logStatsOnInit" : false,
+            "logStatsOnClose" : false,
+            "lmdbDirectory" : "lmdb"
+        }
+    }
+}
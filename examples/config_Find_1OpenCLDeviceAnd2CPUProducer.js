@@ -12,6 +12,7 @@
             "delayEmptyConsumer" : 50,
             "printStatisticsEveryNSeconds" : 10,
             "queueSize" : 4,
+            "sliceSize" : 16384,
             "runtimePublicKeyCalculationCheck" : false,
             "enableVanity" : false,
             "vanityPattern" : "1[Ee][Mm][Ii][Ll].*"
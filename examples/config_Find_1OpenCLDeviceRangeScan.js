@@ -0,0 +1,52 @@
+{
+    "command": "Find",
+    "finder" : {
+        "consumerJava" : {
+            "lmdbConfigurationReadOnly" : {
+                "lmdbDirectory" : "lmdb",
+                "useProxyOptimal" : true,
+                "logStatsOnInit" : true,
+                "logStatsOnClose" : false
+            },
+            "threads" : 8,
+            "delayEmptyConsumer" : 50,
+            "printStatisticsEveryNSeconds" : 10,
+            "queueSize" : 4,
+            "sliceSize" : 16384,
+            "runtimePublicKeyCalculationCheck" : false,
+            "enableVanity" : false,
+            "vanityPattern" : "1[Ee][Mm][Ii][Ll].*"
+        },
+        "producerOpenCL" : [
+            {
+                "privateKeyMaxNumBits" : 256,
+                "rangeStart" : "20000000000000000",
+                "rangeEnd" : "40000000000000000",
+                "printRangeStatisticsEveryNSeconds" : 60,
+                // all producers sharing the checkpoint file must use the same range, permutation key and gridNumBits
+                "rangeCheckpointFile" : "checkpoint_Find_1OpenCLDeviceRangeScan.properties",
+                "saveRangeCheckpointEveryNSeconds" : 60,
+                "rangeChunkDurationInSeconds" : 30,
+                "platformIndex" : 0,
+                "deviceType" : -1,
+                "deviceIndex" : 0,
+                "gridNumBits" : 18,
+                "maxResultReaderThreads" : 4,
+                "delayBlockedReader" : 50
+            }
+        ],
+        "producerJava" : [
+            {
+                "privateKeyMaxNumBits" : 256,
+                "rangeStart" : "20000000000000000",
+                "rangeEnd" : "40000000000000000",
+                "printRangeStatisticsEveryNSeconds" : 60,
+                // all producers sharing the checkpoint file must use the same range, permutation key and gridNumBits
+                "rangeCheckpointFile" : "checkpoint_Find_1OpenCLDeviceRangeScan.properties",
+                "saveRangeCheckpointEveryNSeconds" : 60,
+                "rangeChunkDurationInSeconds" : 30,
+                "gridNumBits" : 18
+            }
+        ]
+    }
+}
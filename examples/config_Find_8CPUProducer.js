@@ -21,35 +21,43 @@
         "producerJava" : [
             {
                 "gridNumBits" : 14,
-                "privateKeyMaxNumBits" : 256
+                "privateKeyMaxNumBits" : 256,
+                "incrementalPointAddition" : true
             },
             {
                 "gridNumBits" : 14,
-                "privateKeyMaxNumBits" : 256
+                "privateKeyMaxNumBits" : 256,
+                "incrementalPointAddition" : true
             },
             {
                 "gridNumBits" : 14,
-                "privateKeyMaxNumBits" : 256
+                "privateKeyMaxNumBits" : 256,
+                "incrementalPointAddition" : true
             },
             {
                 "gridNumBits" : 14,
-                "privateKeyMaxNumBits" : 256
+                "privateKeyMaxNumBits" : 256,
+                "incrementalPointAddition" : true
             },
             {
                 "gridNumBits" : 14,
-                "privateKeyMaxNumBits" : 256
+                "privateKeyMaxNumBits" : 256,
+                "incrementalPointAddition" : true
             },
             {
                 "gridNumBits" : 14,
-                "privateKeyMaxNumBits" : 256
+                "privateKeyMaxNumBits" : 256,
+                "incrementalPointAddition" : true
             },
             {
                 "gridNumBits" : 14,
-                "privateKeyMaxNumBits" : 256
+                "privateKeyMaxNumBits" : 256,
+                "incrementalPointAddition" : true
             },
             {
                 "gridNumBits" : 14,
-                "privateKeyMaxNumBits" : 256
+                "privateKeyMaxNumBits" : 256,
+                "incrementalPointAddition" : true
             }
         ]
     }
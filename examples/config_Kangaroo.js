@@ -0,0 +1,15 @@
+{
+    "command": "Kangaroo",
+    "kangaroo" : {
+        "publicKeys" : [
+            "02259be217191797c0b14e7b355f8053c48736fb33d30abcc74d77f726a2bc8998"
+        ],
+        "rangeStart" : "10000000000000000000",
+        "rangeEnd" : "20000000000000000000",
+        "threads" : 8,
+        "kangaroosPerThread" : 1024,
+        "distinguishedPointFile" : "distinguishedPoints_Kangaroo.txt",
+        "saveDistinguishedPointsEveryNSeconds" : 60,
+        "printStatisticsEveryNSeconds" : 60
+    }
+}
@@ -0,0 +1,346 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import static net.ladenthin.bitcoinaddressfinder.Hash160Engine.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The multi-lane variant of {@link Hash160Engine}: every lane of an
+ * {@link IntVector} of the preferred species carries the state of one public
+ * key, {@link #LANES} keys are hashed at once. The words of all lanes are held
+ * row by row ({@code row * LANES + lane}) in int arrays. Keys which do not fill
+ * all lanes are hashed by the scalar engine.
+ * <p>
+ * This class is compiled with the {@code vector-api} profile only, use
+ * {@link Hash160BatchEngines} to create an instance. An instance is not
+ * thread safe.
+ */
+public class VectorHash160Engine implements Hash160BatchEngine {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    /**
+     * The number of keys hashed at once.
+     */
+    public static final int LANES = SPECIES.length();
+
+    private static final int RIPEMD160_WORDS = 5;
+
+    private final int[] w = new int[64 * LANES];
+    private final int[] sha256State = new int[SHA256_DIGEST_WORDS * LANES];
+    private final int[] x = new int[16 * LANES];
+    private final int[] ripemd160State = new int[RIPEMD160_WORDS * LANES];
+
+    /**
+     * The working variables of the compression functions. They are not
+     * shifted from round to round, instead the row of a variable moves (see
+     * {@link #workingRow(int, int, int)}). Vectors carried from one loop
+     * iteration to the next are not kept in registers by the JIT.
+     */
+    private final int[] sha256Working = new int[SHA256_DIGEST_WORDS * LANES];
+    private final int[] ripemd160Left = new int[RIPEMD160_WORDS * LANES];
+    private final int[] ripemd160Right = new int[RIPEMD160_WORDS * LANES];
+
+    public VectorHash160Engine() {
+        // the SHA-256 digest is always one RIPEMD-160 block, the padding is constant
+        Arrays.fill(x, SHA256_DIGEST_WORDS * LANES, 9 * LANES, PADDING_START);
+        Arrays.fill(x, 14 * LANES, 15 * LANES, SHA256_DIGEST_BITS);
+    }
+
+    @Override
+    public void hash160s(ByteBuffer src, int srcPosition, int srcStride, int length, int count, ByteBuffer dst, int dstPosition, int dstStride) {
+        int i = 0;
+        for (; i + LANES <= count; i += LANES) {
+            sha256(src, srcPosition + i * srcStride, srcStride, length);
+            ripemd160OfSha256();
+            store(dst, dstPosition + i * dstStride, dstStride);
+        }
+        if (i < count) {
+            Hash160Engine.get().hash160s(src, srcPosition + i * srcStride, srcStride, length, count - i, dst, dstPosition + i * dstStride, dstStride);
+        }
+    }
+
+    private static IntVector load(int[] words, int row) {
+        return IntVector.fromArray(SPECIES, words, row * LANES);
+    }
+
+    /**
+     * @param variable the index of the working variable (a = 0, b = 1, ...)
+     * @param step the current round
+     * @param variables the number of working variables
+     * @return the row of the working variable in the given round
+     */
+    private static int workingRow(int variable, int step, int variables) {
+        return Math.floorMod(variable - step, variables);
+    }
+
+    private static IntVector rotateRight(IntVector v, int distance) {
+        return v.lanewise(VectorOperators.ROR, distance);
+    }
+
+    private static IntVector rotateLeft(IntVector v, int distance) {
+        return v.lanewise(VectorOperators.ROL, distance);
+    }
+
+    private static IntVector xor(IntVector a, IntVector b) {
+        return a.lanewise(VectorOperators.XOR, b);
+    }
+
+    private static IntVector reverseBytes(IntVector v) {
+        return v.lanewise(VectorOperators.LSHL, 24)
+                .or(v.lanewise(VectorOperators.LSHL, 8).lanewise(VectorOperators.AND, 0x00ff0000))
+                .or(v.lanewise(VectorOperators.LSHR, 8).lanewise(VectorOperators.AND, 0x0000ff00))
+                .or(v.lanewise(VectorOperators.LSHR, 24));
+    }
+
+    /**
+     * Reads big endian words of all lanes into the first rows of the message schedule.
+     */
+    private void loadWords(ByteBuffer src, int position, int stride, int wordOffset, int words) {
+        for (int lane = 0; lane < LANES; lane++) {
+            int lanePosition = position + lane * stride + wordOffset * Integer.BYTES;
+            for (int i = 0; i < words; i++) {
+                w[i * LANES + lane] = ByteBufferUtility.getIntBigEndian(src, lanePosition + i * Integer.BYTES);
+            }
+        }
+    }
+
+    /**
+     * Writes the last byte of the message of all lanes followed by the padding to the given row.
+     */
+    private void loadLastByte(ByteBuffer src, int position, int stride, int lastByteIndex, int row) {
+        for (int lane = 0; lane < LANES; lane++) {
+            w[row * LANES + lane] = ((src.get(position + lane * stride + lastByteIndex) & 0xff) << 24) | (PADDING_START << 16);
+        }
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="SHA-256">
+    private void sha256(ByteBuffer src, int position, int stride, int length) {
+        for (int i = 0; i < SHA256_DIGEST_WORDS; i++) {
+            Arrays.fill(sha256State, i * LANES, (i + 1) * LANES, SHA256_IV[i]);
+        }
+        if (length == PublicKeyBytes.PUBLIC_KEY_COMPRESSED_BYTES) {
+            // one block: 32 bytes, the last byte, padding, the length
+            loadWords(src, position, stride, 0, 8);
+            loadLastByte(src, position, stride, 32, 8);
+            Arrays.fill(w, 9 * LANES, 15 * LANES, 0);
+            Arrays.fill(w, 15 * LANES, 16 * LANES, COMPRESSED_MESSAGE_BITS);
+            sha256Compress();
+        } else if (length == PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES) {
+            // first block: 64 bytes
+            loadWords(src, position, stride, 0, 16);
+            sha256Compress();
+            // second block: the last byte, padding, the length
+            loadLastByte(src, position, stride, 64, 0);
+            Arrays.fill(w, LANES, 15 * LANES, 0);
+            Arrays.fill(w, 15 * LANES, 16 * LANES, UNCOMPRESSED_MESSAGE_BITS);
+            sha256Compress();
+        } else {
+            throw new IllegalArgumentException("Unsupported public key length: " + length);
+        }
+    }
+
+    private void sha256Compress() {
+        for (int t = 16; t < 64; t++) {
+            sha256Schedule(t);
+        }
+        System.arraycopy(sha256State, 0, sha256Working, 0, sha256State.length);
+        for (int t = 0; t < 64; t++) {
+            sha256Round(t);
+        }
+        // after 64 rounds every working variable is back in its row
+        for (int i = 0; i < SHA256_DIGEST_WORDS; i++) {
+            load(sha256State, i).add(load(sha256Working, i)).intoArray(sha256State, i * LANES);
+        }
+    }
+
+    private void sha256Schedule(int t) {
+        final int[] w = this.w;
+        IntVector w15 = load(w, t - 15);
+        IntVector w2 = load(w, t - 2);
+        IntVector s0 = xor(xor(rotateRight(w15, 7), rotateRight(w15, 18)), w15.lanewise(VectorOperators.LSHR, 3));
+        IntVector s1 = xor(xor(rotateRight(w2, 17), rotateRight(w2, 19)), w2.lanewise(VectorOperators.LSHR, 10));
+        load(w, t - 16).add(s0).add(load(w, t - 7)).add(s1).intoArray(w, t * LANES);
+    }
+
+    private void sha256Round(int t) {
+        final int[] v = this.sha256Working;
+        int rowA = workingRow(0, t, SHA256_DIGEST_WORDS);
+        int rowD = workingRow(3, t, SHA256_DIGEST_WORDS);
+        int rowE = workingRow(4, t, SHA256_DIGEST_WORDS);
+        int rowH = workingRow(7, t, SHA256_DIGEST_WORDS);
+        IntVector a = load(v, rowA);
+        IntVector b = load(v, workingRow(1, t, SHA256_DIGEST_WORDS));
+        IntVector c = load(v, workingRow(2, t, SHA256_DIGEST_WORDS));
+        IntVector e = load(v, rowE);
+        IntVector f = load(v, workingRow(5, t, SHA256_DIGEST_WORDS));
+        IntVector g = load(v, workingRow(6, t, SHA256_DIGEST_WORDS));
+        IntVector s1 = xor(xor(rotateRight(e, 6), rotateRight(e, 11)), rotateRight(e, 25));
+        IntVector ch = xor(e.and(f), e.not().and(g));
+        IntVector temp1 = load(v, rowH).add(s1).add(ch).add(SHA256_K[t]).add(load(w, t));
+        IntVector s0 = xor(xor(rotateRight(a, 2), rotateRight(a, 13)), rotateRight(a, 22));
+        IntVector maj = xor(xor(a.and(b), a.and(c)), b.and(c));
+        // the row of h becomes a, the row of d becomes e
+        temp1.add(s0).add(maj).intoArray(v, rowH * LANES);
+        load(v, rowD).add(temp1).intoArray(v, rowD * LANES);
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="RIPEMD-160">
+    private void ripemd160OfSha256() {
+        for (int i = 0; i < SHA256_DIGEST_WORDS; i++) {
+            reverseBytes(load(sha256State, i)).intoArray(x, i * LANES);
+        }
+        ripemd160Compress();
+    }
+
+    private void ripemd160Compress() {
+        for (int i = 0; i < RIPEMD160_IV.length; i++) {
+            Arrays.fill(ripemd160Left, i * LANES, (i + 1) * LANES, RIPEMD160_IV[i]);
+            Arrays.fill(ripemd160Right, i * LANES, (i + 1) * LANES, RIPEMD160_IV[i]);
+        }
+        for (int j = 0; j < 16; j++) {
+            ripemd160Round1(j);
+        }
+        for (int j = 16; j < 32; j++) {
+            ripemd160Round2(j);
+        }
+        for (int j = 32; j < 48; j++) {
+            ripemd160Round3(j);
+        }
+        for (int j = 48; j < 64; j++) {
+            ripemd160Round4(j);
+        }
+        for (int j = 64; j < 80; j++) {
+            ripemd160Round5(j);
+        }
+
+        // after 80 steps every working variable is back in its row
+        final int[] left = this.ripemd160Left;
+        final int[] right = this.ripemd160Right;
+        IntVector h0 = IntVector.broadcast(SPECIES, RIPEMD160_IV[0]);
+        IntVector h1 = IntVector.broadcast(SPECIES, RIPEMD160_IV[1]);
+        IntVector h2 = IntVector.broadcast(SPECIES, RIPEMD160_IV[2]);
+        IntVector h3 = IntVector.broadcast(SPECIES, RIPEMD160_IV[3]);
+        IntVector h4 = IntVector.broadcast(SPECIES, RIPEMD160_IV[4]);
+        h1.add(load(left, 2)).add(load(right, 3)).intoArray(ripemd160State, 0);
+        h2.add(load(left, 3)).add(load(right, 4)).intoArray(ripemd160State, LANES);
+        h3.add(load(left, 4)).add(load(right, 0)).intoArray(ripemd160State, 2 * LANES);
+        h4.add(load(left, 0)).add(load(right, 1)).intoArray(ripemd160State, 3 * LANES);
+        h0.add(load(left, 1)).add(load(right, 2)).intoArray(ripemd160State, 4 * LANES);
+    }
+
+    /**
+     * One step of a line with the result {@code f} of its boolean function:
+     * the row of a becomes b (the new value), the row of c becomes d (c rotated).
+     */
+    private void ripemd160Step(int[] line, int j, IntVector f, int r, int k, int s) {
+        int rowA = workingRow(0, j, RIPEMD160_WORDS);
+        int rowC = workingRow(2, j, RIPEMD160_WORDS);
+        int rowE = workingRow(4, j, RIPEMD160_WORDS);
+        IntVector c = load(line, rowC);
+        rotateLeft(load(line, rowA).add(f).add(load(x, r)).add(k), s).add(load(line, rowE)).intoArray(line, rowA * LANES);
+        rotateLeft(c, 10).intoArray(line, rowC * LANES);
+    }
+
+    private IntVector b(int[] line, int j) {
+        return load(line, workingRow(1, j, RIPEMD160_WORDS));
+    }
+
+    private IntVector c(int[] line, int j) {
+        return load(line, workingRow(2, j, RIPEMD160_WORDS));
+    }
+
+    private IntVector d(int[] line, int j) {
+        return load(line, workingRow(3, j, RIPEMD160_WORDS));
+    }
+
+    /**
+     * Round 1: left f = x ^ y ^ z, right f = x ^ (y | ~z).
+     */
+    private void ripemd160Round1(int j) {
+        final int[] l = ripemd160Left, r = ripemd160Right;
+        ripemd160Step(l, j, xor(xor(b(l, j), c(l, j)), d(l, j)), RIPEMD160_R_LEFT[j], RIPEMD160_K_LEFT[0], RIPEMD160_S_LEFT[j]);
+        ripemd160Step(r, j, xor(b(r, j), c(r, j).or(d(r, j).not())), RIPEMD160_R_RIGHT[j], RIPEMD160_K_RIGHT[0], RIPEMD160_S_RIGHT[j]);
+    }
+
+    /**
+     * Round 2: left f = (x & y) | (~x & z), right f = (x & z) | (y & ~z).
+     */
+    private void ripemd160Round2(int j) {
+        final int[] l = ripemd160Left, r = ripemd160Right;
+        IntVector bl = b(l, j);
+        ripemd160Step(l, j, bl.and(c(l, j)).or(bl.not().and(d(l, j))), RIPEMD160_R_LEFT[j], RIPEMD160_K_LEFT[1], RIPEMD160_S_LEFT[j]);
+        IntVector dr = d(r, j);
+        ripemd160Step(r, j, b(r, j).and(dr).or(c(r, j).and(dr.not())), RIPEMD160_R_RIGHT[j], RIPEMD160_K_RIGHT[1], RIPEMD160_S_RIGHT[j]);
+    }
+
+    /**
+     * Round 3: both f = (x | ~y) ^ z.
+     */
+    private void ripemd160Round3(int j) {
+        final int[] l = ripemd160Left, r = ripemd160Right;
+        ripemd160Step(l, j, xor(b(l, j).or(c(l, j).not()), d(l, j)), RIPEMD160_R_LEFT[j], RIPEMD160_K_LEFT[2], RIPEMD160_S_LEFT[j]);
+        ripemd160Step(r, j, xor(b(r, j).or(c(r, j).not()), d(r, j)), RIPEMD160_R_RIGHT[j], RIPEMD160_K_RIGHT[2], RIPEMD160_S_RIGHT[j]);
+    }
+
+    /**
+     * Round 4: left f = (x & z) | (y & ~z), right f = (x & y) | (~x & z).
+     */
+    private void ripemd160Round4(int j) {
+        final int[] l = ripemd160Left, r = ripemd160Right;
+        IntVector dl = d(l, j);
+        ripemd160Step(l, j, b(l, j).and(dl).or(c(l, j).and(dl.not())), RIPEMD160_R_LEFT[j], RIPEMD160_K_LEFT[3], RIPEMD160_S_LEFT[j]);
+        IntVector br = b(r, j);
+        ripemd160Step(r, j, br.and(c(r, j)).or(br.not().and(d(r, j))), RIPEMD160_R_RIGHT[j], RIPEMD160_K_RIGHT[3], RIPEMD160_S_RIGHT[j]);
+    }
+
+    /**
+     * Round 5: left f = x ^ (y | ~z), right f = x ^ y ^ z.
+     */
+    private void ripemd160Round5(int j) {
+        final int[] l = ripemd160Left, r = ripemd160Right;
+        ripemd160Step(l, j, xor(b(l, j), c(l, j).or(d(l, j).not())), RIPEMD160_R_LEFT[j], RIPEMD160_K_LEFT[4], RIPEMD160_S_LEFT[j]);
+        ripemd160Step(r, j, xor(xor(b(r, j), c(r, j)), d(r, j)), RIPEMD160_R_RIGHT[j], RIPEMD160_K_RIGHT[4], RIPEMD160_S_RIGHT[j]);
+    }
+    // </editor-fold>
+
+    /**
+     * Writes the little endian words of the RIPEMD-160 state of all lanes.
+     */
+    private void store(ByteBuffer dst, int position, int stride) {
+        for (int lane = 0; lane < LANES; lane++) {
+            int lanePosition = position + lane * stride;
+            for (int i = 0; i < RIPEMD160_WORDS; i++) {
+                int h = ripemd160State[i * LANES + lane];
+                int offset = lanePosition + i * Integer.BYTES;
+                dst.put(offset, (byte) h);
+                dst.put(offset + 1, (byte) (h >>> 8));
+                dst.put(offset + 2, (byte) (h >>> 16));
+                dst.put(offset + 3, (byte) (h >>> 24));
+            }
+        }
+    }
+}
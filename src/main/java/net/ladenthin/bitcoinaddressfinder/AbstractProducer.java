@@ -48,12 +48,19 @@ public abstract class AbstractProducer implements Producer {
     @Override
     public void run() {
         running.set(true);
-        while (shouldRun.get()) {
+        while (shouldRun.get() && !isCompleted()) {
             produceKeys();
         }
         running.set(false);
     }
     
+    /**
+     * @return {@code true} if the producer has no more keys to produce (e.g. a scanned range is exhausted)
+     */
+    protected boolean isCompleted() {
+        return false;
+    }
+
     @Override
     public boolean isRunning() {
         return running.get();
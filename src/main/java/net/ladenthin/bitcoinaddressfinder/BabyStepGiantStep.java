@@ -0,0 +1,530 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import net.ladenthin.bitcoinaddressfinder.configuration.CBabyStepGiantStep;
+import net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Engine;
+import net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Field;
+import net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Point;
+import org.bitcoinj.core.ECKey;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.util.encoders.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Searches the secrets of known public keys in a bounded range with the
+ * baby-step giant-step algorithm.
+ * <p>
+ * The baby steps {@code j * G} ({@code j} in {@code 1..m}) are stored in a
+ * {@link BabyStepTable}. The range is split into giant steps of
+ * {@code 2m + 1} secrets around a center {@code c}. For a target {@code Q}
+ * the point {@code Q - c * G} is looked up: an x coordinate of the table
+ * means {@code Q - c * G = ±j * G}, the secret is {@code c ± j}. The
+ * negation symmetry doubles the secrets covered by a table entry.
+ * <p>
+ * The giant steps are distributed in chunks over the threads. Within a
+ * chunk a thread walks {@link PublicKeyBytes#NORMALIZATION_BATCH_SIZE}
+ * consecutive giant steps at once, the walkers are normalized together with
+ * one field inversion per round. The chunks below the lowest unfinished chunk
+ * are stored in the {@link CBabyStepGiantStep#checkpointFile}.
+ */
+public class BabyStepGiantStep implements Runnable, Interruptable {
+
+    private static final int ONE_SECOND_IN_MILLISECONDS = 1000;
+    public static final String HIT_PREFIX = "hit: Found the secret of: ";
+
+    /**
+     * The number of rounds of all walkers of a thread in a chunk.
+     */
+    static final int ROUNDS_PER_CHUNK = 64;
+
+    private static final String CHECKPOINT_RANGE_START = "rangeStart";
+    private static final String CHECKPOINT_RANGE_END = "rangeEnd";
+    private static final String CHECKPOINT_BABY_STEPS = "babySteps";
+    private static final String CHECKPOINT_WALKERS = "walkers";
+    private static final String CHECKPOINT_COMPLETED_CHUNKS = "completedChunks";
+    private static final String CHECKPOINT_SECRET_PREFIX = "secret.";
+
+    private final Logger logger = LoggerFactory.getLogger(BabyStepGiantStep.class);
+
+    private final CBabyStepGiantStep babyStepGiantStep;
+    private final AtomicBoolean shouldRun;
+    private final Timer timer = new Timer();
+
+    /**
+     * The public keys in the configured order.
+     */
+    private final Map<String, Target> targets = new LinkedHashMap<>();
+
+    private BigInteger rangeStart;
+    private BigInteger rangeEnd;
+    private int babySteps;
+    private BigInteger giantStride;
+    private long giantStepCount;
+    private int walkers;
+    private long giantStepsPerChunk;
+    private long chunkCount;
+    private final long[] negatedWalkStepX = Secp256k1Field.create();
+    private final long[] negatedWalkStepY = Secp256k1Field.create();
+    private BabyStepTable babyStepTable;
+
+    private final AtomicLong nextBabyStepBlock = new AtomicLong();
+    private final AtomicLong nextChunk = new AtomicLong();
+    /**
+     * The finished chunks above {@link #completedChunks}, guarded by {@code this}.
+     */
+    private final TreeSet<Long> finishedChunks = new TreeSet<>();
+    /**
+     * All chunks below are finished, guarded by {@code this}.
+     */
+    private long completedChunks;
+    private final AtomicLong finishedChunksOfThisRun = new AtomicLong();
+    private final AtomicLong giantSteps = new AtomicLong();
+    private final AtomicLong candidates = new AtomicLong();
+    private long startTime;
+
+    private static class Target {
+        private final String publicKey;
+        private final long[] x = Secp256k1Field.create();
+        private final long[] y = Secp256k1Field.create();
+        private volatile BigInteger secret;
+
+        private Target(String publicKey) {
+            this.publicKey = publicKey;
+            ECPoint point = ECKey.CURVE.getCurve().decodePoint(Hex.decode(publicKey)).normalize();
+            Secp256k1Field.fromBigInteger(x, point.getAffineXCoord().toBigInteger());
+            Secp256k1Field.fromBigInteger(y, point.getAffineYCoord().toBigInteger());
+        }
+    }
+
+    public BabyStepGiantStep(CBabyStepGiantStep babyStepGiantStep, AtomicBoolean shouldRun) {
+        this.babyStepGiantStep = babyStepGiantStep;
+        this.shouldRun = shouldRun;
+    }
+
+    @Override
+    public void run() {
+        if (babyStepGiantStep.publicKeys.isEmpty()) {
+            throw new IllegalArgumentException("No public keys configured.");
+        }
+        for (String publicKey : babyStepGiantStep.publicKeys) {
+            targets.put(publicKey, new Target(publicKey));
+        }
+        initRange();
+        readCheckpoint();
+        if (allFound()) {
+            logger.info("All secrets found already.");
+            return;
+        }
+        if (completedChunks >= chunkCount) {
+            logger.info("The range was searched already.");
+            return;
+        }
+
+        long capacity = (long) babySteps * 2;
+        logger.info("Calculate " + babySteps + " baby steps (" + new ByteConversion().bytesToMib(capacity * BabyStepTable.ENTRY_NUM_BYTES) + " MiB) ...");
+        babyStepTable = new BabyStepTable(capacity);
+        try {
+            runInThreads(this::calculateBabySteps);
+            logger.info("... baby steps done.");
+
+            logger.info("Search " + giantStepCount + " giant steps of " + giantStride + " secrets for " + targets.size() + " public keys in " + chunkCount + " chunks, start with chunk " + completedChunks + ".");
+            startTime = System.currentTimeMillis();
+            startTimers();
+            try {
+                runInThreads(this::searchChunks);
+            } finally {
+                timer.cancel();
+                writeCheckpoint();
+            }
+            logger.info(createStatisticsMessage());
+        } finally {
+            babyStepTable.free();
+        }
+    }
+
+    private void initRange() {
+        rangeStart = babyStepGiantStep.rangeStart != null ? new BigInteger(babyStepGiantStep.rangeStart, 16) : BigInteger.ONE;
+        rangeEnd = babyStepGiantStep.rangeEnd != null ? new BigInteger(babyStepGiantStep.rangeEnd, 16) : BigInteger.ONE.shiftLeft(babyStepGiantStep.privateKeyMaxNumBits);
+        rangeEnd = rangeEnd.min(Secp256k1Engine.N);
+        if (rangeStart.signum() <= 0 || rangeStart.compareTo(rangeEnd) >= 0) {
+            throw new IllegalArgumentException("Invalid range: " + rangeStart.toString(16) + " to " + rangeEnd.toString(16));
+        }
+        BigInteger rangeSize = rangeEnd.subtract(rangeStart);
+
+        long capacity = BabyStepTable.capacityForMemory(babyStepGiantStep.babyStepTableMemoryInMiB * 1024L * 1024L);
+        // a table filled to one half, no more baby steps than the range needs
+        BigInteger halfRange = rangeSize.add(BigInteger.ONE).shiftRight(1);
+        babySteps = (int) Math.max(1L, BigInteger.valueOf(capacity / 2).min(halfRange).longValue());
+        giantStride = BigInteger.valueOf(2L * babySteps + 1);
+
+        BigInteger[] giantStepCountAndRemainder = rangeSize.divideAndRemainder(giantStride);
+        BigInteger giantStepCountBig = giantStepCountAndRemainder[0].add(giantStepCountAndRemainder[1].signum() != 0 ? BigInteger.ONE : BigInteger.ZERO);
+        if (giantStepCountBig.bitLength() >= Long.SIZE - Integer.SIZE) {
+            throw new IllegalArgumentException("The range is too large for the baby step table: " + giantStepCountBig + " giant steps");
+        }
+        giantStepCount = giantStepCountBig.longValue();
+        walkers = (int) Math.min(PublicKeyBytes.NORMALIZATION_BATCH_SIZE, giantStepCount);
+        giantStepsPerChunk = (long) walkers * ROUNDS_PER_CHUNK;
+        chunkCount = (giantStepCount + giantStepsPerChunk - 1) / giantStepsPerChunk;
+
+        // all walkers move by walkers * giantStride each round
+        Secp256k1Engine engine = Secp256k1Engine.get();
+        Secp256k1Point walkStep = new Secp256k1Point();
+        engine.multiplyG(walkStep, giantStride.multiply(BigInteger.valueOf(walkers)));
+        engine.normalize(walkStep);
+        Secp256k1Field.set(negatedWalkStepX, walkStep.x);
+        Secp256k1Field.negate(negatedWalkStepY, walkStep.y);
+    }
+
+    /**
+     * @return the center secret of the giant step
+     */
+    private BigInteger center(long giantStep) {
+        return rangeStart.add(BigInteger.valueOf(babySteps)).add(giantStride.multiply(BigInteger.valueOf(giantStep)));
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Baby steps">
+    /**
+     * This method runs in multiple threads.
+     */
+    private void calculateBabySteps() {
+        final int blockSize = PublicKeyBytes.NORMALIZATION_BATCH_SIZE;
+        final long blocks = (babySteps + blockSize - 1) / blockSize;
+        final Secp256k1Engine engine = Secp256k1Engine.get();
+        final Secp256k1Point[] points = createPoints(blockSize);
+        long block;
+        while (shouldRun.get() && (block = nextBabyStepBlock.getAndIncrement()) < blocks) {
+            int first = (int) (block * blockSize) + 1;
+            int length = Math.min(blockSize, babySteps - first + 1);
+            engine.multiplyG(points[0], BigInteger.valueOf(first));
+            for (int i = 1; i < length; i++) {
+                engine.addAffine(points[i], points[i - 1], Secp256k1Engine.getGx(), Secp256k1Engine.getGy());
+            }
+            engine.normalize(points, length);
+            synchronized (babyStepTable) {
+                for (int i = 0; i < length; i++) {
+                    babyStepTable.put(points[i].x, first + i);
+                }
+            }
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Giant steps">
+    /**
+     * This method runs in multiple threads.
+     */
+    private void searchChunks() {
+        final Secp256k1Point[] walkerPoints = createPoints(walkers);
+        final Secp256k1Point check = new Secp256k1Point();
+        long chunk;
+        while (shouldRun.get() && !allFound() && (chunk = nextChunk.getAndIncrement()) < chunkCount) {
+            for (Target target : targets.values()) {
+                if (target.secret == null) {
+                    searchChunk(chunk, target, walkerPoints, check);
+                }
+            }
+            if (!shouldRun.get()) {
+                // the chunk is incomplete
+                return;
+            }
+            finishChunk(chunk);
+        }
+    }
+
+    private void searchChunk(long chunk, Target target, Secp256k1Point[] walkerPoints, Secp256k1Point check) {
+        final Secp256k1Engine engine = Secp256k1Engine.get();
+        final long firstGiantStep = chunk * giantStepsPerChunk;
+        final long[] negatedX = Secp256k1Field.create();
+        final long[] negatedY = Secp256k1Field.create();
+
+        // walker w starts at Q - center(firstGiantStep + w) * G
+        for (int w = 0; w < walkers; w++) {
+            engine.multiplyG(walkerPoints[w], center(firstGiantStep + w));
+        }
+        engine.normalize(walkerPoints, walkers);
+        for (int w = 0; w < walkers; w++) {
+            if (walkerPoints[w].isInfinity()) {
+                // the center is a multiple of n
+                walkerPoints[w].setAffine(target.x, target.y);
+                continue;
+            }
+            Secp256k1Field.set(negatedX, walkerPoints[w].x);
+            Secp256k1Field.negate(negatedY, walkerPoints[w].y);
+            walkerPoints[w].setAffine(target.x, target.y);
+            engine.addAffine(walkerPoints[w], walkerPoints[w], negatedX, negatedY);
+        }
+
+        for (int round = 0; round < ROUNDS_PER_CHUNK && shouldRun.get() && target.secret == null; round++) {
+            long roundFirstGiantStep = firstGiantStep + (long) round * walkers;
+            int active = (int) Math.min(walkers, giantStepCount - roundFirstGiantStep);
+            if (active <= 0) {
+                return;
+            }
+            engine.normalize(walkerPoints, active);
+            for (int w = 0; w < active; w++) {
+                lookup(target, walkerPoints[w], roundFirstGiantStep + w, check);
+            }
+            giantSteps.addAndGet(active);
+            for (int w = 0; w < walkers; w++) {
+                engine.addAffine(walkerPoints[w], walkerPoints[w], negatedWalkStepX, negatedWalkStepY);
+            }
+        }
+    }
+
+    /**
+     * @param walker {@code Q - center(giantStep) * G}, normalized
+     */
+    private void lookup(Target target, Secp256k1Point walker, long giantStep, Secp256k1Point check) {
+        if (walker.isInfinity()) {
+            found(target, center(giantStep));
+            return;
+        }
+        for (long slot = babyStepTable.nextCandidate(walker.x, babyStepTable.homeSlot(walker.x)); slot != BabyStepTable.NO_CANDIDATE; slot = babyStepTable.nextCandidate(walker.x, babyStepTable.nextSlot(slot))) {
+            candidates.incrementAndGet();
+            BigInteger babyStep = BigInteger.valueOf(babyStepTable.getBabyStep(slot));
+            Secp256k1Engine engine = Secp256k1Engine.get();
+            engine.multiplyG(check, babyStep);
+            engine.normalize(check);
+            if (!Secp256k1Field.equals(check.x, walker.x)) {
+                // a fingerprint collision
+                continue;
+            }
+            BigInteger center = center(giantStep);
+            found(target, Secp256k1Field.equals(check.y, walker.y) ? center.add(babyStep) : center.subtract(babyStep));
+            return;
+        }
+    }
+
+    private void found(Target target, BigInteger secret) {
+        Secp256k1Engine engine = Secp256k1Engine.get();
+        Secp256k1Point point = new Secp256k1Point();
+        engine.multiplyG(point, secret);
+        engine.normalize(point);
+        if (point.isInfinity() || !Secp256k1Field.equals(point.x, target.x) || !Secp256k1Field.equals(point.y, target.y)) {
+            logger.error("The secret " + secret.toString(16) + " does not belong to: " + target.publicKey);
+            return;
+        }
+        target.secret = secret;
+        logger.info(HIT_PREFIX + target.publicKey + " secret: " + secret.toString(16));
+    }
+
+    private boolean allFound() {
+        for (Target target : targets.values()) {
+            if (target.secret == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private synchronized void finishChunk(long chunk) {
+        finishedChunks.add(chunk);
+        while (!finishedChunks.isEmpty() && finishedChunks.first() == completedChunks) {
+            finishedChunks.pollFirst();
+            completedChunks++;
+        }
+        finishedChunksOfThisRun.incrementAndGet();
+    }
+    // </editor-fold>
+
+    /**
+     * @return the found secrets by public key
+     */
+    public Map<String, BigInteger> getSecrets() {
+        Map<String, BigInteger> secrets = new LinkedHashMap<>();
+        for (Target target : targets.values()) {
+            if (target.secret != null) {
+                secrets.put(target.publicKey, target.secret);
+            }
+        }
+        return Collections.unmodifiableMap(secrets);
+    }
+
+    private static Secp256k1Point[] createPoints(int length) {
+        Secp256k1Point[] points = new Secp256k1Point[length];
+        for (int i = 0; i < length; i++) {
+            points[i] = new Secp256k1Point();
+        }
+        return points;
+    }
+
+    /**
+     * Runs the task in all threads and waits for them.
+     */
+    private void runInThreads(Runnable runnable) {
+        ExecutorService executor = Executors.newFixedThreadPool(babyStepGiantStep.threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < babyStepGiantStep.threads; i++) {
+                futures.add(executor.submit(runnable));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Statistics and checkpoint">
+    private void startTimers() {
+        long statisticsPeriod = babyStepGiantStep.printStatisticsEveryNSeconds * (long) ONE_SECOND_IN_MILLISECONDS;
+        if (statisticsPeriod <= 0) {
+            throw new IllegalArgumentException("period must be greater than 0.");
+        }
+        timer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                logger.info(createStatisticsMessage());
+            }
+        }, statisticsPeriod, statisticsPeriod);
+
+        if (babyStepGiantStep.checkpointFile != null) {
+            long checkpointPeriod = babyStepGiantStep.checkpointEveryNSeconds * (long) ONE_SECOND_IN_MILLISECONDS;
+            if (checkpointPeriod <= 0) {
+                throw new IllegalArgumentException("period must be greater than 0.");
+            }
+            timer.scheduleAtFixedRate(new TimerTask() {
+                @Override
+                public void run() {
+                    writeCheckpoint();
+                }
+            }, checkpointPeriod, checkpointPeriod);
+        }
+    }
+
+    private String createStatisticsMessage() {
+        long uptime = Math.max(System.currentTimeMillis() - startTime, 1);
+        long uptimeInSeconds = Math.max(uptime / ONE_SECOND_IN_MILLISECONDS, 1);
+        long giantStepsDone = giantSteps.get();
+        BigInteger keysPerSecond = giantStride.multiply(BigInteger.valueOf(giantStepsDone)).divide(BigInteger.valueOf(uptimeInSeconds));
+        long completed;
+        synchronized (this) {
+            completed = completedChunks;
+        }
+        long finishedOfThisRun = finishedChunksOfThisRun.get();
+        long remainingChunks = chunkCount - completed;
+        String eta = finishedOfThisRun == 0 ? "unknown" : TimeUnit.MILLISECONDS.toMinutes(uptime * remainingChunks / finishedOfThisRun) + " minutes";
+        int found = getSecrets().size();
+        return "Statistics: [Giant steps: " + giantStepsDone + "] [" + keysPerSecond.divide(BigInteger.valueOf(1_000_000L)) + " M keys/second] [Chunks: " + completed + " of " + chunkCount + " (" + (100 * completed / Math.max(chunkCount, 1)) + " %)] [ETA: " + eta + "] [Candidates: " + candidates.get() + "] [Found: " + found + " of " + targets.size() + "]";
+    }
+
+    private Properties createCheckpointIdentity() {
+        Properties properties = new Properties();
+        properties.setProperty(CHECKPOINT_RANGE_START, rangeStart.toString(16));
+        properties.setProperty(CHECKPOINT_RANGE_END, rangeEnd.toString(16));
+        properties.setProperty(CHECKPOINT_BABY_STEPS, Integer.toString(babySteps));
+        properties.setProperty(CHECKPOINT_WALKERS, Integer.toString(walkers));
+        return properties;
+    }
+
+    private void readCheckpoint() {
+        if (babyStepGiantStep.checkpointFile == null) {
+            return;
+        }
+        File file = new File(babyStepGiantStep.checkpointFile);
+        if (!file.exists()) {
+            return;
+        }
+        Properties checkpoint = new Properties();
+        try (InputStream inputStream = new FileInputStream(file)) {
+            checkpoint.load(inputStream);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        for (Map.Entry<Object, Object> entry : createCheckpointIdentity().entrySet()) {
+            if (!entry.getValue().equals(checkpoint.getProperty((String) entry.getKey()))) {
+                logger.warn("The checkpoint " + file.getAbsolutePath() + " belongs to another search (" + entry.getKey() + "), start from the beginning.");
+                return;
+            }
+        }
+        synchronized (this) {
+            completedChunks = Long.parseLong(checkpoint.getProperty(CHECKPOINT_COMPLETED_CHUNKS, "0"));
+            nextChunk.set(completedChunks);
+        }
+        for (Target target : targets.values()) {
+            String secret = checkpoint.getProperty(CHECKPOINT_SECRET_PREFIX + target.publicKey);
+            if (secret != null) {
+                target.secret = new BigInteger(secret, 16);
+            }
+        }
+        logger.info("Resume from checkpoint " + file.getAbsolutePath() + ": " + completedChunks + " of " + chunkCount + " chunks completed.");
+    }
+
+    private void writeCheckpoint() {
+        if (babyStepGiantStep.checkpointFile == null) {
+            return;
+        }
+        Properties checkpoint = createCheckpointIdentity();
+        synchronized (this) {
+            checkpoint.setProperty(CHECKPOINT_COMPLETED_CHUNKS, Long.toString(completedChunks));
+        }
+        for (Map.Entry<String, BigInteger> secret : getSecrets().entrySet()) {
+            checkpoint.setProperty(CHECKPOINT_SECRET_PREFIX + secret.getKey(), secret.getValue().toString(16));
+        }
+        File file = new File(babyStepGiantStep.checkpointFile);
+        File temporaryFile = new File(file.getAbsolutePath() + ".tmp");
+        try {
+            try (OutputStream outputStream = new FileOutputStream(temporaryFile)) {
+                checkpoint.store(outputStream, BabyStepGiantStep.class.getSimpleName());
+            }
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Could not write the checkpoint: " + file.getAbsolutePath(), e);
+        }
+    }
+    // </editor-fold>
+
+    @Override
+    public void interrupt() {
+    }
+}
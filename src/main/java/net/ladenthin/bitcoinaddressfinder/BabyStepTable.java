@@ -0,0 +1,175 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The baby steps of {@link BabyStepGiantStep}: an off-heap, open-addressed
+ * (linear probing) hash table from the x coordinate of {@code j * G} to
+ * {@code j}. An entry is one long, the upper half is a fingerprint of the x
+ * coordinate, the lower half is {@code j}. The full x coordinate is not
+ * stored, a matching fingerprint is a candidate which must be verified.
+ * <p>
+ * The coordinates are uniformly distributed, the slot and the fingerprint
+ * are taken from the least significant limb without further hashing.
+ */
+public class BabyStepTable {
+
+    public static final int ENTRY_NUM_BYTES = Long.BYTES;
+
+    /**
+     * The number of entries of a segment, a single {@link ByteBuffer} of 1 GiB.
+     */
+    private static final int SEGMENT_SHIFT = 27;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    /**
+     * The baby steps must fit into the lower half of an entry with a load factor of at most one half.
+     */
+    public static final long MAX_CAPACITY = 1L << 31;
+
+    /**
+     * Returned by {@link #nextCandidate(long[], long)} if no further entry matches.
+     */
+    public static final long NO_CANDIDATE = -1L;
+
+    private static final long EMPTY = 0L;
+
+    private final ByteBufferUtility byteBufferUtility = new ByteBufferUtility(true);
+    private final long capacity;
+    private final long mask;
+    private final ByteBuffer[] segments;
+    private long size;
+
+    /**
+     * @param capacity the number of slots, a power of two
+     */
+    public BabyStepTable(long capacity) {
+        if (capacity < 2 || capacity > MAX_CAPACITY || Long.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two between 2 and " + MAX_CAPACITY + ": " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        int segmentEntries = (int) Math.min(capacity, 1L << SEGMENT_SHIFT);
+        segments = new ByteBuffer[(int) (capacity / segmentEntries)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = ByteBuffer.allocateDirect(segmentEntries * ENTRY_NUM_BYTES).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * @param memoryInBytes the memory budget
+     * @return the largest capacity which fits into the memory budget
+     */
+    public static long capacityForMemory(long memoryInBytes) {
+        long entries = Math.min(memoryInBytes / ENTRY_NUM_BYTES, MAX_CAPACITY);
+        if (entries < 2) {
+            throw new IllegalArgumentException("The memory is too small for a baby step table: " + memoryInBytes + " bytes");
+        }
+        return Long.highestOneBit(entries);
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long homeSlot(long[] x) {
+        return x[0] & mask;
+    }
+
+    public long nextSlot(long slot) {
+        return (slot + 1) & mask;
+    }
+
+    /**
+     * The slot uses at most the lower 31 bits of the least significant limb.
+     */
+    private static int fingerprint(long[] x) {
+        return (int) (x[0] >>> Integer.SIZE);
+    }
+
+    private long getEntry(long slot) {
+        return segments[(int) (slot >>> SEGMENT_SHIFT)].getLong(((int) slot & SEGMENT_MASK) * ENTRY_NUM_BYTES);
+    }
+
+    /**
+     * Not thread safe, the callers must synchronize.
+     *
+     * @param x the affine x coordinate of {@code babyStep * G}
+     * @param babyStep greater than zero
+     */
+    public void put(long[] x, int babyStep) {
+        if (babyStep <= 0) {
+            throw new IllegalArgumentException("babyStep must be greater than zero: " + babyStep);
+        }
+        if (size >= capacity - 1) {
+            throw new IllegalStateException("The baby step table is full: " + capacity);
+        }
+        long entry = ((long) fingerprint(x) << Integer.SIZE) | babyStep;
+        long slot = homeSlot(x);
+        while (getEntry(slot) != EMPTY) {
+            slot = nextSlot(slot);
+        }
+        segments[(int) (slot >>> SEGMENT_SHIFT)].putLong(((int) slot & SEGMENT_MASK) * ENTRY_NUM_BYTES, entry);
+        size++;
+    }
+
+    /**
+     * Iterates the candidates of an x coordinate, start with {@link #homeSlot(long[])}
+     * and continue with the {@link #nextSlot(long)} of the last candidate.
+     *
+     * @return the slot of the next entry with the fingerprint of {@code x} or {@link #NO_CANDIDATE}
+     */
+    public long nextCandidate(long[] x, long slot) {
+        final int fingerprint = fingerprint(x);
+        while (true) {
+            long entry = getEntry(slot);
+            if (entry == EMPTY) {
+                return NO_CANDIDATE;
+            }
+            if ((int) (entry >>> Integer.SIZE) == fingerprint) {
+                return slot;
+            }
+            slot = nextSlot(slot);
+        }
+    }
+
+    /**
+     * @return the baby step stored in the slot
+     */
+    public int getBabyStep(long slot) {
+        return (int) getEntry(slot);
+    }
+
+    /**
+     * Frees the off-heap memory. The table must not be used afterwards.
+     */
+    public void free() {
+        for (int i = 0; i < segments.length; i++) {
+            byteBufferUtility.freeByteBuffer(segments[i]);
+            segments[i] = null;
+        }
+    }
+}
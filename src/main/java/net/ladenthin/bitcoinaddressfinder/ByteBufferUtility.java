@@ -19,6 +19,7 @@
 package net.ladenthin.bitcoinaddressfinder;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import jdk.internal.ref.Cleaner;
 import org.bouncycastle.util.encoders.Hex;
 import sun.nio.ch.DirectBuffer;
@@ -56,6 +57,33 @@ public class ByteBufferUtility {
         }
     }
     
+    // <editor-fold defaultstate="collapsed" desc="ByteBuffer big endian access">
+    /**
+     * Reads a long in big endian independent of the byte order of the buffer (e.g. a buffer from the database).
+     * @param byteBuffer the buffer to read from (absolute)
+     * @param index the index of the first byte
+     * @return the long in big endian
+     */
+    public static long getLongBigEndian(ByteBuffer byteBuffer, int index) {
+        long value = byteBuffer.getLong(index);
+        if (byteBuffer.order() == ByteOrder.BIG_ENDIAN) {
+            return value;
+        }
+        return Long.reverseBytes(value);
+    }
+
+    /**
+     * See {@link #getLongBigEndian(java.nio.ByteBuffer, int)}.
+     */
+    public static int getIntBigEndian(ByteBuffer byteBuffer, int index) {
+        int value = byteBuffer.getInt(index);
+        if (byteBuffer.order() == ByteOrder.BIG_ENDIAN) {
+            return value;
+        }
+        return Integer.reverseBytes(value);
+    }
+    // </editor-fold>
+
     // <editor-fold defaultstate="collapsed" desc="ByteBuffer byte array conversion">
     public byte[] byteBufferToBytes(ByteBuffer byteBuffer) {
         byte[] bytes = new byte[byteBuffer.remaining()];
@@ -18,9 +18,26 @@
 // @formatter:on
 package net.ladenthin.bitcoinaddressfinder;
 
+import javax.annotation.Nullable;
+import net.ladenthin.bitcoinaddressfinder.persistence.filter.BlockedBloomFilter;
+
 interface Consumer {
 
-    void consumeKeys(PublicKeyBytes[] publicKeyBytes) throws InterruptedException;
+    /**
+     * The consumer takes the ownership of the batch and frees it after the
+     * consumption. The consumed callback of the batch is run after all keys
+     * are checked, see {@link PublicKeyBytesBatch#setConsumedCallback(Runnable)}.
+     *
+     * @return {@code false} if the batch was dropped because of a shutdown,
+     * its keys are not checked and its consumed callback is not run
+     */
+    boolean consumeKeys(PublicKeyBytesBatch publicKeyBytesBatch) throws InterruptedException;
 
     void startConsumer();
+
+    /**
+     * @return the membership filter of the addresses, {@code null} if the consumer has none
+     */
+    @Nullable
+    BlockedBloomFilter getAddressFilter();
 }
@@ -18,9 +18,13 @@
 // @formatter:on
 package net.ladenthin.bitcoinaddressfinder;
 
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,16 +33,22 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import net.ladenthin.bitcoinaddressfinder.configuration.CAddressFilter;
 import net.ladenthin.bitcoinaddressfinder.configuration.CConsumerJava;
+import net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Endomorphism;
 import net.ladenthin.bitcoinaddressfinder.persistence.Persistence;
 import net.ladenthin.bitcoinaddressfinder.persistence.PersistenceUtils;
+import net.ladenthin.bitcoinaddressfinder.persistence.filter.BlockedBloomFilter;
 import net.ladenthin.bitcoinaddressfinder.persistence.lmdb.LMDBPersistence;
+import net.ladenthin.bitcoinaddressfinder.persistence.sorted.SortedHash160FilePersistence;
 import org.apache.commons.codec.binary.Hex;
 import org.bitcoinj.core.ECKey;
 import org.bitcoinj.crypto.MnemonicException;
@@ -51,32 +61,57 @@ public class ConsumerJava implements Consumer {
     public static final String VANITY_HIT_PREFIX = "vanity pattern match: ";
     public static final String HIT_SAFE_PREFIX = "hit: safe log: ";
 
+    /**
+     * The maximum number of keys of a slice expanded at once by their endomorphism keys.
+     */
+    static final int ENDOMORPHISM_SOURCE_KEYS = 1 << 12;
+
     private Logger logger = LoggerFactory.getLogger(this.getClass());
 
     private final KeyUtility keyUtility;
     protected final AtomicLong checkedKeys = new AtomicLong();
     protected final AtomicLong checkedKeysSumOfTimeToCheckContains = new AtomicLong();
     protected final AtomicLong emptyConsumer = new AtomicLong();
+    protected final AtomicLong consumerWaitTimeInNanoseconds = new AtomicLong();
+    protected final AtomicLong producerWaitTimeInNanoseconds = new AtomicLong();
     protected final AtomicLong hits = new AtomicLong();
+    protected final AtomicLong filterHits = new AtomicLong();
+    protected final AtomicLong filterMisses = new AtomicLong();
     protected long startTime = 0;
 
     protected final CConsumerJava consumerJava;
     protected final Timer timer = new Timer();
 
     protected Persistence persistence;
+    protected BlockedBloomFilter addressFilter;
     private final PersistenceUtils persistenceUtils;
     
     private final List<Future<Void>> consumers = new ArrayList<>();
-    protected final LinkedBlockingQueue<PublicKeyBytes[]> keysQueue;
+    protected final MpmcRingBuffer<PublicKeyBytesBatch> keysQueue;
+    /**
+     * Batches taken from the {@link #keysQueue} with slices not claimed yet.
+     */
+    private final ConcurrentLinkedQueue<SlicedPublicKeyBytesBatch> slicedBatches = new ConcurrentLinkedQueue<>();
     private final ByteBufferUtility byteBufferUtility = new ByteBufferUtility(true);
     private final AtomicBoolean shouldRun;
     
     protected final AtomicLong vanityHits = new AtomicLong();
     private final Pattern vanityPattern;
 
+    /**
+     * The hash160 engine of every consumer thread.
+     */
+    private final ThreadLocal<Hash160BatchEngine> hash160BatchEngine;
+
+    /**
+     * The batch of every consumer thread the endomorphism keys are derived
+     * into, allocated on demand and reused for every slice.
+     */
+    private final ThreadLocal<PublicKeyBytesBatch> endomorphismBatch = new ThreadLocal<>();
+
     protected ConsumerJava(CConsumerJava consumerJava, AtomicBoolean shouldRun, KeyUtility keyUtility, PersistenceUtils persistenceUtils) {
         this.consumerJava = consumerJava;
-        this.keysQueue = new LinkedBlockingQueue<>(consumerJava.queueSize);
+        this.keysQueue = new MpmcRingBuffer<>(consumerJava.queueSize, consumerJava.waitStrategy, TimeUnit.MICROSECONDS.toNanos(consumerJava.parkTimeInMicroseconds));
         this.shouldRun = shouldRun;
         this.keyUtility = keyUtility;
         this.persistenceUtils = persistenceUtils;
@@ -85,6 +120,10 @@ public class ConsumerJava implements Consumer {
         } else {
             vanityPattern = null;
         }
+        if (consumerJava.useVectorApiHash160 && !Hash160BatchEngines.isVectorApiAvailable()) {
+            logger.warn("The Vector API is not available (JDK 17 or newer and --add-modules jdk.incubator.vector required), use the scalar hash160 engine.");
+        }
+        this.hash160BatchEngine = ThreadLocal.withInitial(() -> Hash160BatchEngines.create(consumerJava.useVectorApiHash160));
     }
 
     Logger getLogger() {
@@ -96,11 +135,47 @@ public class ConsumerJava implements Consumer {
     }
 
     protected void initLMDB() {
-        persistence = new LMDBPersistence(consumerJava.lmdbConfigurationReadOnly, persistenceUtils);
+        if (consumerJava.sortedHash160FileConfigurationReadOnly != null) {
+            persistence = new SortedHash160FilePersistence(consumerJava.sortedHash160FileConfigurationReadOnly, persistenceUtils);
+        } else {
+            persistence = new LMDBPersistence(consumerJava.lmdbConfigurationReadOnly, persistenceUtils);
+        }
         persistence.init();
+        initAddressFilter();
     }
 
-    private String createStatisticsMessage(long uptime, long keys, long keysSumOfTimeToCheckContains, long emptyConsumer, long hits) {
+    protected void initAddressFilter() {
+        CAddressFilter cAddressFilter = consumerJava.addressFilter;
+        if (cAddressFilter == null) {
+            return;
+        }
+        File filterFile = cAddressFilter.filterFile != null ? new File(cAddressFilter.filterFile) : null;
+        try {
+            if (filterFile != null && filterFile.exists()) {
+                logger.info("Load address filter from: " + filterFile.getAbsolutePath());
+                addressFilter = BlockedBloomFilter.readFromFile(filterFile);
+            } else {
+                long expectedInsertions = cAddressFilter.expectedInsertions;
+                if (expectedInsertions <= 0) {
+                    logger.info("Count the addresses for the address filter ...");
+                    expectedInsertions = persistence.count();
+                }
+                logger.info("Build address filter for " + expectedInsertions + " addresses ...");
+                BlockedBloomFilter blockedBloomFilter = BlockedBloomFilter.create(expectedInsertions, cAddressFilter.falsePositiveProbability);
+                persistence.forEachHash160(blockedBloomFilter::put);
+                if (filterFile != null) {
+                    logger.info("Write address filter to: " + filterFile.getAbsolutePath());
+                    blockedBloomFilter.writeToFile(filterFile);
+                }
+                addressFilter = blockedBloomFilter;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        logger.info("Address filter ready: " + new ByteConversion().bytesToMib(addressFilter.getSizeInBytes()) + " MiB, " + addressFilter.getNumberOfHashFunctions() + " hash functions.");
+    }
+
+    private String createStatisticsMessage(long uptime, long keys, long keysSumOfTimeToCheckContains, long emptyConsumer, long consumerWaitTimeInNanoseconds, long producerWaitTimeInNanoseconds, long hits, long filterHits, long filterMisses) {
         // calculate uptime
         long uptimeInSeconds = uptime / (long) ONE_SECOND_IN_MILLISECONDS;
         long uptimeInMinutes = uptimeInSeconds / 60;
@@ -110,7 +185,10 @@ public class ConsumerJava implements Consumer {
         // calculate average contains time
         long averageContainsTime = keysSumOfTimeToCheckContains / Math.max(keys, 1);
 
-        String message = "Statistics: [Checked " + (keys / 1_000_000L) + " M keys in " + uptimeInMinutes + " minutes] [" + (keysPerSecond/1_000L) + " k keys/second] [" + (keysPerMinute / 1_000_000L) + " M keys/minute] [Times an empty consumer: " + emptyConsumer + "] [Average contains time: " + averageContainsTime + " ms] [keys queue size: " + keysQueue.size() + "] [Hits: " + hits + "]";
+        String message = "Statistics: [Checked " + (keys / 1_000_000L) + " M keys in " + uptimeInMinutes + " minutes] [" + (keysPerSecond/1_000L) + " k keys/second] [" + (keysPerMinute / 1_000_000L) + " M keys/minute] [Times an empty consumer: " + emptyConsumer + "] [Average contains time: " + averageContainsTime + " ms] [keys queue size: " + keysQueue.size() + " of " + keysQueue.capacity() + "] [Consumer wait time: " + TimeUnit.NANOSECONDS.toMillis(consumerWaitTimeInNanoseconds) + " ms] [Producer wait time: " + TimeUnit.NANOSECONDS.toMillis(producerWaitTimeInNanoseconds) + " ms] [Hits: " + hits + "]";
+        if (addressFilter != null) {
+            message += " [Filter hits: " + filterHits + "] [Filter misses: " + filterMisses + "]";
+        }
         return message;
     }
 
@@ -128,7 +206,7 @@ public class ConsumerJava implements Consumer {
                 // get transient information
                 long uptime = Math.max(System.currentTimeMillis() - startTime, 1);
 
-                String message = createStatisticsMessage(uptime, checkedKeys.get(), checkedKeysSumOfTimeToCheckContains.get(), emptyConsumer.get(), hits.get());
+                String message = createStatisticsMessage(uptime, checkedKeys.get(), checkedKeysSumOfTimeToCheckContains.get(), emptyConsumer.get(), consumerWaitTimeInNanoseconds.get(), producerWaitTimeInNanoseconds.get(), hits.get(), filterHits.get(), filterMisses.get());
 
                 // log the information
                 logger.info(message);
@@ -136,6 +214,12 @@ public class ConsumerJava implements Consumer {
         }, period, period);
     }
 
+    @Override
+    @Nullable
+    public BlockedBloomFilter getAddressFilter() {
+        return addressFilter;
+    }
+
     @Override
     public void startConsumer() {
         ExecutorService executor = Executors.newFixedThreadPool(consumerJava.threads);
@@ -154,138 +238,263 @@ public class ConsumerJava implements Consumer {
     private void consumeKeysRunner() {
         logger.trace("Start consumeKeysRunner.");
         
-        ByteBuffer threadLocalReuseableByteBuffer = ByteBuffer.allocateDirect(PublicKeyBytes.HASH160_SIZE);
-        
+        try {
+            consumeKeysUntilShutdown();
+        } finally {
+            freeEndomorphismBatch();
+        }
+    }
+
+    private void consumeKeysUntilShutdown() {
         while (shouldRun.get()) {
-            if (keysQueue.size() >= consumerJava.queueSize) {
+            if (keysQueue.size() >= keysQueue.capacity()) {
                 logger.warn("Attention, queue is full. Please increase queue size.");
             }
             try {
-                consumeKeys(threadLocalReuseableByteBuffer);
+                consumeKeys();
                 emptyConsumer.incrementAndGet();
-                Thread.sleep(consumerJava.delayEmptyConsumer);
+                long timeBefore = System.nanoTime();
+                while (shouldRun.get() && keysQueue.isEmpty() && slicedBatches.isEmpty()) {
+                    keysQueue.awaitNotEmpty(TimeUnit.MILLISECONDS.toNanos(consumerJava.delayEmptyConsumer));
+                }
+                consumerWaitTimeInNanoseconds.addAndGet(System.nanoTime() - timeBefore);
             } catch (InterruptedException e) {
                 // we need to catch the exception to not break the thread
-                logger.error("Ignore InterruptedException during Thread.sleep.", e);
+                logger.error("Ignore InterruptedException during awaitNotEmpty.", e);
             } catch (Exception e) {
                 // log every Exception because it's hard to debug and we do not break down the thread loop
                 logger.error("Error in consumeKeysRunner()." , e);
                 e.printStackTrace();
             }
         }
-        
-        if (threadLocalReuseableByteBuffer != null) {
-            byteBufferUtility.freeByteBuffer(threadLocalReuseableByteBuffer);
-        }
     }
     
-    void consumeKeys(ByteBuffer threadLocalReuseableByteBuffer) throws MnemonicException.MnemonicLengthException {
-        PublicKeyBytes[] publicKeyBytesArray = keysQueue.poll();
-        while (publicKeyBytesArray != null) {
-            for (PublicKeyBytes publicKeyBytes : publicKeyBytesArray) {
-                if (publicKeyBytes.isInvalid()) {
-                    continue;
+    /**
+     * Consumes until the {@link #keysQueue} is empty. Slices of batches taken
+     * by other threads are consumed first.
+     */
+    void consumeKeys() throws MnemonicException.MnemonicLengthException {
+        while (true) {
+            SlicedPublicKeyBytesBatch slicedBatch = slicedBatches.peek();
+            if (slicedBatch == null) {
+                PublicKeyBytesBatch publicKeyBytesBatch = keysQueue.poll();
+                if (publicKeyBytesBatch == null) {
+                    return;
                 }
-                byte[] hash160Uncompressed = publicKeyBytes.getUncompressedKeyHash();
-
-                threadLocalReuseableByteBuffer.rewind();
-                threadLocalReuseableByteBuffer.put(hash160Uncompressed);
-                threadLocalReuseableByteBuffer.flip();
-
-                boolean containsAddressUncompressed = containsAddress(threadLocalReuseableByteBuffer);
-
-                byte[] hash160Compressed = publicKeyBytes.getCompressedKeyHash();
-                threadLocalReuseableByteBuffer.rewind();
-                threadLocalReuseableByteBuffer.put(hash160Compressed);
-                threadLocalReuseableByteBuffer.flip();
-
-                boolean containsAddressCompressed = containsAddress(threadLocalReuseableByteBuffer);
-
-                if (consumerJava.runtimePublicKeyCalculationCheck) {
-                    
-                    ECKey fromPrivateUncompressed = ECKey.fromPrivate(publicKeyBytes.getSecretKey(), false);
-                    ECKey fromPrivateCompressed = ECKey.fromPrivate(publicKeyBytes.getSecretKey(), true);
-                    
-                    final byte[] pubKeyUncompressedFromEcKey = fromPrivateUncompressed.getPubKey();
-                    final byte[] pubKeyCompressedFromEcKey = fromPrivateCompressed.getPubKey();
-                    
-                    final byte[] hash160UncompressedFromEcKey = fromPrivateUncompressed.getPubKeyHash();
-                    final byte[] hash160CompressedFromEcKey = fromPrivateCompressed.getPubKeyHash();
-                    
-                    if (!Arrays.equals(hash160UncompressedFromEcKey, hash160Uncompressed)) {
-                        logger.error("fromPrivateUncompressed.getPubKeyHash() != hash160Uncompressed");
-                        logger.error("getSecretKey: " + publicKeyBytes.getSecretKey());
-                        logger.error("pubKeyUncompressed: " + Hex.encodeHexString(publicKeyBytes.getUncompressed()));
-                        logger.error("pubKeyUncompressedFromEcKey: " + Hex.encodeHexString(pubKeyUncompressedFromEcKey));
-                        logger.error("hash160Uncompressed: " + Hex.encodeHexString(hash160Uncompressed));
-                        logger.error("hash160UncompressedFromEcKey: " + Hex.encodeHexString(hash160UncompressedFromEcKey));
+                if (publicKeyBytesBatch.isPrefiltered()) {
+                    // the keys the filter on the device rejected are checked too
+                    long rejectedHash160s = (long) publicKeyBytesBatch.getRejectedKeys() * PublicKeyBytesBatch.HASH160S_PER_KEY;
+                    checkedKeys.addAndGet(rejectedHash160s);
+                    filterMisses.addAndGet(rejectedHash160s);
+                }
+                if (publicKeyBytesBatch.size() == 0) {
+                    try {
+                        publicKeyBytesBatch.consumed();
+                    } finally {
+                        publicKeyBytesBatch.free();
                     }
-                    
-                    if (!Arrays.equals(hash160CompressedFromEcKey, hash160Compressed)) {
-                        logger.error("fromPrivateCompressed.getPubKeyHash() != hash160Compressed");
-                        logger.error("getSecretKey: " + publicKeyBytes.getSecretKey());
-                        logger.error("pubKeyCompressed: " + Hex.encodeHexString(publicKeyBytes.getCompressed()));
-                        logger.error("pubKeyCompressedFromEcKey: " + Hex.encodeHexString(pubKeyCompressedFromEcKey));
-                        logger.error("hash160Compressed: " + Hex.encodeHexString(hash160Compressed));
-                        logger.error("hash160CompressedFromEcKey: " + Hex.encodeHexString(hash160CompressedFromEcKey));
+                    continue;
+                }
+                slicedBatch = new SlicedPublicKeyBytesBatch(publicKeyBytesBatch, consumerJava.sliceSize);
+                if (slicedBatch.isSliced()) {
+                    // let the other threads help
+                    slicedBatches.add(slicedBatch);
+                    keysQueue.wakeUpConsumers();
+                }
+            }
+            consumeSlices(slicedBatch);
+        }
+    }
+
+    private void consumeSlices(SlicedPublicKeyBytesBatch slicedBatch) throws MnemonicException.MnemonicLengthException {
+        PublicKeyBytesBatch publicKeyBytesBatch = slicedBatch.getPublicKeyBytesBatch();
+        int fromIndex;
+        while ((fromIndex = slicedBatch.claimSlice()) != SlicedPublicKeyBytesBatch.NO_SLICE) {
+            boolean sliceConsumed = false;
+            try {
+                if (isEndomorphismKeysRequired(publicKeyBytesBatch)) {
+                    consumeKeysWithEndomorphismKeys(publicKeyBytesBatch, fromIndex, slicedBatch.getSliceEnd(fromIndex));
+                } else {
+                    consumeKeys(publicKeyBytesBatch, fromIndex, slicedBatch.getSliceEnd(fromIndex));
+                }
+                sliceConsumed = true;
+            } finally {
+                if (!sliceConsumed) {
+                    slicedBatch.failSlice();
+                }
+                if (slicedBatch.finishSlice(fromIndex)) {
+                    try {
+                        // the keys of a failed slice are not checked
+                        if (!slicedBatch.isFailed()) {
+                            publicKeyBytesBatch.consumed();
+                        }
+                    } finally {
+                        publicKeyBytesBatch.free();
                     }
                 }
+            }
+        }
+        // all slices are claimed
+        slicedBatches.remove(slicedBatch);
+    }
 
-                if (containsAddressUncompressed) {
+    /**
+     * @return {@code true} if the endomorphism keys must be derived from the public keys of the batch
+     */
+    private boolean isEndomorphismKeysRequired(PublicKeyBytesBatch publicKeyBytesBatch) {
+        return consumerJava.endomorphismKeys && publicKeyBytesBatch.hasPublicKeys() && !publicKeyBytesBatch.isPrefiltered() && !publicKeyBytesBatch.hasEndomorphismKeys();
+    }
+
+    /**
+     * Consumes the keys of a slice and their endomorphism keys. The keys are
+     * expanded in chunks of {@link #ENDOMORPHISM_SOURCE_KEYS} into the batch
+     * of this thread, the slice itself is not modified.
+     *
+     * @param fromIndex inclusive
+     * @param toIndex exclusive
+     */
+    private void consumeKeysWithEndomorphismKeys(PublicKeyBytesBatch publicKeyBytesBatch, int fromIndex, int toIndex) throws MnemonicException.MnemonicLengthException {
+        PublicKeyBytesBatch batch = getEndomorphismBatch();
+        for (int chunkStart = fromIndex; chunkStart < toIndex; chunkStart += ENDOMORPHISM_SOURCE_KEYS) {
+            int chunkEnd = Math.min(chunkStart + ENDOMORPHISM_SOURCE_KEYS, toIndex);
+            batch.reset(publicKeyBytesBatch.getSecretBase());
+            batch.addWithEndomorphismKeys(publicKeyBytesBatch, chunkStart, chunkEnd);
+            consumeKeys(batch, 0, batch.size());
+        }
+    }
+
+    private PublicKeyBytesBatch getEndomorphismBatch() {
+        PublicKeyBytesBatch batch = endomorphismBatch.get();
+        if (batch == null) {
+            batch = new PublicKeyBytesBatch(ENDOMORPHISM_SOURCE_KEYS * Secp256k1Endomorphism.VARIANTS, BigInteger.ZERO);
+            endomorphismBatch.set(batch);
+        }
+        return batch;
+    }
+
+    /**
+     * Frees the endomorphism batch of this thread, a later slice allocates a new one.
+     */
+    void freeEndomorphismBatch() {
+        PublicKeyBytesBatch batch = endomorphismBatch.get();
+        if (batch != null) {
+            endomorphismBatch.remove();
+            batch.free();
+        }
+    }
+
+    /**
+     * @param fromIndex inclusive
+     * @param toIndex exclusive
+     */
+    private void consumeKeys(PublicKeyBytesBatch publicKeyBytesBatch, int fromIndex, int toIndex) throws MnemonicException.MnemonicLengthException {
+        publicKeyBytesBatch.calculateHash160s(fromIndex, toIndex, hash160BatchEngine.get());
+        // the uncompressed and compressed hash160 of every key back to back
+        int count = (toIndex - fromIndex) * PublicKeyBytesBatch.HASH160S_PER_KEY;
+        BitSet containsAddresses = containsAddresses(publicKeyBytesBatch.getHash160s(fromIndex, toIndex), count);
+
+        // every key must be inspected, not only the hits
+        final boolean inspectEveryKey = consumerJava.enableVanity || consumerJava.runtimePublicKeyCalculationCheck || logger.isTraceEnabled();
+
+        for (int index = fromIndex; index < toIndex; index++) {
+            if (publicKeyBytesBatch.isInvalid(index)) {
+                continue;
+            }
+            int bitIndex = (index - fromIndex) * PublicKeyBytesBatch.HASH160S_PER_KEY;
+            boolean containsAddressUncompressed = containsAddresses.get(bitIndex);
+            boolean containsAddressCompressed = containsAddresses.get(bitIndex + 1);
+            if (!containsAddressUncompressed && !containsAddressCompressed && !inspectEveryKey) {
+                continue;
+            }
+
+            // the slow path, allocate the objects of the key
+            PublicKeyBytes publicKeyBytes = publicKeyBytesBatch.toPublicKeyBytes(index);
+            byte[] hash160Uncompressed = publicKeyBytesBatch.getUncompressedKeyHash(index);
+            byte[] hash160Compressed = publicKeyBytesBatch.getCompressedKeyHash(index);
+
+            if (consumerJava.runtimePublicKeyCalculationCheck) {
+                
+                ECKey fromPrivateUncompressed = ECKey.fromPrivate(publicKeyBytes.getSecretKey(), false);
+                ECKey fromPrivateCompressed = ECKey.fromPrivate(publicKeyBytes.getSecretKey(), true);
+                
+                final byte[] pubKeyUncompressedFromEcKey = fromPrivateUncompressed.getPubKey();
+                final byte[] pubKeyCompressedFromEcKey = fromPrivateCompressed.getPubKey();
+                
+                final byte[] hash160UncompressedFromEcKey = fromPrivateUncompressed.getPubKeyHash();
+                final byte[] hash160CompressedFromEcKey = fromPrivateCompressed.getPubKeyHash();
+                
+                if (!Arrays.equals(hash160UncompressedFromEcKey, hash160Uncompressed)) {
+                    logger.error("fromPrivateUncompressed.getPubKeyHash() != hash160Uncompressed");
+                    logger.error("getSecretKey: " + publicKeyBytes.getSecretKey());
+                    logger.error("pubKeyUncompressed: " + Hex.encodeHexString(publicKeyBytes.getUncompressed()));
+                    logger.error("pubKeyUncompressedFromEcKey: " + Hex.encodeHexString(pubKeyUncompressedFromEcKey));
+                    logger.error("hash160Uncompressed: " + Hex.encodeHexString(hash160Uncompressed));
+                    logger.error("hash160UncompressedFromEcKey: " + Hex.encodeHexString(hash160UncompressedFromEcKey));
+                }
+                
+                if (!Arrays.equals(hash160CompressedFromEcKey, hash160Compressed)) {
+                    logger.error("fromPrivateCompressed.getPubKeyHash() != hash160Compressed");
+                    logger.error("getSecretKey: " + publicKeyBytes.getSecretKey());
+                    logger.error("pubKeyCompressed: " + Hex.encodeHexString(publicKeyBytes.getCompressed()));
+                    logger.error("pubKeyCompressedFromEcKey: " + Hex.encodeHexString(pubKeyCompressedFromEcKey));
+                    logger.error("hash160Compressed: " + Hex.encodeHexString(hash160Compressed));
+                    logger.error("hash160CompressedFromEcKey: " + Hex.encodeHexString(hash160CompressedFromEcKey));
+                }
+            }
+
+            if (containsAddressUncompressed) {
+                // immediately log the secret
+                safeLog(publicKeyBytes, hash160Uncompressed, hash160Compressed);
+                hits.incrementAndGet();
+                ECKey ecKeyUncompressed = ECKey.fromPrivateAndPrecalculatedPublic(publicKeyBytes.getSecretKey().toByteArray(), publicKeyBytes.getUncompressed());
+                String hitMessageUncompressed = HIT_PREFIX + keyUtility.createKeyDetails(ecKeyUncompressed);
+                logger.info(hitMessageUncompressed);
+            }
+
+            if (containsAddressCompressed) {
+                // immediately log the secret
+                safeLog(publicKeyBytes, hash160Uncompressed, hash160Compressed);
+                hits.incrementAndGet();
+                ECKey ecKeyCompressed = ECKey.fromPrivateAndPrecalculatedPublic(publicKeyBytes.getSecretKey().toByteArray(), publicKeyBytes.getCompressed());
+                String hitMessageCompressed = HIT_PREFIX + keyUtility.createKeyDetails(ecKeyCompressed);
+                logger.info(hitMessageCompressed);
+            }
+
+            if (consumerJava.enableVanity) {
+                String uncompressedKeyHashAsBase58 = publicKeyBytes.getUncompressedKeyHashAsBase58(keyUtility);
+                Matcher uncompressedKeyHashAsBase58Matcher = vanityPattern.matcher(uncompressedKeyHashAsBase58);
+                if (uncompressedKeyHashAsBase58Matcher.matches()) {
                     // immediately log the secret
                     safeLog(publicKeyBytes, hash160Uncompressed, hash160Compressed);
-                    hits.incrementAndGet();
+                    vanityHits.incrementAndGet();
                     ECKey ecKeyUncompressed = ECKey.fromPrivateAndPrecalculatedPublic(publicKeyBytes.getSecretKey().toByteArray(), publicKeyBytes.getUncompressed());
-                    String hitMessageUncompressed = HIT_PREFIX + keyUtility.createKeyDetails(ecKeyUncompressed);
-                    logger.info(hitMessageUncompressed);
+                    String vanityHitMessageUncompressed = VANITY_HIT_PREFIX + keyUtility.createKeyDetails(ecKeyUncompressed);
+                    logger.info(vanityHitMessageUncompressed);
                 }
 
-                if (containsAddressCompressed) {
+                String compressedKeyHashAsBase58 = publicKeyBytes.getCompressedKeyHashAsBase58(keyUtility);
+                Matcher compressedKeyHashAsBase58Matcher = vanityPattern.matcher(compressedKeyHashAsBase58);
+                if (compressedKeyHashAsBase58Matcher.matches()) {
                     // immediately log the secret
                     safeLog(publicKeyBytes, hash160Uncompressed, hash160Compressed);
-                    hits.incrementAndGet();
+                    vanityHits.incrementAndGet();
                     ECKey ecKeyCompressed = ECKey.fromPrivateAndPrecalculatedPublic(publicKeyBytes.getSecretKey().toByteArray(), publicKeyBytes.getCompressed());
-                    String hitMessageCompressed = HIT_PREFIX + keyUtility.createKeyDetails(ecKeyCompressed);
-                    logger.info(hitMessageCompressed);
-                }
-
-                if (consumerJava.enableVanity) {
-                    String uncompressedKeyHashAsBase58 = publicKeyBytes.getUncompressedKeyHashAsBase58(keyUtility);
-                    Matcher uncompressedKeyHashAsBase58Matcher = vanityPattern.matcher(uncompressedKeyHashAsBase58);
-                    if (uncompressedKeyHashAsBase58Matcher.matches()) {
-                        // immediately log the secret
-                        safeLog(publicKeyBytes, hash160Uncompressed, hash160Compressed);
-                        vanityHits.incrementAndGet();
-                        ECKey ecKeyUncompressed = ECKey.fromPrivateAndPrecalculatedPublic(publicKeyBytes.getSecretKey().toByteArray(), publicKeyBytes.getUncompressed());
-                        String vanityHitMessageUncompressed = VANITY_HIT_PREFIX + keyUtility.createKeyDetails(ecKeyUncompressed);
-                        logger.info(vanityHitMessageUncompressed);
-                    }
-
-                    String compressedKeyHashAsBase58 = publicKeyBytes.getCompressedKeyHashAsBase58(keyUtility);
-                    Matcher compressedKeyHashAsBase58Matcher = vanityPattern.matcher(compressedKeyHashAsBase58);
-                    if (compressedKeyHashAsBase58Matcher.matches()) {
-                        // immediately log the secret
-                        safeLog(publicKeyBytes, hash160Uncompressed, hash160Compressed);
-                        vanityHits.incrementAndGet();
-                        ECKey ecKeyCompressed = ECKey.fromPrivateAndPrecalculatedPublic(publicKeyBytes.getSecretKey().toByteArray(), publicKeyBytes.getCompressed());
-                        String vanityHitMessageCompressed = VANITY_HIT_PREFIX + keyUtility.createKeyDetails(ecKeyCompressed);
-                        logger.info(vanityHitMessageCompressed);
-                    }
+                    String vanityHitMessageCompressed = VANITY_HIT_PREFIX + keyUtility.createKeyDetails(ecKeyCompressed);
+                    logger.info(vanityHitMessageCompressed);
                 }
+            }
 
-                if (!containsAddressUncompressed && !containsAddressCompressed) {
-                    if (logger.isTraceEnabled()) {
-                        ECKey ecKeyUncompressed = ECKey.fromPrivateAndPrecalculatedPublic(publicKeyBytes.getSecretKey().toByteArray(), publicKeyBytes.getUncompressed());
-                        String missMessageUncompressed = MISS_PREFIX + keyUtility.createKeyDetails(ecKeyUncompressed);
-                        logger.trace(missMessageUncompressed);
+            if (!containsAddressUncompressed && !containsAddressCompressed) {
+                if (logger.isTraceEnabled()) {
+                    ECKey ecKeyUncompressed = ECKey.fromPrivateAndPrecalculatedPublic(publicKeyBytes.getSecretKey().toByteArray(), publicKeyBytes.getUncompressed());
+                    String missMessageUncompressed = MISS_PREFIX + keyUtility.createKeyDetails(ecKeyUncompressed);
+                    logger.trace(missMessageUncompressed);
 
-                        ECKey ecKeyCompressed = ECKey.fromPrivateAndPrecalculatedPublic(publicKeyBytes.getSecretKey().toByteArray(), publicKeyBytes.getCompressed());
-                        String missMessageCompressed = MISS_PREFIX + keyUtility.createKeyDetails(ecKeyCompressed);
-                        logger.trace(missMessageCompressed);
-                    }
+                    ECKey ecKeyCompressed = ECKey.fromPrivateAndPrecalculatedPublic(publicKeyBytes.getSecretKey().toByteArray(), publicKeyBytes.getCompressed());
+                    String missMessageCompressed = MISS_PREFIX + keyUtility.createKeyDetails(ecKeyCompressed);
+                    logger.trace(missMessageCompressed);
                 }
             }
-            publicKeyBytesArray = keysQueue.poll();
         }
     }
     
@@ -300,25 +509,98 @@ public class ConsumerJava implements Consumer {
         logger.info(HIT_SAFE_PREFIX +"hash160Compressed: " + Hex.encodeHexString(hash160Compressed));
     }
 
-    private boolean containsAddress(ByteBuffer hash160AsByteBuffer) {
+    /**
+     * @param hash160s the hash160s back to back, starting at the position of the buffer
+     * @param count the number of hash160s
+     * @return bit {@code i} is set if the {@code i}-th hash160 is contained
+     */
+    private BitSet containsAddresses(ByteBuffer hash160s, int count) {
         long timeBefore = System.currentTimeMillis();
         if (logger.isDebugEnabled()) {
-            logger.debug("Time before persistence.containsAddress: " + timeBefore);
+            logger.debug("Time before persistence.containsAddresses: " + timeBefore);
+        }
+        final BitSet containsAddresses;
+        if (addressFilter != null) {
+            containsAddresses = containsAddressesFiltered(hash160s, count);
+        } else {
+            containsAddresses = persistence.containsAddresses(hash160s, count);
         }
-        boolean containsAddress = persistence.containsAddress(hash160AsByteBuffer);
         long timeAfter = System.currentTimeMillis();
         long timeDelta = timeAfter - timeBefore;
-        checkedKeys.incrementAndGet();
+        checkedKeys.addAndGet(count);
         checkedKeysSumOfTimeToCheckContains.addAndGet(timeDelta);
         if (logger.isDebugEnabled()) {
-            logger.debug("Time after persistence.containsAddress: " + timeAfter);
+            logger.debug("Time after persistence.containsAddresses: " + timeAfter);
             logger.debug("Time delta: " + timeDelta);
         }
-        return containsAddress;
+        return containsAddresses;
     }
 
+    /**
+     * Only the filter positives are checked against the persistence.
+     */
+    private BitSet containsAddressesFiltered(ByteBuffer hash160s, int count) {
+        int position = hash160s.position();
+        BitSet filterPositives = new BitSet(count);
+        for (int i = 0; i < count; i++) {
+            if (addressFilter.mightContain(hash160s, position + i * PublicKeyBytes.HASH160_SIZE)) {
+                filterPositives.set(i);
+            }
+        }
+        int positives = filterPositives.cardinality();
+        filterHits.addAndGet(positives);
+        filterMisses.addAndGet(count - positives);
+
+        BitSet containsAddresses = new BitSet(count);
+        if (positives == 0) {
+            return containsAddresses;
+        }
+
+        ByteBuffer positiveHash160s = ByteBuffer.allocateDirect(positives * PublicKeyBytes.HASH160_SIZE);
+        try {
+            for (int i = filterPositives.nextSetBit(0); i >= 0; i = filterPositives.nextSetBit(i + 1)) {
+                ByteBuffer hash160 = hash160s.duplicate();
+                hash160.position(position + i * PublicKeyBytes.HASH160_SIZE);
+                hash160.limit(hash160.position() + PublicKeyBytes.HASH160_SIZE);
+                positiveHash160s.put(hash160);
+            }
+            positiveHash160s.flip();
+            BitSet containsPositives = persistence.containsAddresses(positiveHash160s, positives);
+            int positiveIndex = 0;
+            for (int i = filterPositives.nextSetBit(0); i >= 0; i = filterPositives.nextSetBit(i + 1)) {
+                if (containsPositives.get(positiveIndex)) {
+                    containsAddresses.set(i);
+                }
+                positiveIndex++;
+            }
+        } finally {
+            byteBufferUtility.freeByteBuffer(positiveHash160s);
+        }
+        return containsAddresses;
+    }
+
+    /**
+     * Backpressure: If the queue is full the producer waits with the
+     * configured {@link CConsumerJava#waitStrategy} until a consumer takes a
+     * batch. The keys are dropped if a shutdown is requested meanwhile.
+     */
     @Override
-    public void consumeKeys(PublicKeyBytes[] publicKeyBytes) throws InterruptedException {
-        keysQueue.put(publicKeyBytes);
+    public boolean consumeKeys(PublicKeyBytesBatch publicKeyBytesBatch) throws InterruptedException {
+        if (keysQueue.offer(publicKeyBytesBatch)) {
+            return true;
+        }
+        long timeBefore = System.nanoTime();
+        try {
+            while (!keysQueue.offer(publicKeyBytesBatch)) {
+                if (!shouldRun.get()) {
+                    publicKeyBytesBatch.free();
+                    return false;
+                }
+                keysQueue.awaitNotFull(TimeUnit.MILLISECONDS.toNanos(consumerJava.delayEmptyConsumer));
+            }
+            return true;
+        } finally {
+            producerWaitTimeInNanoseconds.addAndGet(System.nanoTime() - timeBefore);
+        }
     }
 }
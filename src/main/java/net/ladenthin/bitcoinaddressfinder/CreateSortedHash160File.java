@@ -0,0 +1,128 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import net.ladenthin.bitcoinaddressfinder.configuration.CCreateSortedHash160File;
+import net.ladenthin.bitcoinaddressfinder.persistence.PersistenceUtils;
+import net.ladenthin.bitcoinaddressfinder.persistence.lmdb.LMDBPersistence;
+import net.ladenthin.bitcoinaddressfinder.persistence.sorted.SortedHash160FileWriter;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.params.MainNetParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class CreateSortedHash160File implements Runnable, Interruptable {
+
+    private final Logger logger = LoggerFactory.getLogger(CreateSortedHash160File.class);
+
+    private final CCreateSortedHash160File createSortedHash160File;
+
+    private final AtomicBoolean shouldRun;
+
+    private NetworkParameters networkParameters;
+
+    private final ReadStatistic readStatistic = new ReadStatistic();
+
+    public CreateSortedHash160File(CCreateSortedHash160File createSortedHash160File, AtomicBoolean shouldRun) {
+        this.createSortedHash160File = createSortedHash160File;
+        this.shouldRun = shouldRun;
+    }
+
+    @Override
+    public void run() {
+        createNetworkParameter();
+        File sortedHash160File = new File(createSortedHash160File.sortedHash160File);
+        try (SortedHash160FileWriter writer = new SortedHash160FileWriter(sortedHash160File, createSortedHash160File.prefixBits)) {
+            if (createSortedHash160File.lmdbConfigurationReadOnly != null) {
+                writeFromLMDB(writer);
+            } else {
+                writeFromAddressFiles(writer);
+            }
+            logger.info("Write " + writer.getCount() + " hash160s to: " + sortedHash160File.getAbsolutePath());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * The LMDB iterates the keys already in unsigned lexicographical order.
+     */
+    private void writeFromLMDB(SortedHash160FileWriter writer) {
+        PersistenceUtils persistenceUtils = new PersistenceUtils(networkParameters);
+        LMDBPersistence persistence = new LMDBPersistence(createSortedHash160File.lmdbConfigurationReadOnly, persistenceUtils);
+        persistence.init();
+        try {
+            logger.info("Read LMDB ...");
+            persistence.forEachHash160(hash160 -> {
+                try {
+                    writer.add(hash160);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            logger.info("... read LMDB done.");
+        } finally {
+            persistence.close();
+        }
+    }
+
+    private void writeFromAddressFiles(SortedHash160FileWriter writer) throws IOException {
+        FileHelper fileHelper = new FileHelper();
+        List<File> files = fileHelper.stringsToFiles(createSortedHash160File.addressesFiles);
+        fileHelper.assertFilesExists(files);
+
+        List<byte[]> hash160s = new ArrayList<>();
+        ByteBufferUtility byteBufferUtility = new ByteBufferUtility(false);
+        logger.info("Iterate address files ...");
+        for (File file : files) {
+            AddressFile addressFile = new AddressFile(
+                file,
+                readStatistic,
+                networkParameters,
+                addressToCoin -> hash160s.add(byteBufferUtility.byteBufferToBytes(addressToCoin.getHash160())),
+                line -> {},
+                shouldRun
+            );
+            logger.info("process " + file.getAbsolutePath());
+            addressFile.readFile();
+            logger.info("finished: " + file.getAbsolutePath());
+        }
+        logger.info("... iterate address files done. Read " + hash160s.size() + " addresses. Unsupported: " + readStatistic.unsupported + ". Errors: " + readStatistic.errors.size() + ".");
+
+        logger.info("Sort ...");
+        writer.addUnsorted(hash160s.toArray(new byte[hash160s.size()][]));
+        logger.info("... sort done.");
+    }
+
+    private void createNetworkParameter() {
+        networkParameters = MainNetParams.get();
+        Context.getOrCreate(networkParameters);
+    }
+
+    @Override
+    public void interrupt() {
+    }
+}
@@ -0,0 +1,139 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The distinguished points of {@link Kangaroo}: the x coordinate of a point
+ * reached by a kangaroo, its travelled distance and its herd ({@link #TAME}
+ * or the public key of the target of a wild kangaroo). Thread safe.
+ * <p>
+ * A store is written as text: an identity line (the search parameters, only
+ * stores with the same identity can be merged) followed by one line per
+ * point: {@code x distance herd}, the numbers hex encoded.
+ */
+public class DistinguishedPointStore {
+
+    public static final String TAME = "tame";
+
+    private static final String SEPARATOR = " ";
+
+    public static class DistinguishedPoint {
+        public final BigInteger x;
+        public final BigInteger distance;
+        public final String herd;
+
+        public DistinguishedPoint(BigInteger x, BigInteger distance, String herd) {
+            this.x = x;
+            this.distance = distance;
+            this.herd = herd;
+        }
+
+        public boolean isTame() {
+            return TAME.equals(herd);
+        }
+    }
+
+    private final String identity;
+    private final Map<BigInteger, DistinguishedPoint> distinguishedPoints = new HashMap<>();
+
+    /**
+     * @param identity the search parameters, must not contain a line break
+     */
+    public DistinguishedPointStore(String identity) {
+        this.identity = identity;
+    }
+
+    public String getIdentity() {
+        return identity;
+    }
+
+    public synchronized int size() {
+        return distinguishedPoints.size();
+    }
+
+    /**
+     * Adds the point if its x coordinate is new.
+     *
+     * @return the point stored before with the same x coordinate, {@code null} if the point was added
+     */
+    public synchronized DistinguishedPoint putIfAbsent(DistinguishedPoint distinguishedPoint) {
+        return distinguishedPoints.putIfAbsent(distinguishedPoint.x, distinguishedPoint);
+    }
+
+    /**
+     * Merges a store file into this store. Points with an x coordinate known
+     * already are skipped, the collisions of a tame and a wild point are returned.
+     *
+     * @return the collisions, the stored point first
+     * @throws IllegalArgumentException if the file belongs to another search
+     */
+    public List<DistinguishedPoint[]> merge(File file) throws IOException {
+        List<DistinguishedPoint[]> collisions = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String fileIdentity = reader.readLine();
+            if (!identity.equals(fileIdentity)) {
+                throw new IllegalArgumentException("The distinguished points " + file.getAbsolutePath() + " belong to another search: " + fileIdentity);
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] columns = line.split(SEPARATOR);
+                DistinguishedPoint distinguishedPoint = new DistinguishedPoint(new BigInteger(columns[0], 16), new BigInteger(columns[1], 16), columns[2]);
+                DistinguishedPoint existing = putIfAbsent(distinguishedPoint);
+                if (existing != null && existing.isTame() != distinguishedPoint.isTame()) {
+                    collisions.add(new DistinguishedPoint[]{existing, distinguishedPoint});
+                }
+            }
+        }
+        return collisions;
+    }
+
+    /**
+     * Writes the store to a temporary file which replaces the file atomically.
+     */
+    public void write(File file) throws IOException {
+        File temporaryFile = new File(file.getAbsolutePath() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporaryFile.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(identity);
+            writer.newLine();
+            synchronized (this) {
+                for (DistinguishedPoint distinguishedPoint : distinguishedPoints.values()) {
+                    writer.write(distinguishedPoint.x.toString(16) + SEPARATOR + distinguishedPoint.distance.toString(16) + SEPARATOR + distinguishedPoint.herd);
+                    writer.newLine();
+                }
+            }
+        }
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
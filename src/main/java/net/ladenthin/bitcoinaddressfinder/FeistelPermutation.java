@@ -0,0 +1,112 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A keyed bijection of {@code [0, domain)}: a balanced Feistel network on the
+ * smallest even number of bits covering the domain, values outside the
+ * domain are permuted again (cycle walking) until they fall inside. The
+ * network is at most four times larger than the domain, a value needs less
+ * than four walks on average.
+ * <p>
+ * The same key gives the same permutation in every process. The rounds are
+ * not a cipher, they are meant to spread consecutive counters uniformly over
+ * the domain.
+ */
+public class FeistelPermutation {
+
+    static final int ROUNDS = 6;
+
+    private final long domain;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] roundKeys = new long[ROUNDS];
+
+    /**
+     * @param domain the number of values, at least {@code 1}
+     * @param key any text, the round keys are derived from its SHA-256 hash
+     */
+    public FeistelPermutation(long domain, String key) {
+        if (domain < 1) {
+            throw new IllegalArgumentException("The domain must be at least 1: " + domain);
+        }
+        this.domain = domain;
+        int bits = Long.SIZE - Long.numberOfLeadingZeros(domain - 1);
+        halfBits = Math.max(1, (bits + 1) / 2);
+        halfMask = (1L << halfBits) - 1;
+
+        final MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        ByteBuffer hash = ByteBuffer.wrap(sha256.digest(key.getBytes(StandardCharsets.UTF_8)));
+        long seed = hash.getLong() ^ hash.getLong();
+        for (int i = 0; i < ROUNDS; i++) {
+            // distinct round keys from one seed
+            seed += 0x9E3779B97F4A7C15L;
+            roundKeys[i] = mix(seed);
+        }
+    }
+
+    public long getDomain() {
+        return domain;
+    }
+
+    /**
+     * @param value in {@code [0, domain)}
+     * @return the permuted value in {@code [0, domain)}
+     */
+    public long permute(long value) {
+        if (value < 0 || value >= domain) {
+            throw new IllegalArgumentException("The value is outside of the domain: " + value);
+        }
+        do {
+            value = encrypt(value);
+            // the network may use all 64 bits, compare unsigned
+        } while (Long.compareUnsigned(value, domain) >= 0);
+        return value;
+    }
+
+    private long encrypt(long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (int i = 0; i < ROUNDS; i++) {
+            long next = left ^ (mix(right ^ roundKeys[i]) & halfMask);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    /**
+     * The finalizer of SplitMix64.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -22,7 +22,6 @@ import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -50,9 +49,9 @@ public class Finder implements Interruptable {
     private final List<ProducerJavaBrainwallet> javaProducersBrainwallet = new ArrayList<>();
     
     /**
-     * It is already thread local, no need for {@link java.util.concurrent.ThreadLocalRandom}.
+     * Creates the random of every producer, seeded from the strong source.
      */
-    private final Random random;
+    private final SecretSourceFactory secretSourceFactory;
 
     private final ExecutorService producerExecutorService = Executors.newCachedThreadPool();
     
@@ -67,7 +66,7 @@ public class Finder implements Interruptable {
         this.finder = finder;
         this.shouldRun = shouldRun;
         try {
-            random = SecureRandom.getInstanceStrong();
+            secretSourceFactory = new SecretSourceFactory(SecureRandom.getInstanceStrong());
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException(e);
         }
@@ -86,7 +85,7 @@ public class Finder implements Interruptable {
         if (finder.producerJava != null) {
             for (CProducerJava cProducerJava : finder.producerJava) {
                 cProducerJava.assertGridNumBitsCorrect();
-                ProducerJava producerJava = new ProducerJava(cProducerJava, shouldRun, consumerJava, keyUtility, random);
+                ProducerJava producerJava = new ProducerJava(cProducerJava, shouldRun, consumerJava, keyUtility, secretSourceFactory.createRandom(cProducerJava));
                 javaProducers.add(producerJava);
             }
         }
@@ -94,7 +93,7 @@ public class Finder implements Interruptable {
         if (finder.producerJavaBrainwallet != null) {
             for (CProducerJavaBrainwallet cProducerJavaBrainwallet : finder.producerJavaBrainwallet) {
                 cProducerJavaBrainwallet.assertGridNumBitsCorrect();
-                ProducerJavaBrainwallet producerJavaBrainwallet = new ProducerJavaBrainwallet(cProducerJavaBrainwallet, shouldRun, consumerJava, keyUtility, random);
+                ProducerJavaBrainwallet producerJavaBrainwallet = new ProducerJavaBrainwallet(cProducerJavaBrainwallet, shouldRun, consumerJava, keyUtility, secretSourceFactory.createRandom(cProducerJavaBrainwallet));
                 javaProducersBrainwallet.add(producerJavaBrainwallet);
             }
         }
@@ -102,7 +101,7 @@ public class Finder implements Interruptable {
         if (finder.producerOpenCL != null) {
             for (CProducerOpenCL cProducerOpenCL : finder.producerOpenCL) {
                 cProducerOpenCL.assertGridNumBitsCorrect();
-                ProducerOpenCL producerOpenCL = new ProducerOpenCL(cProducerOpenCL, shouldRun, consumerJava, keyUtility, random);
+                ProducerOpenCL producerOpenCL = new ProducerOpenCL(cProducerOpenCL, shouldRun, consumerJava, keyUtility, secretSourceFactory.createRandom(cProducerOpenCL));
                 openCLProducers.add(producerOpenCL);
             }
         }
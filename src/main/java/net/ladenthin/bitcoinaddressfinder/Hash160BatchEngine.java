@@ -0,0 +1,42 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Calculates the hash160s of many public keys of the same length at once.
+ * An instance is not thread safe.
+ */
+public interface Hash160BatchEngine {
+
+    /**
+     * Hashes {@code count} public keys of the same length in one call.
+     *
+     * @param src the public keys, read absolute
+     * @param srcPosition the index of the first byte of the first public key
+     * @param srcStride the distance in bytes between two public keys
+     * @param length {@link PublicKeyBytes#PUBLIC_KEY_COMPRESSED_BYTES} or {@link PublicKeyBytes#PUBLIC_KEY_UNCOMPRESSED_BYTES}
+     * @param count the number of public keys
+     * @param dst the buffer of the hash160s, written absolute
+     * @param dstPosition the index of the first byte of the first hash160
+     * @param dstStride the distance in bytes between two hash160s
+     */
+    void hash160s(ByteBuffer src, int srcPosition, int srcStride, int length, int count, ByteBuffer dst, int dstPosition, int dstStride);
+}
@@ -0,0 +1,87 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.lang.reflect.Constructor;
+import java.util.Optional;
+
+/**
+ * Selects the {@link Hash160BatchEngine} at runtime. The vector engine uses
+ * the incubating Vector API ({@code jdk.incubator.vector}) and hashes as many
+ * keys at once as the preferred SIMD register has int lanes (8 with AVX2, 16
+ * with AVX-512). It is only part of a build on JDK 17 or newer and the JVM
+ * must be started with {@code --add-modules jdk.incubator.vector}. Otherwise
+ * the scalar {@link Hash160Engine} is used.
+ */
+public final class Hash160BatchEngines {
+
+    public static final String VECTOR_HASH160_ENGINE_CLASS_NAME = "net.ladenthin.bitcoinaddressfinder.VectorHash160Engine";
+
+    private static final Optional<Constructor<? extends Hash160BatchEngine>> VECTOR_HASH160_ENGINE_CONSTRUCTOR = findVectorHash160EngineConstructor();
+
+    private Hash160BatchEngines() {
+    }
+
+    private static Optional<Constructor<? extends Hash160BatchEngine>> findVectorHash160EngineConstructor() {
+        try {
+            Class<? extends Hash160BatchEngine> vectorHash160EngineClass = Class.forName(VECTOR_HASH160_ENGINE_CLASS_NAME).asSubclass(Hash160BatchEngine.class);
+            Constructor<? extends Hash160BatchEngine> constructor = vectorHash160EngineClass.getConstructor();
+            // initialize the class once, fails without the incubator module
+            constructor.newInstance();
+            return Optional.of(constructor);
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return {@code true} if the vector engine was built and the JVM supports the Vector API
+     */
+    public static boolean isVectorApiAvailable() {
+        return VECTOR_HASH160_ENGINE_CONSTRUCTOR.isPresent();
+    }
+
+    /**
+     * @return a new vector engine or {@link Optional#empty()} if the Vector API is not available
+     */
+    public static Optional<Hash160BatchEngine> createVectorHash160Engine() {
+        if (!VECTOR_HASH160_ENGINE_CONSTRUCTOR.isPresent()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(VECTOR_HASH160_ENGINE_CONSTRUCTOR.get().newInstance());
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @param useVectorApi prefer the vector engine
+     * @return a new vector engine if preferred and available, the scalar engine of the current thread otherwise
+     */
+    public static Hash160BatchEngine create(boolean useVectorApi) {
+        if (useVectorApi) {
+            Optional<Hash160BatchEngine> vectorHash160Engine = createVectorHash160Engine();
+            if (vectorHash160Engine.isPresent()) {
+                return vectorHash160Engine.get();
+            }
+        }
+        return Hash160Engine.get();
+    }
+}
@@ -0,0 +1,327 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Calculates RIPEMD160(SHA256(publicKey)) without any allocation. Only the
+ * two public key lengths {@link PublicKeyBytes#PUBLIC_KEY_COMPRESSED_BYTES}
+ * and {@link PublicKeyBytes#PUBLIC_KEY_UNCOMPRESSED_BYTES} are supported,
+ * the message padding of both is precalculated: a compressed key is one
+ * SHA-256 block, an uncompressed key two blocks, and the SHA-256 digest is
+ * always one RIPEMD-160 block.
+ * <p>
+ * An instance holds the working state and is not thread safe, use
+ * {@link #get()} to get the instance of the current thread.
+ */
+public class Hash160Engine implements Hash160BatchEngine {
+
+    private static final ThreadLocal<Hash160Engine> THREAD_LOCAL = ThreadLocal.withInitial(Hash160Engine::new);
+
+    // <editor-fold defaultstate="collapsed" desc="SHA-256 constants">
+    static final int[] SHA256_K = {
+        0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+        0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+        0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+        0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+        0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+        0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+        0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+        0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2
+    };
+
+    static final int[] SHA256_IV = {
+        0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19
+    };
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="RIPEMD-160 constants">
+    static final int[] RIPEMD160_R_LEFT = {
+        0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15,
+        7, 4, 13, 1, 10, 6, 15, 3, 12, 0, 9, 5, 2, 14, 11, 8,
+        3, 10, 14, 4, 9, 15, 8, 1, 2, 7, 0, 6, 13, 11, 5, 12,
+        1, 9, 11, 10, 0, 8, 12, 4, 13, 3, 7, 15, 14, 5, 6, 2,
+        4, 0, 5, 9, 7, 12, 2, 10, 14, 1, 3, 8, 11, 6, 15, 13
+    };
+
+    static final int[] RIPEMD160_R_RIGHT = {
+        5, 14, 7, 0, 9, 2, 11, 4, 13, 6, 15, 8, 1, 10, 3, 12,
+        6, 11, 3, 7, 0, 13, 5, 10, 14, 15, 8, 12, 4, 9, 1, 2,
+        15, 5, 1, 3, 7, 14, 6, 9, 11, 8, 12, 2, 10, 0, 4, 13,
+        8, 6, 4, 1, 3, 11, 15, 0, 5, 12, 2, 13, 9, 7, 10, 14,
+        12, 15, 10, 4, 1, 5, 8, 7, 6, 2, 13, 14, 0, 3, 9, 11
+    };
+
+    static final int[] RIPEMD160_S_LEFT = {
+        11, 14, 15, 12, 5, 8, 7, 9, 11, 13, 14, 15, 6, 7, 9, 8,
+        7, 6, 8, 13, 11, 9, 7, 15, 7, 12, 15, 9, 11, 7, 13, 12,
+        11, 13, 6, 7, 14, 9, 13, 15, 14, 8, 13, 6, 5, 12, 7, 5,
+        11, 12, 14, 15, 14, 15, 9, 8, 9, 14, 5, 6, 8, 6, 5, 12,
+        9, 15, 5, 11, 6, 8, 13, 12, 5, 12, 13, 14, 11, 8, 5, 6
+    };
+
+    static final int[] RIPEMD160_S_RIGHT = {
+        8, 9, 9, 11, 13, 15, 15, 5, 7, 7, 8, 11, 14, 14, 12, 6,
+        9, 13, 15, 7, 12, 8, 9, 11, 7, 7, 12, 7, 6, 15, 13, 11,
+        9, 7, 15, 11, 8, 6, 6, 14, 12, 13, 5, 14, 13, 13, 7, 5,
+        15, 5, 8, 11, 14, 14, 6, 14, 6, 9, 12, 9, 12, 5, 15, 8,
+        8, 5, 12, 9, 12, 5, 14, 6, 8, 13, 6, 5, 15, 13, 11, 11
+    };
+
+    static final int[] RIPEMD160_K_LEFT = {0x00000000, 0x5a827999, 0x6ed9eba1, 0x8f1bbcdc, 0xa953fd4e};
+    static final int[] RIPEMD160_K_RIGHT = {0x50a28be6, 0x5c4dd124, 0x6d703ef3, 0x7a6d76e9, 0x00000000};
+
+    static final int[] RIPEMD160_IV = {0x67452301, 0xefcdab89, 0x98badcfe, 0x10325476, 0xc3d2e1f0};
+    // </editor-fold>
+
+    /**
+     * The first padding byte after the message.
+     */
+    static final int PADDING_START = 0x80;
+
+    static final int COMPRESSED_MESSAGE_BITS = PublicKeyBytes.PUBLIC_KEY_COMPRESSED_BYTES * Byte.SIZE;
+    static final int UNCOMPRESSED_MESSAGE_BITS = PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES * Byte.SIZE;
+    static final int SHA256_DIGEST_BITS = 256;
+    static final int SHA256_DIGEST_WORDS = 8;
+
+    /**
+     * The message schedule of SHA-256, the first 16 words are the block.
+     */
+    private final int[] w = new int[64];
+    private final int[] sha256State = new int[SHA256_DIGEST_WORDS];
+    private final int[] x = new int[16];
+    private final int[] ripemd160State = new int[5];
+
+    /**
+     * @return the instance of the current thread
+     */
+    public static Hash160Engine get() {
+        return THREAD_LOCAL.get();
+    }
+
+    /**
+     * @param src the public key, read absolute
+     * @param srcPosition the index of the first byte of the public key
+     * @param length {@link PublicKeyBytes#PUBLIC_KEY_COMPRESSED_BYTES} or {@link PublicKeyBytes#PUBLIC_KEY_UNCOMPRESSED_BYTES}
+     * @param dst the buffer of the hash160, written absolute
+     * @param dstPosition the index of the first byte of the hash160
+     */
+    public void hash160(ByteBuffer src, int srcPosition, int length, ByteBuffer dst, int dstPosition) {
+        sha256(src, srcPosition, length);
+        ripemd160OfSha256();
+        for (int i = 0; i < ripemd160State.length; i++) {
+            int h = ripemd160State[i];
+            int offset = dstPosition + i * Integer.BYTES;
+            dst.put(offset, (byte) h);
+            dst.put(offset + 1, (byte) (h >>> 8));
+            dst.put(offset + 2, (byte) (h >>> 16));
+            dst.put(offset + 3, (byte) (h >>> 24));
+        }
+    }
+
+    /**
+     * Hashes {@code count} public keys of the same length in one call.
+     *
+     * @param src the public keys, read absolute
+     * @param srcPosition the index of the first byte of the first public key
+     * @param srcStride the distance in bytes between two public keys
+     * @param length {@link PublicKeyBytes#PUBLIC_KEY_COMPRESSED_BYTES} or {@link PublicKeyBytes#PUBLIC_KEY_UNCOMPRESSED_BYTES}
+     * @param count the number of public keys
+     * @param dst the buffer of the hash160s, written absolute
+     * @param dstPosition the index of the first byte of the first hash160
+     * @param dstStride the distance in bytes between two hash160s
+     */
+    @Override
+    public void hash160s(ByteBuffer src, int srcPosition, int srcStride, int length, int count, ByteBuffer dst, int dstPosition, int dstStride) {
+        for (int i = 0; i < count; i++) {
+            hash160(src, srcPosition + i * srcStride, length, dst, dstPosition + i * dstStride);
+        }
+    }
+
+    /**
+     * Same as {@link #hash160(java.nio.ByteBuffer, int, int, java.nio.ByteBuffer, int)} for arrays.
+     */
+    public void hash160(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset) {
+        hash160(ByteBuffer.wrap(src), srcOffset, length, ByteBuffer.wrap(dst), dstOffset);
+    }
+
+    /**
+     * @return a new array with the hash160 of the public key
+     */
+    public byte[] hash160(byte[] publicKey) {
+        byte[] hash160 = new byte[PublicKeyBytes.HASH160_SIZE];
+        hash160(publicKey, 0, publicKey.length, hash160, 0);
+        return hash160;
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="SHA-256">
+    private void sha256(ByteBuffer src, int position, int length) {
+        System.arraycopy(SHA256_IV, 0, sha256State, 0, SHA256_IV.length);
+        if (length == PublicKeyBytes.PUBLIC_KEY_COMPRESSED_BYTES) {
+            // one block: 32 bytes, the last byte, padding, the length
+            for (int i = 0; i < 8; i++) {
+                w[i] = ByteBufferUtility.getIntBigEndian(src, position + i * Integer.BYTES);
+            }
+            w[8] = ((src.get(position + 32) & 0xff) << 24) | (PADDING_START << 16);
+            for (int i = 9; i < 15; i++) {
+                w[i] = 0;
+            }
+            w[15] = COMPRESSED_MESSAGE_BITS;
+            sha256Compress();
+        } else if (length == PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES) {
+            // first block: 64 bytes
+            for (int i = 0; i < 16; i++) {
+                w[i] = ByteBufferUtility.getIntBigEndian(src, position + i * Integer.BYTES);
+            }
+            sha256Compress();
+            // second block: the last byte, padding, the length
+            w[0] = ((src.get(position + 64) & 0xff) << 24) | (PADDING_START << 16);
+            for (int i = 1; i < 15; i++) {
+                w[i] = 0;
+            }
+            w[15] = UNCOMPRESSED_MESSAGE_BITS;
+            sha256Compress();
+        } else {
+            throw new IllegalArgumentException("Unsupported public key length: " + length);
+        }
+    }
+
+    private void sha256Compress() {
+        final int[] w = this.w;
+        for (int t = 16; t < 64; t++) {
+            int w15 = w[t - 15];
+            int w2 = w[t - 2];
+            int s0 = Integer.rotateRight(w15, 7) ^ Integer.rotateRight(w15, 18) ^ (w15 >>> 3);
+            int s1 = Integer.rotateRight(w2, 17) ^ Integer.rotateRight(w2, 19) ^ (w2 >>> 10);
+            w[t] = w[t - 16] + s0 + w[t - 7] + s1;
+        }
+
+        int a = sha256State[0];
+        int b = sha256State[1];
+        int c = sha256State[2];
+        int d = sha256State[3];
+        int e = sha256State[4];
+        int f = sha256State[5];
+        int g = sha256State[6];
+        int h = sha256State[7];
+
+        for (int t = 0; t < 64; t++) {
+            int s1 = Integer.rotateRight(e, 6) ^ Integer.rotateRight(e, 11) ^ Integer.rotateRight(e, 25);
+            int ch = (e & f) ^ (~e & g);
+            int temp1 = h + s1 + ch + SHA256_K[t] + w[t];
+            int s0 = Integer.rotateRight(a, 2) ^ Integer.rotateRight(a, 13) ^ Integer.rotateRight(a, 22);
+            int maj = (a & b) ^ (a & c) ^ (b & c);
+            int temp2 = s0 + maj;
+            h = g;
+            g = f;
+            f = e;
+            e = d + temp1;
+            d = c;
+            c = b;
+            b = a;
+            a = temp1 + temp2;
+        }
+
+        sha256State[0] += a;
+        sha256State[1] += b;
+        sha256State[2] += c;
+        sha256State[3] += d;
+        sha256State[4] += e;
+        sha256State[5] += f;
+        sha256State[6] += g;
+        sha256State[7] += h;
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="RIPEMD-160">
+    /**
+     * RIPEMD-160 of the 32 bytes SHA-256 digest: one block. The words of
+     * RIPEMD-160 are little endian, the words of SHA-256 big endian.
+     */
+    private void ripemd160OfSha256() {
+        for (int i = 0; i < SHA256_DIGEST_WORDS; i++) {
+            x[i] = Integer.reverseBytes(sha256State[i]);
+        }
+        x[8] = PADDING_START;
+        for (int i = 9; i < 14; i++) {
+            x[i] = 0;
+        }
+        x[14] = SHA256_DIGEST_BITS;
+        x[15] = 0;
+        System.arraycopy(RIPEMD160_IV, 0, ripemd160State, 0, RIPEMD160_IV.length);
+        ripemd160Compress();
+    }
+
+    /**
+     * One loop per round with its boolean function and constant inlined, left
+     * and right line interleaved. The steps of a round index the word order
+     * and rotation tables.
+     */
+    private void ripemd160Compress() {
+        final int[] x = this.x;
+        int al = ripemd160State[0], bl = ripemd160State[1], cl = ripemd160State[2], dl = ripemd160State[3], el = ripemd160State[4];
+        int ar = al, br = bl, cr = cl, dr = dl, er = el;
+        int t;
+
+        // round 1: left f = x ^ y ^ z, right f = x ^ (y | ~z)
+        for (int j = 0; j < 16; j++) {
+            t = Integer.rotateLeft(al + (bl ^ cl ^ dl) + x[RIPEMD160_R_LEFT[j]] + RIPEMD160_K_LEFT[0], RIPEMD160_S_LEFT[j]) + el;
+            al = el; el = dl; dl = Integer.rotateLeft(cl, 10); cl = bl; bl = t;
+            t = Integer.rotateLeft(ar + (br ^ (cr | ~dr)) + x[RIPEMD160_R_RIGHT[j]] + RIPEMD160_K_RIGHT[0], RIPEMD160_S_RIGHT[j]) + er;
+            ar = er; er = dr; dr = Integer.rotateLeft(cr, 10); cr = br; br = t;
+        }
+        // round 2: left f = (x & y) | (~x & z), right f = (x & z) | (y & ~z)
+        for (int j = 16; j < 32; j++) {
+            t = Integer.rotateLeft(al + ((bl & cl) | (~bl & dl)) + x[RIPEMD160_R_LEFT[j]] + RIPEMD160_K_LEFT[1], RIPEMD160_S_LEFT[j]) + el;
+            al = el; el = dl; dl = Integer.rotateLeft(cl, 10); cl = bl; bl = t;
+            t = Integer.rotateLeft(ar + ((br & dr) | (cr & ~dr)) + x[RIPEMD160_R_RIGHT[j]] + RIPEMD160_K_RIGHT[1], RIPEMD160_S_RIGHT[j]) + er;
+            ar = er; er = dr; dr = Integer.rotateLeft(cr, 10); cr = br; br = t;
+        }
+        // round 3: both f = (x | ~y) ^ z
+        for (int j = 32; j < 48; j++) {
+            t = Integer.rotateLeft(al + ((bl | ~cl) ^ dl) + x[RIPEMD160_R_LEFT[j]] + RIPEMD160_K_LEFT[2], RIPEMD160_S_LEFT[j]) + el;
+            al = el; el = dl; dl = Integer.rotateLeft(cl, 10); cl = bl; bl = t;
+            t = Integer.rotateLeft(ar + ((br | ~cr) ^ dr) + x[RIPEMD160_R_RIGHT[j]] + RIPEMD160_K_RIGHT[2], RIPEMD160_S_RIGHT[j]) + er;
+            ar = er; er = dr; dr = Integer.rotateLeft(cr, 10); cr = br; br = t;
+        }
+        // round 4: left f = (x & z) | (y & ~z), right f = (x & y) | (~x & z)
+        for (int j = 48; j < 64; j++) {
+            t = Integer.rotateLeft(al + ((bl & dl) | (cl & ~dl)) + x[RIPEMD160_R_LEFT[j]] + RIPEMD160_K_LEFT[3], RIPEMD160_S_LEFT[j]) + el;
+            al = el; el = dl; dl = Integer.rotateLeft(cl, 10); cl = bl; bl = t;
+            t = Integer.rotateLeft(ar + ((br & cr) | (~br & dr)) + x[RIPEMD160_R_RIGHT[j]] + RIPEMD160_K_RIGHT[3], RIPEMD160_S_RIGHT[j]) + er;
+            ar = er; er = dr; dr = Integer.rotateLeft(cr, 10); cr = br; br = t;
+        }
+        // round 5: left f = x ^ (y | ~z), right f = x ^ y ^ z
+        for (int j = 64; j < 80; j++) {
+            t = Integer.rotateLeft(al + (bl ^ (cl | ~dl)) + x[RIPEMD160_R_LEFT[j]] + RIPEMD160_K_LEFT[4], RIPEMD160_S_LEFT[j]) + el;
+            al = el; el = dl; dl = Integer.rotateLeft(cl, 10); cl = bl; bl = t;
+            t = Integer.rotateLeft(ar + (br ^ cr ^ dr) + x[RIPEMD160_R_RIGHT[j]] + RIPEMD160_K_RIGHT[4], RIPEMD160_S_RIGHT[j]) + er;
+            ar = er; er = dr; dr = Integer.rotateLeft(cr, 10); cr = br; br = t;
+        }
+
+        t = ripemd160State[1] + cl + dr;
+        ripemd160State[1] = ripemd160State[2] + dl + er;
+        ripemd160State[2] = ripemd160State[3] + el + ar;
+        ripemd160State[3] = ripemd160State[4] + al + br;
+        ripemd160State[4] = ripemd160State[0] + bl + cr;
+        ripemd160State[0] = t;
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,482 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import net.ladenthin.bitcoinaddressfinder.DistinguishedPointStore.DistinguishedPoint;
+import net.ladenthin.bitcoinaddressfinder.configuration.CKangaroo;
+import net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Engine;
+import net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Field;
+import net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Point;
+import org.bitcoinj.core.ECKey;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.util.encoders.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Searches the secrets of known public keys in a bounded range with the
+ * parallel Pollard kangaroo (lambda) method: {@code O(sqrt(range))} group
+ * operations with a memory of the distinguished points only.
+ * <p>
+ * Tame kangaroos start at known secrets in the upper half of the range,
+ * wild kangaroos at the target plus a known distance. All jump by
+ * {@code 2^i * G}, the jump {@code i} is selected by the x coordinate: two
+ * kangaroos landing on the same point walk the same trail afterwards. A
+ * point with the upper {@link CKangaroo#distinguishedPointBits} of its x
+ * coordinate zero is stored with the travelled distance. A tame and a wild
+ * kangaroo reaching the same distinguished point solve the target:
+ * {@code secret = rangeStart + tameDistance - wildDistance}. Two kangaroos of
+ * the same herd on the same trail are useless, the later one restarts.
+ * <p>
+ * Each thread jumps its kangaroos together, they are normalized with one
+ * field inversion per round.
+ */
+public class Kangaroo implements Runnable, Interruptable {
+
+    private static final int ONE_SECOND_IN_MILLISECONDS = 1000;
+    public static final String HIT_PREFIX = "hit: Found the secret of: ";
+
+    /**
+     * The largest jump {@code 2^(MAX_JUMPS - 1)} is less than n.
+     */
+    static final int MAX_JUMPS = 255;
+
+    /**
+     * The distinguished points of all kangaroos should be small compared to the expected jumps.
+     */
+    private static final int DISTINGUISHED_POINTS_PER_KANGAROO_FACTOR = 16;
+
+    private final Logger logger = LoggerFactory.getLogger(Kangaroo.class);
+
+    private final CKangaroo kangaroo;
+    private final AtomicBoolean shouldRun;
+    private final Timer timer = new Timer();
+
+    /**
+     * The public keys in the configured order.
+     */
+    private final Map<String, Target> targets = new LinkedHashMap<>();
+
+    private BigInteger rangeStart;
+    private BigInteger rangeEnd;
+    private BigInteger halfWidth;
+    private int jumps;
+    private int distinguishedPointBits;
+    private long distinguishedPointMask;
+    private long[][] jumpX;
+    private long[][] jumpY;
+    private long[][] jumpDistance;
+    private DistinguishedPointStore distinguishedPointStore;
+
+    private final AtomicLong jumpsDone = new AtomicLong();
+    private final AtomicLong uselessCollisions = new AtomicLong();
+    private BigInteger expectedJumps;
+    private long startTime;
+
+    private static class Target {
+        private final String publicKey;
+        private final long[] x = Secp256k1Field.create();
+        private final long[] y = Secp256k1Field.create();
+        private volatile BigInteger secret;
+
+        private Target(String publicKey) {
+            this.publicKey = publicKey;
+            ECPoint point = ECKey.CURVE.getCurve().decodePoint(Hex.decode(publicKey)).normalize();
+            Secp256k1Field.fromBigInteger(x, point.getAffineXCoord().toBigInteger());
+            Secp256k1Field.fromBigInteger(y, point.getAffineYCoord().toBigInteger());
+        }
+    }
+
+    public Kangaroo(CKangaroo kangaroo, AtomicBoolean shouldRun) {
+        this.kangaroo = kangaroo;
+        this.shouldRun = shouldRun;
+    }
+
+    @Override
+    public void run() {
+        if (kangaroo.publicKeys.isEmpty()) {
+            throw new IllegalArgumentException("No public keys configured.");
+        }
+        if (kangaroo.kangaroosPerThread < 2) {
+            throw new IllegalArgumentException("kangaroosPerThread must be at least 2: " + kangaroo.kangaroosPerThread);
+        }
+        for (String publicKey : kangaroo.publicKeys) {
+            targets.put(publicKey, new Target(publicKey));
+        }
+        initRange();
+        initJumps();
+        distinguishedPointStore = new DistinguishedPointStore("kangaroo rangeStart=" + rangeStart.toString(16) + " rangeEnd=" + rangeEnd.toString(16) + " jumps=" + jumps + " distinguishedPointBits=" + distinguishedPointBits);
+        readDistinguishedPoints();
+
+        startTime = System.currentTimeMillis();
+        startTimers();
+        try {
+            for (Target target : targets.values()) {
+                if (target.secret != null) {
+                    continue;
+                }
+                logger.info("Search " + target.publicKey + " with " + (kangaroo.threads * kangaroo.kangaroosPerThread) + " kangaroos, " + jumps + " jumps, " + distinguishedPointBits + " distinguished point bits, about " + expectedJumps + " jumps expected.");
+                runInThreads(() -> walk(target));
+                if (!shouldRun.get()) {
+                    break;
+                }
+            }
+        } finally {
+            timer.cancel();
+            writeDistinguishedPoints();
+        }
+        logger.info(createStatisticsMessage());
+    }
+
+    private void initRange() {
+        rangeStart = kangaroo.rangeStart != null ? new BigInteger(kangaroo.rangeStart, 16) : BigInteger.ONE;
+        rangeEnd = kangaroo.rangeEnd != null ? new BigInteger(kangaroo.rangeEnd, 16) : BigInteger.ONE.shiftLeft(kangaroo.privateKeyMaxNumBits);
+        rangeEnd = rangeEnd.min(Secp256k1Engine.N);
+        if (rangeStart.signum() <= 0 || rangeStart.compareTo(rangeEnd) >= 0) {
+            throw new IllegalArgumentException("Invalid range: " + rangeStart.toString(16) + " to " + rangeEnd.toString(16));
+        }
+        halfWidth = rangeEnd.subtract(rangeStart).shiftRight(1).max(BigInteger.ONE);
+    }
+
+    /**
+     * The optimal mean jump of the parallel kangaroo method is {@code kangaroos * sqrt(width) / 4}.
+     */
+    private void initJumps() {
+        BigInteger width = rangeEnd.subtract(rangeStart);
+        BigInteger sqrtWidth = width.sqrt().max(BigInteger.ONE);
+        BigInteger kangaroos = BigInteger.valueOf((long) kangaroo.threads * kangaroo.kangaroosPerThread);
+
+        jumps = kangaroo.jumps;
+        if (jumps == 0) {
+            BigInteger meanJump = kangaroos.multiply(sqrtWidth).shiftRight(2).max(BigInteger.ONE);
+            jumps = 2;
+            // the mean of 2^0 .. 2^(jumps - 1) is (2^jumps - 1) / jumps
+            while (jumps < MAX_JUMPS && BigInteger.ONE.shiftLeft(jumps).subtract(BigInteger.ONE).divide(BigInteger.valueOf(jumps)).compareTo(meanJump) < 0) {
+                jumps++;
+            }
+        }
+        if (jumps < 1 || jumps > MAX_JUMPS) {
+            throw new IllegalArgumentException("jumps must be between 1 and " + MAX_JUMPS + ": " + jumps);
+        }
+
+        distinguishedPointBits = kangaroo.distinguishedPointBits;
+        if (distinguishedPointBits < 0) {
+            BigInteger jumpsPerDistinguishedPoint = sqrtWidth.divide(kangaroos.multiply(BigInteger.valueOf(DISTINGUISHED_POINTS_PER_KANGAROO_FACTOR)));
+            distinguishedPointBits = Math.max(0, jumpsPerDistinguishedPoint.bitLength() - 1);
+        }
+        if (distinguishedPointBits >= Long.SIZE) {
+            throw new IllegalArgumentException("distinguishedPointBits must be less than " + Long.SIZE + ": " + distinguishedPointBits);
+        }
+        distinguishedPointMask = distinguishedPointBits == 0 ? 0L : -1L << (Long.SIZE - distinguishedPointBits);
+        expectedJumps = sqrtWidth.shiftLeft(1).add(kangaroos.shiftLeft(distinguishedPointBits));
+
+        Secp256k1Engine engine = Secp256k1Engine.get();
+        jumpX = new long[jumps][];
+        jumpY = new long[jumps][];
+        jumpDistance = new long[jumps][];
+        Secp256k1Point jump = new Secp256k1Point();
+        for (int i = 0; i < jumps; i++) {
+            BigInteger distance = BigInteger.ONE.shiftLeft(i);
+            engine.multiplyG(jump, distance);
+            engine.normalize(jump);
+            jumpX[i] = Secp256k1Field.create();
+            jumpY[i] = Secp256k1Field.create();
+            Secp256k1Field.set(jumpX[i], jump.x);
+            Secp256k1Field.set(jumpY[i], jump.y);
+            jumpDistance[i] = new long[Secp256k1Field.LIMBS];
+            toLimbs(jumpDistance[i], distance);
+        }
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Walk">
+    /**
+     * This method runs in multiple threads.
+     */
+    private void walk(Target target) {
+        final Secp256k1Engine engine = Secp256k1Engine.get();
+        final Random random = ThreadLocalRandom.current();
+        final int count = kangaroo.kangaroosPerThread;
+        final Secp256k1Point[] points = new Secp256k1Point[count];
+        final long[][] distances = new long[count][Secp256k1Field.LIMBS];
+        for (int i = 0; i < count; i++) {
+            points[i] = new Secp256k1Point();
+            start(target, points[i], distances[i], isTame(i), random);
+        }
+        engine.normalize(points, count);
+
+        while (shouldRun.get() && target.secret == null) {
+            for (int i = 0; i < count; i++) {
+                if (points[i].isInfinity()) {
+                    restart(target, points[i], distances[i], isTame(i), random);
+                } else if ((points[i].x[Secp256k1Field.LIMBS - 1] & distinguishedPointMask) == 0) {
+                    if (!distinguishedPoint(target, points[i], distances[i], isTame(i))) {
+                        uselessCollisions.incrementAndGet();
+                        restart(target, points[i], distances[i], isTame(i), random);
+                    }
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                int jump = (int) Long.remainderUnsigned(points[i].x[0], jumps);
+                engine.addAffine(points[i], points[i], jumpX[jump], jumpY[jump]);
+                addDistance(distances[i], jumpDistance[jump]);
+            }
+            engine.normalize(points, count);
+            jumpsDone.addAndGet(count);
+        }
+    }
+
+    private static boolean isTame(int index) {
+        return (index & 1) == 0;
+    }
+
+    /**
+     * A tame kangaroo starts at {@code rangeStart + distance} with a distance
+     * in the upper half of the range, a wild kangaroo at the target plus a
+     * distance in the lower half of the range.
+     */
+    private void start(Target target, Secp256k1Point point, long[] distance, boolean tame, Random random) {
+        Secp256k1Engine engine = Secp256k1Engine.get();
+        BigInteger startDistance = randomBelow(halfWidth, random);
+        if (tame) {
+            startDistance = startDistance.add(halfWidth);
+            engine.multiplyG(point, rangeStart.add(startDistance));
+        } else {
+            startDistance = startDistance.add(BigInteger.ONE);
+            engine.multiplyG(point, startDistance);
+            engine.normalize(point);
+            long[] offsetX = Secp256k1Field.create();
+            long[] offsetY = Secp256k1Field.create();
+            Secp256k1Field.set(offsetX, point.x);
+            Secp256k1Field.set(offsetY, point.y);
+            point.setAffine(target.x, target.y);
+            engine.addAffine(point, point, offsetX, offsetY);
+        }
+        toLimbs(distance, startDistance);
+    }
+
+    private void restart(Target target, Secp256k1Point point, long[] distance, boolean tame, Random random) {
+        start(target, point, distance, tame, random);
+        Secp256k1Engine.get().normalize(point);
+    }
+
+    private static BigInteger randomBelow(BigInteger bound, Random random) {
+        BigInteger value;
+        do {
+            value = new BigInteger(bound.bitLength(), random);
+        } while (value.compareTo(bound) >= 0);
+        return value;
+    }
+
+    /**
+     * @return {@code false} for a useless collision with a kangaroo of the same herd
+     */
+    private boolean distinguishedPoint(Target target, Secp256k1Point point, long[] distance, boolean tame) {
+        DistinguishedPoint distinguishedPoint = new DistinguishedPoint(Secp256k1Field.toBigInteger(point.x), Secp256k1Field.toBigInteger(distance), tame ? DistinguishedPointStore.TAME : target.publicKey);
+        DistinguishedPoint existing = distinguishedPointStore.putIfAbsent(distinguishedPoint);
+        if (existing == null) {
+            return true;
+        }
+        if (existing.herd.equals(distinguishedPoint.herd)) {
+            return false;
+        }
+        if (existing.isTame()) {
+            collision(existing, distinguishedPoint);
+        } else if (distinguishedPoint.isTame()) {
+            collision(distinguishedPoint, existing);
+        }
+        // a wild kangaroo of another target
+        return true;
+    }
+
+    private void collision(DistinguishedPoint tame, DistinguishedPoint wild) {
+        Target target = targets.get(wild.herd);
+        if (target == null || target.secret != null) {
+            return;
+        }
+        BigInteger secret = rangeStart.add(tame.distance).subtract(wild.distance).mod(Secp256k1Engine.N);
+        Secp256k1Engine engine = Secp256k1Engine.get();
+        Secp256k1Point point = new Secp256k1Point();
+        engine.multiplyG(point, secret);
+        engine.normalize(point);
+        if (point.isInfinity() || !Secp256k1Field.equals(point.x, target.x) || !Secp256k1Field.equals(point.y, target.y)) {
+            logger.error("The secret " + secret.toString(16) + " does not belong to: " + target.publicKey);
+            return;
+        }
+        target.secret = secret;
+        logger.info(HIT_PREFIX + target.publicKey + " secret: " + secret.toString(16));
+    }
+    // </editor-fold>
+
+    /**
+     * @param limbs little endian, 256 bit
+     */
+    private static void toLimbs(long[] limbs, BigInteger value) {
+        for (int i = 0; i < limbs.length; i++) {
+            limbs[i] = value.shiftRight(i * Long.SIZE).longValue();
+        }
+    }
+
+    /**
+     * {@code distance += jump} as 256 bit unsigned integers, the distances are far below 2^256.
+     */
+    static void addDistance(long[] distance, long[] jump) {
+        long carry = 0;
+        for (int i = 0; i < distance.length; i++) {
+            long sum = distance[i] + jump[i];
+            long carryOut = Long.compareUnsigned(sum, distance[i]) < 0 ? 1 : 0;
+            sum += carry;
+            carryOut |= (sum == 0 && carry == 1) ? 1 : 0;
+            distance[i] = sum;
+            carry = carryOut;
+        }
+    }
+
+    /**
+     * @return the found secrets by public key
+     */
+    public Map<String, BigInteger> getSecrets() {
+        Map<String, BigInteger> secrets = new LinkedHashMap<>();
+        for (Target target : targets.values()) {
+            if (target.secret != null) {
+                secrets.put(target.publicKey, target.secret);
+            }
+        }
+        return Collections.unmodifiableMap(secrets);
+    }
+
+    /**
+     * Runs the runnable in all threads and waits for them.
+     */
+    private void runInThreads(Runnable runnable) {
+        ExecutorService executor = Executors.newFixedThreadPool(kangaroo.threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < kangaroo.threads; i++) {
+                futures.add(executor.submit(runnable));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Statistics and distinguished point files">
+    private void startTimers() {
+        long statisticsPeriod = kangaroo.printStatisticsEveryNSeconds * (long) ONE_SECOND_IN_MILLISECONDS;
+        if (statisticsPeriod <= 0) {
+            throw new IllegalArgumentException("period must be greater than 0.");
+        }
+        timer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                logger.info(createStatisticsMessage());
+            }
+        }, statisticsPeriod, statisticsPeriod);
+
+        if (kangaroo.distinguishedPointFile != null) {
+            long savePeriod = kangaroo.saveDistinguishedPointsEveryNSeconds * (long) ONE_SECOND_IN_MILLISECONDS;
+            if (savePeriod <= 0) {
+                throw new IllegalArgumentException("period must be greater than 0.");
+            }
+            timer.scheduleAtFixedRate(new TimerTask() {
+                @Override
+                public void run() {
+                    writeDistinguishedPoints();
+                }
+            }, savePeriod, savePeriod);
+        }
+    }
+
+    private String createStatisticsMessage() {
+        long uptime = Math.max(System.currentTimeMillis() - startTime, 1);
+        long uptimeInSeconds = Math.max(uptime / ONE_SECOND_IN_MILLISECONDS, 1);
+        long jumpsDoneNow = jumpsDone.get();
+        long jumpsPerSecond = jumpsDoneNow / uptimeInSeconds;
+        BigInteger remainingJumps = expectedJumps.subtract(BigInteger.valueOf(jumpsDoneNow)).max(BigInteger.ZERO);
+        String eta = jumpsPerSecond == 0 ? "unknown" : TimeUnit.SECONDS.toMinutes(remainingJumps.divide(BigInteger.valueOf(jumpsPerSecond)).min(BigInteger.valueOf(Long.MAX_VALUE)).longValue()) + " minutes";
+        return "Statistics: [Jumps: " + jumpsDoneNow + "] [" + (jumpsPerSecond / 1_000L) + " k jumps/second] [Expected jumps per target: " + expectedJumps + "] [ETA: " + eta + "] [Distinguished points: " + distinguishedPointStore.size() + "] [Useless collisions: " + uselessCollisions.get() + "] [Found: " + getSecrets().size() + " of " + targets.size() + "]";
+    }
+
+    private void readDistinguishedPoints() {
+        List<String> files = new ArrayList<>();
+        if (kangaroo.distinguishedPointFile != null && new File(kangaroo.distinguishedPointFile).exists()) {
+            files.add(kangaroo.distinguishedPointFile);
+        }
+        files.addAll(kangaroo.mergeDistinguishedPointFiles);
+        for (String fileName : files) {
+            File file = new File(fileName);
+            try {
+                List<DistinguishedPoint[]> collisions = distinguishedPointStore.merge(file);
+                logger.info("Read distinguished points from " + file.getAbsolutePath() + ", " + distinguishedPointStore.size() + " distinguished points.");
+                for (DistinguishedPoint[] collision : collisions) {
+                    if (collision[0].isTame()) {
+                        collision(collision[0], collision[1]);
+                    } else {
+                        collision(collision[1], collision[0]);
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private void writeDistinguishedPoints() {
+        if (kangaroo.distinguishedPointFile == null) {
+            return;
+        }
+        File file = new File(kangaroo.distinguishedPointFile);
+        try {
+            distinguishedPointStore.write(file);
+        } catch (IOException e) {
+            logger.error("Could not write the distinguished points: " + file.getAbsolutePath(), e);
+        }
+    }
+    // </editor-fold>
+
+    @Override
+    public void interrupt() {
+    }
+}
@@ -0,0 +1,156 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A set of non-negative longs stored as a run-length list of disjoint,
+ * non-adjacent ranges {@code [start, end)}. Compact for values added in
+ * (nearly) ascending order. Not thread safe.
+ */
+public class LongRangeSet {
+
+    private static final String RANGE_SEPARATOR = ",";
+    private static final String START_END_SEPARATOR = "-";
+
+    /**
+     * The start (inclusive) to the end (exclusive) of every range.
+     */
+    private final TreeMap<Long, Long> ranges = new TreeMap<>();
+
+    /**
+     * @return {@code false} if the value was contained already
+     */
+    public boolean add(long value) {
+        if (contains(value)) {
+            return false;
+        }
+        add(value, value + 1);
+        return true;
+    }
+
+    /**
+     * Adds the range {@code [start, end)}, merges it with overlapping and adjacent ranges.
+     */
+    public void add(long start, long end) {
+        if (start >= end) {
+            return;
+        }
+        Map.Entry<Long, Long> floor = ranges.floorEntry(start);
+        if (floor != null && floor.getValue() >= start) {
+            start = floor.getKey();
+            end = Math.max(end, floor.getValue());
+        }
+        Map.Entry<Long, Long> next;
+        while ((next = ranges.ceilingEntry(start)) != null && next.getKey() <= end) {
+            end = Math.max(end, next.getValue());
+            ranges.remove(next.getKey());
+        }
+        ranges.put(start, end);
+    }
+
+    public void addAll(LongRangeSet other) {
+        for (Map.Entry<Long, Long> range : other.ranges.entrySet()) {
+            add(range.getKey(), range.getValue());
+        }
+    }
+
+    public boolean contains(long value) {
+        Map.Entry<Long, Long> floor = ranges.floorEntry(value);
+        return floor != null && floor.getValue() > value;
+    }
+
+    /**
+     * @return the smallest value greater than or equal to {@code from} which is not contained
+     */
+    public long nextAbsent(long from) {
+        Map.Entry<Long, Long> floor = ranges.floorEntry(from);
+        if (floor != null && floor.getValue() > from) {
+            return floor.getValue();
+        }
+        return from;
+    }
+
+    /**
+     * @return the smallest contained value greater than or equal to {@code from}, {@link Long#MAX_VALUE} if none
+     */
+    public long nextPresent(long from) {
+        if (contains(from)) {
+            return from;
+        }
+        Long next = ranges.ceilingKey(from);
+        return next != null ? next : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return the number of contained values in {@code [from, to)}
+     */
+    public long count(long from, long to) {
+        long count = 0;
+        Long firstKey = ranges.floorKey(from);
+        for (Map.Entry<Long, Long> range : ranges.subMap(firstKey != null ? firstKey : from, true, to, false).entrySet()) {
+            count += Math.max(0, Math.min(range.getValue(), to) - Math.max(range.getKey(), from));
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of ranges
+     */
+    public int getRangeCount() {
+        return ranges.size();
+    }
+
+    /**
+     * @return the ranges, e.g. {@code 0-100,105-106}
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Long, Long> range : ranges.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(RANGE_SEPARATOR);
+            }
+            sb.append(range.getKey()).append(START_END_SEPARATOR).append(range.getValue());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param text the format of {@link #toString()}
+     */
+    public static LongRangeSet parse(String text) {
+        LongRangeSet longRangeSet = new LongRangeSet();
+        if (text.isEmpty()) {
+            return longRangeSet;
+        }
+        for (String range : text.split(RANGE_SEPARATOR)) {
+            String[] startEnd = range.split(START_END_SEPARATOR);
+            long start = Long.parseLong(startEnd[0]);
+            long end = Long.parseLong(startEnd[1]);
+            if (start < 0 || start >= end) {
+                throw new IllegalArgumentException("Invalid range: " + range);
+            }
+            longRangeSet.add(start, end);
+        }
+        return longRangeSet;
+    }
+}
@@ -0,0 +1,237 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import net.ladenthin.bitcoinaddressfinder.configuration.CWaitStrategy;
+
+/**
+ * A bounded, preallocated multi-producer/multi-consumer ring buffer
+ * (Dmitry Vyukov's bounded MPMC queue). {@link #offer(java.lang.Object)} and
+ * {@link #poll()} are lock-free and never block. Waiting for space or elements
+ * is explicit via {@link #awaitNotFull(long)} and {@link #awaitNotEmpty(long)}
+ * using the configured {@link CWaitStrategy}.
+ * <p>
+ * Every slot has a sequence number. A slot at position {@code p} is free to
+ * write if its sequence is {@code p}, and ready to read if it is {@code p + 1}.
+ *
+ * @param <E> the element type
+ */
+public class MpmcRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private final AtomicLong dequeuePosition = new AtomicLong();
+
+    private final CWaitStrategy waitStrategy;
+    private final long parkTimeInNanoseconds;
+
+    // used by CWaitStrategy.Blocking only
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final AtomicInteger waitingConsumers = new AtomicInteger();
+    private final AtomicInteger waitingProducers = new AtomicInteger();
+
+    /**
+     * @param minimumCapacity rounded up to the next power of two, at least
+     * two: with a single slot the sequence of a full slot equals the
+     * sequence of the next free position
+     * @param waitStrategy the strategy of {@link #awaitNotEmpty(long)} and {@link #awaitNotFull(long)}
+     * @param parkTimeInNanoseconds the park time of {@link CWaitStrategy#Park}
+     */
+    public MpmcRingBuffer(int minimumCapacity, CWaitStrategy waitStrategy, long parkTimeInNanoseconds) {
+        if (minimumCapacity < 1 || minimumCapacity > (1 << 30)) {
+            throw new IllegalArgumentException("minimumCapacity must be between 1 and 2^30: " + minimumCapacity);
+        }
+        this.capacity = minimumCapacity <= 2 ? 2 : Integer.highestOneBit(minimumCapacity - 1) << 1;
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.waitStrategy = waitStrategy;
+        this.parkTimeInNanoseconds = parkTimeInNanoseconds;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of elements, only a snapshot under concurrent access
+     */
+    public int size() {
+        long size = enqueuePosition.get() - dequeuePosition.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @param element not {@code null}
+     * @return {@code false} if the buffer is full
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        long position = enqueuePosition.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    sequences.set(index, position + 1);
+                    signalIfWaiting(waitingConsumers, notEmpty);
+                    return true;
+                }
+                position = enqueuePosition.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = enqueuePosition.get();
+            }
+        }
+    }
+
+    /**
+     * @return the next element or {@code null} if the buffer is empty
+     */
+    public E poll() {
+        long position = dequeuePosition.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (dequeuePosition.compareAndSet(position, position + 1)) {
+                    E element = elements.get(index);
+                    elements.lazySet(index, null);
+                    sequences.set(index, position + capacity);
+                    signalIfWaiting(waitingProducers, notFull);
+                    return element;
+                }
+                position = dequeuePosition.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = dequeuePosition.get();
+            }
+        }
+    }
+
+    /**
+     * Waits one step of the wait strategy while the buffer is empty. The caller retries {@link #poll()} afterwards.
+     * @param maxWaitInNanoseconds the maximum wait time of {@link CWaitStrategy#Blocking}
+     */
+    public void awaitNotEmpty(long maxWaitInNanoseconds) throws InterruptedException {
+        if (waitStrategy == CWaitStrategy.Blocking) {
+            await(waitingConsumers, notEmpty, true, maxWaitInNanoseconds);
+        } else {
+            idle();
+        }
+    }
+
+    /**
+     * Waits one step of the wait strategy while the buffer is full. The caller retries {@link #offer(java.lang.Object)} afterwards.
+     * @param maxWaitInNanoseconds the maximum wait time of {@link CWaitStrategy#Blocking}
+     */
+    public void awaitNotFull(long maxWaitInNanoseconds) throws InterruptedException {
+        if (waitStrategy == CWaitStrategy.Blocking) {
+            await(waitingProducers, notFull, false, maxWaitInNanoseconds);
+        } else {
+            idle();
+        }
+    }
+
+    private void idle() {
+        switch (waitStrategy) {
+            case BusySpin:
+                Thread.onSpinWait();
+                break;
+            case Yield:
+                Thread.yield();
+                break;
+            case Park:
+                LockSupport.parkNanos(parkTimeInNanoseconds);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown waitStrategy: " + waitStrategy);
+        }
+    }
+
+    /**
+     * The waiting counter is increased before the state is checked under the
+     * lock. A concurrent {@link #offer(java.lang.Object)} or {@link #poll()}
+     * either sees the waiter and signals, or the waiter sees the new state.
+     */
+    private void await(AtomicInteger waiting, Condition condition, boolean untilNotEmpty, long maxWaitInNanoseconds) throws InterruptedException {
+        waiting.incrementAndGet();
+        lock.lock();
+        try {
+            boolean mustWait = untilNotEmpty ? isEmpty() : size() >= capacity;
+            if (mustWait) {
+                condition.await(maxWaitInNanoseconds, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            lock.unlock();
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Wakes up all consumers waiting in {@link #awaitNotEmpty(long)}, e.g. if
+     * they have other work than the elements of this buffer.
+     */
+    public void wakeUpConsumers() {
+        if (waitStrategy == CWaitStrategy.Blocking && waitingConsumers.get() > 0) {
+            lock.lock();
+            try {
+                notEmpty.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void signalIfWaiting(AtomicInteger waiting, Condition condition) {
+        if (waitStrategy == CWaitStrategy.Blocking && waiting.get() > 0) {
+            lock.lock();
+            try {
+                condition.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
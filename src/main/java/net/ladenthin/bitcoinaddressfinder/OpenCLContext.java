@@ -19,6 +19,7 @@
 package net.ladenthin.bitcoinaddressfinder;
 
 import com.google.common.io.Resources;
+import java.io.File;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.net.URL;
@@ -26,26 +27,50 @@ import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
 import net.ladenthin.bitcoinaddressfinder.configuration.CProducerOpenCL;
+import net.ladenthin.bitcoinaddressfinder.opencl.OpenCLBuilder;
+import net.ladenthin.bitcoinaddressfinder.persistence.filter.BlockedBloomFilter;
+import static org.jocl.CL.CL_COMPLETE;
 import static org.jocl.CL.CL_CONTEXT_PLATFORM;
+import static org.jocl.CL.CL_DEVICE_MAX_MEM_ALLOC_SIZE;
+import static org.jocl.CL.CL_DEVICE_NAME;
+import static org.jocl.CL.CL_DEVICE_VERSION;
+import static org.jocl.CL.CL_DRIVER_VERSION;
+import static org.jocl.CL.CL_MEM_READ_ONLY;
+import static org.jocl.CL.CL_TRUE;
 import static org.jocl.CL.clBuildProgram;
+import static org.jocl.CL.clCreateBuffer;
 import static org.jocl.CL.clCreateCommandQueueWithProperties;
 import static org.jocl.CL.clCreateContext;
 import static org.jocl.CL.clCreateKernel;
 import static org.jocl.CL.clCreateProgramWithSource;
+import static org.jocl.CL.clEnqueueWriteBuffer;
 import static org.jocl.CL.clGetDeviceIDs;
+import static org.jocl.CL.clFinish;
 import static org.jocl.CL.clGetPlatformIDs;
 import static org.jocl.CL.clReleaseCommandQueue;
 import static org.jocl.CL.clReleaseContext;
+import static org.jocl.CL.clReleaseEvent;
+import static org.jocl.CL.clReleaseMemObject;
+import static org.jocl.CL.clSetEventCallback;
+import static org.jocl.CL.clSetKernelArg;
+import org.jocl.Pointer;
+import org.jocl.Sizeof;
 import org.jocl.cl_command_queue;
 import org.jocl.cl_context;
 import org.jocl.cl_context_properties;
 import org.jocl.cl_device_id;
+import org.jocl.cl_event;
 import org.jocl.cl_kernel;
+import org.jocl.cl_mem;
 import org.jocl.cl_platform_id;
 import org.jocl.cl_program;
 import org.jocl.cl_queue_properties;
 import org.jocl.CL;
+import org.jocl.CLException;
 import static org.jocl.CL.clReleaseKernel;
 import static org.jocl.CL.clReleaseProgram;
 import org.slf4j.Logger;
@@ -66,22 +91,45 @@ public class OpenCLContext {
     public static final int GEN_UNTIL_3RD_SHA256_MODE = 7;
     public static final int GEN_UNTIL_ADDRESS_MODE = 8;
 
+    /**
+     * Writes the hash160 of the uncompressed and the compressed public key only, see {@link PublicKeyBytesBatch}.
+     * The consumer checks them directly, the public key of a hit is calculated on demand.
+     */
+    public static final int GEN_HASH160_MODE = 9;
+
+    /**
+     * Same as {@link #GEN_HASH160_MODE}, the hash160s are tested on the device against the address filter of the
+     * consumer (uploaded once by {@link #init()}). Only the offsets of the candidates are read back, see
+     * {@link OpenCLGridResult#getPublicKeyBytesBatch()}. Requires an address filter and synchronous launches.
+     */
+    public static final int GEN_HASH160_FILTERED_MODE = 10;
+
     protected Logger logger = LoggerFactory.getLogger(this.getClass());
     private final int[] errorCode = new int[1];
 
+    private static final Pattern INCLUDE_PATTERN = Pattern.compile("#include.*");
+    private static final Pattern GLOBAL_AS_TMPS_PATTERN = Pattern.compile("GLOBAL_AS const secp256k1_t \\*tmps");
+    private static final String GLOBAL_AS_TMPS_REPLACEMENT = "const secp256k1_t \\*tmps";
+
     public String[] getOpenCLPrograms() throws IOException {
-        List<String> resourceNamesContent = getResourceNamesContent(getResourceNames());
+        return toOpenCLPrograms(getResourceNamesContent(getResourceNames()));
+    }
+
+    private static String[] toOpenCLPrograms(List<String> resourceNamesContent) {
         List<String> resourceNamesContentWithReplacements = new ArrayList<>();
         for (String content : resourceNamesContent) {
             String contentWithReplacements = content;
-            contentWithReplacements = contentWithReplacements.replaceAll("#include.*", "");
-            contentWithReplacements = contentWithReplacements.replaceAll("GLOBAL_AS const secp256k1_t \\*tmps", "const secp256k1_t \\*tmps");
+            contentWithReplacements = INCLUDE_PATTERN.matcher(contentWithReplacements).replaceAll("");
+            contentWithReplacements = GLOBAL_AS_TMPS_PATTERN.matcher(contentWithReplacements).replaceAll(GLOBAL_AS_TMPS_REPLACEMENT);
             resourceNamesContentWithReplacements.add(contentWithReplacements);
         }
         String[] openClPrograms = resourceNamesContentWithReplacements.toArray(new String[0]);
         return openClPrograms;
     }
 
+    /**
+     * @return only the sources the kernels of the {@link CProducerOpenCL#kernelMode} need
+     */
     private List<String> getResourceNames() {
         List<String> resourceNames = new ArrayList<>();
         resourceNames.add("inc_defines.h");
@@ -94,15 +142,24 @@ public class OpenCLContext {
 
         resourceNames.add("copyfromhashcat/inc_ecc_secp256k1.h");
         resourceNames.add("copyfromhashcat/inc_ecc_secp256k1.cl");
+        if (producerOpenCL.kernelMode == GEN_XY_COORDINATES_ONLY_MODE) {
+            resourceNames.add("inc_ecc_secp256k1custom.cl");
+            return resourceNames;
+        }
         resourceNames.add("copyfromhashcat/inc_hash_sha256.h");
         resourceNames.add("copyfromhashcat/inc_hash_sha256.cl");
         resourceNames.add("copyfromhashcat/inc_hash_ripemd160.h");
         resourceNames.add("copyfromhashcat/inc_hash_ripemd160.cl");
+        if (producerOpenCL.kernelMode == GEN_RIPEMD160_ONLY_MODE) {
+            resourceNames.add("generate_btc_ripemd160.cl");
+            return resourceNames;
+        }
         resourceNames.add("generator_utilities.cl");
-        resourceNames.add("inc_ecc_secp256k1custom.cl");
+        if (producerOpenCL.kernelMode == GEN_HASH160_MODE || producerOpenCL.kernelMode == GEN_HASH160_FILTERED_MODE) {
+            resourceNames.add("generate_btc_hash160.cl");
+            return resourceNames;
+        }
         resourceNames.add("generate_btc_address.cl");
-        resourceNames.add("generate_btc_ripemd160.cl");
-
         return resourceNames;
     }
 
@@ -134,20 +191,54 @@ public class OpenCLContext {
     private static final String UNTIL_ADDRESS_CHUNK_KERNEL = "generate_chunk_until_address";
     private static final String UNTIL_ADDRESS_NONCHUNK_KERNEL = "generate_until_address";
 
+    // names of kernel methods that only write the hash160s of the uncompressed and the compressed public key into the result buffer:
+    private static final String HASH160_CHUNK_KERNEL = "generate_hash160_chunk";
+    private static final String HASH160_NONCHUNK_KERNEL = "generate_hash160_nonchunk";
+
+    // names of kernel methods that only write the candidates of the address filter into the result buffer:
+    private static final String HASH160_FILTERED_CHUNK_KERNEL = "generate_hash160_filtered_chunk";
+    private static final String HASH160_FILTERED_NONCHUNK_KERNEL = "generate_hash160_filtered_nonchunk";
+
+    // the kernel arguments of the address filter, set once
+    private static final int ADDRESS_FILTER_ARG_INDEX = 2;
+    private static final int ADDRESS_FILTER_NUMBER_OF_BLOCKS_ARG_INDEX = 3;
+    private static final int ADDRESS_FILTER_NUMBER_OF_HASH_FUNCTIONS_ARG_INDEX = 4;
+
     private final static boolean EXCEPTIONS_ENABLED = true;
     
     private final CProducerOpenCL producerOpenCL;
+    @Nullable
+    private final BlockedBloomFilter addressFilter;
 
     private cl_context_properties contextProperties;
     private cl_device_id device;
     private cl_context context;
     private cl_command_queue commandQueue;
+    /**
+     * The queues of the uploads and the readbacks of the asynchronous launches, {@code null} without a
+     * {@link CProducerOpenCL#pipelineDepth}.
+     */
+    @Nullable
+    private cl_command_queue writeQueue;
+    @Nullable
+    private cl_command_queue readQueue;
     private cl_program program;
     private cl_kernel kernel;
     private OpenClTask openClTask;
+    private OpenCLResultBufferPool resultBufferPool;
+    @Nullable
+    private cl_mem addressFilterMem;
     
     public OpenCLContext(CProducerOpenCL producerOpenCL) {
+        this(producerOpenCL, null);
+    }
+
+    /**
+     * @param addressFilter the filter of the {@link #GEN_HASH160_FILTERED_MODE}, {@code null} for the other modes
+     */
+    public OpenCLContext(CProducerOpenCL producerOpenCL, @Nullable BlockedBloomFilter addressFilter) {
         this.producerOpenCL = producerOpenCL;
+        this.addressFilter = addressFilter;
     }
     
     /**
@@ -157,6 +248,15 @@ public class OpenCLContext {
      */
     public void init() throws IOException, UnknownKernelModeException {
         
+        if (producerOpenCL.kernelMode == GEN_HASH160_FILTERED_MODE) {
+            if (addressFilter == null) {
+                throw new IllegalArgumentException("The kernel mode " + GEN_HASH160_FILTERED_MODE + " requires an address filter.");
+            }
+            if (producerOpenCL.pipelineDepth > 0) {
+                throw new IllegalArgumentException("The kernel mode " + GEN_HASH160_FILTERED_MODE + " does not support a pipelineDepth greater than 0.");
+            }
+        }
+        
         // #################### general ####################
         
         // Enable exceptions and subsequently omit error checks in this sample
@@ -193,20 +293,101 @@ public class OpenCLContext {
         // Create a command-queue for the selected device
         cl_queue_properties properties = new cl_queue_properties();
         commandQueue = clCreateCommandQueueWithProperties(context, device, properties, null);
+        if (producerOpenCL.pipelineDepth > 0) {
+            // in-order queues: an upload must not wait for the readback of the previous launch and vice versa
+            writeQueue = clCreateCommandQueueWithProperties(context, device, properties, null);
+            readQueue = clCreateCommandQueueWithProperties(context, device, properties, null);
+        }
         
         // #################### kernel specifix ####################
         
-        String[] openCLPrograms = getOpenCLPrograms();
-        // Create the program from the source code
-        program = clCreateProgramWithSource(context, openCLPrograms.length, openCLPrograms, null, null);
-
-        // Build the program
-        clBuildProgram(program, 0, null, null, null, null);
+        List<String> resourceNamesContent = getResourceNamesContent(getResourceNames());
+        long beforeBuild = System.currentTimeMillis();
+        program = createProgram(resourceNamesContent);
+        logger.info("Created the OpenCL program in " + (System.currentTimeMillis() - beforeBuild) + " ms.");
         
         // Create the kernel
         setKernel();
 
+        if (producerOpenCL.kernelMode == GEN_HASH160_FILTERED_MODE) {
+            uploadAddressFilter();
+        }
+
         openClTask = new OpenClTask(context, producerOpenCL);
+        // the private keys of a launch must stay unchanged until its asynchronous upload
+        int srcSizeInBytes = producerOpenCL.pipelineDepth > 0 ? openClTask.getSrcSizeInBytes() : 0;
+        // the candidates are read partially, a mapped buffer is read completely
+        boolean filtered = producerOpenCL.kernelMode == GEN_HASH160_FILTERED_MODE;
+        boolean mapResultBuffers = producerOpenCL.mapResultBuffers && !filtered;
+        resultBufferPool = new OpenCLResultBufferPool(context, srcSizeInBytes, openClTask.getDstSizeInBytes(), producerOpenCL.resultBufferPoolSize, mapResultBuffers, filtered);
+    }
+
+    /**
+     * Copies the chunks of the address filter into one device buffer and sets it as kernel argument.
+     */
+    private void uploadAddressFilter() {
+        long sizeInBytes = addressFilter.getSizeInBytes();
+        long maxMemAllocSize = OpenCLBuilder.getLong(device, CL_DEVICE_MAX_MEM_ALLOC_SIZE);
+        if (sizeInBytes > maxMemAllocSize) {
+            throw new IllegalArgumentException("The address filter (" + sizeInBytes + " bytes) exceeds the maximum allocation size of the device: " + maxMemAllocSize + " bytes.");
+        }
+        long beforeUpload = System.currentTimeMillis();
+        addressFilterMem = clCreateBuffer(context, CL_MEM_READ_ONLY, sizeInBytes, null, null);
+        long offset = 0;
+        for (ByteBuffer chunk : addressFilter.getChunks()) {
+            clEnqueueWriteBuffer(commandQueue, addressFilterMem, CL_TRUE, offset, chunk.capacity(), Pointer.to(chunk), 0, null, null);
+            offset += chunk.capacity();
+        }
+        clSetKernelArg(kernel, ADDRESS_FILTER_ARG_INDEX, Sizeof.cl_mem, Pointer.to(addressFilterMem));
+        clSetKernelArg(kernel, ADDRESS_FILTER_NUMBER_OF_BLOCKS_ARG_INDEX, Sizeof.cl_ulong, Pointer.to(new long[]{addressFilter.getNumberOfBlocks()}));
+        clSetKernelArg(kernel, ADDRESS_FILTER_NUMBER_OF_HASH_FUNCTIONS_ARG_INDEX, Sizeof.cl_uint, Pointer.to(new int[]{addressFilter.getNumberOfHashFunctions()}));
+        logger.info("Uploaded the address filter (" + sizeInBytes + " bytes) in " + (System.currentTimeMillis() - beforeUpload) + " ms.");
+    }
+
+    /**
+     * Loads the program from the {@link CProducerOpenCL#programBinaryCacheDirectory} or builds it from the sources.
+     */
+    private cl_program createProgram(List<String> resourceNamesContent) {
+        if (producerOpenCL.programBinaryCacheDirectory == null) {
+            return buildProgram(resourceNamesContent);
+        }
+        OpenCLProgramBinaryCache programBinaryCache = new OpenCLProgramBinaryCache(new File(producerOpenCL.programBinaryCacheDirectory));
+        String key = OpenCLProgramBinaryCache.createKey(
+                resourceNamesContent,
+                OpenCLBuilder.getString(device, CL_DEVICE_NAME),
+                OpenCLBuilder.getString(device, CL_DRIVER_VERSION),
+                OpenCLBuilder.getString(device, CL_DEVICE_VERSION),
+                null
+        );
+        byte[] binary = programBinaryCache.load(key);
+        if (binary != null) {
+            cl_program binaryProgram = null;
+            try {
+                binaryProgram = OpenCLProgramBinaryCache.createProgramWithBinary(context, device, binary);
+                clBuildProgram(binaryProgram, 0, null, null, null, null);
+                logger.info("Loaded the cached OpenCL program binary " + key + ".");
+                return binaryProgram;
+            } catch (CLException e) {
+                logger.warn("The cached OpenCL program binary " + key + " was rejected, build from sources.", e);
+                if (binaryProgram != null) {
+                    clReleaseProgram(binaryProgram);
+                }
+                programBinaryCache.remove(key);
+            }
+        }
+        cl_program sourceProgram = buildProgram(resourceNamesContent);
+        programBinaryCache.store(key, OpenCLProgramBinaryCache.getProgramBinary(sourceProgram));
+        return sourceProgram;
+    }
+
+    private cl_program buildProgram(List<String> resourceNamesContent) {
+        String[] openCLPrograms = toOpenCLPrograms(resourceNamesContent);
+        // Create the program from the source code
+        cl_program sourceProgram = clCreateProgramWithSource(context, openCLPrograms.length, openCLPrograms, null, null);
+
+        // Build the program
+        clBuildProgram(sourceProgram, 0, null, null, null, null);
+        return sourceProgram;
     }
 
     private void setKernel() throws UnknownKernelModeException {
@@ -228,6 +409,10 @@ public class OpenCLContext {
             setBytewiseThirdSha256Kernel();
         } else if (producerOpenCL.kernelMode == GEN_UNTIL_ADDRESS_MODE) {
             setBytewiseAddressKernel();
+        } else if (producerOpenCL.kernelMode == GEN_HASH160_MODE) {
+            setHash160Kernel();
+        } else if (producerOpenCL.kernelMode == GEN_HASH160_FILTERED_MODE) {
+            setHash160FilteredKernel();
         } else {
             throw new UnknownKernelModeException(producerOpenCL.kernelMode);
         }
@@ -305,6 +490,22 @@ public class OpenCLContext {
         }
     }
 
+    private void setHash160Kernel() {
+        if (producerOpenCL.chunkMode) {
+            kernel = clCreateKernel(program, HASH160_CHUNK_KERNEL, errorCode);
+        } else {
+            kernel = clCreateKernel(program, HASH160_NONCHUNK_KERNEL, errorCode);
+        }
+    }
+
+    private void setHash160FilteredKernel() {
+        if (producerOpenCL.chunkMode) {
+            kernel = clCreateKernel(program, HASH160_FILTERED_CHUNK_KERNEL, errorCode);
+        } else {
+            kernel = clCreateKernel(program, HASH160_FILTERED_NONCHUNK_KERNEL, errorCode);
+        }
+    }
+
     public int getErrorCode() {
         return errorCode[0];
     }
@@ -317,11 +518,33 @@ public class OpenCLContext {
         return openClTask;
     }
 
+    protected OpenCLResultBufferPool getResultBufferPool() {
+        return resultBufferPool;
+    }
+
     public void release() {
+        if (writeQueue != null) {
+            clFinish(writeQueue);
+        }
+        clFinish(commandQueue);
+        if (readQueue != null) {
+            clFinish(readQueue);
+        }
+        logger.info(resultBufferPool.createStatisticsMessage());
+        resultBufferPool.releaseAll();
         openClTask.releaseCl();
+        if (addressFilterMem != null) {
+            clReleaseMemObject(addressFilterMem);
+        }
         clReleaseKernel(kernel);
         clReleaseProgram(program);
         clReleaseCommandQueue(commandQueue);
+        if (writeQueue != null) {
+            clReleaseCommandQueue(writeQueue);
+        }
+        if (readQueue != null) {
+            clReleaseCommandQueue(readQueue);
+        }
         clReleaseContext(context);
     }
 
@@ -340,11 +563,56 @@ public class OpenCLContext {
      */
     public OpenCLGridResult createResult(BigInteger[] privateKeys) throws InvalidWorkSizeException {
         openClTask.setSrcPrivateKeys(privateKeys);
-        ByteBuffer dstByteBuffer = openClTask.executeKernel(kernel, commandQueue);
-        return new OpenCLGridResult(privateKeys, producerOpenCL.getWorkSize(), dstByteBuffer,
+        OpenCLResultBufferPool.ResultBuffer resultBuffer = resultBufferPool.lease();
+        try {
+            openClTask.executeKernel(kernel, commandQueue, resultBuffer);
+        } catch (RuntimeException e) {
+            resultBuffer.release();
+            throw e;
+        }
+        return new OpenCLGridResult(privateKeys, producerOpenCL.getWorkSize(), resultBuffer,
                 producerOpenCL.chunkMode, producerOpenCL.kernelMode);
     }
 
+    /**
+     * Same as {@link #createResult(BigInteger[])} without waiting for the device. Upload, kernel and readback are
+     * enqueued on their own queues and the launch returns immediately: the upload of the next launch and the
+     * readback of the previous one overlap the kernel on the device.
+     * Requires {@link CProducerOpenCL#pipelineDepth} &gt; 0.
+     *
+     * @return completed by an OpenCL event callback once the result is read, use an {@code *Async} method with an
+     * executor for the further processing to not block the callback thread of the OpenCL driver
+     * @throws InvalidWorkSizeException when the number of given privateKeys is not equal the work size.
+     */
+    public CompletableFuture<OpenCLGridResult> createResultAsync(BigInteger[] privateKeys) throws InvalidWorkSizeException {
+        if (!resultBufferPool.hasSrcHostBuffers()) {
+            throw new IllegalStateException("The asynchronous launch requires a pipelineDepth greater than 0.");
+        }
+        OpenCLResultBufferPool.ResultBuffer resultBuffer = resultBufferPool.lease();
+        cl_event readEvent = new cl_event();
+        try {
+            openClTask.setSrcPrivateKeys(privateKeys, resultBuffer.srcHostBuffer);
+            openClTask.enqueueKernel(kernel, commandQueue, writeQueue, readQueue, resultBuffer, readEvent);
+        } catch (InvalidWorkSizeException | RuntimeException e) {
+            resultBuffer.release();
+            throw e;
+        }
+        OpenCLGridResult openCLGridResult = new OpenCLGridResult(privateKeys, producerOpenCL.getWorkSize(), resultBuffer,
+                producerOpenCL.chunkMode, producerOpenCL.kernelMode);
+
+        CompletableFuture<OpenCLGridResult> future = new CompletableFuture<>();
+        clSetEventCallback(readEvent, CL_COMPLETE, (event, commandExecCallbackType, userData) -> {
+            clReleaseEvent(event);
+            if (commandExecCallbackType == CL_COMPLETE) {
+                future.complete(openCLGridResult);
+            } else {
+                openCLGridResult.freeResult();
+                future.completeExceptionally(new IllegalStateException("The OpenCL launch failed: " + CL.stringFor_errorCode(commandExecCallbackType)));
+            }
+        }, null);
+        return future;
+    }
+
     private static List<String> getResourceNamesContent(List<String> resourceNames) throws IOException {
         List<String> contents = new ArrayList<>();
         for (String resourceName : resourceNames) {
@@ -19,20 +19,22 @@ package net.ladenthin.bitcoinaddressfinder;
 
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 public class OpenCLGridResult {
 
-    private final ByteBufferUtility byteBufferUtility = new ByteBufferUtility(true);
     private final BigInteger[] secretKeys;
     private final int workSize;
     private final boolean chunkMode;
     private final int kernelMode;
+    private OpenCLResultBufferPool.ResultBuffer resultBuffer;
     private ByteBuffer result;
 
-    OpenCLGridResult(BigInteger[] secretKeys, int workSize, ByteBuffer result, boolean chunkMode, int kernelMode) {
+    OpenCLGridResult(BigInteger[] secretKeys, int workSize, OpenCLResultBufferPool.ResultBuffer resultBuffer, boolean chunkMode, int kernelMode) {
         this.secretKeys = secretKeys;
         this.workSize = workSize;
-        this.result = result;
+        this.resultBuffer = resultBuffer;
+        this.result = resultBuffer.getByteBuffer();
         this.chunkMode = chunkMode;
         this.kernelMode = kernelMode;
     }
@@ -42,10 +44,11 @@ public class OpenCLGridResult {
     }
 
     /**
-     * Frees byte buffer and sets result to NULL
+     * Returns the result buffer to its pool and sets result to NULL
      */
     public void freeResult() {
-        byteBufferUtility.freeByteBuffer(result);
+        resultBuffer.release();
+        resultBuffer = null;
         result = null;
     }
 
@@ -68,6 +71,90 @@ public class OpenCLGridResult {
         return publicKeys;
     }
 
+    /**
+     * Same as {@link #getPublicKeyBytes()} without an allocation per key.
+     * Supports the chunk mode only, all keys share one secret base.
+     * In the {@link OpenCLContext#GEN_HASH160_MODE} the batch contains the
+     * calculated hash160s only, see {@link PublicKeyBytesBatch#ofHash160s(int, BigInteger)}.
+     * In the {@link OpenCLContext#GEN_HASH160_FILTERED_MODE} the batch contains the
+     * candidates of the address filter only, see {@link PublicKeyBytesBatch#isPrefiltered()}.
+     *
+     * @return the calculated public keys
+     */
+    public PublicKeyBytesBatch getPublicKeyBytesBatch() {
+        if (!chunkMode) {
+            throw new UnsupportedOperationException("A batch requires the chunk mode.");
+        }
+        BigInteger secretBase = secretKeys[0];
+        if (kernelMode == OpenCLContext.GEN_HASH160_MODE) {
+            return getHash160Batch(secretBase);
+        }
+        if (kernelMode == OpenCLContext.GEN_HASH160_FILTERED_MODE) {
+            return getCandidateBatch(secretBase);
+        }
+        boolean secretBaseIsZero = BigInteger.ZERO.equals(secretBase);
+        PublicKeyBytesBatch publicKeyBytesBatch = new PublicKeyBytesBatch(workSize, secretBase);
+        byte[] uncompressed = new byte[PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES];
+        uncompressed[0] = PublicKeyBytes.PARITY_UNCOMPRESSED;
+        for (int i = 0; i < workSize; i++) {
+            if (secretBaseIsZero && i == 0) {
+                publicKeyBytesBatch.add(i, PublicKeyBytes.INVALID_KEY_ONE.getUncompressed());
+                continue;
+            }
+            // same as getPublicKeyFromByteBufferXY: x and y in reverse order, y first
+            int keyOffsetInByteBuffer = PublicKeyBytes.TWO_COORDINATES_NUM_BYTES * i;
+            for (int j = 0; j < PublicKeyBytes.ONE_COORDINATE_NUM_BYTES; j++) {
+                uncompressed[PublicKeyBytes.PARITY_BYTES_LENGTH + j] = result.get(keyOffsetInByteBuffer + PublicKeyBytes.ONE_COORDINATE_NUM_BYTES - 1 - j);
+                uncompressed[PublicKeyBytes.PARITY_BYTES_LENGTH + PublicKeyBytes.ONE_COORDINATE_NUM_BYTES + j] = result.get(keyOffsetInByteBuffer + PublicKeyBytes.TWO_COORDINATES_NUM_BYTES - 1 - j);
+            }
+            publicKeyBytesBatch.add(i, uncompressed);
+        }
+        return publicKeyBytesBatch;
+    }
+
+    private PublicKeyBytesBatch getHash160Batch(BigInteger secretBase) {
+        PublicKeyBytesBatch publicKeyBytesBatch = PublicKeyBytesBatch.ofHash160s(workSize, secretBase);
+        int hash160sPerKeyNumBytes = PublicKeyBytesBatch.HASH160S_PER_KEY * PublicKeyBytes.HASH160_SIZE;
+        for (int i = 0; i < workSize; i++) {
+            publicKeyBytesBatch.addHash160s(i, result, hash160sPerKeyNumBytes * i);
+        }
+        return publicKeyBytesBatch;
+    }
+
+    /**
+     * The public keys of the candidates are calculated again, the device keeps them only in its private memory.
+     */
+    private PublicKeyBytesBatch getCandidateBatch(BigInteger secretBase) {
+        ByteBuffer candidates = result.duplicate().order(OpenCLResultBufferPool.CANDIDATES_BYTE_ORDER);
+        int numberOfCandidates = OpenCLResultBufferPool.getCandidates(result);
+        int[] offsets = new int[numberOfCandidates];
+        for (int i = 0; i < numberOfCandidates; i++) {
+            // the work item id and the compressed flag in the lowest bit
+            offsets[i] = candidates.getInt(Integer.BYTES * (1 + i)) >>> 1;
+        }
+        // the candidates are appended in any order, the uncompressed and the compressed public key of a key might be candidates
+        Arrays.sort(offsets);
+        int numberOfKeys = 0;
+        for (int i = 0; i < numberOfCandidates; i++) {
+            if (numberOfKeys == 0 || offsets[numberOfKeys - 1] != offsets[i]) {
+                offsets[numberOfKeys++] = offsets[i];
+            }
+        }
+
+        PublicKeyBytesBatch publicKeyBytesBatch = new PublicKeyBytesBatch(Math.max(1, numberOfKeys), secretBase);
+        for (int i = 0; i < numberOfKeys; i++) {
+            int offset = offsets[i];
+            BigInteger secret = AbstractProducer.calculateSecretKey(secretBase, offset);
+            if (PublicKeyBytes.isInvalid(secret)) {
+                publicKeyBytesBatch.add(offset, PublicKeyBytes.INVALID_KEY_ONE.getUncompressed());
+            } else {
+                publicKeyBytesBatch.add(offset, PublicKeyBytes.fromPrivate(secret).getUncompressed());
+            }
+        }
+        publicKeyBytesBatch.setRejectedKeys(workSize - numberOfKeys);
+        return publicKeyBytesBatch;
+    }
+
     /**
      * Read the inner bytes in reverse order.
      */
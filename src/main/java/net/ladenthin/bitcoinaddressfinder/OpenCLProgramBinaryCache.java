@@ -0,0 +1,156 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import javax.annotation.Nullable;
+import static org.jocl.CL.CL_PROGRAM_BINARIES;
+import static org.jocl.CL.CL_PROGRAM_BINARY_SIZES;
+import static org.jocl.CL.clCreateProgramWithBinary;
+import static org.jocl.CL.clGetProgramInfo;
+import org.bouncycastle.util.encoders.Hex;
+import org.jocl.Pointer;
+import org.jocl.Sizeof;
+import org.jocl.cl_context;
+import org.jocl.cl_device_id;
+import org.jocl.cl_program;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches built OpenCL program binaries on disk. A binary is stored under a key of its sources, the device, the
+ * driver and the build options: a changed source or an updated driver never loads a stale binary.
+ */
+public class OpenCLProgramBinaryCache {
+
+    private static final String FILE_SUFFIX = ".bin";
+
+    protected final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final File directory;
+
+    public OpenCLProgramBinaryCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the hex encoded SHA-256 of all parameters
+     */
+    public static String createKey(List<String> sources, String deviceName, String driverVersion, String deviceVersion, @Nullable String buildOptions) {
+        final MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        for (String source : sources) {
+            update(sha256, source);
+        }
+        update(sha256, deviceName);
+        update(sha256, driverVersion);
+        update(sha256, deviceVersion);
+        update(sha256, buildOptions == null ? "" : buildOptions);
+        return Hex.toHexString(sha256.digest());
+    }
+
+    /**
+     * Length prefixed, the boundaries between the parameters are part of the key.
+     */
+    private static void update(MessageDigest messageDigest, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        messageDigest.update(new byte[]{(byte) (bytes.length >>> 24), (byte) (bytes.length >>> 16), (byte) (bytes.length >>> 8), (byte) bytes.length});
+        messageDigest.update(bytes);
+    }
+
+    File getFile(String key) {
+        return new File(directory, key + FILE_SUFFIX);
+    }
+
+    /**
+     * @return the cached binary, {@code null} if none is cached or it could not be read
+     */
+    @Nullable
+    public byte[] load(String key) {
+        File file = getFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            logger.warn("Could not read the OpenCL program binary: " + file.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    public void store(String key, byte[] binary) {
+        File file = getFile(key);
+        File temporaryFile = new File(file.getAbsolutePath() + ".tmp");
+        try {
+            Files.createDirectories(directory.toPath());
+            try (FileOutputStream outputStream = new FileOutputStream(temporaryFile)) {
+                outputStream.write(binary);
+                outputStream.getFD().sync();
+            }
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Could not write the OpenCL program binary: " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Removes a binary the driver rejected.
+     */
+    public void remove(String key) {
+        File file = getFile(key);
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            logger.error("Could not delete the OpenCL program binary: " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * The program must be built afterwards with {@code clBuildProgram} as a program from sources.
+     */
+    public static cl_program createProgramWithBinary(cl_context context, cl_device_id device, byte[] binary) {
+        int[] binaryStatus = new int[1];
+        return clCreateProgramWithBinary(context, 1, new cl_device_id[]{device}, new long[]{binary.length}, new byte[][]{binary}, binaryStatus, null);
+    }
+
+    /**
+     * @return the binary of a program built for a single device
+     */
+    public static byte[] getProgramBinary(cl_program program) {
+        long[] binarySizes = new long[1];
+        clGetProgramInfo(program, CL_PROGRAM_BINARY_SIZES, Sizeof.size_t, Pointer.to(binarySizes), null);
+        byte[] binary = new byte[(int) binarySizes[0]];
+        Pointer binaries = Pointer.to(new Pointer[]{Pointer.to(binary)});
+        clGetProgramInfo(program, CL_PROGRAM_BINARIES, Sizeof.POINTER, binaries, null);
+        return binary;
+    }
+}
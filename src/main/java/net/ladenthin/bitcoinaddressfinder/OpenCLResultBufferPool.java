@@ -0,0 +1,349 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import javax.annotation.Nullable;
+import static org.jocl.CL.CL_MAP_READ;
+import static org.jocl.CL.CL_MEM_ALLOC_HOST_PTR;
+import static org.jocl.CL.CL_MEM_READ_ONLY;
+import static org.jocl.CL.CL_MEM_READ_WRITE;
+import static org.jocl.CL.CL_MEM_WRITE_ONLY;
+import static org.jocl.CL.CL_TRUE;
+import static org.jocl.CL.clCreateBuffer;
+import static org.jocl.CL.clEnqueueMapBuffer;
+import static org.jocl.CL.clEnqueueReadBuffer;
+import static org.jocl.CL.clEnqueueUnmapMemObject;
+import static org.jocl.CL.clReleaseEvent;
+import static org.jocl.CL.clReleaseMemObject;
+import org.jocl.Pointer;
+import org.jocl.cl_command_queue;
+import org.jocl.cl_context;
+import org.jocl.cl_event;
+import org.jocl.cl_mem;
+
+/**
+ * Preallocated result buffers of the OpenCL kernel: a device buffer and its
+ * host memory, for an asynchronous launch also the private keys on the host
+ * and on the device. A buffer is leased to an {@link OpenCLGridResult} and returned
+ * by {@link OpenCLGridResult#freeResult()}: no
+ * {@link ByteBuffer#allocateDirect(int)} and no {@code clCreateBuffer} per
+ * kernel launch.
+ * <p>
+ * The pool holds at most {@code maximumPooledBuffers} buffers. If all are
+ * leased (e.g. a benchmark keeps the results of all rounds) a buffer is
+ * allocated for the lease only and released on its return. Thread safe.
+ */
+public class OpenCLResultBufferPool {
+
+    /**
+     * A device buffer and its host memory, see {@link OpenCLResultBufferPool}.
+     */
+    public static class ResultBuffer {
+        private final OpenCLResultBufferPool pool;
+        private final boolean pooled;
+        @Nullable
+        final cl_mem mem;
+        /**
+         * The host memory to read the device buffer into, {@code null} if the device buffer is mapped.
+         */
+        @Nullable
+        final ByteBuffer hostBuffer;
+        /**
+         * The private keys of an asynchronous launch, {@code null} if the pool has no memory for them.
+         * The host memory must not change until the launch is written to the device.
+         */
+        @Nullable
+        final ByteBuffer srcHostBuffer;
+        /**
+         * The device buffer of the private keys of an asynchronous launch, {@code null} if the pool has no memory
+         * for them. A launch is uploaded while the kernel of another launch still reads its own private keys.
+         */
+        @Nullable
+        final cl_mem srcMem;
+        /**
+         * The mapped device buffer, only while the buffer is leased.
+         */
+        @Nullable
+        private ByteBuffer mapped;
+        @Nullable
+        private cl_command_queue mappedQueue;
+        /**
+         * The unmap of the previous lease, the next kernel writing the device buffer must wait for it.
+         */
+        @Nullable
+        private cl_event unmapEvent;
+
+        ResultBuffer(OpenCLResultBufferPool pool, boolean pooled, @Nullable cl_mem mem, @Nullable ByteBuffer hostBuffer, @Nullable ByteBuffer srcHostBuffer, @Nullable cl_mem srcMem) {
+            this.pool = pool;
+            this.pooled = pooled;
+            this.mem = mem;
+            this.hostBuffer = hostBuffer;
+            this.srcHostBuffer = srcHostBuffer;
+            this.srcMem = srcMem;
+        }
+
+        /**
+         * @return the result of the kernel, valid until the buffer is returned
+         */
+        public ByteBuffer getByteBuffer() {
+            return mapped != null ? mapped : hostBuffer;
+        }
+
+        /**
+         * Reads the device buffer into the host memory or maps it.
+         *
+         * @param blocking {@code false} to enqueue the read only, the result is valid once {@code event} is complete
+         * @param eventWaitList the events to complete before the read, {@code null} for none
+         * @param event the event of the read, {@code null} for none
+         */
+        void read(cl_command_queue commandQueue, boolean blocking, @Nullable cl_event[] eventWaitList, @Nullable cl_event event) {
+            int numEventsInWaitList = eventWaitList == null ? 0 : eventWaitList.length;
+            if (hostBuffer == null) {
+                mapped = clEnqueueMapBuffer(commandQueue, mem, blocking, CL_MAP_READ, 0, pool.sizeInBytes, numEventsInWaitList, eventWaitList, event, null);
+                mappedQueue = commandQueue;
+            } else {
+                clEnqueueReadBuffer(commandQueue, mem, blocking, 0, pool.sizeInBytes, Pointer.to(hostBuffer), numEventsInWaitList, eventWaitList, event);
+            }
+        }
+
+        /**
+         * Reads the result of a {@link OpenCLContext#GEN_HASH160_FILTERED_MODE} kernel: the number of candidates
+         * and the candidates only, not the whole device buffer.
+         *
+         * @return the number of candidates
+         */
+        int readCandidates(cl_command_queue commandQueue) {
+            if (hostBuffer == null) {
+                throw new IllegalStateException("A mapped buffer can not be read partially.");
+            }
+            clEnqueueReadBuffer(commandQueue, mem, CL_TRUE, 0, Integer.BYTES, Pointer.to(hostBuffer), 0, null, null);
+            int candidates = getCandidates(hostBuffer);
+            if (candidates < 0 || candidates > pool.sizeInBytes / Integer.BYTES - 1) {
+                throw new IllegalStateException("Invalid number of candidates: " + candidates);
+            }
+            if (candidates > 0) {
+                clEnqueueReadBuffer(commandQueue, mem, CL_TRUE, Integer.BYTES, (long) candidates * Integer.BYTES, Pointer.to(hostBuffer).withByteOffset(Integer.BYTES), 0, null, null);
+            }
+            return candidates;
+        }
+
+        /**
+         * Returns the unmap of the previous lease to wait for and clears it, the caller releases the event.
+         *
+         * @return {@code null} if the device buffer was not mapped
+         */
+        @Nullable
+        cl_event takeUnmapEvent() {
+            cl_event event = unmapEvent;
+            unmapEvent = null;
+            return event;
+        }
+
+        /**
+         * Returns the buffer to its pool.
+         */
+        public void release() {
+            // the queue of a released context is released too
+            if (mapped != null && !pool.isReleased()) {
+                // the unmap may run on another queue than the next kernel
+                unmapEvent = new cl_event();
+                clEnqueueUnmapMemObject(mappedQueue, mem, mapped, 0, null, unmapEvent);
+            }
+            mapped = null;
+            mappedQueue = null;
+            pool.release(this);
+        }
+    }
+
+    /**
+     * The byte order of the result of a {@link OpenCLContext#GEN_HASH160_FILTERED_MODE} kernel, written as
+     * {@code uint} by the device.
+     */
+    public static final ByteOrder CANDIDATES_BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * @param result the result of a {@link OpenCLContext#GEN_HASH160_FILTERED_MODE} kernel
+     * @return the number of candidates
+     */
+    public static int getCandidates(ByteBuffer result) {
+        return result.duplicate().order(CANDIDATES_BYTE_ORDER).getInt(0);
+    }
+
+    private final ByteBufferUtility byteBufferUtility = new ByteBufferUtility(true);
+
+    @Nullable
+    private final cl_context context;
+    private final int srcSizeInBytes;
+    private final int sizeInBytes;
+    private final int maximumPooledBuffers;
+    private final boolean mapped;
+    /**
+     * The access of the kernel to the device buffers.
+     */
+    private final long kernelMemFlags;
+
+    private final Deque<ResultBuffer> available = new ArrayDeque<>();
+    private final List<ResultBuffer> pooledBuffers = new ArrayList<>();
+
+    private long leases;
+    private long reuses;
+    private long unpooledLeases;
+    private int leased;
+    private int maximumLeased;
+    private boolean released;
+
+    /**
+     * @param srcSizeInBytes the size of the private keys of an asynchronous launch, {@code 0} for synchronous launches only
+     * @param mapped {@code true} to allocate the device buffers in host accessible memory
+     * ({@code CL_MEM_ALLOC_HOST_PTR}) and map them for the consumer instead of reading them into a copy
+     */
+    public OpenCLResultBufferPool(@Nullable cl_context context, int srcSizeInBytes, int sizeInBytes, int maximumPooledBuffers, boolean mapped) {
+        this(context, srcSizeInBytes, sizeInBytes, maximumPooledBuffers, mapped, false);
+    }
+
+    /**
+     * @param kernelReadsResult {@code true} if the kernel reads its result buffer too, e.g. the number of candidates
+     * of the {@link OpenCLContext#GEN_HASH160_FILTERED_MODE}
+     */
+    public OpenCLResultBufferPool(@Nullable cl_context context, int srcSizeInBytes, int sizeInBytes, int maximumPooledBuffers, boolean mapped, boolean kernelReadsResult) {
+        if (maximumPooledBuffers < 0) {
+            throw new IllegalArgumentException("maximumPooledBuffers must not be negative: " + maximumPooledBuffers);
+        }
+        this.context = context;
+        this.srcSizeInBytes = srcSizeInBytes;
+        this.sizeInBytes = sizeInBytes;
+        this.maximumPooledBuffers = maximumPooledBuffers;
+        this.mapped = mapped;
+        this.kernelMemFlags = kernelReadsResult ? CL_MEM_READ_WRITE : CL_MEM_WRITE_ONLY;
+    }
+
+    public int getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public boolean hasSrcHostBuffers() {
+        return srcSizeInBytes > 0;
+    }
+
+    public boolean isMapped() {
+        return mapped;
+    }
+
+    /**
+     * Leases an available buffer, allocates a new one if none is available.
+     */
+    public synchronized ResultBuffer lease() {
+        if (released) {
+            throw new IllegalStateException("The pool is released.");
+        }
+        leases++;
+        leased++;
+        maximumLeased = Math.max(maximumLeased, leased);
+        ResultBuffer resultBuffer = available.pollFirst();
+        if (resultBuffer != null) {
+            reuses++;
+            return resultBuffer;
+        }
+        if (pooledBuffers.size() < maximumPooledBuffers) {
+            resultBuffer = createBuffer(true);
+            pooledBuffers.add(resultBuffer);
+            return resultBuffer;
+        }
+        unpooledLeases++;
+        return createBuffer(false);
+    }
+
+    synchronized void release(ResultBuffer resultBuffer) {
+        leased--;
+        if (resultBuffer.pooled && !released) {
+            available.addFirst(resultBuffer);
+        } else {
+            releaseBuffer(resultBuffer);
+        }
+    }
+
+    /**
+     * Releases the available buffers, leased buffers are released on their return.
+     */
+    public synchronized void releaseAll() {
+        released = true;
+        for (ResultBuffer resultBuffer : available) {
+            releaseBuffer(resultBuffer);
+        }
+        available.clear();
+    }
+
+    protected ResultBuffer createBuffer(boolean pooled) {
+        ByteBuffer srcHostBuffer = srcSizeInBytes > 0 ? ByteBuffer.allocateDirect(srcSizeInBytes) : null;
+        cl_mem srcMem = srcSizeInBytes > 0 ? clCreateBuffer(context, CL_MEM_READ_ONLY, srcSizeInBytes, null, null) : null;
+        if (mapped) {
+            cl_mem mem = clCreateBuffer(context, kernelMemFlags | CL_MEM_ALLOC_HOST_PTR, sizeInBytes, null, null);
+            return new ResultBuffer(this, pooled, mem, null, srcHostBuffer, srcMem);
+        }
+        cl_mem mem = clCreateBuffer(context, kernelMemFlags, sizeInBytes, null, null);
+        return new ResultBuffer(this, pooled, mem, ByteBuffer.allocateDirect(sizeInBytes), srcHostBuffer, srcMem);
+    }
+
+    protected void releaseBuffer(ResultBuffer resultBuffer) {
+        cl_event unmapEvent = resultBuffer.takeUnmapEvent();
+        if (unmapEvent != null) {
+            clReleaseEvent(unmapEvent);
+        }
+        clReleaseMemObject(resultBuffer.mem);
+        if (resultBuffer.srcMem != null) {
+            clReleaseMemObject(resultBuffer.srcMem);
+        }
+        if (resultBuffer.hostBuffer != null) {
+            byteBufferUtility.freeByteBuffer(resultBuffer.hostBuffer);
+        }
+        if (resultBuffer.srcHostBuffer != null) {
+            byteBufferUtility.freeByteBuffer(resultBuffer.srcHostBuffer);
+        }
+    }
+
+    public synchronized boolean isReleased() {
+        return released;
+    }
+
+    public synchronized long getLeases() {
+        return leases;
+    }
+
+    public synchronized long getReuses() {
+        return reuses;
+    }
+
+    public synchronized long getUnpooledLeases() {
+        return unpooledLeases;
+    }
+
+    public synchronized int getPooledBuffers() {
+        return pooledBuffers.size();
+    }
+
+    public synchronized String createStatisticsMessage() {
+        return "Result buffers: [Pooled: " + pooledBuffers.size() + " of " + maximumPooledBuffers + "] [Size: " + (sizeInBytes / 1024) + " KiB] [Mapped: " + mapped + "] [Leases: " + leases + "] [Reuses: " + reuses + "] [Unpooled leases: " + unpooledLeases + "] [Leased: " + leased + "] [Maximum leased: " + maximumLeased + "]";
+    }
+}
@@ -20,22 +20,25 @@ package net.ladenthin.bitcoinaddressfinder;
 
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import javax.annotation.Nullable;
 import net.ladenthin.bitcoinaddressfinder.configuration.CProducer;
+import static org.jocl.CL.CL_FALSE;
 import static org.jocl.CL.CL_MEM_READ_ONLY;
 import static org.jocl.CL.CL_MEM_USE_HOST_PTR;
-import static org.jocl.CL.CL_MEM_WRITE_ONLY;
 import static org.jocl.CL.CL_TRUE;
 import static org.jocl.CL.clCreateBuffer;
 import static org.jocl.CL.clEnqueueNDRangeKernel;
-import static org.jocl.CL.clEnqueueReadBuffer;
 import static org.jocl.CL.clEnqueueWriteBuffer;
 import static org.jocl.CL.clFinish;
+import static org.jocl.CL.clFlush;
+import static org.jocl.CL.clReleaseEvent;
 import static org.jocl.CL.clReleaseMemObject;
 import static org.jocl.CL.clSetKernelArg;
 import org.jocl.Pointer;
 import org.jocl.Sizeof;
 import org.jocl.cl_command_queue;
 import org.jocl.cl_context;
+import org.jocl.cl_event;
 import org.jocl.cl_kernel;
 import org.jocl.cl_mem;
 import org.slf4j.Logger;
@@ -45,11 +48,6 @@ public class OpenClTask {
 
     protected Logger logger = LoggerFactory.getLogger(this.getClass());
     
-    /**
-     * I din't know which is better.
-     */
-    private static final boolean USE_HOST_PTR = false;
-
     private final static boolean USE_XOR_SWAP = false;
     
     private final CProducer cProducer;
@@ -59,6 +57,11 @@ public class OpenClTask {
     private final Pointer srcPointer;
 
     private final cl_mem srcMem;
+    
+    /**
+     * The initial number of candidates of the {@link OpenCLContext#GEN_HASH160_FILTERED_MODE}.
+     */
+    private final int[] noCandidates = {0};
 
     // Only available after init
     public OpenClTask(cl_context context, CProducer cProducer) {
@@ -104,11 +107,23 @@ public class OpenClTask {
             return ResultBytesFactory.NUM_BYTES_TOTAL_UNTIL_3RD_SHA256 * cProducer.getWorkSize();
         } else if (cProducer.kernelMode == OpenCLContext.GEN_UNTIL_ADDRESS_MODE) {
             return ResultBytesFactory.NUM_BYTES_TOTAL_UNTIL_ADDRESS * cProducer.getWorkSize();
+        } else if (cProducer.kernelMode == OpenCLContext.GEN_HASH160_MODE) {
+            return PublicKeyBytesBatch.HASH160S_PER_KEY * PublicKeyBytes.HASH160_SIZE * cProducer.getWorkSize();
+        } else if (cProducer.kernelMode == OpenCLContext.GEN_HASH160_FILTERED_MODE) {
+            // the number of candidates followed by up to two candidates per key, the buffer can not overflow
+            return Integer.BYTES * (1 + PublicKeyBytesBatch.HASH160S_PER_KEY * cProducer.getWorkSize());
         }
         return 0;
     }
 
     public void setSrcPrivateKeys(BigInteger[] privateKeys) throws InvalidWorkSizeException {
+        setSrcPrivateKeys(privateKeys, srcByteBuffer);
+    }
+
+    /**
+     * Writes the private keys into the given host memory, e.g. the private keys of an asynchronous launch.
+     */
+    public void setSrcPrivateKeys(BigInteger[] privateKeys, ByteBuffer srcByteBuffer) throws InvalidWorkSizeException {
 
         int workSize = cProducer.getWorkSize();
 
@@ -127,28 +142,11 @@ public class OpenClTask {
     }
 
     
-    public ByteBuffer executeKernel(cl_kernel kernel, cl_command_queue commandQueue) {
-        // allocate a new dst buffer that a clone afterwards is not necessary
-        final ByteBuffer dstByteBuffer = ByteBuffer.allocateDirect(getDstSizeInBytes());
-        final Pointer dstPointer = Pointer.to(dstByteBuffer);
-        final cl_mem dstMem;
-        if (USE_HOST_PTR) {
-            dstMem = clCreateBuffer(
-                    context,
-                    CL_MEM_USE_HOST_PTR,
-                    getDstSizeInBytes(),
-                    dstPointer,
-                    null
-            );
-        } else {
-            dstMem = clCreateBuffer(
-                    context,
-                    CL_MEM_WRITE_ONLY,
-                    getDstSizeInBytes(),
-                    null,
-                    null
-            );
-        }
+    /**
+     * Executes the kernel and reads its result into the given leased buffer.
+     */
+    public void executeKernel(cl_kernel kernel, cl_command_queue commandQueue, OpenCLResultBufferPool.ResultBuffer resultBuffer) {
+        final cl_mem dstMem = resultBuffer.mem;
 
         // Set the arguments for the kernel
         clSetKernelArg(kernel, 0, Sizeof.cl_mem, Pointer.to(dstMem));
@@ -174,9 +172,24 @@ public class OpenClTask {
             );
             clFinish(commandQueue);
         }
+        if (cProducer.kernelMode == OpenCLContext.GEN_HASH160_FILTERED_MODE) {
+            // reset the number of candidates of the leased buffer
+            clEnqueueWriteBuffer(
+                    commandQueue,
+                    dstMem,
+                    CL_TRUE,
+                    0,
+                    Integer.BYTES,
+                    Pointer.to(noCandidates),
+                    0,
+                    null,
+                    null
+            );
+        }
         {
             // execute the kernel
             long beforeExecute = System.currentTimeMillis();
+            cl_event[] eventWaitList = getUnmapEventWaitList(resultBuffer);
             clEnqueueNDRangeKernel(
                     commandQueue,
                     kernel,
@@ -184,10 +197,11 @@ public class OpenClTask {
                     null,
                     global_work_size,
                     localWorkSize,
-                    0,
-                    null,
+                    eventWaitList == null ? 0 : eventWaitList.length,
+                    eventWaitList,
                     null
             );
+            releaseEvents(eventWaitList);
             clFinish(commandQueue);
 
             long afterExecute = System.currentTimeMillis();
@@ -200,26 +214,93 @@ public class OpenClTask {
             // read the dst buffer
             long beforeRead = System.currentTimeMillis();
 
-            clEnqueueReadBuffer(
-                    commandQueue,
-                    dstMem,
-                    CL_TRUE,
-                    0,
-                    getDstSizeInBytes(),
-                    dstPointer,
-                    0,
-                    null,
-                    null
-            );
-            clFinish(commandQueue);
-            clReleaseMemObject(dstMem);
+            if (cProducer.kernelMode == OpenCLContext.GEN_HASH160_FILTERED_MODE) {
+                int candidates = resultBuffer.readCandidates(commandQueue);
+
+                long afterRead = System.currentTimeMillis();
+                if (logger.isTraceEnabled()) {
+                    logger.trace("Read " + candidates + " OpenCL candidates in " + (afterRead - beforeRead) + "ms");
+                }
+                return;
+            }
+
+            resultBuffer.read(commandQueue, CL_TRUE, null, null);
 
             long afterRead = System.currentTimeMillis();
             if (logger.isTraceEnabled()) {
                 logger.trace("Read OpenCL data "+((getDstSizeInBytes() / 1024) / 1024) + "Mb in " + (afterRead - beforeRead) + "ms");
             }
         }
-        return dstByteBuffer;
+    }
+
+    /**
+     * Enqueues the upload of the private keys of the leased buffer, the kernel and the readback of its result
+     * without waiting for them. The upload and the readback run on their own queues: the device uploads the next
+     * launch and reads the previous one while the kernel runs. The commands are chained by events, the result is
+     * valid once {@code readEvent} is complete.
+     *
+     * @param commandQueue the queue of the kernels
+     * @param writeQueue the queue of the uploads
+     * @param readQueue the queue of the readbacks
+     */
+    public void enqueueKernel(cl_kernel kernel, cl_command_queue commandQueue, cl_command_queue writeQueue, cl_command_queue readQueue, OpenCLResultBufferPool.ResultBuffer resultBuffer, cl_event readEvent) {
+        if (resultBuffer.srcHostBuffer == null || resultBuffer.srcMem == null) {
+            throw new IllegalArgumentException("The result buffer has no memory for the private keys.");
+        }
+        clSetKernelArg(kernel, 0, Sizeof.cl_mem, Pointer.to(resultBuffer.mem));
+        clSetKernelArg(kernel, 1, Sizeof.cl_mem, Pointer.to(resultBuffer.srcMem));
+
+        cl_event writeEvent = new cl_event();
+        cl_event kernelEvent = new cl_event();
+        clEnqueueWriteBuffer(
+                writeQueue,
+                resultBuffer.srcMem,
+                CL_FALSE,
+                0,
+                getSrcSizeInBytes(),
+                Pointer.to(resultBuffer.srcHostBuffer),
+                0,
+                null,
+                writeEvent
+        );
+        clFlush(writeQueue);
+        cl_event unmapEvent = resultBuffer.takeUnmapEvent();
+        cl_event[] kernelWaitList = unmapEvent == null ? new cl_event[]{writeEvent} : new cl_event[]{writeEvent, unmapEvent};
+        clEnqueueNDRangeKernel(
+                commandQueue,
+                kernel,
+                1,
+                null,
+                new long[]{cProducer.getWorkSize()},
+                null,
+                kernelWaitList.length,
+                kernelWaitList,
+                kernelEvent
+        );
+        clFlush(commandQueue);
+        resultBuffer.read(readQueue, CL_FALSE, new cl_event[]{kernelEvent}, readEvent);
+        clFlush(readQueue);
+        // the commands keep their events until they are complete
+        releaseEvents(kernelWaitList);
+        clReleaseEvent(kernelEvent);
+    }
+
+    /**
+     * @return the unmap of the previous lease of the buffer to wait for, {@code null} for none
+     */
+    @Nullable
+    private static cl_event[] getUnmapEventWaitList(OpenCLResultBufferPool.ResultBuffer resultBuffer) {
+        cl_event unmapEvent = resultBuffer.takeUnmapEvent();
+        return unmapEvent == null ? null : new cl_event[]{unmapEvent};
+    }
+
+    private static void releaseEvents(@Nullable cl_event[] events) {
+        if (events == null) {
+            return;
+        }
+        for (cl_event event : events) {
+            clReleaseEvent(event);
+        }
     }
 
     public void releaseCl() {
@@ -21,15 +21,22 @@ package net.ladenthin.bitcoinaddressfinder;
 import java.math.BigInteger;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
 import net.ladenthin.bitcoinaddressfinder.configuration.CProducerJava;
+import net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Endomorphism;
+import net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Engine;
+import net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Point;
 
 public class ProducerJava extends AbstractProducer {
 
     private final CProducerJava producerJava;
+    @Nullable
+    private final SecretRange secretRange;
 
     public ProducerJava(CProducerJava producerJava, AtomicBoolean shouldRun, Consumer consumer, KeyUtility keyUtility, Random random) {
         super(shouldRun, consumer, keyUtility, random);
         this.producerJava = producerJava;
+        this.secretRange = SecretRange.fromConfiguration(producerJava);
     }
 
     @Override
@@ -39,33 +46,146 @@ public class ProducerJava extends AbstractProducer {
     @Override
     public void produceKeys() {
         BigInteger secret = null;
+        long counter = SecretRange.NO_COUNTER;
         try {
-            secret = keyUtility.createSecret(producerJava.privateKeyMaxNumBits, random);
-            if (PublicKeyBytes.isInvalid(secret)) {
-                return;
+            final BigInteger secretBase;
+            if (secretRange != null) {
+                counter = secretRange.claim();
+                if (counter == SecretRange.NO_COUNTER) {
+                    return;
+                }
+                secret = secretRange.getSecretBase(counter);
+                secretBase = createSecretBase(producerJava, secret, producerJava.logSecretBase);
+            } else {
+                secret = keyUtility.createSecret(producerJava.privateKeyMaxNumBits, random);
+                if (PublicKeyBytes.isInvalid(secret)) {
+                    return;
+                }
+                secretBase = createSecretBase(producerJava, secret, producerJava.logSecretBase);
             }
             
-            final BigInteger secretBase = createSecretBase(producerJava, secret, producerJava.logSecretBase);
-            
-            PublicKeyBytes[] publicKeyBytesArray = new PublicKeyBytes[producerJava.getWorkSize()];
-            for (int i = 0; i < publicKeyBytesArray.length; i++) {
-                // create uncompressed
-                BigInteger gridSecret = calculateSecretKey(secretBase, i);
+            final int workSize = producerJava.getWorkSize();
+            final int capacity = producerJava.endomorphismKeys ? workSize * Secp256k1Endomorphism.VARIANTS : workSize;
+            PublicKeyBytesBatch publicKeyBytesBatch = new PublicKeyBytesBatch(capacity, secretBase);
+            boolean accepted = false;
+            try {
+                if (producerJava.incrementalPointAddition) {
+                    addKeysByPointAddition(publicKeyBytesBatch, secretBase, workSize);
+                } else {
+                    addKeysByMultiplication(publicKeyBytesBatch, secretBase, workSize);
+                }
+
+                if (secretRange != null) {
+                    // the grid is completed after the consumer checked all keys, not when the batch is queued
+                    final long claimedCounter = counter;
+                    publicKeyBytesBatch.setConsumedCallback(() -> secretRange.completed(claimedCounter));
+                }
+                consumer.consumeKeys(publicKeyBytesBatch);
+                // the consumer owns the batch, also a dropped one
+                accepted = true;
+            } finally {
+                if (!accepted) {
+                    publicKeyBytesBatch.free();
+                }
+            }
+        } catch (Exception e) {
+            logErrorInProduceKeys(e, secret);
+        }
+    }
+
+    @Override
+    protected boolean isCompleted() {
+        return secretRange != null && secretRange.isExhausted();
+    }
+
+    @Nullable
+    SecretRange getSecretRange() {
+        return secretRange;
+    }
+
+    private void addKeysByMultiplication(PublicKeyBytesBatch publicKeyBytesBatch, BigInteger secretBase, int workSize) {
+        final Secp256k1Engine engine = Secp256k1Engine.get();
+        Secp256k1Point[] points = createPoints(workSize);
+        for (int from = 0; from < workSize; from += points.length) {
+            int length = Math.min(points.length, workSize - from);
+            for (int i = 0; i < length; i++) {
+                BigInteger gridSecret = calculateSecretKey(secretBase, from + i);
                 if (PublicKeyBytes.isInvalid(gridSecret)) {
-                    publicKeyBytesArray[i] = PublicKeyBytes.INVALID_KEY_ONE;
+                    points[i].setInfinity();
+                } else {
+                    engine.multiplyG(points[i], gridSecret);
+                }
+            }
+            addPoints(publicKeyBytesBatch, from, points, length);
+        }
+    }
+
+    /**
+     * The kill bits of the secret base are zero, {@code secretBase | i} equals
+     * {@code secretBase + i}: the public key of a grid secret is the public key
+     * of its predecessor plus G. The points stay in Jacobian coordinates until
+     * they are normalized together.
+     */
+    private void addKeysByPointAddition(PublicKeyBytesBatch publicKeyBytesBatch, BigInteger secretBase, int workSize) {
+        final Secp256k1Engine engine = Secp256k1Engine.get();
+        Secp256k1Point[] points = createPoints(workSize);
+        Secp256k1Point point = new Secp256k1Point();
+        boolean firstValidSecret = true;
+        for (int from = 0; from < workSize; from += points.length) {
+            int length = Math.min(points.length, workSize - from);
+            for (int i = 0; i < length; i++) {
+                BigInteger gridSecret = calculateSecretKey(secretBase, from + i);
+                if (PublicKeyBytes.isInvalid(gridSecret)) {
+                    points[i].setInfinity();
                     continue;
                 }
-                publicKeyBytesArray[i] = PublicKeyBytes.fromPrivate(gridSecret);
+                if (firstValidSecret) {
+                    engine.multiplyG(point, gridSecret);
+                    firstValidSecret = false;
+                } else {
+                    engine.addAffine(point, point, Secp256k1Engine.getGx(), Secp256k1Engine.getGy());
+                }
+                points[i].set(point);
             }
+            addPoints(publicKeyBytesBatch, from, points, length);
+        }
+    }
 
-            consumer.consumeKeys(publicKeyBytesArray);
-        } catch (Exception e) {
-            logErrorInProduceKeys(e, secret);
+    private static Secp256k1Point[] createPoints(int workSize) {
+        Secp256k1Point[] points = new Secp256k1Point[Math.min(workSize, PublicKeyBytes.NORMALIZATION_BATCH_SIZE)];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new Secp256k1Point();
+        }
+        return points;
+    }
+
+    /**
+     * Normalizes the points together and adds them, the point at infinity as
+     * invalid key. Adds the derived keys of every point if configured.
+     */
+    private void addPoints(PublicKeyBytesBatch publicKeyBytesBatch, int offset, Secp256k1Point[] points, int length) {
+        Secp256k1Engine.get().normalize(points, length);
+        final byte[] invalid = PublicKeyBytes.INVALID_KEY_ONE.getUncompressed();
+        final byte[] uncompressed = new byte[PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES];
+        for (int i = 0; i < length; i++) {
+            final int index;
+            if (points[i].isInfinity()) {
+                index = publicKeyBytesBatch.add(offset + i, invalid);
+            } else {
+                points[i].encodeUncompressed(uncompressed, 0);
+                index = publicKeyBytesBatch.add(offset + i, uncompressed);
+            }
+            if (producerJava.endomorphismKeys) {
+                publicKeyBytesBatch.addEndomorphismKeys(index);
+            }
         }
     }
 
     @Override
     public void releaseProducers() {
+        if (secretRange != null) {
+            secretRange.close();
+        }
     }
 
 }
@@ -21,6 +21,7 @@ package net.ladenthin.bitcoinaddressfinder;
 import java.io.File;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -36,6 +37,12 @@ public class ProducerJavaBrainwallet extends AbstractProducer {
 
     private final ReadStatistic readStatistic = new ReadStatistic();
 
+    /**
+     * The secrets read but not consumed yet, their public keys are derived together.
+     */
+    private final BigInteger[] pendingSecrets = new BigInteger[PublicKeyBytes.NORMALIZATION_BATCH_SIZE];
+    private int pendingSecretsCount;
+
     public ProducerJavaBrainwallet(CProducerJavaBrainwallet producerJavaBrainwallet, AtomicBoolean shouldRun, Consumer consumer, KeyUtility keyUtility, Random random) {
         super(shouldRun, consumer, keyUtility, random);
         this.producerJavaBrainwallet = producerJavaBrainwallet;
@@ -64,6 +71,7 @@ public class ProducerJavaBrainwallet extends AbstractProducer {
 
                 logger.info("process " + file.getAbsolutePath());
                 brainwalletFile.readFile();
+                consumePendingSecrets();
                 logger.info("finished: " + file.getAbsolutePath());
 
                 logProgress();
@@ -83,15 +91,45 @@ public class ProducerJavaBrainwallet extends AbstractProducer {
     }
 
     private void processSecret(BigInteger secret) {
+        if (PublicKeyBytes.isInvalid(secret)) {
+            return;
+        }
+        pendingSecrets[pendingSecretsCount++] = secret;
+        if (pendingSecretsCount == pendingSecrets.length) {
+            consumePendingSecrets();
+        }
+    }
+
+    private void consumePendingSecrets() {
+        if (pendingSecretsCount == 0) {
+            return;
+        }
+        PublicKeyBytes[] publicKeyBytesArray;
         try {
-            if (PublicKeyBytes.isInvalid(secret)) {
-                return;
+            publicKeyBytesArray = PublicKeyBytes.fromPrivates(pendingSecrets, pendingSecretsCount);
+        } catch (Exception e) {
+            logErrorInProduceKeys(e, pendingSecrets[0]);
+            return;
+        } finally {
+            Arrays.fill(pendingSecrets, 0, pendingSecretsCount, null);
+            pendingSecretsCount = 0;
+        }
+        // the secrets share no base, every key stores its own
+        PublicKeyBytesBatch publicKeyBytesBatch = new PublicKeyBytesBatch(publicKeyBytesArray.length, null);
+        boolean accepted = false;
+        try {
+            for (PublicKeyBytes publicKeyBytes : publicKeyBytesArray) {
+                publicKeyBytesBatch.addWithSecret(publicKeyBytes.getSecretKey(), publicKeyBytes.getUncompressed(), publicKeyBytes.getCompressed());
             }
-            PublicKeyBytes publicKeyBytes = PublicKeyBytes.fromPrivate(secret);
-            PublicKeyBytes[] publicKeyBytesArray = new PublicKeyBytes[]{publicKeyBytes};
-            consumer.consumeKeys(publicKeyBytesArray);
+            consumer.consumeKeys(publicKeyBytesBatch);
+            // the consumer owns the batch, also a dropped one
+            accepted = true;
         } catch (Exception e) {
-            logErrorInProduceKeys(e, secret);
+            logErrorInProduceKeys(e, publicKeyBytesArray[0].getSecretKey());
+        } finally {
+            if (!accepted) {
+                publicKeyBytesBatch.free();
+            }
         }
     }
 }
@@ -21,28 +21,46 @@ package net.ladenthin.bitcoinaddressfinder;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
 import net.ladenthin.bitcoinaddressfinder.configuration.CProducerOpenCL;
+import net.ladenthin.bitcoinaddressfinder.persistence.filter.BlockedBloomFilter;
 
 public class ProducerOpenCL extends AbstractProducer {
 
     private final CProducerOpenCL producerOpenCL;
+    @Nullable
+    private final SecretRange secretRange;
 
     private ThreadPoolExecutor resultReaderThreadPoolExecutor;
     private OpenCLContext openCLContext;
+    /**
+     * The permits of the asynchronous launches, {@code null} for synchronous launches.
+     */
+    @Nullable
+    private Semaphore launchesInFlight;
 
     public ProducerOpenCL(CProducerOpenCL producerOpenCL, AtomicBoolean shouldRun, Consumer consumer, KeyUtility keyUtility, Random random) {
         super(shouldRun, consumer, keyUtility, random);
         this.producerOpenCL = producerOpenCL;
+        this.secretRange = SecretRange.fromConfiguration(producerOpenCL);
     }
 
     @Override
     public void initProducer() {
         resultReaderThreadPoolExecutor = (ThreadPoolExecutor) Executors.newFixedThreadPool(producerOpenCL.maxResultReaderThreads);
         
-        openCLContext = new OpenCLContext(producerOpenCL);
+        if (producerOpenCL.pipelineDepth > 0) {
+            launchesInFlight = new Semaphore(producerOpenCL.pipelineDepth);
+        }
+        
+        // the filter of the consumer is uploaded to the device
+        BlockedBloomFilter addressFilter = producerOpenCL.kernelMode == OpenCLContext.GEN_HASH160_FILTERED_MODE ? consumer.getAddressFilter() : null;
+        openCLContext = new OpenCLContext(producerOpenCL, addressFilter);
         try {
             openCLContext.init();
         } catch (IOException | UnknownKernelModeException e) {
@@ -53,34 +71,94 @@ public class ProducerOpenCL extends AbstractProducer {
     @Override
     public void produceKeys() {
         BigInteger secret = null;
+        long counter = SecretRange.NO_COUNTER;
         try {
-            secret = keyUtility.createSecret(producerOpenCL.privateKeyMaxNumBits, random);
-            if (PublicKeyBytes.isInvalid(secret)) {
-                return;
+            final BigInteger secretBase;
+            if (secretRange != null) {
+                counter = secretRange.claim();
+                if (counter == SecretRange.NO_COUNTER) {
+                    return;
+                }
+                secret = secretRange.getSecretBase(counter);
+                secretBase = createSecretBase(producerOpenCL, secret, producerOpenCL.logSecretBase);
+            } else {
+                secret = keyUtility.createSecret(producerOpenCL.privateKeyMaxNumBits, random);
+                if (PublicKeyBytes.isInvalid(secret)) {
+                    return;
+                }
+                secretBase = createSecretBase(producerOpenCL, secret, producerOpenCL.logSecretBase);
             }
-
-            final BigInteger secretBase = createSecretBase(producerOpenCL, secret, producerOpenCL.logSecretBase);
+            final long claimedCounter = counter;
             BigInteger[] privateKeys = {secretBase};
 
+            if (launchesInFlight != null) {
+                launchesInFlight.acquire();
+                final CompletableFuture<OpenCLGridResult> futureKeys;
+                try {
+                    futureKeys = openCLContext.createResultAsync(privateKeys);
+                } catch (Exception e) {
+                    launchesInFlight.release();
+                    throw e;
+                }
+                futureKeys.whenCompleteAsync(
+                    (createKeys, throwable) -> {
+                        try {
+                            if (throwable != null) {
+                                logErrorInProduceKeys(new RuntimeException(throwable), secretBase);
+                            } else {
+                                readResult(createKeys, secretBase, claimedCounter);
+                            }
+                        } finally {
+                            launchesInFlight.release();
+                        }
+                    },
+                    resultReaderThreadPoolExecutor
+                );
+                return;
+            }
+
             waitTillFreeThreadsInPool();
             OpenCLGridResult createKeys = openCLContext.createResult(privateKeys);
             
             resultReaderThreadPoolExecutor.submit(
-                () ->{
-                    PublicKeyBytes[] publicKeyBytesArray = createKeys.getPublicKeyBytes();
-                    createKeys.freeResult();
-                    try {
-                        consumer.consumeKeys(publicKeyBytesArray);
-                    } catch (Exception e) {
-                        logErrorInProduceKeys(e, secretBase);
-                    }
-                }
+                () -> readResult(createKeys, secretBase, claimedCounter)
             );
         } catch (Exception e) {
             logErrorInProduceKeys(e, secret);
         }
     }
     
+    private void readResult(OpenCLGridResult createKeys, BigInteger secretBase, long claimedCounter) {
+        PublicKeyBytesBatch publicKeyBytesBatch = null;
+        boolean accepted = false;
+        try {
+            try {
+                publicKeyBytesBatch = createKeys.getPublicKeyBytesBatch();
+            } finally {
+                // return the leased result buffers in any case
+                createKeys.freeResult();
+            }
+            if (secretRange != null) {
+                // the grid is completed after the consumer checked all keys, not when the batch is queued
+                publicKeyBytesBatch.setConsumedCallback(() -> secretRange.completed(claimedCounter));
+            }
+            consumer.consumeKeys(publicKeyBytesBatch);
+            // the consumer owns the batch, also a dropped one
+            accepted = true;
+        } catch (Exception e) {
+            logErrorInProduceKeys(e, secretBase);
+        } finally {
+            if (publicKeyBytesBatch != null && !accepted) {
+                publicKeyBytesBatch.free();
+            }
+        }
+    }
+
+    @Override
+    protected boolean isCompleted() {
+        return secretRange != null && secretRange.isExhausted();
+    }
+
     private void waitTillFreeThreadsInPool() throws InterruptedException {
         while(getFreeThreads() < 1) {
             Thread.sleep(producerOpenCL.delayBlockedReader);
@@ -94,7 +172,14 @@ public class ProducerOpenCL extends AbstractProducer {
 
     @Override
     public void releaseProducers() {
+        if (launchesInFlight != null) {
+            // wait for the launches in flight, their results refer to the context
+            launchesInFlight.acquireUninterruptibly(producerOpenCL.pipelineDepth);
+        }
         openCLContext.release();
+        if (secretRange != null) {
+            secretRange.close();
+        }
     }
 
 }
@@ -22,10 +22,13 @@ import com.google.common.hash.Hashing;
 import java.math.BigInteger;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
+import net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Engine;
+import net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Point;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.bitcoinj.core.ECKey;
 import org.bitcoinj.core.Utils;
 import org.bouncycastle.crypto.digests.RIPEMD160Digest;
+import org.bouncycastle.math.ec.ECPoint;
 
 @ToString
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
@@ -64,6 +67,12 @@ public class PublicKeyBytes {
     public static final int PARITY_COMPRESSED_ODD = 3;
 
     public static final int HASH160_SIZE = 20;
+
+    /**
+     * The number of points normalized together, see
+     * {@link Secp256k1Engine#normalize(net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Point[], int)}.
+     */
+    public static final int NORMALIZATION_BATCH_SIZE = 1024;
     
     public final static int PUBLIC_KEY_UNCOMPRESSED_BYTES = PARITY_BYTES_LENGTH + TWO_COORDINATES_NUM_BYTES;
     public final static int PUBLIC_KEY_COMPRESSED_BYTES = PARITY_BYTES_LENGTH + ONE_COORDINATE_NUM_BYTES;
@@ -138,6 +147,55 @@ public class PublicKeyBytes {
         ECKey ecKey = ECKey.fromPrivate(secretKey, false);
         return new PublicKeyBytes(ecKey.getPrivKey(), ecKey.getPubKey());
     }
+
+    /**
+     * Same as {@link #fromPrivate(java.math.BigInteger)} for many secrets,
+     * calculated with {@link Secp256k1Engine} and normalized together.
+     *
+     * @param secretKeys the secrets, none of them may be invalid
+     * @param length the number of secrets to use
+     * @return the public keys in the order of the secrets
+     */
+    public static PublicKeyBytes[] fromPrivates(BigInteger[] secretKeys, int length) {
+        final Secp256k1Engine engine = Secp256k1Engine.get();
+        Secp256k1Point[] points = new Secp256k1Point[length];
+        for (int i = 0; i < length; i++) {
+            points[i] = new Secp256k1Point();
+            engine.multiplyG(points[i], secretKeys[i]);
+        }
+        engine.normalize(points, length);
+        PublicKeyBytes[] publicKeyBytes = new PublicKeyBytes[length];
+        for (int i = 0; i < length; i++) {
+            byte[] uncompressed = new byte[PUBLIC_KEY_UNCOMPRESSED_BYTES];
+            points[i].encodeUncompressed(uncompressed, 0);
+            publicKeyBytes[i] = new PublicKeyBytes(secretKeys[i], uncompressed);
+        }
+        return publicKeyBytes;
+    }
+
+    /**
+     * Encodes the points uncompressed. A point in Jacobian coordinates needs a
+     * field inversion to reach its affine coordinates, the most expensive
+     * field operation. All points are normalized together with Montgomery's
+     * simultaneous inversion: one inversion and about 3N multiplications.
+     *
+     * @param points the points, normalized in place. {@code null} and the point at infinity are encoded as {@link #INVALID_KEY_ONE}.
+     * @param length the number of points to encode
+     * @return the uncompressed public keys
+     */
+    public static byte[][] toUncompressed(ECPoint[] points, int length) {
+        ECKey.CURVE.getCurve().normalizeAll(points, 0, length, null);
+        byte[][] uncompressed = new byte[length][];
+        for (int i = 0; i < length; i++) {
+            ECPoint point = points[i];
+            if (point == null || point.isInfinity()) {
+                uncompressed[i] = INVALID_KEY_ONE.getUncompressed();
+            } else {
+                uncompressed[i] = point.getEncoded(false);
+            }
+        }
+        return uncompressed;
+    }
     
     public static byte[] createCompressedBytes(byte[] uncompressed) {
         // add one byte for format sign
@@ -170,9 +228,9 @@ public class PublicKeyBytes {
     public byte[] getCompressedKeyHash() {
         if (compressedKeyHash == null) {
             if (USE_SHA256_RIPEMD160_FAST) {
-                compressedKeyHash = Utils.sha256hash160(compressed);
-            } else {
                 compressedKeyHash = sha256hash160Fast(compressed);
+            } else {
+                compressedKeyHash = Utils.sha256hash160(compressed);
             }
         }
         return compressedKeyHash;
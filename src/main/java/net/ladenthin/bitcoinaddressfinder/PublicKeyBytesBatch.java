@@ -0,0 +1,625 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import javax.annotation.Nullable;
+import net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Endomorphism;
+
+/**
+ * A batch of public keys in struct-of-arrays layout, backed by one direct
+ * {@link ByteBuffer} per region. It replaces an array of {@link PublicKeyBytes} on the
+ * hot path: no object is allocated per key. A {@link PublicKeyBytes} is
+ * created on demand only, e.g. for a hit.
+ * <p>
+ * The secret of a key is {@code secretBase | offset}, see
+ * {@link AbstractProducer#calculateSecretKey(java.math.BigInteger, int)}.
+ * A batch without a common secret base stores the secret base of every key,
+ * see {@link #addWithSecret(BigInteger, byte[], byte[])}.
+ * A key derived by {@link #addEndomorphismKeys(int)} stores the same offset
+ * and its {@link Secp256k1Endomorphism} variant, its secret is calculated
+ * from both on demand.
+ * <p>
+ * The regions (each has {@link #capacity()} entries and its own buffer,
+ * addressed by an {@code int}):
+ * <ol>
+ * <li>the offsets ({@link Integer#BYTES} each)</li>
+ * <li>the uncompressed public keys ({@link PublicKeyBytes#PUBLIC_KEY_UNCOMPRESSED_BYTES} each)</li>
+ * <li>the compressed public keys ({@link PublicKeyBytes#PUBLIC_KEY_COMPRESSED_BYTES} each)</li>
+ * <li>the hash160s, uncompressed and compressed back to back ({@link #HASH160S_PER_KEY} * {@link PublicKeyBytes#HASH160_SIZE} each)</li>
+ * <li>the variants ({@link #VARIANT_NUM_BYTES} each)</li>
+ * </ol>
+ * A batch created by {@link #ofHash160s(int, BigInteger)} has no public
+ * key regions: the hash160s are given, e.g. by the
+ * {@link OpenCLContext#GEN_HASH160_MODE} kernel, and the public keys of a
+ * key are calculated from its secret on demand.
+ */
+public class PublicKeyBytesBatch {
+
+    public static final int OFFSET_NUM_BYTES = Integer.BYTES;
+
+    public static final int VARIANT_NUM_BYTES = Byte.BYTES;
+
+    /**
+     * The hash160 of the uncompressed and the compressed public key.
+     */
+    public static final int HASH160S_PER_KEY = 2;
+
+    /**
+     * The bytes per key of a batch with public keys, all regions together.
+     */
+    public static final int BYTES_PER_KEY = OFFSET_NUM_BYTES
+            + PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES
+            + PublicKeyBytes.PUBLIC_KEY_COMPRESSED_BYTES
+            + HASH160S_PER_KEY * PublicKeyBytes.HASH160_SIZE
+            + VARIANT_NUM_BYTES;
+
+    /**
+     * The bytes per key of a batch created by {@link #ofHash160s(int, BigInteger)}.
+     */
+    public static final int HASH160_ONLY_BYTES_PER_KEY = OFFSET_NUM_BYTES
+            + HASH160S_PER_KEY * PublicKeyBytes.HASH160_SIZE
+            + VARIANT_NUM_BYTES;
+
+    /**
+     * The maximum capacity of a batch. Every region is addressed by an
+     * {@code int}, the uncompressed public keys are the largest region.
+     */
+    public static final int MAX_CAPACITY = Integer.MAX_VALUE / PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES;
+
+    private final ByteBufferUtility byteBufferUtility = new ByteBufferUtility(true);
+    private final int capacity;
+    /**
+     * {@code false} for a batch of hash160s only.
+     */
+    private final boolean publicKeys;
+    private ByteBuffer offsets;
+    /**
+     * {@code null} for a batch of hash160s only.
+     */
+    @Nullable
+    private ByteBuffer uncompressedKeys;
+    /**
+     * {@code null} for a batch of hash160s only.
+     */
+    @Nullable
+    private ByteBuffer compressedKeys;
+    private ByteBuffer hash160s;
+    private ByteBuffer variants;
+
+    /**
+     * {@code null} for a batch without a common secret base, see {@link #keySecretBases}.
+     */
+    @Nullable
+    private BigInteger secretBase;
+    /**
+     * The secret base of every key of a batch without a common secret base, allocated on demand.
+     */
+    @Nullable
+    private BigInteger[] keySecretBases;
+    /**
+     * The secret base is {@code 0} or {@code 1}, the keys with an offset of {@code 0} or {@code 1} are invalid.
+     */
+    private boolean secretBaseIsZeroOrOne;
+    private int size;
+    /**
+     * At least one key was added by {@link #addEndomorphismKeys(int)}.
+     */
+    private boolean endomorphismKeys;
+    /**
+     * The keys were filtered on the device, see {@link #setRejectedKeys(int)}.
+     */
+    private boolean prefiltered;
+    private int rejectedKeys;
+    /**
+     * The uncompressed public keys of {@link #addEndomorphismKeys(int)}, allocated on demand.
+     */
+    private byte[] endomorphismSource;
+    private byte[] endomorphismKey;
+    /**
+     * Run once after all keys are checked, see {@link #consumed()}.
+     */
+    @Nullable
+    private Runnable consumedCallback;
+
+    /**
+     * @param capacity the maximum number of keys
+     * @param secretBase the secret base of all keys or {@code null} if every key has its own, see {@link #addWithSecret(BigInteger, byte[], byte[])}
+     */
+    public PublicKeyBytesBatch(int capacity, @Nullable BigInteger secretBase) {
+        this(capacity, secretBase, true);
+    }
+
+    private PublicKeyBytesBatch(int capacity, @Nullable BigInteger secretBase, boolean publicKeys) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be between 1 and " + MAX_CAPACITY + ": " + capacity);
+        }
+        this.capacity = capacity;
+        this.publicKeys = publicKeys;
+        offsets = ByteBuffer.allocateDirect(capacity * OFFSET_NUM_BYTES);
+        if (publicKeys) {
+            uncompressedKeys = ByteBuffer.allocateDirect(capacity * PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES);
+            compressedKeys = ByteBuffer.allocateDirect(capacity * PublicKeyBytes.PUBLIC_KEY_COMPRESSED_BYTES);
+        }
+        hash160s = ByteBuffer.allocateDirect(capacity * HASH160S_PER_KEY * PublicKeyBytes.HASH160_SIZE);
+        variants = ByteBuffer.allocateDirect(capacity * VARIANT_NUM_BYTES);
+        reset(secretBase);
+    }
+
+    /**
+     * @param capacity the maximum number of keys
+     * @param secretBase the secret base of all keys
+     * @return a batch without public keys, the keys are added by {@link #addHash160s(int, ByteBuffer, int)}
+     */
+    public static PublicKeyBytesBatch ofHash160s(int capacity, BigInteger secretBase) {
+        return new PublicKeyBytesBatch(capacity, secretBase, false);
+    }
+
+    /**
+     * @return a batch with the single given key
+     */
+    public static PublicKeyBytesBatch of(PublicKeyBytes publicKeyBytes) {
+        PublicKeyBytesBatch publicKeyBytesBatch = new PublicKeyBytesBatch(1, publicKeyBytes.getSecretKey());
+        publicKeyBytesBatch.add(0, publicKeyBytes.getUncompressed(), publicKeyBytes.getCompressed());
+        return publicKeyBytesBatch;
+    }
+
+    /**
+     * Removes all keys and sets a new secret base. The memory is reused.
+     * @param secretBase the secret base of all keys or {@code null} if every key has its own
+     */
+    public void reset(@Nullable BigInteger secretBase) {
+        this.secretBase = secretBase;
+        this.secretBaseIsZeroOrOne = secretBase != null && isZeroOrOne(secretBase);
+        if (keySecretBases != null) {
+            Arrays.fill(keySecretBases, 0, size, null);
+        } else if (secretBase == null) {
+            keySecretBases = new BigInteger[capacity];
+        }
+        size = 0;
+        endomorphismKeys = false;
+        prefiltered = false;
+        rejectedKeys = 0;
+        consumedCallback = null;
+    }
+
+    /**
+     * @return the secret base of all keys or {@code null} if every key has its own
+     */
+    @Nullable
+    public BigInteger getSecretBase() {
+        return secretBase;
+    }
+
+    private BigInteger getSecretBase(int index) {
+        if (secretBase != null) {
+            return secretBase;
+        }
+        return keySecretBases[index];
+    }
+
+    private static boolean isZeroOrOne(BigInteger secretBase) {
+        return secretBase.signum() >= 0 && secretBase.bitLength() <= 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return {@code true} if at least one key was added by {@link #addEndomorphismKeys(int)}
+     */
+    public boolean hasEndomorphismKeys() {
+        return endomorphismKeys;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Marks the batch as the candidates of an address filter on the device, see
+     * {@link OpenCLContext#GEN_HASH160_FILTERED_MODE}.
+     *
+     * @param rejectedKeys the number of keys the filter rejected, they are not part of this batch
+     */
+    public void setRejectedKeys(int rejectedKeys) {
+        if (rejectedKeys < 0) {
+            throw new IllegalArgumentException("rejectedKeys must not be negative: " + rejectedKeys);
+        }
+        this.prefiltered = true;
+        this.rejectedKeys = rejectedKeys;
+    }
+
+    /**
+     * @return {@code true} if the batch contains the candidates of an address filter on the device only
+     */
+    public boolean isPrefiltered() {
+        return prefiltered;
+    }
+
+    public int getRejectedKeys() {
+        return rejectedKeys;
+    }
+
+    /**
+     * @return {@code false} for a batch of hash160s only, see {@link #ofHash160s(int, BigInteger)}
+     */
+    public boolean hasPublicKeys() {
+        return publicKeys;
+    }
+
+    private void requirePublicKeys() {
+        if (!publicKeys) {
+            throw new IllegalStateException("The batch contains hash160s only.");
+        }
+    }
+
+    /**
+     * Adds a key of a batch created by {@link #ofHash160s(int, BigInteger)}.
+     * @param offset the offset of the secret
+     * @param hash160s the hash160 of the uncompressed and the compressed public key back to back, copied
+     * @param position the position of the hash160s in the given buffer
+     * @return the index of the key
+     */
+    public int addHash160s(int offset, ByteBuffer hash160s, int position) {
+        if (publicKeys) {
+            throw new IllegalStateException("The batch contains public keys, the hash160s are calculated.");
+        }
+        int index = addOffset(offset, Secp256k1Endomorphism.IDENTITY);
+        int hash160Position = hash160Position(index, false);
+        for (int i = 0; i < HASH160S_PER_KEY * PublicKeyBytes.HASH160_SIZE; i++) {
+            this.hash160s.put(hash160Position + i, hash160s.get(position + i));
+        }
+        return index;
+    }
+
+    /**
+     * Adds a key, the compressed public key is derived from the uncompressed one.
+     * @param offset the offset of the secret
+     * @param uncompressed the uncompressed public key, copied
+     * @return the index of the key
+     */
+    public int add(int offset, byte[] uncompressed) {
+        return add(offset, Secp256k1Endomorphism.IDENTITY, uncompressed);
+    }
+
+    /**
+     * Adds a key of a batch without a common secret base, e.g. a key derived
+     * from a passphrase.
+     * @param secret the secret of the key
+     * @param uncompressed the uncompressed public key, copied
+     * @param compressed the compressed public key, copied
+     * @return the index of the key
+     */
+    public int addWithSecret(BigInteger secret, byte[] uncompressed, byte[] compressed) {
+        if (secretBase != null) {
+            throw new IllegalStateException("The batch has a common secret base.");
+        }
+        int index = add(0, uncompressed, compressed);
+        keySecretBases[index] = secret;
+        return index;
+    }
+
+    private int add(int offset, int variant, byte[] uncompressed) {
+        requirePublicKeys();
+        int index = addOffset(offset, variant);
+        int uncompressedPosition = uncompressedPosition(index);
+        for (int i = 0; i < PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES; i++) {
+            uncompressedKeys.put(uncompressedPosition + i, uncompressed[i]);
+        }
+        deriveCompressed(index);
+        return index;
+    }
+
+    /**
+     * Adds a key with a given compressed public key.
+     * @param offset the offset of the secret
+     * @param uncompressed the uncompressed public key, copied
+     * @param compressed the compressed public key, copied
+     * @return the index of the key
+     */
+    public int add(int offset, byte[] uncompressed, byte[] compressed) {
+        requirePublicKeys();
+        int index = addOffset(offset, Secp256k1Endomorphism.IDENTITY);
+        int uncompressedPosition = uncompressedPosition(index);
+        for (int i = 0; i < PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES; i++) {
+            uncompressedKeys.put(uncompressedPosition + i, uncompressed[i]);
+        }
+        int compressedPosition = compressedPosition(index);
+        for (int i = 0; i < PublicKeyBytes.PUBLIC_KEY_COMPRESSED_BYTES; i++) {
+            compressedKeys.put(compressedPosition + i, compressed[i]);
+        }
+        return index;
+    }
+
+    private int addOffset(int offset, int variant) {
+        if (size >= capacity) {
+            throw new IllegalStateException("The batch is full: " + capacity);
+        }
+        int index = size++;
+        offsets.putInt(index * OFFSET_NUM_BYTES, offset);
+        variants.put(index * VARIANT_NUM_BYTES, (byte) variant);
+        return index;
+    }
+
+    /**
+     * Adds the other {@link Secp256k1Endomorphism#VARIANTS} of a key: the
+     * public keys of {@code lambda * k}, {@code lambda^2 * k} and the
+     * negation of all three. An invalid key is skipped.
+     *
+     * @param index the index of a key of the variant {@link Secp256k1Endomorphism#IDENTITY}
+     * @return the number of keys added
+     */
+    public int addEndomorphismKeys(int index) {
+        requirePublicKeys();
+        if (getVariant(index) != Secp256k1Endomorphism.IDENTITY) {
+            throw new IllegalArgumentException("The key is a variant already: " + index);
+        }
+        if (isInvalid(index)) {
+            return 0;
+        }
+        if (endomorphismSource == null) {
+            endomorphismSource = new byte[PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES];
+            endomorphismKey = new byte[PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES];
+        }
+        copy(uncompressedKeys, uncompressedPosition(index), endomorphismSource);
+        int offset = getOffset(index);
+        Secp256k1Endomorphism endomorphism = Secp256k1Endomorphism.get();
+        for (int variant = Secp256k1Endomorphism.IDENTITY + 1; variant < Secp256k1Endomorphism.VARIANTS; variant++) {
+            endomorphism.publicKey(endomorphismSource, 0, variant, endomorphismKey, 0);
+            int variantIndex = add(offset, variant, endomorphismKey);
+            if (secretBase == null) {
+                keySecretBases[variantIndex] = keySecretBases[index];
+            }
+        }
+        endomorphismKeys = true;
+        return Secp256k1Endomorphism.VARIANTS - 1;
+    }
+
+    /**
+     * Adds the keys of a range of another batch followed by their other
+     * variants, see {@link #addEndomorphismKeys(int)}. The other batch is not
+     * modified. Requires a free capacity of
+     * {@code (toIndex - fromIndex) * }{@link Secp256k1Endomorphism#VARIANTS}.
+     *
+     * @param source a batch with the same secret base, or also without a common secret base
+     * @param fromIndex inclusive
+     * @param toIndex exclusive
+     */
+    public void addWithEndomorphismKeys(PublicKeyBytesBatch source, int fromIndex, int toIndex) {
+        requirePublicKeys();
+        source.requirePublicKeys();
+        if (!Objects.equals(secretBase, source.secretBase)) {
+            throw new IllegalArgumentException("The batches have different secret bases.");
+        }
+        int firstIndex = size;
+        for (int i = fromIndex; i < toIndex; i++) {
+            int index = addOffset(source.getOffset(i), source.getVariant(i));
+            if (secretBase == null) {
+                keySecretBases[index] = source.getSecretBase(i);
+            }
+            for (int j = 0; j < PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES; j++) {
+                uncompressedKeys.put(uncompressedPosition(index) + j, source.uncompressedKeys.get(source.uncompressedPosition(i) + j));
+            }
+            for (int j = 0; j < PublicKeyBytes.PUBLIC_KEY_COMPRESSED_BYTES; j++) {
+                compressedKeys.put(compressedPosition(index) + j, source.compressedKeys.get(source.compressedPosition(i) + j));
+            }
+        }
+        int lastIndex = size;
+        for (int index = firstIndex; index < lastIndex; index++) {
+            if (getVariant(index) == Secp256k1Endomorphism.IDENTITY) {
+                addEndomorphismKeys(index);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link PublicKeyBytes#createCompressedBytes(byte[])} without an allocation.
+     */
+    private void deriveCompressed(int index) {
+        int uncompressedPosition = uncompressedPosition(index);
+        int compressedPosition = compressedPosition(index);
+        for (int i = 0; i < PublicKeyBytes.ONE_COORDINATE_NUM_BYTES; i++) {
+            compressedKeys.put(compressedPosition + PublicKeyBytes.PARITY_BYTES_LENGTH + i, uncompressedKeys.get(uncompressedPosition + PublicKeyBytes.PARITY_BYTES_LENGTH + i));
+        }
+        boolean even = uncompressedKeys.get(uncompressedPosition + PublicKeyBytes.LAST_Y_COORDINATE_BYTE_INDEX) % 2 == 0;
+        compressedKeys.put(compressedPosition, (byte) (even ? PublicKeyBytes.PARITY_COMPRESSED_EVEN : PublicKeyBytes.PARITY_COMPRESSED_ODD));
+    }
+
+    /**
+     * Calculates the hash160s of the uncompressed and compressed public keys of the given range.
+     * @param fromIndex inclusive
+     * @param toIndex exclusive
+     */
+    public void calculateHash160s(int fromIndex, int toIndex) {
+        calculateHash160s(fromIndex, toIndex, Hash160Engine.get());
+    }
+
+    /**
+     * Same as {@link #calculateHash160s(int, int)} with the given engine.
+     * Nothing to calculate for a batch of hash160s only.
+     */
+    public void calculateHash160s(int fromIndex, int toIndex, Hash160BatchEngine hash160Engine) {
+        if (!publicKeys) {
+            return;
+        }
+        int count = toIndex - fromIndex;
+        int hash160Stride = HASH160S_PER_KEY * PublicKeyBytes.HASH160_SIZE;
+        hash160Engine.hash160s(uncompressedKeys, uncompressedPosition(fromIndex), PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES, PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES, count, hash160s, hash160Position(fromIndex, false), hash160Stride);
+        hash160Engine.hash160s(compressedKeys, compressedPosition(fromIndex), PublicKeyBytes.PUBLIC_KEY_COMPRESSED_BYTES, PublicKeyBytes.PUBLIC_KEY_COMPRESSED_BYTES, count, hash160s, hash160Position(fromIndex, true), hash160Stride);
+    }
+
+    /**
+     * @param fromIndex inclusive
+     * @param toIndex exclusive
+     * @return a view of the hash160s of the given range, uncompressed and compressed back to back, from its position to its limit
+     */
+    public ByteBuffer getHash160s(int fromIndex, int toIndex) {
+        ByteBuffer view = hash160s.duplicate();
+        view.limit(hash160Position(toIndex, false));
+        view.position(hash160Position(fromIndex, false));
+        return view;
+    }
+
+    public int getOffset(int index) {
+        return offsets.getInt(index * OFFSET_NUM_BYTES);
+    }
+
+    /**
+     * @return the {@link Secp256k1Endomorphism} variant of the key
+     */
+    public int getVariant(int index) {
+        return variants.get(index * VARIANT_NUM_BYTES);
+    }
+
+    /**
+     * Same as {@link PublicKeyBytes#isInvalid()} without calculating the secret.
+     */
+    public boolean isInvalid(int index) {
+        if (secretBase == null) {
+            return isZeroOrOne(keySecretBases[index]) && getOffset(index) >>> 1 == 0;
+        }
+        return secretBaseIsZeroOrOne && getOffset(index) >>> 1 == 0;
+    }
+
+    public BigInteger getSecretKey(int index) {
+        BigInteger secretKey = AbstractProducer.calculateSecretKey(getSecretBase(index), getOffset(index));
+        int variant = getVariant(index);
+        if (variant == Secp256k1Endomorphism.IDENTITY) {
+            return secretKey;
+        }
+        return Secp256k1Endomorphism.secretKey(secretKey, variant);
+    }
+
+    public byte[] getUncompressed(int index) {
+        if (!publicKeys) {
+            return PublicKeyBytes.fromPrivate(getSecretKey(index)).getUncompressed();
+        }
+        byte[] uncompressed = new byte[PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES];
+        copy(uncompressedKeys, uncompressedPosition(index), uncompressed);
+        return uncompressed;
+    }
+
+    public byte[] getCompressed(int index) {
+        if (!publicKeys) {
+            return PublicKeyBytes.fromPrivate(getSecretKey(index)).getCompressed();
+        }
+        byte[] compressed = new byte[PublicKeyBytes.PUBLIC_KEY_COMPRESSED_BYTES];
+        copy(compressedKeys, compressedPosition(index), compressed);
+        return compressed;
+    }
+
+    /**
+     * {@link #calculateHash160s(int, int)} must be called before.
+     */
+    public byte[] getUncompressedKeyHash(int index) {
+        byte[] hash160 = new byte[PublicKeyBytes.HASH160_SIZE];
+        copy(hash160s, hash160Position(index, false), hash160);
+        return hash160;
+    }
+
+    /**
+     * {@link #calculateHash160s(int, int)} must be called before.
+     */
+    public byte[] getCompressedKeyHash(int index) {
+        byte[] hash160 = new byte[PublicKeyBytes.HASH160_SIZE];
+        copy(hash160s, hash160Position(index, true), hash160);
+        return hash160;
+    }
+
+    /**
+     * @return a new {@link PublicKeyBytes} of the key or {@link PublicKeyBytes#INVALID_KEY_ONE} for an invalid key
+     */
+    public PublicKeyBytes toPublicKeyBytes(int index) {
+        if (isInvalid(index)) {
+            return PublicKeyBytes.INVALID_KEY_ONE;
+        }
+        if (!publicKeys) {
+            // the public keys are calculated on demand
+            return PublicKeyBytes.fromPrivate(getSecretKey(index));
+        }
+        return new PublicKeyBytes(getSecretKey(index), getUncompressed(index), getCompressed(index));
+    }
+
+    public PublicKeyBytes[] toPublicKeyBytesArray() {
+        PublicKeyBytes[] publicKeyBytesArray = new PublicKeyBytes[size];
+        for (int i = 0; i < size; i++) {
+            publicKeyBytesArray[i] = toPublicKeyBytes(i);
+        }
+        return publicKeyBytesArray;
+    }
+
+    private int uncompressedPosition(int index) {
+        return index * PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES;
+    }
+
+    private int compressedPosition(int index) {
+        return index * PublicKeyBytes.PUBLIC_KEY_COMPRESSED_BYTES;
+    }
+
+    private int hash160Position(int index, boolean compressed) {
+        return (HASH160S_PER_KEY * index + (compressed ? 1 : 0)) * PublicKeyBytes.HASH160_SIZE;
+    }
+
+    private static void copy(ByteBuffer src, int position, byte[] dst) {
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] = src.get(position + i);
+        }
+    }
+
+    /**
+     * @param consumedCallback run once after all keys are checked, not run for a dropped batch
+     */
+    public void setConsumedCallback(@Nullable Runnable consumedCallback) {
+        this.consumedCallback = consumedCallback;
+    }
+
+    /**
+     * Reports that all keys are checked and runs the callback once, see
+     * {@link #setConsumedCallback(Runnable)}. Must be called before {@link #free()}.
+     */
+    public void consumed() {
+        Runnable callback = consumedCallback;
+        consumedCallback = null;
+        if (callback != null) {
+            callback.run();
+        }
+    }
+
+    /**
+     * Frees the off-heap memory. The batch must not be used afterwards.
+     */
+    public void free() {
+        byteBufferUtility.freeByteBuffer(offsets);
+        byteBufferUtility.freeByteBuffer(uncompressedKeys);
+        byteBufferUtility.freeByteBuffer(compressedKeys);
+        byteBufferUtility.freeByteBuffer(hash160s);
+        byteBufferUtility.freeByteBuffer(variants);
+        offsets = null;
+        uncompressedKeys = null;
+        compressedKeys = null;
+        hash160s = null;
+        variants = null;
+        keySecretBases = null;
+    }
+}
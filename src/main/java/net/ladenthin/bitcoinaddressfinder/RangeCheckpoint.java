@@ -0,0 +1,192 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Timer;
+import java.util.TimerTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A file with the completed counters of the scanned ranges, one
+ * {@link LongRangeSet} per range identity. The checkpoint restores and
+ * persists the {@link RangeProgress} shared by all ranges of the process
+ * with the same identity, see {@link RangeProgressRegistry}. Completed grids
+ * are skipped after a restart, grids in progress are scanned again.
+ * <p>
+ * A counter addresses a grid of {@code 2^gridNumBits} secrets. The counters
+ * of a range are only valid for one {@code gridNumBits}: every producer
+ * sharing a range of the file, in this process and in the file, must use the
+ * same {@code gridNumBits}.
+ * <p>
+ * The progress is written periodically in a background thread to a
+ * temporary file, synced to the disk and moved over the file.
+ */
+public class RangeCheckpoint {
+
+    private static final int ONE_SECOND_IN_MILLISECONDS = 1000;
+
+    /**
+     * The open checkpoints by absolute path.
+     */
+    private static final Map<String, RangeCheckpoint> OPEN_CHECKPOINTS = new HashMap<>();
+
+    private final Logger logger = LoggerFactory.getLogger(RangeCheckpoint.class);
+
+    private final File file;
+    private final Timer timer = new Timer(true);
+
+    /**
+     * The completed counters read from the file by identity, kept for identities not in use.
+     */
+    private final Properties stored = new Properties();
+    /**
+     * The attached progresses by identity, see {@link RangeProgressRegistry#identity(String, int)}.
+     */
+    private final Map<String, RangeProgress> progresses = new HashMap<>();
+    /**
+     * The gridNumBits of every range, stored in the file or in use.
+     */
+    private final Map<String, Integer> gridNumBitsByRange = new HashMap<>();
+    private int references;
+
+    private RangeCheckpoint(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the checkpoint of the file or returns the open one. Every call needs a {@link #release()}.
+     */
+    public static RangeCheckpoint acquire(File file, int saveEveryNSeconds) {
+        synchronized (OPEN_CHECKPOINTS) {
+            String path = file.getAbsolutePath();
+            RangeCheckpoint rangeCheckpoint = OPEN_CHECKPOINTS.get(path);
+            if (rangeCheckpoint == null) {
+                rangeCheckpoint = new RangeCheckpoint(file);
+                rangeCheckpoint.read();
+                rangeCheckpoint.startTimer(saveEveryNSeconds);
+                OPEN_CHECKPOINTS.put(path, rangeCheckpoint);
+            }
+            rangeCheckpoint.references++;
+            return rangeCheckpoint;
+        }
+    }
+
+    /**
+     * Writes the checkpoint and closes it after the last release.
+     */
+    public void release() {
+        synchronized (OPEN_CHECKPOINTS) {
+            references--;
+            if (references > 0) {
+                return;
+            }
+            OPEN_CHECKPOINTS.remove(file.getAbsolutePath());
+            timer.cancel();
+        }
+        write();
+    }
+
+    /**
+     * Restores the shared progress of a range from the file once and persists it from now on.
+     *
+     * @param range the identity of the range without its grid size
+     * @param rangeProgress the progress of the range, see {@link RangeProgressRegistry#acquire(String, int)}
+     * @throws IllegalArgumentException if the range is used with another {@code gridNumBits}
+     */
+    public synchronized void attach(String range, int gridNumBits, RangeProgress rangeProgress) {
+        Integer rangeGridNumBits = gridNumBitsByRange.putIfAbsent(range, gridNumBits);
+        if (rangeGridNumBits != null && rangeGridNumBits != gridNumBits) {
+            throw new IllegalArgumentException("The range checkpoint " + file.getAbsolutePath() + " is used with gridNumBits " + rangeGridNumBits + " for the range [" + range + "], all producers of the range must use the same gridNumBits, not " + gridNumBits + ".");
+        }
+        String identity = RangeProgressRegistry.identity(range, gridNumBits);
+        RangeProgress attached = progresses.get(identity);
+        if (attached == rangeProgress) {
+            return;
+        }
+        // the progress of a range released in the meantime, else the stored one
+        String completed = attached != null ? attached.getCompletedAsText() : stored.getProperty(identity);
+        if (completed != null) {
+            rangeProgress.restore(LongRangeSet.parse(completed));
+        }
+        progresses.put(identity, rangeProgress);
+    }
+
+    private void startTimer(int saveEveryNSeconds) {
+        long period = saveEveryNSeconds * (long) ONE_SECOND_IN_MILLISECONDS;
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be greater than 0.");
+        }
+        timer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                write();
+            }
+        }, period, period);
+    }
+
+    private void read() {
+        if (!file.exists()) {
+            return;
+        }
+        try (InputStream inputStream = new FileInputStream(file)) {
+            stored.load(inputStream);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        for (String identity : stored.stringPropertyNames()) {
+            int separator = identity.lastIndexOf(RangeProgressRegistry.GRID_NUM_BITS_SEPARATOR);
+            if (separator >= 0) {
+                gridNumBitsByRange.put(identity.substring(0, separator), Integer.parseInt(identity.substring(separator + RangeProgressRegistry.GRID_NUM_BITS_SEPARATOR.length())));
+            }
+        }
+        logger.info("Read the range checkpoint " + file.getAbsolutePath() + " with " + stored.size() + " ranges.");
+    }
+
+    /**
+     * Writes the progress to a temporary file, syncs it and replaces the file atomically.
+     */
+    public synchronized void write() {
+        Properties properties = new Properties();
+        properties.putAll(stored);
+        for (Map.Entry<String, RangeProgress> progress : progresses.entrySet()) {
+            properties.setProperty(progress.getKey(), progress.getValue().getCompletedAsText());
+        }
+        File temporaryFile = new File(file.getAbsolutePath() + ".tmp");
+        try {
+            try (FileOutputStream outputStream = new FileOutputStream(temporaryFile)) {
+                properties.store(outputStream, "completed grid counters of the scanned ranges");
+                outputStream.getFD().sync();
+            }
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Could not write the range checkpoint: " + file.getAbsolutePath(), e);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * The claimed and the completed counters of a {@link SecretRange} and the
+ * scheduler of the producers. Shared by all ranges with the same counters
+ * (see {@link RangeProgressRegistry}): a counter is claimed once only, by any
+ * of them. Thread safe.
+ * <p>
+ * A range reserves a chunk of consecutive counters and claims them one after
+ * another. The chunk size is given by the range from its measured
+ * throughput: a fast producer reserves larger chunks than a slow one. Near
+ * the end the chunks shrink to leave work for the others (guided
+ * scheduling), if no counter is left a range steals the upper half of the
+ * largest reservation of another range.
+ */
+public class RangeProgress {
+
+    /**
+     * Returned by {@link #claim(Reservation, long, long, long)} if all counters of the slice are claimed.
+     */
+    public static final long NO_COUNTER = -1L;
+
+    /**
+     * The counters {@code [next, end)} reserved by a range. Guarded by the progress.
+     */
+    public static class Reservation {
+        private long next;
+        private long end;
+        private long size;
+
+        private long remaining() {
+            return end - next;
+        }
+    }
+
+    /**
+     * The completed counters, the reserved counters and the counters in progress.
+     */
+    private final LongRangeSet claimed = new LongRangeSet();
+    private final LongRangeSet completed = new LongRangeSet();
+    private final List<Reservation> reservations = new ArrayList<>();
+
+    public synchronized Reservation createReservation() {
+        Reservation reservation = new Reservation();
+        reservations.add(reservation);
+        return reservation;
+    }
+
+    /**
+     * The remaining counters of the reservation are not completed, they are
+     * scanned by the next run.
+     */
+    public synchronized void removeReservation(Reservation reservation) {
+        reservations.remove(reservation);
+    }
+
+    /**
+     * @param chunkSize the number of counters to reserve if the reservation is empty
+     * @return the next counter of the reservation or {@link #NO_COUNTER}
+     */
+    public synchronized long claim(Reservation reservation, long from, long to, long chunkSize) {
+        if (reservation.remaining() <= 0 && !reserve(reservation, from, to, chunkSize) && !steal(reservation, from, to)) {
+            return NO_COUNTER;
+        }
+        return reservation.next++;
+    }
+
+    private boolean reserve(Reservation reservation, long from, long to, long chunkSize) {
+        long start = claimed.nextAbsent(from);
+        if (start >= to) {
+            return false;
+        }
+        long unclaimed = (to - from) - claimed.count(from, to);
+        long size = Math.max(1, Math.min(chunkSize, unclaimed / (2L * reservations.size())));
+        long end = Math.min(Math.min(start + size, to), claimed.nextPresent(start));
+        claimed.add(start, end);
+        reservation.next = start;
+        reservation.end = end;
+        reservation.size = end - start;
+        return true;
+    }
+
+    @Nullable
+    private Reservation findVictim(Reservation reservation, long from, long to) {
+        Reservation victim = null;
+        for (Reservation other : reservations) {
+            if (other != reservation && other.next >= from && other.end <= to && other.remaining() >= 2 && (victim == null || other.remaining() > victim.remaining())) {
+                victim = other;
+            }
+        }
+        return victim;
+    }
+
+    private boolean steal(Reservation reservation, long from, long to) {
+        Reservation victim = findVictim(reservation, from, to);
+        if (victim == null) {
+            return false;
+        }
+        long middle = victim.next + victim.remaining() / 2;
+        reservation.next = middle;
+        reservation.end = victim.end;
+        reservation.size = reservation.remaining();
+        victim.end = middle;
+        return true;
+    }
+
+    /**
+     * @return {@code true} if a counter in {@code [from, to)} can be claimed with the reservation
+     */
+    public synchronized boolean hasWork(Reservation reservation, long from, long to) {
+        return reservation.remaining() > 0 || claimed.nextAbsent(from) < to || findVictim(reservation, from, to) != null;
+    }
+
+    /**
+     * @return the size of the last reserved or stolen chunk
+     */
+    public synchronized long getChunkSize(Reservation reservation) {
+        return reservation.size;
+    }
+
+    public synchronized void completed(long counter) {
+        completed.add(counter);
+    }
+
+    /**
+     * @return the number of completed counters in {@code [from, to)}
+     */
+    public synchronized long getCompleted(long from, long to) {
+        return completed.count(from, to);
+    }
+
+    /**
+     * Marks counters of a previous run as completed.
+     */
+    public synchronized void restore(LongRangeSet completedCounters) {
+        completed.addAll(completedCounters);
+        claimed.addAll(completedCounters);
+    }
+
+    /**
+     * @return the completed counters, see {@link LongRangeSet#toString()}
+     */
+    public synchronized String getCompletedAsText() {
+        return completed.toString();
+    }
+}
@@ -0,0 +1,86 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The {@link RangeProgress} of every range in use by this process, by range
+ * identity and {@code gridNumBits}. All ranges of the process with the same
+ * identity share one progress, with or without a {@link RangeCheckpoint}:
+ * two producers of the same range never scan the same grid. A
+ * {@link RangeCheckpoint} only restores and persists the shared progress.
+ */
+public class RangeProgressRegistry {
+
+    static final String GRID_NUM_BITS_SEPARATOR = " gridNumBits=";
+
+    private static class SharedProgress {
+        private final RangeProgress rangeProgress = new RangeProgress();
+        private int references;
+    }
+
+    /**
+     * The progresses in use by identity, see {@link #identity(String, int)}.
+     */
+    private static final Map<String, SharedProgress> PROGRESSES = new HashMap<>();
+
+    private RangeProgressRegistry() {
+    }
+
+    /**
+     * @param range the identity of the range without its grid size
+     * @return the identity of the counters of the range
+     */
+    public static String identity(String range, int gridNumBits) {
+        return range + GRID_NUM_BITS_SEPARATOR + gridNumBits;
+    }
+
+    /**
+     * Returns the shared progress of the range, a new one if the range is not
+     * in use. Every call needs a {@link #release(String, int)}.
+     *
+     * @param range the identity of the range without its grid size
+     */
+    public static RangeProgress acquire(String range, int gridNumBits) {
+        synchronized (PROGRESSES) {
+            SharedProgress sharedProgress = PROGRESSES.computeIfAbsent(identity(range, gridNumBits), identity -> new SharedProgress());
+            sharedProgress.references++;
+            return sharedProgress.rangeProgress;
+        }
+    }
+
+    /**
+     * Removes the progress of the range after the last release.
+     */
+    public static void release(String range, int gridNumBits) {
+        synchronized (PROGRESSES) {
+            String identity = identity(range, gridNumBits);
+            SharedProgress sharedProgress = PROGRESSES.get(identity);
+            if (sharedProgress == null) {
+                throw new IllegalStateException("The range is not in use: " + identity);
+            }
+            sharedProgress.references--;
+            if (sharedProgress.references == 0) {
+                PROGRESSES.remove(identity);
+            }
+        }
+    }
+}
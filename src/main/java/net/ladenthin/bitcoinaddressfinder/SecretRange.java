@@ -0,0 +1,276 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.math.BigInteger;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.io.File;
+import javax.annotation.Nullable;
+import net.ladenthin.bitcoinaddressfinder.configuration.CProducer;
+import net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Engine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands out the grids of a range of secrets, each grid exactly once. A grid
+ * is claimed by its counter in the {@link RangeProgress}, no random number
+ * and no {@link BigInteger} is created for the selection. Thread safe,
+ * several producers of the same configuration can share a range. All ranges
+ * of the process with the same bounds, order and grid size share one
+ * {@link RangeProgress}, see {@link RangeProgressRegistry}.
+ * <p>
+ * The counters are reserved in chunks sized from the measured throughput of
+ * the range, see {@link RangeProgress}.
+ * <p>
+ * Without a permutation the counter is the grid index: the grids are
+ * walked in ascending order. With a permutation the counter is mapped
+ * through a keyed {@link FeistelPermutation} of the grid indices: the grids
+ * are walked in a random order without repeats, a partial run samples the
+ * whole range uniformly. A counter slice restricts a producer to a part of
+ * the counters, producers and processes with disjoint slices (and the same
+ * key) never scan the same grid.
+ * <p>
+ * The range is extended to grid boundaries: the first grid starts at
+ * {@link CProducer#rangeStart} with the grid bits set to zero, the last grid
+ * may end behind {@link CProducer#rangeEnd}.
+ */
+public class SecretRange {
+
+    private static final int ONE_SECOND_IN_MILLISECONDS = 1000;
+
+    static final int DEFAULT_CHUNK_DURATION_IN_SECONDS = 30;
+
+    /**
+     * Returned by {@link #claim()} if all grids of the counter slice are claimed.
+     */
+    public static final long NO_COUNTER = RangeProgress.NO_COUNTER;
+
+    private final Logger logger = LoggerFactory.getLogger(SecretRange.class);
+
+    private final BigInteger firstSecretBase;
+    private final int gridNumBits;
+    private final long grids;
+    @Nullable
+    private final FeistelPermutation permutation;
+    private final long counterStart;
+    private final long counterEnd;
+    private final long printStatisticsPeriod;
+
+    /**
+     * The identity of the range without its grid size, see {@link RangeProgressRegistry}.
+     */
+    private final String range;
+    private final RangeProgress rangeProgress;
+    private final RangeProgress.Reservation reservation;
+    private long chunkDuration = DEFAULT_CHUNK_DURATION_IN_SECONDS * (long) ONE_SECOND_IN_MILLISECONDS;
+    @Nullable
+    private final RangeCheckpoint rangeCheckpoint;
+
+    /**
+     * The grids completed in this run.
+     */
+    private final AtomicLong completedGrids = new AtomicLong();
+    private final AtomicLong nextStatistics = new AtomicLong();
+    private final long startTime = System.currentTimeMillis();
+
+    public SecretRange(BigInteger rangeStart, BigInteger rangeEnd, int gridNumBits, int printRangeStatisticsEveryNSeconds) {
+        this(rangeStart, rangeEnd, gridNumBits, null, 0, -1, null, printRangeStatisticsEveryNSeconds);
+    }
+
+    /**
+     * @param permutationKey {@code null} for the ascending order
+     * @param counterStart the first counter (inclusive) of the slice
+     * @param counterEnd the last counter (exclusive) of the slice, {@code -1} for the number of grids
+     * @param rangeCheckpoint to store the progress, {@code null} to keep it in memory only,
+     * released by {@link #close()}
+     */
+    public SecretRange(BigInteger rangeStart, BigInteger rangeEnd, int gridNumBits, @Nullable String permutationKey, long counterStart, long counterEnd, @Nullable RangeCheckpoint rangeCheckpoint, int printRangeStatisticsEveryNSeconds) {
+        rangeEnd = rangeEnd.min(Secp256k1Engine.N);
+        if (rangeStart.signum() < 0 || rangeStart.compareTo(rangeEnd) >= 0) {
+            throw new IllegalArgumentException("Invalid range: " + rangeStart.toString(16) + " to " + rangeEnd.toString(16));
+        }
+        this.gridNumBits = gridNumBits;
+        firstSecretBase = rangeStart.shiftRight(gridNumBits).shiftLeft(gridNumBits);
+        BigInteger gridCount = rangeEnd.subtract(firstSecretBase).add(BigInteger.ONE.shiftLeft(gridNumBits)).subtract(BigInteger.ONE).shiftRight(gridNumBits);
+        if (gridCount.bitLength() >= Long.SIZE) {
+            throw new IllegalArgumentException("The range has too many grids, increase gridNumBits: " + gridCount);
+        }
+        grids = gridCount.longValue();
+        this.counterStart = counterStart;
+        this.counterEnd = counterEnd == -1 ? grids : counterEnd;
+        if (counterStart < 0 || counterStart >= this.counterEnd || this.counterEnd > grids) {
+            throw new IllegalArgumentException("Invalid counter slice: " + counterStart + " to " + counterEnd + " of " + grids + " grids.");
+        }
+        permutation = permutationKey != null ? new FeistelPermutation(grids, permutationKey) : null;
+        printStatisticsPeriod = printRangeStatisticsEveryNSeconds * (long) ONE_SECOND_IN_MILLISECONDS;
+        if (printStatisticsPeriod <= 0) {
+            throw new IllegalArgumentException("period must be greater than 0.");
+        }
+        nextStatistics.set(startTime + printStatisticsPeriod);
+        this.rangeCheckpoint = rangeCheckpoint;
+        // the counters of ranges with the same bounds, order and grid size belong to the same secret bases
+        range = "rangeStart=" + rangeStart.toString(16) + " rangeEnd=" + rangeEnd.toString(16) + " permutationKey=" + (permutationKey != null ? permutationKey : "");
+        rangeProgress = RangeProgressRegistry.acquire(range, gridNumBits);
+        if (rangeCheckpoint != null) {
+            try {
+                rangeCheckpoint.attach(range, gridNumBits, rangeProgress);
+            } catch (RuntimeException e) {
+                RangeProgressRegistry.release(range, gridNumBits);
+                throw e;
+            }
+        }
+        reservation = rangeProgress.createReservation();
+    }
+
+    /**
+     * @return {@code null} if no range is configured (random secrets)
+     */
+    @Nullable
+    public static SecretRange fromConfiguration(CProducer cProducer) {
+        if (cProducer.rangeStart == null) {
+            return null;
+        }
+        BigInteger rangeStart = new BigInteger(cProducer.rangeStart, 16);
+        BigInteger rangeEnd = cProducer.rangeEnd != null ? new BigInteger(cProducer.rangeEnd, 16) : BigInteger.ONE.shiftLeft(cProducer.privateKeyMaxNumBits);
+        RangeCheckpoint rangeCheckpoint = cProducer.rangeCheckpointFile != null ? RangeCheckpoint.acquire(new File(cProducer.rangeCheckpointFile), cProducer.saveRangeCheckpointEveryNSeconds) : null;
+        final SecretRange secretRange;
+        try {
+            secretRange = new SecretRange(rangeStart, rangeEnd, cProducer.gridNumBits, cProducer.rangePermutationKey, cProducer.rangeCounterStart, cProducer.rangeCounterEnd, rangeCheckpoint, cProducer.printRangeStatisticsEveryNSeconds);
+        } catch (RuntimeException e) {
+            if (rangeCheckpoint != null) {
+                rangeCheckpoint.release();
+            }
+            throw e;
+        }
+        secretRange.setChunkDurationInSeconds(cProducer.rangeChunkDurationInSeconds);
+        return secretRange;
+    }
+
+    /**
+     * @param chunkDurationInSeconds the time to scan a reserved chunk at the measured throughput
+     */
+    public void setChunkDurationInSeconds(int chunkDurationInSeconds) {
+        if (chunkDurationInSeconds <= 0) {
+            throw new IllegalArgumentException("chunkDurationInSeconds must be greater than 0.");
+        }
+        chunkDuration = chunkDurationInSeconds * (long) ONE_SECOND_IN_MILLISECONDS;
+    }
+
+    /**
+     * Claims the next counter of the reserved chunk. An empty reservation
+     * reserves the next chunk of the slice or steals from another range.
+     *
+     * @return the counter of the claimed grid or {@link #NO_COUNTER}
+     */
+    public long claim() {
+        return rangeProgress.claim(reservation, counterStart, counterEnd, getChunkSize());
+    }
+
+    /**
+     * @return the grids scanned in {@link #chunkDuration} at the throughput of this run, at least {@code 1}
+     */
+    long getChunkSize() {
+        long uptime = System.currentTimeMillis() - startTime;
+        long completedInThisRun = completedGrids.get();
+        if (completedInThisRun == 0 || uptime <= 0) {
+            return 1;
+        }
+        return Math.max(1, (long) ((double) completedInThisRun * chunkDuration / uptime));
+    }
+
+    /**
+     * @return the index of the grid of the counter
+     */
+    public long getGrid(long counter) {
+        return permutation != null ? permutation.permute(counter) : counter;
+    }
+
+    public BigInteger getSecretBase(long counter) {
+        return firstSecretBase.add(BigInteger.valueOf(getGrid(counter)).shiftLeft(gridNumBits));
+    }
+
+    /**
+     * Called once the keys of a claimed grid are consumed. Logs the statistics periodically.
+     */
+    public void completed(long counter) {
+        rangeProgress.completed(counter);
+        completedGrids.incrementAndGet();
+        long now = System.currentTimeMillis();
+        long next = nextStatistics.get();
+        if (isExhausted() && getCompletedGrids() == getSliceGrids()) {
+            logger.info(createStatisticsMessage());
+            logger.info("Range completed.");
+        } else if (now >= next && nextStatistics.compareAndSet(next, now + printStatisticsPeriod)) {
+            logger.info(createStatisticsMessage());
+        }
+    }
+
+    /**
+     * @return {@code true} if all grids of the counter slice are claimed
+     */
+    public boolean isExhausted() {
+        return !rangeProgress.hasWork(reservation, counterStart, counterEnd);
+    }
+
+    /**
+     * Releases the reservation, the shared progress and the checkpoint, the progress is written after the last release.
+     */
+    public void close() {
+        rangeProgress.removeReservation(reservation);
+        RangeProgressRegistry.release(range, gridNumBits);
+        if (rangeCheckpoint != null) {
+            rangeCheckpoint.release();
+        }
+    }
+
+    /**
+     * @return the number of grids of the whole range
+     */
+    public long getGrids() {
+        return grids;
+    }
+
+    /**
+     * @return the number of grids of the counter slice
+     */
+    public long getSliceGrids() {
+        return counterEnd - counterStart;
+    }
+
+    /**
+     * @return the completed grids of the counter slice, including previous runs and other ranges sharing the progress
+     */
+    public long getCompletedGrids() {
+        return rangeProgress.getCompleted(counterStart, counterEnd);
+    }
+
+    public String createStatisticsMessage() {
+        long completed = getCompletedGrids();
+        long completedInThisRun = completedGrids.get();
+        long sliceGrids = getSliceGrids();
+        long uptimeInSeconds = Math.max((System.currentTimeMillis() - startTime) / ONE_SECOND_IN_MILLISECONDS, 1);
+        double coverage = 100.0d * completed / sliceGrids;
+        double rangeCoverage = 100.0d * rangeProgress.getCompleted(0, grids) / grids;
+        double gridsPerSecond = (double) completedInThisRun / uptimeInSeconds;
+        String eta = completedInThisRun == 0 ? "unknown" : TimeUnit.SECONDS.toMinutes((long) ((double) (sliceGrids - completed) * uptimeInSeconds / completedInThisRun)) + " minutes";
+        return "Range: [Grids: " + completed + " of " + sliceGrids + "] [Grids in this run: " + completedInThisRun + "] [Keys: " + BigInteger.valueOf(completed).shiftLeft(gridNumBits) + " of " + BigInteger.valueOf(sliceGrids).shiftLeft(gridNumBits) + "] [Coverage: " + String.format(Locale.ROOT, "%.6f", coverage) + " %] [Range coverage: " + String.format(Locale.ROOT, "%.6f", rangeCoverage) + " %] [ETA: " + eta + "] [Grids/second: " + String.format(Locale.ROOT, "%.2f", gridsPerSecond) + "] [Keys/second: " + (long) (gridsPerSecond * (1L << gridNumBits)) + "] [Chunk: " + rangeProgress.getChunkSize(reservation) + " grids]";
+    }
+}
@@ -0,0 +1,119 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.security.DrbgParameters;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Random;
+import net.ladenthin.bitcoinaddressfinder.configuration.CProducer;
+import net.ladenthin.bitcoinaddressfinder.configuration.CSecretSource;
+
+/**
+ * Creates the {@link Random} of a producer for its
+ * {@link CProducer#secretSource}. A DRBG takes its entropy input from the
+ * seed source of the JDK, the strong source supplies only its
+ * personalization string. The producers draw their secrets from their own
+ * generator without blocking or contention.
+ * <p>
+ * The DRBG requires {@code java.security.DrbgParameters} of Java 9 or later.
+ * It is referenced by {@link JdkDrbg} only, which is not loaded on Java 8
+ * unless {@link CSecretSource#Drbg} is configured.
+ */
+public class SecretSourceFactory {
+
+    /**
+     * The security strength of the DRBG in bits.
+     */
+    static final int SECURITY_STRENGTH = 256;
+
+    static final String DRBG_ALGORITHM = "DRBG";
+
+    static final String DRBG_PARAMETERS_CLASS_NAME = "java.security.DrbgParameters";
+
+    private final SecureRandom strongRandom;
+
+    public SecretSourceFactory(SecureRandom strongRandom) {
+        this.strongRandom = strongRandom;
+    }
+
+    public Random createRandom(CProducer cProducer) {
+        switch (cProducer.secretSource) {
+            case SharedStrong:
+                return strongRandom;
+            case Drbg:
+                return createDrbg();
+            case Seeded:
+                return new Random(cProducer.secretSourceSeed);
+            default:
+                throw new IllegalArgumentException("Unknown secret source: " + cProducer.secretSource);
+        }
+    }
+
+    /**
+     * @return {@code true} if the runtime provides the DRBG API (Java 9 or later)
+     */
+    public static boolean isDrbgAvailable() {
+        try {
+            Class.forName(DRBG_PARAMETERS_CLASS_NAME);
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A Hash_DRBG with SHA-256 of the JDK. Its entropy input is read once on
+     * the instantiation from the seed source of the JDK. The personalization
+     * string is read from the strong source: two generators never share a
+     * state.
+     *
+     * @throws IllegalStateException if the runtime has no DRBG API (Java 8)
+     */
+    public SecureRandom createDrbg() {
+        if (!isDrbgAvailable()) {
+            throw new IllegalStateException("The secret source " + CSecretSource.Drbg + " requires Java 9 or later, use " + CSecretSource.SharedStrong + ".");
+        }
+        return JdkDrbg.create(nextBytes(SECURITY_STRENGTH / Byte.SIZE));
+    }
+
+    private byte[] nextBytes(int length) {
+        byte[] bytes = new byte[length];
+        strongRandom.nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * The only references to the DRBG API, loaded on the first
+     * {@link #createDrbg()}.
+     */
+    private static class JdkDrbg {
+
+        static SecureRandom create(byte[] personalizationString) {
+            try {
+                SecureRandom drbg = SecureRandom.getInstance(DRBG_ALGORITHM, DrbgParameters.instantiation(SECURITY_STRENGTH, DrbgParameters.Capability.NONE, personalizationString));
+                // instantiate the DRBG now, not on the first secret of the producer
+                drbg.nextInt();
+                return drbg;
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits a {@link PublicKeyBytesBatch} into slices which can be consumed by
+ * multiple threads in parallel. A thread claims a slice with
+ * {@link #claimSlice()} and reports it with {@link #finishSlice(int)}. The
+ * thread which finishes the last slice is responsible to free the batch.
+ */
+public class SlicedPublicKeyBytesBatch {
+
+    public static final int NO_SLICE = -1;
+
+    private final PublicKeyBytesBatch publicKeyBytesBatch;
+    private final int sliceSize;
+    private final AtomicInteger nextFromIndex = new AtomicInteger();
+    private final AtomicInteger unfinishedKeys;
+    private final AtomicBoolean failed = new AtomicBoolean();
+
+    /**
+     * @param sliceSize the maximum number of keys of a slice, {@code 0} for a single slice
+     */
+    public SlicedPublicKeyBytesBatch(PublicKeyBytesBatch publicKeyBytesBatch, int sliceSize) {
+        if (sliceSize < 0) {
+            throw new IllegalArgumentException("sliceSize must not be negative: " + sliceSize);
+        }
+        this.publicKeyBytesBatch = publicKeyBytesBatch;
+        this.sliceSize = sliceSize == 0 ? Math.max(1, publicKeyBytesBatch.size()) : sliceSize;
+        this.unfinishedKeys = new AtomicInteger(publicKeyBytesBatch.size());
+    }
+
+    public PublicKeyBytesBatch getPublicKeyBytesBatch() {
+        return publicKeyBytesBatch;
+    }
+
+    /**
+     * @return {@code true} if the batch has more than one slice
+     */
+    public boolean isSliced() {
+        return publicKeyBytesBatch.size() > sliceSize;
+    }
+
+    public boolean hasUnclaimedSlices() {
+        return nextFromIndex.get() < publicKeyBytesBatch.size();
+    }
+
+    /**
+     * @return the from index (inclusive) of the claimed slice or {@link #NO_SLICE} if all slices are claimed
+     */
+    public int claimSlice() {
+        final int size = publicKeyBytesBatch.size();
+        while (true) {
+            int fromIndex = nextFromIndex.get();
+            if (fromIndex >= size) {
+                return NO_SLICE;
+            }
+            if (nextFromIndex.compareAndSet(fromIndex, getSliceEnd(fromIndex))) {
+                return fromIndex;
+            }
+        }
+    }
+
+    /**
+     * @return the to index (exclusive) of the slice
+     */
+    public int getSliceEnd(int fromIndex) {
+        return (int) Math.min((long) fromIndex + sliceSize, publicKeyBytesBatch.size());
+    }
+
+    /**
+     * Reports a slice which could not be checked, must be called before {@link #finishSlice(int)}.
+     */
+    public void failSlice() {
+        failed.set(true);
+    }
+
+    /**
+     * @return {@code true} if a slice could not be checked, see {@link #failSlice()}
+     */
+    public boolean isFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return {@code true} if all slices are finished, the batch can be freed
+     */
+    public boolean finishSlice(int fromIndex) {
+        return unfinishedKeys.addAndGet(fromIndex - getSliceEnd(fromIndex)) == 0;
+    }
+}
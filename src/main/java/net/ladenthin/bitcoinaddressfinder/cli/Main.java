@@ -102,6 +102,21 @@ public class Main implements Runnable, Interruptable {
                 interruptables.add(addressFilesToLMDB);
                 addressFilesToLMDB.run();
                 break;
+            case CreateSortedHash160File:
+                CreateSortedHash160File createSortedHash160File = new CreateSortedHash160File(configuration.createSortedHash160File, shouldRun);
+                interruptables.add(createSortedHash160File);
+                createSortedHash160File.run();
+                break;
+            case BabyStepGiantStep:
+                BabyStepGiantStep babyStepGiantStep = new BabyStepGiantStep(configuration.babyStepGiantStep, shouldRun);
+                interruptables.add(babyStepGiantStep);
+                babyStepGiantStep.run();
+                break;
+            case Kangaroo:
+                Kangaroo kangaroo = new Kangaroo(configuration.kangaroo, shouldRun);
+                interruptables.add(kangaroo);
+                kangaroo.run();
+                break;
             case OpenCLInfo:
                 OpenCLBuilder openCLBuilder = new OpenCLBuilder();
                 List<OpenCLPlatform> openCLPlatforms = openCLBuilder.build();
@@ -0,0 +1,41 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder.configuration;
+
+public class CAddressFilter {
+
+    /**
+     * The number of hash160s the filter is sized for. {@code 0} means the
+     * entries of the database are counted on startup.
+     */
+    public long expectedInsertions = 0;
+
+    /**
+     * The desired false positive probability (e.g. {@code 0.000001}). A lower
+     * value needs more memory.
+     */
+    public double falsePositiveProbability = 0.000001;
+
+    /**
+     * Optional file of a prebuilt filter. If the file exists it is loaded
+     * instead of building the filter from the database. If the file does not
+     * exist the filter is built and written to this file afterwards.
+     */
+    public String filterFile;
+}
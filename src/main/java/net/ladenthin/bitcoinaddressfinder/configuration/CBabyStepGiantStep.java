@@ -0,0 +1,70 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.ladenthin.bitcoinaddressfinder.PublicKeyBytes;
+
+public class CBabyStepGiantStep {
+
+    /**
+     * The public keys to search the secrets for, hex encoded (compressed or uncompressed).
+     */
+    public List<String> publicKeys = new ArrayList<>();
+
+    /**
+     * The first secret of the range (inclusive), hex encoded. If {@code null}
+     * the range starts at {@code 1}.
+     */
+    public String rangeStart;
+
+    /**
+     * The last secret of the range (exclusive), hex encoded. If {@code null}
+     * the range ends at 2<sup>{@link #privateKeyMaxNumBits}</sup>, see
+     * {@link CProducer#privateKeyMaxNumBits}.
+     */
+    public String rangeEnd;
+
+    /**
+     * Used if {@link #rangeEnd} is {@code null}.
+     */
+    public int privateKeyMaxNumBits = PublicKeyBytes.PRIVATE_KEY_MAX_NUM_BITS;
+
+    /**
+     * The memory of the baby step table (off-heap). The table is filled to
+     * one half: the number of baby steps is half the number of entries (one
+     * long each). A giant step covers twice the number of baby steps.
+     */
+    public long babyStepTableMemoryInMiB = 512;
+
+    /**
+     * The number of threads calculating the baby steps and the giant steps.
+     */
+    public int threads = 4;
+
+    /**
+     * The file to store the progress in and to resume from. If {@code null} no progress is stored.
+     */
+    public String checkpointFile;
+
+    public int checkpointEveryNSeconds = 60;
+
+    public int printStatisticsEveryNSeconds = 60;
+}
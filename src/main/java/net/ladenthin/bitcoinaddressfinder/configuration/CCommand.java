@@ -18,5 +18,5 @@
 package net.ladenthin.bitcoinaddressfinder.configuration;
 
 public enum CCommand {
-    Find, LMDBToAddressFile, AddressFilesToLMDB, OpenCLInfo, Benchmark, BenchmarkSeries
+    Find, LMDBToAddressFile, AddressFilesToLMDB, CreateSortedHash160File, OpenCLInfo, Benchmark, BenchmarkSeries, BabyStepGiantStep, Kangaroo
 }
\ No newline at end of file
@@ -22,7 +22,10 @@ public class CConfiguration {
 
     public CLMDBToAddressFile lmdbToAddressFile;
     public CAddressFilesToLMDB addressFilesToLMDB;
+    public CCreateSortedHash160File createSortedHash160File;
     public CFinder finder;
     public CBenchmark benchmark;
     public CBenchmarkSeries benchmarkSeries;
+    public CBabyStepGiantStep babyStepGiantStep;
+    public CKangaroo kangaroo;
 }
@@ -20,13 +20,59 @@ package net.ladenthin.bitcoinaddressfinder.configuration;
 
 public class CConsumerJava {
     public CLMDBConfigurationReadOnly lmdbConfigurationReadOnly;
+
+    /**
+     * Use a sorted hash160 file instead of the LMDB database. {@code null} to use the LMDB database.
+     */
+    public CSortedHash160FileConfigurationReadOnly sortedHash160FileConfigurationReadOnly;
+
     public int printStatisticsEveryNSeconds = 60;
     public int threads = 4;
     /**
-     * in ms.
+     * in ms. The maximum time a thread waits with {@link CWaitStrategy#Blocking} before it checks for a shutdown.
      */
     public long delayEmptyConsumer = 100;
+    /**
+     * The capacity of the keys queue, rounded up to the next power of two.
+     */
     public int queueSize = 10;
+
+    /**
+     * The maximum number of keys a consumer thread takes at once. A larger
+     * batch (e.g. of a big OpenCL grid) is split into slices and idle
+     * consumer threads help to consume it. {@code 0} disables the splitting.
+     */
+    public int sliceSize = 1 << 14;
+
+    /**
+     * How consumers wait on an empty and producers wait on a full keys queue.
+     */
+    public CWaitStrategy waitStrategy = CWaitStrategy.Blocking;
+
+    /**
+     * in µs. The park time of {@link CWaitStrategy#Park}.
+     */
+    public long parkTimeInMicroseconds = 100;
+
+    /**
+     * Hash the keys with the Vector API (8 or 16 keys at once, depending on
+     * the SIMD width). Requires JDK 17 or newer and the JVM option
+     * {@code --add-modules jdk.incubator.vector}, falls back to the scalar
+     * engine otherwise.
+     */
+    public boolean useVectorApiHash160 = false;
+
+    /**
+     * Derive the public keys of {@code lambda * k}, {@code lambda^2 * k} and
+     * the negation of all three from every key of a batch before checking it,
+     * independent of the producer. Batches which contain these keys already
+     * (see {@link CProducerJava#endomorphismKeys}) are checked as they are,
+     * the same for batches without public keys (see
+     * {@link net.ladenthin.bitcoinaddressfinder.OpenCLContext#GEN_HASH160_MODE})
+     * and the candidates of a filter on the device (see
+     * {@link net.ladenthin.bitcoinaddressfinder.OpenCLContext#GEN_HASH160_FILTERED_MODE}).
+     */
+    public boolean endomorphismKeys = false;
     
     /**
      * Test during runtime if the key calculation is correct. Decreases massive the performance. Usefull if an OpenCL producer is used.
@@ -36,4 +82,13 @@ public class CConsumerJava {
     public boolean enableVanity = false;
     
     public String vanityPattern;
+
+    /**
+     * Optional in-memory membership filter in front of the database. Only
+     * filter positives are checked against the database. {@code null} disables
+     * the filter. Required by
+     * {@link net.ladenthin.bitcoinaddressfinder.OpenCLContext#GEN_HASH160_FILTERED_MODE},
+     * the filter is uploaded to the device.
+     */
+    public CAddressFilter addressFilter;
 }
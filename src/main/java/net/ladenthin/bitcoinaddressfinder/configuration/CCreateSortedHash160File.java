@@ -0,0 +1,46 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CCreateSortedHash160File {
+
+    /**
+     * The LMDB database to read the addresses from. If {@code null} the {@link #addressesFiles} are read.
+     */
+    public CLMDBConfigurationReadOnly lmdbConfigurationReadOnly;
+
+    /**
+     * The list of addresses files which should be read if no LMDB is configured.
+     * Attention: All addresses are sorted in memory.
+     */
+    public List<String> addressesFiles = new ArrayList<>();
+
+    /**
+     * The file to write.
+     */
+    public String sortedHash160File;
+
+    /**
+     * The number of leading bits of a hash160 used for the prefix index. The index contains 2^prefixBits buckets.
+     */
+    public int prefixBits = 16;
+}
@@ -0,0 +1,91 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.ladenthin.bitcoinaddressfinder.PublicKeyBytes;
+
+public class CKangaroo {
+
+    /**
+     * The public keys to search the secrets for, hex encoded (compressed or
+     * uncompressed). Searched one after another, the tame distinguished
+     * points are shared.
+     */
+    public List<String> publicKeys = new ArrayList<>();
+
+    /**
+     * The first secret of the range (inclusive), hex encoded. If {@code null}
+     * the range starts at {@code 1}.
+     */
+    public String rangeStart;
+
+    /**
+     * The last secret of the range (exclusive), hex encoded. If {@code null}
+     * the range ends at 2<sup>{@link #privateKeyMaxNumBits}</sup>, see
+     * {@link CProducer#privateKeyMaxNumBits}.
+     */
+    public String rangeEnd;
+
+    /**
+     * Used if {@link #rangeEnd} is {@code null}.
+     */
+    public int privateKeyMaxNumBits = PublicKeyBytes.PRIVATE_KEY_MAX_NUM_BITS;
+
+    /**
+     * The number of threads, each runs a herd of tame and wild kangaroos.
+     */
+    public int threads = 4;
+
+    /**
+     * The number of kangaroos of a thread, half of them tame. They jump
+     * together and are normalized with one field inversion.
+     */
+    public int kangaroosPerThread = 1024;
+
+    /**
+     * The number of jump sizes (the powers of two {@code 2^0} to
+     * {@code 2^(jumps - 1)}). {@code 0} to derive it from the range and the
+     * number of kangaroos. Stores of distinguished points can be merged only
+     * with the same jumps.
+     */
+    public int jumps = 0;
+
+    /**
+     * A point is distinguished if the upper {@code distinguishedPointBits} of
+     * its x coordinate are zero. {@code -1} to derive it from the range and
+     * the number of kangaroos.
+     */
+    public int distinguishedPointBits = -1;
+
+    /**
+     * The file to store the distinguished points in and to resume from. If {@code null} the points are kept in memory only.
+     */
+    public String distinguishedPointFile;
+
+    /**
+     * Distinguished point files of other runs of the same search (e.g. other machines) to merge on start.
+     */
+    public List<String> mergeDistinguishedPointFiles = new ArrayList<>();
+
+    public int saveDistinguishedPointsEveryNSeconds = 60;
+
+    public int printStatisticsEveryNSeconds = 60;
+}
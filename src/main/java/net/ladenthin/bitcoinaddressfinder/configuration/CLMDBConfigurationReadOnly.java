@@ -38,4 +38,17 @@ public class CLMDBConfigurationReadOnly {
      * Log the lmdb stats on close.
      */
     public boolean logStatsOnClose = false;
+
+    /**
+     * Keep one long-lived read transaction per thread and recycle it with
+     * reset/renew instead of opening a new transaction for every lookup. The
+     * environment is opened with {@code MDB_NOTLS}.
+     */
+    public boolean reuseReadTransactionPerThread = false;
+
+    /**
+     * in ms. A reused read transaction is renewed after this interval that a
+     * reader does not pin old pages for long. {@code 0} renews on every lookup.
+     */
+    public long renewReadTransactionIntervalInMilliseconds = 1000;
 }
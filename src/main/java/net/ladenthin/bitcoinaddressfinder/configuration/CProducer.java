@@ -22,6 +22,7 @@ import java.math.BigInteger;
 
 import net.ladenthin.bitcoinaddressfinder.OpenCLContext;
 import net.ladenthin.bitcoinaddressfinder.PublicKeyBytes;
+import net.ladenthin.bitcoinaddressfinder.PublicKeyBytesBatch;
 
 
 public class CProducer {
@@ -35,6 +36,13 @@ public class CProducer {
      * {@link OpenCLContext#GEN_ADDRESSES_MODE}<br>
      * For the generation of Addresses from given PrivateKeys
      * <br><br>
+     * {@link OpenCLContext#GEN_HASH160_MODE}<br>
+     * For the search of addresses: the hash160s of the uncompressed and compressed PublicKeys only
+     * <br><br>
+     * {@link OpenCLContext#GEN_HASH160_FILTERED_MODE}<br>
+     * For the search of addresses: the hash160s are tested on the device against the address filter of the
+     * consumer, only the candidates are read and verified by the consumer
+     * <br><br>
      */
     public int kernelMode = OpenCLContext.GEN_XY_COORDINATES_ONLY_MODE;
     /**
@@ -59,8 +67,87 @@ public class CProducer {
      */
     public int privateKeyMaxNumBits = PublicKeyBytes.PRIVATE_KEY_MAX_NUM_BITS;
     
+    /**
+     * The source of the random secret bases. {@link CSecretSource#Drbg}
+     * avoids the contention of the shared source but requires Java 9 or later.
+     */
+    public CSecretSource secretSource = CSecretSource.SharedStrong;
+
+    /**
+     * The seed of {@link CSecretSource#Seeded}.
+     */
+    public long secretSourceSeed = 0L;
+
+    /**
+     * The first secret (inclusive) of a range to scan sequentially, hex
+     * encoded. The grids are walked in ascending order, each exactly once, and
+     * the producer stops at the end of the range. If {@code null} the secret
+     * bases are random.
+     */
+    public String rangeStart;
+
+    /**
+     * The last secret (exclusive) of the range to scan sequentially, hex
+     * encoded. If {@code null} the range ends at
+     * 2<sup>{@link #privateKeyMaxNumBits}</sup>. Used only with {@link #rangeStart}.
+     */
+    public String rangeEnd;
+
+    /**
+     * Walk the grids of the range in a random order without repeats: the
+     * counter of the grids is mapped through a permutation derived from this
+     * key. Processes with the same key and disjoint counter slices never scan
+     * the same grid. If {@code null} the grids are walked in ascending order.
+     * Used only with {@link #rangeStart}.
+     */
+    public String rangePermutationKey;
+
+    /**
+     * The first counter (inclusive) of the grids to scan. The range has
+     * {@code ceil((rangeEnd - rangeStart) / 2^gridNumBits)} counters. Used
+     * only with {@link #rangeStart}.
+     */
+    public long rangeCounterStart = 0;
+
+    /**
+     * The last counter (exclusive) of the grids to scan. {@code -1} for the
+     * end of the range. Used only with {@link #rangeStart}.
+     */
+    public long rangeCounterEnd = -1;
+
+    /**
+     * A file to store the completed grids of the range in. Completed grids
+     * are skipped after a restart. The producers of a process with the same
+     * range, permutation key and {@link #gridNumBits} share the progress and
+     * never scan the same grid, with or without a file. Producers with the
+     * same file and range must use the same {@link #gridNumBits}, a grid is
+     * the unit of the progress: a producer with another {@link #gridNumBits}
+     * is rejected, in the same process and after a restart. If {@code null}
+     * the progress is kept in memory only. Used only with {@link #rangeStart}.
+     */
+    public String rangeCheckpointFile;
+
+    /**
+     * The interval to write the {@link #rangeCheckpointFile}.
+     */
+    public int saveRangeCheckpointEveryNSeconds = 60;
+
+    /**
+     * Producers reserve the grids of the range in chunks which take about
+     * this time at their measured throughput: a fast device reserves larger
+     * chunks than a slow one. Near the end of the range the chunks shrink and
+     * idle producers steal from the others. Used only with {@link #rangeStart}.
+     */
+    public int rangeChunkDurationInSeconds = 30;
+
+    /**
+     * The interval to log the coverage and ETA of the range.
+     */
+    public int printRangeStatisticsEveryNSeconds = 60;
+
     /**
      * Range: {@code 1} (inclusive) to {@link #MAX_GRID_NUM_BITS} (inclusive).
+     * Must be the same for all producers sharing a {@link #rangeCheckpointFile}.
      */
     public int gridNumBits = 8;
     
@@ -112,6 +199,10 @@ public class CProducer {
             throw new IllegalArgumentException("gridNumBits must be lower or equal than " + MAX_GRID_NUM_BITS + ".");
         }
         
+        if (getWorkSize() > PublicKeyBytesBatch.MAX_CAPACITY) {
+            throw new IllegalArgumentException("The work size must be lower or equal than the batch capacity " + PublicKeyBytesBatch.MAX_CAPACITY + ".");
+        }
+        
     }
     
 }
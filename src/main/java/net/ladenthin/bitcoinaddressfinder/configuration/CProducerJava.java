@@ -18,5 +18,35 @@
 // @formatter:on
 package net.ladenthin.bitcoinaddressfinder.configuration;
 
+import net.ladenthin.bitcoinaddressfinder.PublicKeyBytesBatch;
+import net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Endomorphism;
+
 public class CProducerJava extends CProducer {
+
+    /**
+     * The secrets of a grid are consecutive. Calculate only the public key of
+     * the first secret by a scalar multiplication and every following public
+     * key by adding the generator point to the previous one. Much faster than
+     * a scalar multiplication per key. {@code false} to multiply every key
+     * (the previous behaviour).
+     */
+    public boolean incrementalPointAddition = false;
+
+    /**
+     * Add the public keys of {@code lambda * k}, {@code lambda^2 * k} and the
+     * negation of all three for every calculated key: six keys per scalar
+     * multiplication or point addition, each derived key costs one field
+     * multiplication. The batches are six times larger, the secret of a
+     * derived key is calculated on a hit only. Requires a {@link #gridNumBits}
+     * of a batch with at most {@link PublicKeyBytesBatch#MAX_CAPACITY} keys.
+     */
+    public boolean endomorphismKeys = false;
+
+    @Override
+    public void assertGridNumBitsCorrect() {
+        super.assertGridNumBitsCorrect();
+        if (endomorphismKeys && getWorkSize() > PublicKeyBytesBatch.MAX_CAPACITY / Secp256k1Endomorphism.VARIANTS) {
+            throw new IllegalArgumentException("gridNumBits is too high for endomorphismKeys, the work size must be lower or equal than " + PublicKeyBytesBatch.MAX_CAPACITY / Secp256k1Endomorphism.VARIANTS + ".");
+        }
+    }
 }
@@ -18,6 +18,7 @@
 // @formatter:on
 package net.ladenthin.bitcoinaddressfinder.configuration;
 
+import net.ladenthin.bitcoinaddressfinder.OpenCLContext;
 import static org.jocl.CL.CL_DEVICE_TYPE_ALL;
 
 public class CProducerOpenCL extends CProducer {
@@ -32,4 +33,35 @@ public class CProducerOpenCL extends CProducer {
      * in ms.
      */
     public int delayBlockedReader = 100;
+    
+    /**
+     * The maximum number of pooled result buffers, reused for each kernel launch.
+     * About {@link #maxResultReaderThreads} + 2: one for the running kernel and one for a blocked reader.
+     * If all are in use, an unpooled buffer is allocated for the launch.
+     */
+    public int resultBufferPoolSize = 6;
+    
+    /**
+     * The maximum number of asynchronous kernel launches in flight, including the reading of their results.
+     * Upload, kernel and readback run on their own command queues: the upload of the next launch and the
+     * readback of the previous one overlap the kernel, and the results are handed to the result reader threads
+     * by completion callbacks. Every pooled result buffer has its own device memory for the private keys.
+     * {@code 0} runs each launch synchronously.
+     * About {@link #maxResultReaderThreads} + 2, not more than {@link #resultBufferPoolSize}.
+     * Not supported by {@link OpenCLContext#GEN_HASH160_FILTERED_MODE}, its readback depends on the number of candidates.
+     */
+    public int pipelineDepth = 0;
+    
+    /**
+     * A directory to cache the built OpenCL programs in. A cached program is loaded instead of built from the
+     * sources if the sources, the device, the driver and the build options are unchanged. If {@code null} the
+     * program is built on each start.
+     */
+    public String programBinaryCacheDirectory;
+    
+    /**
+     * Allocate the result buffers in host accessible memory ({@code CL_MEM_ALLOC_HOST_PTR}) and map them
+     * instead of copying them. Avoids a copy on integrated GPUs and CPUs.
+     */
+    public boolean mapResultBuffers = false;
 }
@@ -0,0 +1,42 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder.configuration;
+
+/**
+ * The source of the random secrets of a producer.
+ */
+public enum CSecretSource {
+    /**
+     * One {@link java.security.SecureRandom#getInstanceStrong()} shared by all
+     * producers. May block on entropy and is contended by the producers.
+     */
+    SharedStrong,
+    /**
+     * A Hash_DRBG (NIST SP 800-90A, SHA-256) per producer, seeded once from
+     * the seed source of the JDK and personalized from the strong source.
+     * Never blocks after the seeding. Requires Java 9 or later.
+     */
+    Drbg,
+    /**
+     * A {@link java.util.Random} per producer with the
+     * {@link CProducer#secretSourceSeed}: the same secrets in every run, for
+     * reproducible benchmarks and tests. Not secure.
+     */
+    Seeded
+}
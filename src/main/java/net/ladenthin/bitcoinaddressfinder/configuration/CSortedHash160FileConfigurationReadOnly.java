@@ -0,0 +1,41 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder.configuration;
+
+public class CSortedHash160FileConfigurationReadOnly {
+    /**
+     * The sorted hash160 file (see {@link CCommand#CreateSortedHash160File}).
+     */
+    public String sortedHash160File;
+
+    /**
+     * Load the mapped file into the page cache on init. This enforces a read of the whole file.
+     */
+    public boolean loadOnInit = false;
+
+    /**
+     * Log the stats on init.
+     */
+    public boolean logStatsOnInit = false;
+
+    /**
+     * Log the stats on close.
+     */
+    public boolean logStatsOnClose = false;
+}
@@ -0,0 +1,41 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder.configuration;
+
+/**
+ * How a thread waits on the keys queue if it is empty (consumer) or full (producer).
+ */
+public enum CWaitStrategy {
+    /**
+     * Spin on the CPU. Lowest latency, occupies a core per waiting thread.
+     */
+    BusySpin,
+    /**
+     * Spin but yield the CPU to other threads.
+     */
+    Yield,
+    /**
+     * Park the thread for {@link CConsumerJava#parkTimeInMicroseconds}.
+     */
+    Park,
+    /**
+     * Block until the queue changes. The thread is woken immediately, no CPU is used while waiting.
+     */
+    Blocking
+}
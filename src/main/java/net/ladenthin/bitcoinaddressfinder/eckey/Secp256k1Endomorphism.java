@@ -0,0 +1,133 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder.eckey;
+
+import java.math.BigInteger;
+
+/**
+ * The endomorphism and the negation symmetry of secp256k1. For a point
+ * {@code P = (x, y) = k * G} the points
+ * <ul>
+ * <li>{@code lambda * P = (beta * x, y)}</li>
+ * <li>{@code lambda^2 * P = (beta^2 * x, y)}</li>
+ * <li>{@code -P = (x, -y)} and the negation of the two above</li>
+ * </ul>
+ * cost one field multiplication (or negation) each instead of a scalar
+ * multiplication. Every point of this set is identified by its variant,
+ * {@link #IDENTITY} is {@code P} itself. The secret of a variant is
+ * calculated on demand only, see {@link #secretKey(BigInteger, int)}.
+ * <p>
+ * An instance holds temporaries and is not thread safe, use {@link #get()} to
+ * get the instance of the current thread.
+ */
+public class Secp256k1Endomorphism {
+
+    /**
+     * The number of variants of a point, including the point itself.
+     */
+    public static final int VARIANTS = 6;
+
+    public static final int IDENTITY = 0;
+
+    /**
+     * The variants {@code 0..2} multiply by {@code lambda^variant}, the variants {@code 3..5} additionally negate.
+     */
+    private static final int LAMBDA_POWERS = 3;
+
+    /**
+     * A cube root of unity modulo p.
+     */
+    public static final BigInteger BETA = new BigInteger("7AE96A2B657C07106E64479EAC3434E99CF0497512F58995C1396C28719501EE", 16);
+
+    /**
+     * The cube root of unity modulo n belonging to {@link #BETA}.
+     */
+    public static final BigInteger LAMBDA = new BigInteger("5363AD4CC05C30E0A5261C028812645A122E22EA20816678DF02967C1B23BD72", 16);
+
+    private static final BigInteger[] LAMBDA_POWER = {
+        BigInteger.ONE,
+        LAMBDA,
+        LAMBDA.multiply(LAMBDA).mod(Secp256k1Engine.N)
+    };
+
+    private static final long[][] BETA_POWER = new long[LAMBDA_POWERS][];
+
+    static {
+        for (int i = 0; i < LAMBDA_POWERS; i++) {
+            BETA_POWER[i] = Secp256k1Field.create();
+        }
+        Secp256k1Field.setOne(BETA_POWER[0]);
+        Secp256k1Field.fromBigInteger(BETA_POWER[1], BETA);
+        Secp256k1Field.mul(BETA_POWER[2], BETA_POWER[1], BETA_POWER[1]);
+    }
+
+    private static final ThreadLocal<Secp256k1Endomorphism> THREAD_LOCAL = ThreadLocal.withInitial(Secp256k1Endomorphism::new);
+
+    private final long[] x = Secp256k1Field.create();
+    private final long[] y = Secp256k1Field.create();
+
+    /**
+     * @return the instance of the current thread
+     */
+    public static Secp256k1Endomorphism get() {
+        return THREAD_LOCAL.get();
+    }
+
+    /**
+     * @param secret the secret of the point of the variant {@link #IDENTITY}
+     * @param variant in {@code [0, VARIANTS)}
+     * @return the secret of the variant
+     */
+    public static BigInteger secretKey(BigInteger secret, int variant) {
+        checkVariant(variant);
+        BigInteger variantSecret = secret.multiply(LAMBDA_POWER[variant % LAMBDA_POWERS]).mod(Secp256k1Engine.N);
+        if (variant >= LAMBDA_POWERS && variantSecret.signum() != 0) {
+            variantSecret = Secp256k1Engine.N.subtract(variantSecret);
+        }
+        return variantSecret;
+    }
+
+    /**
+     * Encodes a variant of an uncompressed public key.
+     *
+     * @param src the uncompressed public key ({@code 04 | x | y}) of the variant {@link #IDENTITY}
+     * @param srcOffset the offset of the public key in {@code src}
+     * @param variant in {@code [0, VARIANTS)}
+     * @param dst the destination of the uncompressed public key of the variant, may be {@code src}
+     * @param dstOffset the offset in {@code dst}
+     */
+    public void publicKey(byte[] src, int srcOffset, int variant, byte[] dst, int dstOffset) {
+        checkVariant(variant);
+        Secp256k1Field.fromBytes(x, src, srcOffset + 1);
+        Secp256k1Field.fromBytes(y, src, srcOffset + 1 + Secp256k1Field.BYTES);
+        Secp256k1Field.mul(x, x, BETA_POWER[variant % LAMBDA_POWERS]);
+        if (variant >= LAMBDA_POWERS) {
+            Secp256k1Field.negate(y, y);
+        }
+        dst[dstOffset] = src[srcOffset];
+        Secp256k1Field.toBytes(x, dst, dstOffset + 1);
+        Secp256k1Field.toBytes(y, dst, dstOffset + 1 + Secp256k1Field.BYTES);
+    }
+
+    private static void checkVariant(int variant) {
+        if (variant < 0 || variant >= VARIANTS) {
+            throw new IllegalArgumentException("variant must be between 0 and " + (VARIANTS - 1) + ": " + variant);
+        }
+    }
+}
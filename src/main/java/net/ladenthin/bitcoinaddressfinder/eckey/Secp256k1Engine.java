@@ -0,0 +1,359 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder.eckey;
+
+import java.math.BigInteger;
+
+import static net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Field.mul;
+import static net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Field.mulSmall;
+import static net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Field.sqr;
+import static net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Field.sub;
+
+/**
+ * The group operations of secp256k1 on {@link Secp256k1Point} without
+ * allocation (Jacobian coordinates, {@code a = 0}). The generator point is
+ * multiplied with a fixed-base table: for every byte of the scalar the
+ * multiples {@code j * 256^i * G} ({@code j} in 1..255) are precalculated in
+ * affine coordinates, a multiplication is one mixed addition per non zero
+ * byte without any doubling.
+ * <p>
+ * An instance holds temporaries and is not thread safe, use {@link #get()} to
+ * get the instance of the current thread.
+ */
+public class Secp256k1Engine {
+
+    public static final BigInteger N = new BigInteger("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEBAAEDCE6AF48A03BBFD25E8CD0364141", 16);
+    public static final BigInteger GX = new BigInteger("79BE667EF9DCBBAC55A06295CE870B07029BFCDB2DCE28D959F2815B16F81798", 16);
+    public static final BigInteger GY = new BigInteger("483ADA7726A3C4655DA4FBFC0E1108A8FD17B448A68554199C47D08FFB10D4B8", 16);
+
+    private static final int WINDOW_BITS = Byte.SIZE;
+    private static final int WINDOWS = Secp256k1Field.BYTES;
+    private static final int WINDOW_SIZE = (1 << WINDOW_BITS) - 1;
+
+    private static final ThreadLocal<Secp256k1Engine> THREAD_LOCAL = ThreadLocal.withInitial(Secp256k1Engine::new);
+
+    private final long[] t1 = Secp256k1Field.create();
+    private final long[] t2 = Secp256k1Field.create();
+    private final long[] t3 = Secp256k1Field.create();
+    private final long[] t4 = Secp256k1Field.create();
+    private final long[] t5 = Secp256k1Field.create();
+    private final long[] t6 = Secp256k1Field.create();
+    private final long[] t7 = Secp256k1Field.create();
+    private final byte[] scalar = new byte[Secp256k1Field.BYTES];
+
+    /**
+     * The running products of {@link #normalize(Secp256k1Point[], int)}, grows on demand.
+     */
+    private long[][] products = new long[0][];
+
+    /**
+     * @return the instance of the current thread
+     */
+    public static Secp256k1Engine get() {
+        return THREAD_LOCAL.get();
+    }
+
+    /**
+     * Initialization-on-demand holder of the generator and its table.
+     */
+    private static class GeneratorTable {
+        private static final long[] GX = Secp256k1Field.create();
+        private static final long[] GY = Secp256k1Field.create();
+        /**
+         * {@code [window][j - 1]} is {@code j * 256^window * G}.
+         */
+        private static final long[][][] X = new long[WINDOWS][WINDOW_SIZE][];
+        private static final long[][][] Y = new long[WINDOWS][WINDOW_SIZE][];
+
+        static {
+            Secp256k1Field.fromBigInteger(GX, Secp256k1Engine.GX);
+            Secp256k1Field.fromBigInteger(GY, Secp256k1Engine.GY);
+            Secp256k1Engine engine = new Secp256k1Engine();
+            Secp256k1Point[] points = new Secp256k1Point[WINDOWS * WINDOW_SIZE];
+            Secp256k1Point base = new Secp256k1Point();
+            base.setAffine(GX, GY);
+            int index = 0;
+            for (int window = 0; window < WINDOWS; window++) {
+                Secp256k1Point multiple = new Secp256k1Point();
+                multiple.set(base);
+                for (int j = 0; j < WINDOW_SIZE; j++) {
+                    points[index] = new Secp256k1Point();
+                    points[index].set(multiple);
+                    index++;
+                    engine.add(multiple, multiple, base);
+                }
+                // multiple is 256 * base now
+                base.set(multiple);
+            }
+            engine.normalize(points, points.length);
+            index = 0;
+            for (int window = 0; window < WINDOWS; window++) {
+                for (int j = 0; j < WINDOW_SIZE; j++) {
+                    X[window][j] = points[index].x;
+                    Y[window][j] = points[index].y;
+                    index++;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the affine x coordinate of G, do not modify
+     */
+    public static long[] getGx() {
+        return GeneratorTable.GX;
+    }
+
+    /**
+     * @return the affine y coordinate of G, do not modify
+     */
+    public static long[] getGy() {
+        return GeneratorTable.GY;
+    }
+
+    /**
+     * {@code r = k * G}
+     *
+     * @param k a non negative scalar, reduced modulo n
+     */
+    public void multiplyG(Secp256k1Point r, BigInteger k) {
+        if (k.signum() < 0) {
+            throw new IllegalArgumentException("Negative scalar: " + k);
+        }
+        if (k.compareTo(N) >= 0) {
+            k = k.mod(N);
+        }
+        byte[] bytes = k.toByteArray();
+        int length = Math.min(bytes.length, scalar.length);
+        java.util.Arrays.fill(scalar, (byte) 0);
+        // big endian, the magnitude might have a leading sign byte
+        System.arraycopy(bytes, bytes.length - length, scalar, scalar.length - length, length);
+
+        r.setInfinity();
+        for (int window = 0; window < WINDOWS; window++) {
+            int j = scalar[scalar.length - 1 - window] & 0xFF;
+            if (j != 0) {
+                addAffine(r, r, GeneratorTable.X[window][j - 1], GeneratorTable.Y[window][j - 1]);
+            }
+        }
+    }
+
+    /**
+     * {@code r = 2 * p}, "dbl-2009-l". {@code r} may be {@code p}.
+     */
+    public void doublePoint(Secp256k1Point r, Secp256k1Point p) {
+        if (p.isInfinity() || Secp256k1Field.isZero(p.y)) {
+            r.setInfinity();
+            return;
+        }
+        final long[] a = t1, b = t2, c = t3, d = t4, e = t5, f = t6;
+        sqr(a, p.x);
+        sqr(b, p.y);
+        sqr(c, b);
+        // d = 2 * ((x + b)^2 - a - c)
+        Secp256k1Field.add(d, p.x, b);
+        sqr(d, d);
+        sub(d, d, a);
+        sub(d, d, c);
+        Secp256k1Field.add(d, d, d);
+        // e = 3 * a
+        mulSmall(e, a, 3);
+        sqr(f, e);
+        // z3 = 2 * y * z, before y is overwritten
+        mul(r.z, p.y, p.z);
+        Secp256k1Field.add(r.z, r.z, r.z);
+        // x3 = f - 2 * d
+        sub(r.x, f, d);
+        sub(r.x, r.x, d);
+        // y3 = e * (d - x3) - 8 * c
+        sub(d, d, r.x);
+        mul(d, e, d);
+        mulSmall(c, c, 8);
+        sub(r.y, d, c);
+        r.setFinite();
+    }
+
+    /**
+     * {@code r = p + (qx, qy)}, the mixed addition of an affine point. {@code r} may be {@code p}.
+     */
+    public void addAffine(Secp256k1Point r, Secp256k1Point p, long[] qx, long[] qy) {
+        if (p.isInfinity()) {
+            r.setAffine(qx, qy);
+            return;
+        }
+        final long[] z1z1 = t1, u2 = t2, s2 = t3, h = t4, rr = t5, hh = t6, v = t7;
+        sqr(z1z1, p.z);
+        mul(u2, qx, z1z1);
+        mul(s2, qy, p.z);
+        mul(s2, s2, z1z1);
+        sub(h, u2, p.x);
+        sub(rr, s2, p.y);
+        if (Secp256k1Field.isZero(h)) {
+            if (Secp256k1Field.isZero(rr)) {
+                doublePoint(r, p);
+            } else {
+                r.setInfinity();
+            }
+            return;
+        }
+        sqr(hh, h);
+        // hhh in u2, v = x1 * hh
+        mul(u2, h, hh);
+        mul(v, p.x, hh);
+        // z3 = z1 * h
+        mul(r.z, p.z, h);
+        // y1 * hhh in s2, before y1 is overwritten
+        mul(s2, p.y, u2);
+        // x3 = rr^2 - hhh - 2 * v
+        sqr(hh, rr);
+        sub(hh, hh, u2);
+        sub(hh, hh, v);
+        sub(r.x, hh, v);
+        // y3 = rr * (v - x3) - y1 * hhh
+        sub(v, v, r.x);
+        mul(v, rr, v);
+        sub(r.y, v, s2);
+        r.setFinite();
+    }
+
+    /**
+     * {@code r = p + q}, both in Jacobian coordinates. {@code r} may be {@code p} or {@code q}.
+     */
+    public void add(Secp256k1Point r, Secp256k1Point p, Secp256k1Point q) {
+        if (p.isInfinity()) {
+            r.set(q);
+            return;
+        }
+        if (q.isInfinity()) {
+            r.set(p);
+            return;
+        }
+        final long[] u1 = t1, u2 = t2, s1 = t3, s2 = t4, h = t5, rr = t6, tmp = t7;
+        // u1 = x1 * z2^2, s1 = y1 * z2^3
+        sqr(tmp, q.z);
+        mul(u1, p.x, tmp);
+        mul(s1, p.y, tmp);
+        mul(s1, s1, q.z);
+        // u2 = x2 * z1^2, s2 = y2 * z1^3
+        sqr(tmp, p.z);
+        mul(u2, q.x, tmp);
+        mul(s2, q.y, tmp);
+        mul(s2, s2, p.z);
+        sub(h, u2, u1);
+        sub(rr, s2, s1);
+        if (Secp256k1Field.isZero(h)) {
+            if (Secp256k1Field.isZero(rr)) {
+                doublePoint(r, p);
+            } else {
+                r.setInfinity();
+            }
+            return;
+        }
+        // z3 = z1 * z2 * h
+        mul(tmp, p.z, q.z);
+        mul(r.z, tmp, h);
+        // u2 = h^2, tmp = h^3, u1 = u1 * h^2
+        sqr(u2, h);
+        mul(tmp, u2, h);
+        mul(u1, u1, u2);
+        // x3 = rr^2 - h^3 - 2 * u1 * h^2
+        sqr(u2, rr);
+        sub(u2, u2, tmp);
+        sub(u2, u2, u1);
+        sub(r.x, u2, u1);
+        // y3 = rr * (u1 * h^2 - x3) - s1 * h^3
+        sub(u1, u1, r.x);
+        mul(u1, rr, u1);
+        mul(s1, s1, tmp);
+        sub(r.y, u1, s1);
+        r.setFinite();
+    }
+
+    /**
+     * Converts the points to affine coordinates with Montgomery's simultaneous
+     * inversion: one field inversion and about 3N multiplications for all
+     * points. The point at infinity is skipped.
+     */
+    public void normalize(Secp256k1Point[] points, int length) {
+        if (products.length < length) {
+            long[][] grown = new long[length][];
+            System.arraycopy(products, 0, grown, 0, products.length);
+            for (int i = products.length; i < length; i++) {
+                grown[i] = Secp256k1Field.create();
+            }
+            products = grown;
+        }
+        // products[i] = z0 * z1 * ... * zi (of the finite points)
+        final long[] acc = t1;
+        Secp256k1Field.setOne(acc);
+        int last = -1;
+        for (int i = 0; i < length; i++) {
+            if (points[i].isInfinity()) {
+                continue;
+            }
+            mul(acc, acc, points[i].z);
+            Secp256k1Field.set(products[i], acc);
+            last = i;
+        }
+        if (last < 0) {
+            return;
+        }
+        // inverse = (z0 * ... * zlast)^-1
+        final long[] inverse = t2, zInverse = t3, zInverse2 = t4;
+        Secp256k1Field.inverse(inverse, acc);
+        for (int i = last; i >= 0; i--) {
+            Secp256k1Point point = points[i];
+            if (point.isInfinity()) {
+                continue;
+            }
+            // zInverse = inverse * products of the previous finite point
+            int previous = i - 1;
+            while (previous >= 0 && points[previous].isInfinity()) {
+                previous--;
+            }
+            if (previous >= 0) {
+                mul(zInverse, inverse, products[previous]);
+                mul(inverse, inverse, point.z);
+            } else {
+                Secp256k1Field.set(zInverse, inverse);
+            }
+            sqr(zInverse2, zInverse);
+            mul(point.x, point.x, zInverse2);
+            mul(zInverse2, zInverse2, zInverse);
+            mul(point.y, point.y, zInverse2);
+            Secp256k1Field.setOne(point.z);
+        }
+    }
+
+    /**
+     * Converts the point to affine coordinates, one field inversion.
+     */
+    public void normalize(Secp256k1Point point) {
+        if (point.isInfinity()) {
+            return;
+        }
+        final long[] zInverse = t1, zInverse2 = t2;
+        Secp256k1Field.inverse(zInverse, point.z);
+        sqr(zInverse2, zInverse);
+        mul(point.x, point.x, zInverse2);
+        mul(zInverse2, zInverse2, zInverse);
+        mul(point.y, point.y, zInverse2);
+        Secp256k1Field.setOne(point.z);
+    }
+}
@@ -0,0 +1,556 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder.eckey;
+
+import java.math.BigInteger;
+
+/**
+ * Arithmetic in the prime field of secp256k1 without any allocation. A field
+ * element is a {@code long[4]} of unsigned limbs, least significant limb
+ * first, always reduced to {@code [0, p)}. The result array may be one of the
+ * input arrays.
+ * <p>
+ * The reduction uses the special form of the prime
+ * {@code p = 2^256 - 2^32 - 977}: {@code 2^256} is congruent to
+ * {@link #C}, the upper half of a product is folded into the lower half by
+ * a multiplication with {@link #C}.
+ */
+public final class Secp256k1Field {
+
+    public static final int LIMBS = 4;
+    public static final int BYTES = 32;
+
+    /**
+     * {@code 2^256 - p}.
+     */
+    static final long C = 0x1000003D1L;
+
+    private static final long P0 = 0xFFFFFFFEFFFFFC2FL;
+    private static final long P1 = 0xFFFFFFFFFFFFFFFFL;
+    private static final long P2 = 0xFFFFFFFFFFFFFFFFL;
+    private static final long P3 = 0xFFFFFFFFFFFFFFFFL;
+
+    public static final BigInteger P = new BigInteger("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEFFFFFC2F", 16);
+
+    private Secp256k1Field() {
+    }
+
+    /**
+     * @return a new element, zero
+     */
+    public static long[] create() {
+        return new long[LIMBS];
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Conversion">
+    /**
+     * @param value in {@code [0, p)}
+     */
+    public static void fromBigInteger(long[] r, BigInteger value) {
+        if (value.signum() < 0 || value.compareTo(P) >= 0) {
+            throw new IllegalArgumentException("Not a field element: " + value);
+        }
+        for (int i = 0; i < LIMBS; i++) {
+            r[i] = value.shiftRight(i * Long.SIZE).longValue();
+        }
+    }
+
+    public static BigInteger toBigInteger(long[] a) {
+        byte[] bytes = new byte[BYTES];
+        toBytes(a, bytes, 0);
+        return new BigInteger(1, bytes);
+    }
+
+    /**
+     * Reads a big endian element, the value must be in {@code [0, p)}, e.g. a coordinate of an encoded point.
+     */
+    public static void fromBytes(long[] r, byte[] src, int offset) {
+        for (int i = 0; i < LIMBS; i++) {
+            long limb = 0;
+            int limbOffset = offset + i * Long.BYTES;
+            for (int j = 0; j < Long.BYTES; j++) {
+                limb = (limb << Byte.SIZE) | (src[limbOffset + j] & 0xFFL);
+            }
+            r[LIMBS - 1 - i] = limb;
+        }
+    }
+
+    /**
+     * Writes the element big endian.
+     */
+    public static void toBytes(long[] a, byte[] dst, int offset) {
+        for (int i = 0; i < LIMBS; i++) {
+            long limb = a[LIMBS - 1 - i];
+            int limbOffset = offset + i * Long.BYTES;
+            for (int j = 0; j < Long.BYTES; j++) {
+                dst[limbOffset + j] = (byte) (limb >>> ((Long.BYTES - 1 - j) * Byte.SIZE));
+            }
+        }
+    }
+    // </editor-fold>
+
+    public static void set(long[] r, long[] a) {
+        r[0] = a[0];
+        r[1] = a[1];
+        r[2] = a[2];
+        r[3] = a[3];
+    }
+
+    public static void setOne(long[] r) {
+        r[0] = 1;
+        r[1] = 0;
+        r[2] = 0;
+        r[3] = 0;
+    }
+
+    public static boolean isZero(long[] a) {
+        return (a[0] | a[1] | a[2] | a[3]) == 0;
+    }
+
+    public static boolean isOdd(long[] a) {
+        return (a[0] & 1) != 0;
+    }
+
+    public static boolean equals(long[] a, long[] b) {
+        return a[0] == b[0] && a[1] == b[1] && a[2] == b[2] && a[3] == b[3];
+    }
+
+    /**
+     * @return {@code 1} if {@code sum = x + addend} overflowed, {@code 0} otherwise
+     */
+    private static long carry(long sum, long addend) {
+        return Long.compareUnsigned(sum, addend) < 0 ? 1 : 0;
+    }
+
+    /**
+     * @return the upper 64 bits of the unsigned 128 bit product
+     */
+    static long multiplyHighUnsigned(long a, long b) {
+        return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Arithmetic">
+    /**
+     * {@code r = a + b}
+     */
+    public static void add(long[] r, long[] a, long[] b) {
+        long r0 = a[0] + b[0];
+        long c = carry(r0, b[0]);
+        long r1 = a[1] + b[1];
+        long c1 = carry(r1, b[1]);
+        r1 += c;
+        c = c1 + carry(r1, c);
+        long r2 = a[2] + b[2];
+        long c2 = carry(r2, b[2]);
+        r2 += c;
+        c = c2 + carry(r2, c);
+        long r3 = a[3] + b[3];
+        long c3 = carry(r3, b[3]);
+        r3 += c;
+        c = c3 + carry(r3, c);
+        reduceOnce(r, r0, r1, r2, r3, c);
+    }
+
+    /**
+     * {@code r = a - b}
+     */
+    public static void sub(long[] r, long[] a, long[] b) {
+        long a0 = a[0], a1 = a[1], a2 = a[2], a3 = a[3];
+        long r0 = a0 - b[0];
+        long borrow = Long.compareUnsigned(a0, b[0]) < 0 ? 1 : 0;
+        long r1 = a1 - b[1] - borrow;
+        borrow = (Long.compareUnsigned(a1, b[1]) < 0 || (a1 == b[1] && borrow != 0)) ? 1 : 0;
+        long r2 = a2 - b[2] - borrow;
+        borrow = (Long.compareUnsigned(a2, b[2]) < 0 || (a2 == b[2] && borrow != 0)) ? 1 : 0;
+        long r3 = a3 - b[3] - borrow;
+        borrow = (Long.compareUnsigned(a3, b[3]) < 0 || (a3 == b[3] && borrow != 0)) ? 1 : 0;
+        if (borrow != 0) {
+            // the difference wrapped around 2^256, add p: subtract C
+            long t = r0;
+            r0 -= C;
+            borrow = Long.compareUnsigned(t, C) < 0 ? 1 : 0;
+            t = r1;
+            r1 -= borrow;
+            borrow = (t == 0 && borrow != 0) ? 1 : 0;
+            t = r2;
+            r2 -= borrow;
+            borrow = (t == 0 && borrow != 0) ? 1 : 0;
+            r3 -= borrow;
+        }
+        r[0] = r0;
+        r[1] = r1;
+        r[2] = r2;
+        r[3] = r3;
+    }
+
+    /**
+     * {@code r = -a}
+     */
+    public static void negate(long[] r, long[] a) {
+        if (isZero(a)) {
+            r[0] = 0;
+            r[1] = 0;
+            r[2] = 0;
+            r[3] = 0;
+            return;
+        }
+        long a0 = a[0], a1 = a[1], a2 = a[2], a3 = a[3];
+        long r0 = P0 - a0;
+        long borrow = Long.compareUnsigned(P0, a0) < 0 ? 1 : 0;
+        long r1 = P1 - a1 - borrow;
+        borrow = (Long.compareUnsigned(P1, a1) < 0 || (P1 == a1 && borrow != 0)) ? 1 : 0;
+        long r2 = P2 - a2 - borrow;
+        borrow = (Long.compareUnsigned(P2, a2) < 0 || (P2 == a2 && borrow != 0)) ? 1 : 0;
+        r[0] = r0;
+        r[1] = r1;
+        r[2] = r2;
+        r[3] = P3 - a3 - borrow;
+    }
+
+    /**
+     * {@code r = 2 * a}
+     */
+    public static void twice(long[] r, long[] a) {
+        add(r, a, a);
+    }
+
+    /**
+     * {@code r = a * b}
+     */
+    public static void mul(long[] r, long[] a, long[] b) {
+        final long a0 = a[0], a1 = a[1], a2 = a[2], a3 = a[3];
+        final long b0 = b[0], b1 = b[1], b2 = b[2], b3 = b[3];
+        long t0, t1, t2, t3, t4, t5, t6, t7;
+        long lo, hi, c;
+        // a0 * b
+        lo = a0 * b0;
+        hi = multiplyHighUnsigned(a0, b0);
+        t0 = lo;
+        c = hi;
+        lo = a0 * b1;
+        hi = multiplyHighUnsigned(a0, b1);
+        lo += c;
+        hi += carry(lo, c);
+        t1 = lo;
+        c = hi;
+        lo = a0 * b2;
+        hi = multiplyHighUnsigned(a0, b2);
+        lo += c;
+        hi += carry(lo, c);
+        t2 = lo;
+        c = hi;
+        lo = a0 * b3;
+        hi = multiplyHighUnsigned(a0, b3);
+        lo += c;
+        hi += carry(lo, c);
+        t3 = lo;
+        c = hi;
+        t4 = c;
+        // a1 * b
+        lo = a1 * b0;
+        hi = multiplyHighUnsigned(a1, b0);
+        lo += t1;
+        hi += carry(lo, t1);
+        t1 = lo;
+        c = hi;
+        lo = a1 * b1;
+        hi = multiplyHighUnsigned(a1, b1);
+        lo += t2;
+        hi += carry(lo, t2);
+        lo += c;
+        hi += carry(lo, c);
+        t2 = lo;
+        c = hi;
+        lo = a1 * b2;
+        hi = multiplyHighUnsigned(a1, b2);
+        lo += t3;
+        hi += carry(lo, t3);
+        lo += c;
+        hi += carry(lo, c);
+        t3 = lo;
+        c = hi;
+        lo = a1 * b3;
+        hi = multiplyHighUnsigned(a1, b3);
+        lo += t4;
+        hi += carry(lo, t4);
+        lo += c;
+        hi += carry(lo, c);
+        t4 = lo;
+        c = hi;
+        t5 = c;
+        // a2 * b
+        lo = a2 * b0;
+        hi = multiplyHighUnsigned(a2, b0);
+        lo += t2;
+        hi += carry(lo, t2);
+        t2 = lo;
+        c = hi;
+        lo = a2 * b1;
+        hi = multiplyHighUnsigned(a2, b1);
+        lo += t3;
+        hi += carry(lo, t3);
+        lo += c;
+        hi += carry(lo, c);
+        t3 = lo;
+        c = hi;
+        lo = a2 * b2;
+        hi = multiplyHighUnsigned(a2, b2);
+        lo += t4;
+        hi += carry(lo, t4);
+        lo += c;
+        hi += carry(lo, c);
+        t4 = lo;
+        c = hi;
+        lo = a2 * b3;
+        hi = multiplyHighUnsigned(a2, b3);
+        lo += t5;
+        hi += carry(lo, t5);
+        lo += c;
+        hi += carry(lo, c);
+        t5 = lo;
+        c = hi;
+        t6 = c;
+        // a3 * b
+        lo = a3 * b0;
+        hi = multiplyHighUnsigned(a3, b0);
+        lo += t3;
+        hi += carry(lo, t3);
+        t3 = lo;
+        c = hi;
+        lo = a3 * b1;
+        hi = multiplyHighUnsigned(a3, b1);
+        lo += t4;
+        hi += carry(lo, t4);
+        lo += c;
+        hi += carry(lo, c);
+        t4 = lo;
+        c = hi;
+        lo = a3 * b2;
+        hi = multiplyHighUnsigned(a3, b2);
+        lo += t5;
+        hi += carry(lo, t5);
+        lo += c;
+        hi += carry(lo, c);
+        t5 = lo;
+        c = hi;
+        lo = a3 * b3;
+        hi = multiplyHighUnsigned(a3, b3);
+        lo += t6;
+        hi += carry(lo, t6);
+        lo += c;
+        hi += carry(lo, c);
+        t6 = lo;
+        c = hi;
+        t7 = c;
+        reduce(r, t0, t1, t2, t3, t4, t5, t6, t7);
+    }
+
+    /**
+     * {@code r = a * a}
+     */
+    public static void sqr(long[] r, long[] a) {
+        mul(r, a, a);
+    }
+
+    /**
+     * {@code r = a^(2^n)}
+     */
+    public static void sqr(long[] r, long[] a, int n) {
+        sqr(r, a);
+        for (int i = 1; i < n; i++) {
+            sqr(r, r);
+        }
+    }
+
+    /**
+     * {@code r = a * b} for a small factor.
+     */
+    public static void mulSmall(long[] r, long[] a, int b) {
+        final long factor = b & 0xFFFFFFFFL;
+        long lo, hi, c;
+        lo = a[0] * factor;
+        hi = multiplyHighUnsigned(a[0], factor);
+        long t0 = lo;
+        c = hi;
+        lo = a[1] * factor;
+        hi = multiplyHighUnsigned(a[1], factor);
+        lo += c;
+        hi += carry(lo, c);
+        long t1 = lo;
+        c = hi;
+        lo = a[2] * factor;
+        hi = multiplyHighUnsigned(a[2], factor);
+        lo += c;
+        hi += carry(lo, c);
+        long t2 = lo;
+        c = hi;
+        lo = a[3] * factor;
+        hi = multiplyHighUnsigned(a[3], factor);
+        lo += c;
+        hi += carry(lo, c);
+        reduce(r, t0, t1, t2, lo, hi, 0, 0, 0);
+    }
+
+    /**
+     * {@code r = a^-1} by Fermat ({@code a^(p-2)}) with the addition chain of
+     * libsecp256k1. Allocates its temporaries, use it for a whole batch, see
+     * {@link Secp256k1Engine#normalize(Secp256k1Point[], int)}.
+     *
+     * @param a not zero
+     */
+    public static void inverse(long[] r, long[] a) {
+        long[] x2 = create();
+        long[] x3 = create();
+        long[] x6 = create();
+        long[] x22 = create();
+        long[] x44 = create();
+        long[] t = create();
+
+        sqr(x2, a);
+        mul(x2, x2, a);
+
+        sqr(x3, x2);
+        mul(x3, x3, a);
+
+        sqr(x6, x3, 3);
+        mul(x6, x6, x3);
+
+        // x9
+        sqr(t, x6, 3);
+        mul(t, t, x3);
+
+        // x11
+        sqr(t, t, 2);
+        mul(t, t, x2);
+
+        sqr(x22, t, 11);
+        mul(x22, x22, t);
+
+        sqr(x44, x22, 22);
+        mul(x44, x44, x22);
+
+        // x88
+        sqr(t, x44, 44);
+        mul(t, t, x44);
+        // x176
+        sqr(x6, t, 88);
+        mul(x6, x6, t);
+        // x220
+        sqr(x6, x6, 44);
+        mul(x6, x6, x44);
+        // x223
+        sqr(x6, x6, 3);
+        mul(x6, x6, x3);
+
+        sqr(t, x6, 23);
+        mul(t, t, x22);
+        sqr(t, t, 5);
+        mul(t, t, a);
+        sqr(t, t, 3);
+        mul(t, t, x2);
+        sqr(t, t, 2);
+        mul(r, t, a);
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Reduction">
+    /**
+     * Reduces the 512 bit value {@code t7..t0} modulo p.
+     */
+    private static void reduce(long[] r, long t0, long t1, long t2, long t3, long t4, long t5, long t6, long t7) {
+        long lo, hi, c;
+        // u = (t7..t4) * C, 290 bits at most
+        lo = t4 * C;
+        hi = multiplyHighUnsigned(t4, C);
+        long u0 = lo;
+        c = hi;
+        lo = t5 * C;
+        hi = multiplyHighUnsigned(t5, C);
+        lo += c;
+        hi += carry(lo, c);
+        long u1 = lo;
+        c = hi;
+        lo = t6 * C;
+        hi = multiplyHighUnsigned(t6, C);
+        lo += c;
+        hi += carry(lo, c);
+        long u2 = lo;
+        c = hi;
+        lo = t7 * C;
+        hi = multiplyHighUnsigned(t7, C);
+        lo += c;
+        hi += carry(lo, c);
+        long u3 = lo;
+        long u4 = hi;
+
+        // s = (t3..t0) + u
+        long s0 = t0 + u0;
+        c = carry(s0, u0);
+        long s1 = t1 + u1;
+        long c1 = carry(s1, u1);
+        s1 += c;
+        c = c1 + carry(s1, c);
+        long s2 = t2 + u2;
+        long c2 = carry(s2, u2);
+        s2 += c;
+        c = c2 + carry(s2, c);
+        long s3 = t3 + u3;
+        long c3 = carry(s3, u3);
+        s3 += c;
+        c = c3 + carry(s3, c);
+        long s4 = u4 + c;
+
+        // fold s4 * 2^256 = s4 * C, 68 bits at most
+        lo = s4 * C;
+        hi = multiplyHighUnsigned(s4, C);
+        s0 += lo;
+        c = carry(s0, lo);
+        s1 += hi;
+        c1 = carry(s1, hi);
+        s1 += c;
+        c = c1 + carry(s1, c);
+        s2 += c;
+        c = carry(s2, c);
+        s3 += c;
+        c = carry(s3, c);
+        reduceOnce(r, s0, s1, s2, s3, c);
+    }
+
+    /**
+     * Reduces {@code c * 2^256 + (r3..r0)} with {@code c} in {0, 1} and a value below {@code 2p}.
+     */
+    private static void reduceOnce(long[] r, long r0, long r1, long r2, long r3, long c) {
+        boolean greaterOrEqualP = r3 == P3 && r2 == P2 && r1 == P1 && Long.compareUnsigned(r0, P0) >= 0;
+        if (c != 0 || greaterOrEqualP) {
+            // subtract p: add C, the carry out of 2^256 is dropped
+            r0 += C;
+            c = carry(r0, C);
+            r1 += c;
+            c = carry(r1, c);
+            r2 += c;
+            c = carry(r2, c);
+            r3 += c;
+        }
+        r[0] = r0;
+        r[1] = r1;
+        r[2] = r2;
+        r[3] = r3;
+    }
+    // </editor-fold>
+}
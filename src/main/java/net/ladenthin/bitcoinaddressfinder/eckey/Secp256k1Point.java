@@ -0,0 +1,70 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder.eckey;
+
+/**
+ * A mutable point of secp256k1 in Jacobian coordinates: the affine
+ * coordinates are {@code (x / z^2, y / z^3)}. A point is affine (normalized)
+ * if {@code z} is one.
+ */
+public class Secp256k1Point {
+
+    public final long[] x = Secp256k1Field.create();
+    public final long[] y = Secp256k1Field.create();
+    public final long[] z = Secp256k1Field.create();
+    private boolean infinity = true;
+
+    public boolean isInfinity() {
+        return infinity;
+    }
+
+    public void setInfinity() {
+        infinity = true;
+    }
+
+    /**
+     * Marks the coordinates as a valid point, they must be set before.
+     */
+    void setFinite() {
+        infinity = false;
+    }
+
+    public void setAffine(long[] affineX, long[] affineY) {
+        Secp256k1Field.set(x, affineX);
+        Secp256k1Field.set(y, affineY);
+        Secp256k1Field.setOne(z);
+        infinity = false;
+    }
+
+    public void set(Secp256k1Point other) {
+        Secp256k1Field.set(x, other.x);
+        Secp256k1Field.set(y, other.y);
+        Secp256k1Field.set(z, other.z);
+        infinity = other.infinity;
+    }
+
+    /**
+     * Writes the uncompressed encoding ({@code 04 | x | y}) of a normalized point.
+     */
+    public void encodeUncompressed(byte[] dst, int offset) {
+        dst[offset] = 4;
+        Secp256k1Field.toBytes(x, dst, offset + 1);
+        Secp256k1Field.toBytes(y, dst, offset + 1 + Secp256k1Field.BYTES);
+    }
+}
@@ -260,7 +260,7 @@ public class OpenCLBuilder {
      * @param paramName The parameter name
      * @return The value
      */
-    private static long getLong(cl_device_id device, int paramName)
+    public static long getLong(cl_device_id device, int paramName)
     {
         return getLongs(device, paramName, 1)[0];
     }
@@ -287,7 +287,7 @@ public class OpenCLBuilder {
      * @param paramName The parameter name
      * @return The value
      */
-    private static String getString(cl_device_id device, int paramName)
+    public static String getString(cl_device_id device, int paramName)
     {
         // Obtain the length of the string that will be queried
         long size[] = new long[1];
@@ -23,9 +23,11 @@ import org.bitcoinj.core.Coin;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import net.ladenthin.bitcoinaddressfinder.configuration.CAddressFileOutputFormat;
 
 public interface Persistence {
@@ -36,6 +38,20 @@ public interface Persistence {
     Coin getAmount(ByteBuffer hash160);
     boolean containsAddress(ByteBuffer hash160);
 
+    /**
+     * Checks a batch of hash160s at once.
+     * @param hash160s {@code count} hash160s back to back, starting at the position of the buffer; the position is not changed
+     * @param count the number of hash160s
+     * @return bit {@code i} is set if the {@code i}-th hash160 is contained
+     */
+    BitSet containsAddresses(ByteBuffer hash160s, int count);
+
+    /**
+     * Iterates over all hash160s in the order of the persistence.
+     * @param consumer receives every hash160, the buffer is only valid during the call
+     */
+    void forEachHash160(Consumer<ByteBuffer> consumer);
+
     /**
      * 
      * @param file
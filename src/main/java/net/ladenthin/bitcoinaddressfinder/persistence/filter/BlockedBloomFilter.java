@@ -0,0 +1,260 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder.persistence.filter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import net.ladenthin.bitcoinaddressfinder.ByteBufferUtility;
+
+/**
+ * A blocked bloom filter held in off-heap memory. Every key maps to exactly
+ * one block of {@link #BLOCK_SIZE_IN_BYTES} bytes (one cache line) and all
+ * bits of the key are set within this block. A lookup touches one cache line
+ * only.
+ * <p>
+ * The keys are hash160s which are already uniformly distributed. No further
+ * hashing is necessary, the first {@link #KEY_BYTES_USED} bytes of a key are
+ * used to select the block and the bits.
+ * <p>
+ * A direct {@link ByteBuffer} is limited to 2 GiB, the blocks are distributed
+ * over multiple chunks of {@link #CHUNK_SIZE_IN_BYTES} bytes.
+ */
+public class BlockedBloomFilter {
+
+    public static final int BLOCK_SIZE_IN_BYTES = 64;
+    public static final int BITS_PER_BLOCK = BLOCK_SIZE_IN_BYTES * Byte.SIZE;
+    public static final int KEY_BYTES_USED = 2 * Long.BYTES;
+    public static final int MAX_HASH_FUNCTIONS = 16;
+
+    private static final int BLOCKS_PER_CHUNK_BITS = 24;
+    private static final int BLOCKS_PER_CHUNK = 1 << BLOCKS_PER_CHUNK_BITS;
+    private static final int BLOCKS_PER_CHUNK_MASK = BLOCKS_PER_CHUNK - 1;
+    public static final int CHUNK_SIZE_IN_BYTES = BLOCKS_PER_CHUNK * BLOCK_SIZE_IN_BYTES;
+
+    /**
+     * The maximum number of blocks, the block selection uses a 32 bit fast range reduction.
+     */
+    public static final long MAX_NUMBER_OF_BLOCKS = 1L << 32;
+
+    /**
+     * "BAFBLOOM" as ASCII.
+     */
+    private static final long FILE_MAGIC = 0x424146424C4F4F4DL;
+    private static final int FILE_VERSION = 1;
+    private static final int FILE_HEADER_SIZE_IN_BYTES = Long.BYTES + Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+    /**
+     * The byte order of the words in a block. Fixed to be independent of the platform for the file format.
+     */
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private static final double LN2 = Math.log(2);
+
+    private final ByteBufferUtility byteBufferUtility = new ByteBufferUtility(true);
+    private final long numberOfBlocks;
+    private final int numberOfHashFunctions;
+    private final ByteBuffer[] chunks;
+
+    public BlockedBloomFilter(long numberOfBlocks, int numberOfHashFunctions) {
+        if (numberOfBlocks < 1 || numberOfBlocks > MAX_NUMBER_OF_BLOCKS) {
+            throw new IllegalArgumentException("numberOfBlocks must be between 1 and " + MAX_NUMBER_OF_BLOCKS + ": " + numberOfBlocks);
+        }
+        if (numberOfHashFunctions < 1 || numberOfHashFunctions > MAX_HASH_FUNCTIONS) {
+            throw new IllegalArgumentException("numberOfHashFunctions must be between 1 and " + MAX_HASH_FUNCTIONS + ": " + numberOfHashFunctions);
+        }
+        this.numberOfBlocks = numberOfBlocks;
+        this.numberOfHashFunctions = numberOfHashFunctions;
+
+        int numberOfChunks = (int) ((numberOfBlocks + BLOCKS_PER_CHUNK - 1) >>> BLOCKS_PER_CHUNK_BITS);
+        chunks = new ByteBuffer[numberOfChunks];
+        long remainingBlocks = numberOfBlocks;
+        for (int i = 0; i < numberOfChunks; i++) {
+            int blocksInChunk = (int) Math.min(remainingBlocks, BLOCKS_PER_CHUNK);
+            chunks[i] = ByteBuffer.allocateDirect(blocksInChunk * BLOCK_SIZE_IN_BYTES).order(BYTE_ORDER);
+            remainingBlocks -= blocksInChunk;
+        }
+    }
+
+    /**
+     * Creates an empty filter sized for the given number of keys and false positive probability.
+     */
+    public static BlockedBloomFilter create(long expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions < 1) {
+            expectedInsertions = 1;
+        }
+        if (falsePositiveProbability <= 0.0d || falsePositiveProbability >= 1.0d) {
+            throw new IllegalArgumentException("falsePositiveProbability must be between 0 and 1 (exclusive): " + falsePositiveProbability);
+        }
+        double bitsPerKey = -Math.log(falsePositiveProbability) / (LN2 * LN2);
+        long numberOfBits = (long) Math.ceil(expectedInsertions * bitsPerKey);
+        long numberOfBlocks = Math.max(1L, (numberOfBits + BITS_PER_BLOCK - 1) / BITS_PER_BLOCK);
+        int numberOfHashFunctions = (int) Math.round(bitsPerKey * LN2);
+        numberOfHashFunctions = Math.max(1, Math.min(MAX_HASH_FUNCTIONS, numberOfHashFunctions));
+        return new BlockedBloomFilter(Math.min(numberOfBlocks, MAX_NUMBER_OF_BLOCKS), numberOfHashFunctions);
+    }
+
+    /**
+     * @param hash160 the key, read from its position (absolute), the position is not changed
+     */
+    public void put(ByteBuffer hash160) {
+        int position = hash160.position();
+        long h1 = ByteBufferUtility.getLongBigEndian(hash160, position);
+        long h2 = ByteBufferUtility.getLongBigEndian(hash160, position + Long.BYTES);
+        long blockIndex = blockIndex(h1);
+        ByteBuffer chunk = chunks[(int) (blockIndex >>> BLOCKS_PER_CHUNK_BITS)];
+        int blockOffset = ((int) blockIndex & BLOCKS_PER_CHUNK_MASK) * BLOCK_SIZE_IN_BYTES;
+        int a = (int) h2;
+        int b = (int) (h2 >>> 32) | 1;
+        for (int i = 0; i < numberOfHashFunctions; i++) {
+            int bit = (a + i * b) >>> 23;
+            int wordOffset = blockOffset + ((bit >>> 6) << 3);
+            chunk.putLong(wordOffset, chunk.getLong(wordOffset) | (1L << bit));
+        }
+    }
+
+    /**
+     * @param hash160 the key, read from its position (absolute), the position is not changed
+     * @return {@code false} if the key is definitely not contained, {@code true} if the key might be contained
+     */
+    public boolean mightContain(ByteBuffer hash160) {
+        return mightContain(hash160, hash160.position());
+    }
+
+    /**
+     * @param hash160 the buffer of the key, read absolute
+     * @param position the index of the first byte of the key
+     * @return {@code false} if the key is definitely not contained, {@code true} if the key might be contained
+     */
+    public boolean mightContain(ByteBuffer hash160, int position) {
+        long h1 = ByteBufferUtility.getLongBigEndian(hash160, position);
+        long h2 = ByteBufferUtility.getLongBigEndian(hash160, position + Long.BYTES);
+        long blockIndex = blockIndex(h1);
+        ByteBuffer chunk = chunks[(int) (blockIndex >>> BLOCKS_PER_CHUNK_BITS)];
+        int blockOffset = ((int) blockIndex & BLOCKS_PER_CHUNK_MASK) * BLOCK_SIZE_IN_BYTES;
+        int a = (int) h2;
+        int b = (int) (h2 >>> 32) | 1;
+        for (int i = 0; i < numberOfHashFunctions; i++) {
+            int bit = (a + i * b) >>> 23;
+            int wordOffset = blockOffset + ((bit >>> 6) << 3);
+            if ((chunk.getLong(wordOffset) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fast range reduction of the upper 32 bits into {@code [0, numberOfBlocks)} without a division.
+     */
+    private long blockIndex(long h1) {
+        return ((h1 >>> 32) * numberOfBlocks) >>> 32;
+    }
+
+    public long getNumberOfBlocks() {
+        return numberOfBlocks;
+    }
+
+    public int getNumberOfHashFunctions() {
+        return numberOfHashFunctions;
+    }
+
+    public long getSizeInBytes() {
+        return numberOfBlocks * BLOCK_SIZE_IN_BYTES;
+    }
+
+    /**
+     * @return the chunks of this filter, do not modify them
+     */
+    public ByteBuffer[] getChunks() {
+        return chunks;
+    }
+
+    public void writeToFile(File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw"); FileChannel fileChannel = randomAccessFile.getChannel()) {
+            fileChannel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE_IN_BYTES);
+            header.putLong(FILE_MAGIC);
+            header.putInt(FILE_VERSION);
+            header.putInt(numberOfHashFunctions);
+            header.putLong(numberOfBlocks);
+            header.flip();
+            writeFully(fileChannel, header);
+            for (ByteBuffer chunk : chunks) {
+                ByteBuffer duplicate = chunk.duplicate();
+                duplicate.clear();
+                writeFully(fileChannel, duplicate);
+            }
+            fileChannel.force(false);
+        }
+    }
+
+    public static BlockedBloomFilter readFromFile(File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r"); FileChannel fileChannel = randomAccessFile.getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE_IN_BYTES);
+            readFully(fileChannel, header);
+            header.flip();
+            long magic = header.getLong();
+            int version = header.getInt();
+            if (magic != FILE_MAGIC || version != FILE_VERSION) {
+                throw new IOException("Not a filter file (or an unsupported version): " + file.getAbsolutePath());
+            }
+            int numberOfHashFunctions = header.getInt();
+            long numberOfBlocks = header.getLong();
+            long expectedFileSize = FILE_HEADER_SIZE_IN_BYTES + numberOfBlocks * BLOCK_SIZE_IN_BYTES;
+            if (fileChannel.size() != expectedFileSize) {
+                throw new IOException("Unexpected file size " + fileChannel.size() + " (expected " + expectedFileSize + "): " + file.getAbsolutePath());
+            }
+            BlockedBloomFilter blockedBloomFilter = new BlockedBloomFilter(numberOfBlocks, numberOfHashFunctions);
+            for (ByteBuffer chunk : blockedBloomFilter.chunks) {
+                ByteBuffer duplicate = chunk.duplicate();
+                duplicate.clear();
+                readFully(fileChannel, duplicate);
+            }
+            return blockedBloomFilter;
+        }
+    }
+
+    private static void writeFully(FileChannel fileChannel, ByteBuffer byteBuffer) throws IOException {
+        while (byteBuffer.hasRemaining()) {
+            fileChannel.write(byteBuffer);
+        }
+    }
+
+    private static void readFully(FileChannel fileChannel, ByteBuffer byteBuffer) throws IOException {
+        while (byteBuffer.hasRemaining()) {
+            if (fileChannel.read(byteBuffer) < 0) {
+                throw new IOException("Unexpected end of file.");
+            }
+        }
+    }
+
+    /**
+     * Frees the off-heap memory. The filter must not be used afterwards.
+     */
+    public void free() {
+        for (int i = 0; i < chunks.length; i++) {
+            byteBufferUtility.freeByteBuffer(chunks[i]);
+            chunks[i] = null;
+        }
+    }
+}
@@ -22,10 +22,12 @@ import net.ladenthin.bitcoinaddressfinder.persistence.Persistence;
 import net.ladenthin.bitcoinaddressfinder.persistence.PersistenceUtils;
 import org.bitcoinj.core.LegacyAddress;
 import org.bitcoinj.core.Coin;
+import org.lmdbjava.Cursor;
 import org.lmdbjava.CursorIterable;
 import org.lmdbjava.Dbi;
 import org.lmdbjava.Env;
 import org.lmdbjava.EnvFlags;
+import org.lmdbjava.GetOp;
 import org.lmdbjava.KeyRange;
 import org.lmdbjava.Txn;
 
@@ -33,13 +35,19 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import net.ladenthin.bitcoinaddressfinder.AddressTxtLine;
 import net.ladenthin.bitcoinaddressfinder.ByteBufferUtility;
 import net.ladenthin.bitcoinaddressfinder.ByteConversion;
 import net.ladenthin.bitcoinaddressfinder.KeyUtility;
+import net.ladenthin.bitcoinaddressfinder.PublicKeyBytes;
 import net.ladenthin.bitcoinaddressfinder.configuration.CAddressFileOutputFormat;
 import net.ladenthin.bitcoinaddressfinder.configuration.CLMDBConfigurationReadOnly;
 import net.ladenthin.bitcoinaddressfinder.configuration.CLMDBConfigurationWrite;
@@ -64,9 +72,26 @@ public class LMDBPersistence implements Persistence {
     private final CLMDBConfigurationWrite lmdbConfigurationWrite;
     private final CLMDBConfigurationReadOnly lmdbConfigurationReadOnly;
     private final KeyUtility keyUtility;
+    private final ByteBufferUtility byteBufferUtility = new ByteBufferUtility(true);
     private Env<ByteBuffer> env;
     private Dbi<ByteBuffer> lmdb_h160ToAmount;
     private long increasedCounter = 0;
+
+    /**
+     * A read transaction of one thread, see {@link CLMDBConfigurationReadOnly#reuseReadTransactionPerThread}.
+     */
+    private static class ReusableReadTxn {
+        private final Txn<ByteBuffer> txn;
+        private long renewed;
+
+        private ReusableReadTxn(Txn<ByteBuffer> txn, long renewed) {
+            this.txn = txn;
+            this.renewed = renewed;
+        }
+    }
+
+    private final ThreadLocal<ReusableReadTxn> threadLocalReadTxn = new ThreadLocal<>();
+    private final Queue<ReusableReadTxn> reusableReadTxns = new ConcurrentLinkedQueue<>();
     private long increasedSum = 0;
 
     public LMDBPersistence(CLMDBConfigurationWrite lmdbConfigurationWrite, PersistenceUtils persistenceUtils) {
@@ -110,7 +135,14 @@ public class LMDBPersistence implements Persistence {
             lmdb_h160ToAmount = env.openDbi(DB_NAME_HASH160_TO_COINT, MDB_CREATE);
         } else if (lmdbConfigurationReadOnly != null) {
             BufferProxy<ByteBuffer> bufferProxy = getBufferProxyByUseProxyOptimal(lmdbConfigurationReadOnly.useProxyOptimal);
-            env = create(bufferProxy).setMaxDbs(DB_COUNT).open(new File(lmdbConfigurationReadOnly.lmdbDirectory), EnvFlags.MDB_RDONLY_ENV, EnvFlags.MDB_NOLOCK);
+            EnvFlags[] envFlags;
+            if (lmdbConfigurationReadOnly.reuseReadTransactionPerThread) {
+                // a read transaction is not bound to the thread which created it
+                envFlags = new EnvFlags[] {EnvFlags.MDB_RDONLY_ENV, EnvFlags.MDB_NOLOCK, EnvFlags.MDB_NOTLS};
+            } else {
+                envFlags = new EnvFlags[] {EnvFlags.MDB_RDONLY_ENV, EnvFlags.MDB_NOLOCK};
+            }
+            env = create(bufferProxy).setMaxDbs(DB_COUNT).open(new File(lmdbConfigurationReadOnly.lmdbDirectory), envFlags);
             lmdb_h160ToAmount = env.openDbi(DB_NAME_HASH160_TO_COINT);
         } else {
             throw new IllegalArgumentException();
@@ -162,16 +194,55 @@ public class LMDBPersistence implements Persistence {
     @Override
     public void close() {
         logStatsOnCloseByConfig();
+        for (ReusableReadTxn reusableReadTxn : reusableReadTxns) {
+            reusableReadTxn.txn.close();
+        }
+        reusableReadTxns.clear();
         lmdb_h160ToAmount.close();
     }
 
     @Override
     public Coin getAmount(ByteBuffer hash160) {
-        try (Txn<ByteBuffer> txn = env.txnRead()) {
+        Txn<ByteBuffer> txn = acquireReadTxn();
+        try {
             ByteBuffer byteBuffer = lmdb_h160ToAmount.get(txn, hash160);
-            txn.close();
-
             return getCoinFromByteBuffer(byteBuffer);
+        } finally {
+            releaseReadTxn(txn);
+        }
+    }
+
+    private boolean isReuseReadTransactionPerThread() {
+        return lmdbConfigurationReadOnly != null && lmdbConfigurationReadOnly.reuseReadTransactionPerThread;
+    }
+
+    /**
+     * Returns a read transaction to use by the current thread. Must be released with {@link #releaseReadTxn(org.lmdbjava.Txn)}.
+     * If configured, the transaction of the thread is reused and renewed after
+     * {@link CLMDBConfigurationReadOnly#renewReadTransactionIntervalInMilliseconds}.
+     */
+    private Txn<ByteBuffer> acquireReadTxn() {
+        if (!isReuseReadTransactionPerThread()) {
+            return env.txnRead();
+        }
+        ReusableReadTxn reusableReadTxn = threadLocalReadTxn.get();
+        long now = System.currentTimeMillis();
+        if (reusableReadTxn == null) {
+            reusableReadTxn = new ReusableReadTxn(env.txnRead(), now);
+            reusableReadTxns.add(reusableReadTxn);
+            threadLocalReadTxn.set(reusableReadTxn);
+        } else if (now - reusableReadTxn.renewed >= lmdbConfigurationReadOnly.renewReadTransactionIntervalInMilliseconds) {
+            // release the snapshot that the reader does not pin old pages
+            reusableReadTxn.txn.reset();
+            reusableReadTxn.txn.renew();
+            reusableReadTxn.renewed = now;
+        }
+        return reusableReadTxn.txn;
+    }
+
+    private void releaseReadTxn(Txn<ByteBuffer> txn) {
+        if (!isReuseReadTransactionPerThread()) {
+            txn.close();
         }
     }
     
@@ -189,10 +260,67 @@ public class LMDBPersistence implements Persistence {
 
     @Override
     public boolean containsAddress(ByteBuffer hash160) {
-        try (Txn<ByteBuffer> txn = env.txnRead()) {
+        Txn<ByteBuffer> txn = acquireReadTxn();
+        try {
             ByteBuffer byteBuffer = lmdb_h160ToAmount.get(txn, hash160);
-            txn.close();
             return byteBuffer != null;
+        } finally {
+            releaseReadTxn(txn);
+        }
+    }
+
+    /**
+     * The batch is sorted by the leading bytes and walked with a single cursor
+     * in one read transaction. Consecutive keys often hit the same leaf page.
+     */
+    @Override
+    public BitSet containsAddresses(ByteBuffer hash160s, int count) {
+        BitSet contained = new BitSet(count);
+        if (count == 0) {
+            return contained;
+        }
+        int position = hash160s.position();
+
+        // the leading bits of a key (unsigned) and its index in the lower bits
+        int indexBits = Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(count - 1));
+        long indexMask = (1L << indexBits) - 1;
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            long prefix = ByteBufferUtility.getLongBigEndian(hash160s, position + i * PublicKeyBytes.HASH160_SIZE);
+            // flip the sign bit to sort signed longs in unsigned order
+            order[i] = ((prefix & ~indexMask) | i) ^ Long.MIN_VALUE;
+        }
+        Arrays.sort(order);
+
+        ByteBuffer key = ByteBuffer.allocateDirect(PublicKeyBytes.HASH160_SIZE).order(hash160s.order());
+        Txn<ByteBuffer> txn = acquireReadTxn();
+        try (Cursor<ByteBuffer> cursor = lmdb_h160ToAmount.openCursor(txn)) {
+            for (long entry : order) {
+                int i = (int) (entry & indexMask);
+                int offset = position + i * PublicKeyBytes.HASH160_SIZE;
+                key.putLong(0, hash160s.getLong(offset));
+                key.putLong(Long.BYTES, hash160s.getLong(offset + Long.BYTES));
+                key.putInt(Long.BYTES + Long.BYTES, hash160s.getInt(offset + Long.BYTES + Long.BYTES));
+                key.clear();
+                if (cursor.get(key, GetOp.MDB_SET_KEY)) {
+                    contained.set(i);
+                }
+            }
+        } finally {
+            releaseReadTxn(txn);
+            byteBufferUtility.freeByteBuffer(key);
+        }
+        return contained;
+    }
+
+    @Override
+    public void forEachHash160(Consumer<ByteBuffer> consumer) {
+        try (Txn<ByteBuffer> txn = env.txnRead()) {
+            try (CursorIterable<ByteBuffer> iterable = lmdb_h160ToAmount.iterate(txn, KeyRange.all())) {
+                for (final CursorIterable.KeyVal<ByteBuffer> kv : iterable) {
+                    consumer.accept(kv.key());
+                }
+            }
         }
     }
 
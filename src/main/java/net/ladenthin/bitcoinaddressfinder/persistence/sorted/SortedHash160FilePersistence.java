@@ -0,0 +1,331 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder.persistence.sorted;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import net.ladenthin.bitcoinaddressfinder.AddressTxtLine;
+import net.ladenthin.bitcoinaddressfinder.ByteBufferUtility;
+import net.ladenthin.bitcoinaddressfinder.ByteConversion;
+import net.ladenthin.bitcoinaddressfinder.KeyUtility;
+import net.ladenthin.bitcoinaddressfinder.PublicKeyBytes;
+import net.ladenthin.bitcoinaddressfinder.configuration.CAddressFileOutputFormat;
+import net.ladenthin.bitcoinaddressfinder.configuration.CSortedHash160FileConfigurationReadOnly;
+import net.ladenthin.bitcoinaddressfinder.persistence.Persistence;
+import net.ladenthin.bitcoinaddressfinder.persistence.PersistenceUtils;
+import org.apache.commons.codec.binary.Hex;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.LegacyAddress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A read-only {@link Persistence} of one flat file with sorted hash160 records.
+ * <p>
+ * File layout (big endian):
+ * <pre>
+ * header:  magic (long), version (int), prefixBits (int), count (long)
+ * index:   2^prefixBits + 1 record indices (long), bucket b contains the records [index[b], index[b + 1])
+ * records: count * 20 bytes, unsigned lexicographically sorted, without duplicates
+ * </pre>
+ * The file is memory mapped. A lookup reads one index entry and runs a binary
+ * search within a single bucket. No amounts are stored, {@link #getAmount(ByteBuffer)}
+ * returns {@link Coin#ZERO} always.
+ */
+public class SortedHash160FilePersistence implements Persistence {
+
+    /**
+     * "BAFH160S" as ASCII.
+     */
+    public static final long FILE_MAGIC = 0x4241464831363053L;
+    public static final int FILE_VERSION = 1;
+    public static final int HEADER_SIZE_IN_BYTES = Long.BYTES + Integer.BYTES + Integer.BYTES + Long.BYTES;
+    public static final int RECORD_SIZE_IN_BYTES = PublicKeyBytes.HASH160_SIZE;
+    public static final int MIN_PREFIX_BITS = 1;
+    public static final int MAX_PREFIX_BITS = 24;
+
+    /**
+     * A {@link MappedByteBuffer} is limited to 2 GiB, the records are mapped in chunks. A record never crosses a chunk.
+     */
+    static final int RECORDS_PER_CHUNK_BITS = 26;
+    static final long RECORDS_PER_CHUNK = 1L << RECORDS_PER_CHUNK_BITS;
+    private static final long RECORDS_PER_CHUNK_MASK = RECORDS_PER_CHUNK - 1;
+
+    private final Logger logger = LoggerFactory.getLogger(SortedHash160FilePersistence.class);
+
+    private final CSortedHash160FileConfigurationReadOnly sortedHash160FileConfigurationReadOnly;
+    private final KeyUtility keyUtility;
+    private final ByteBufferUtility byteBufferUtility = new ByteBufferUtility(true);
+
+    private int prefixBits;
+    private long count;
+    private long fileSize;
+    private MappedByteBuffer index;
+    private MappedByteBuffer[] chunks;
+
+    public SortedHash160FilePersistence(CSortedHash160FileConfigurationReadOnly sortedHash160FileConfigurationReadOnly, PersistenceUtils persistenceUtils) {
+        this.sortedHash160FileConfigurationReadOnly = sortedHash160FileConfigurationReadOnly;
+        this.keyUtility = new KeyUtility(persistenceUtils.networkParameters, new ByteBufferUtility(true));
+    }
+
+    public static long getIndexSizeInBytes(int prefixBits) {
+        return ((1L << prefixBits) + 1) * Long.BYTES;
+    }
+
+    public static void assertPrefixBitsCorrect(int prefixBits) {
+        if (prefixBits < MIN_PREFIX_BITS || prefixBits > MAX_PREFIX_BITS) {
+            throw new IllegalArgumentException("prefixBits must be between " + MIN_PREFIX_BITS + " and " + MAX_PREFIX_BITS + ": " + prefixBits);
+        }
+    }
+
+    @Override
+    public void init() {
+        File file = new File(sortedHash160FileConfigurationReadOnly.sortedHash160File);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r"); FileChannel fileChannel = randomAccessFile.getChannel()) {
+            fileSize = fileChannel.size();
+            MappedByteBuffer header = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE_IN_BYTES);
+            long magic = header.getLong();
+            int version = header.getInt();
+            if (magic != FILE_MAGIC || version != FILE_VERSION) {
+                throw new IllegalArgumentException("Not a sorted hash160 file (or an unsupported version): " + file.getAbsolutePath());
+            }
+            prefixBits = header.getInt();
+            assertPrefixBitsCorrect(prefixBits);
+            count = header.getLong();
+            byteBufferUtility.freeByteBuffer(header);
+
+            long indexSizeInBytes = getIndexSizeInBytes(prefixBits);
+            long dataOffset = HEADER_SIZE_IN_BYTES + indexSizeInBytes;
+            long expectedFileSize = dataOffset + count * RECORD_SIZE_IN_BYTES;
+            if (fileSize != expectedFileSize) {
+                throw new IllegalArgumentException("Unexpected file size " + fileSize + " (expected " + expectedFileSize + "): " + file.getAbsolutePath());
+            }
+
+            index = fileChannel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE_IN_BYTES, indexSizeInBytes);
+            int numberOfChunks = (int) ((count + RECORDS_PER_CHUNK - 1) >>> RECORDS_PER_CHUNK_BITS);
+            chunks = new MappedByteBuffer[numberOfChunks];
+            for (int i = 0; i < numberOfChunks; i++) {
+                long firstRecord = (long) i << RECORDS_PER_CHUNK_BITS;
+                long recordsInChunk = Math.min(count - firstRecord, RECORDS_PER_CHUNK);
+                chunks[i] = fileChannel.map(FileChannel.MapMode.READ_ONLY, dataOffset + firstRecord * RECORD_SIZE_IN_BYTES, recordsInChunk * RECORD_SIZE_IN_BYTES);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        if (sortedHash160FileConfigurationReadOnly.loadOnInit) {
+            index.load();
+            for (MappedByteBuffer chunk : chunks) {
+                chunk.load();
+            }
+        }
+        if (sortedHash160FileConfigurationReadOnly.logStatsOnInit) {
+            logStats();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (sortedHash160FileConfigurationReadOnly.logStatsOnClose) {
+            logStats();
+        }
+        byteBufferUtility.freeByteBuffer(index);
+        index = null;
+        if (chunks != null) {
+            for (int i = 0; i < chunks.length; i++) {
+                byteBufferUtility.freeByteBuffer(chunks[i]);
+                chunks[i] = null;
+            }
+        }
+    }
+
+    @Override
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public Coin getAmount(ByteBuffer hash160) {
+        return Coin.ZERO;
+    }
+
+    @Override
+    public boolean containsAddress(ByteBuffer hash160) {
+        return containsAddress(hash160, hash160.position());
+    }
+
+    @Override
+    public BitSet containsAddresses(ByteBuffer hash160s, int count) {
+        BitSet contained = new BitSet(count);
+        int position = hash160s.position();
+        for (int i = 0; i < count; i++) {
+            if (containsAddress(hash160s, position + i * RECORD_SIZE_IN_BYTES)) {
+                contained.set(i);
+            }
+        }
+        return contained;
+    }
+
+    private boolean containsAddress(ByteBuffer hash160, int position) {
+        long key0 = ByteBufferUtility.getLongBigEndian(hash160, position);
+        long key1 = ByteBufferUtility.getLongBigEndian(hash160, position + Long.BYTES);
+        int key2 = ByteBufferUtility.getIntBigEndian(hash160, position + Long.BYTES + Long.BYTES);
+
+        int bucket = (int) (key0 >>> (Long.SIZE - prefixBits));
+        long low = index.getLong(bucket * Long.BYTES);
+        long high = index.getLong((bucket + 1) * Long.BYTES) - 1;
+
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            int compare = compareRecord(middle, key0, key1, key2);
+            if (compare < 0) {
+                low = middle + 1;
+            } else if (compare > 0) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return a negative value if the record is less than the key, zero if equal, a positive value otherwise
+     */
+    private int compareRecord(long record, long key0, long key1, int key2) {
+        MappedByteBuffer chunk = chunks[(int) (record >>> RECORDS_PER_CHUNK_BITS)];
+        int offset = (int) (record & RECORDS_PER_CHUNK_MASK) * RECORD_SIZE_IN_BYTES;
+        int compare = Long.compareUnsigned(chunk.getLong(offset), key0);
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Long.compareUnsigned(chunk.getLong(offset + Long.BYTES), key1);
+        if (compare != 0) {
+            return compare;
+        }
+        return Integer.compareUnsigned(chunk.getInt(offset + Long.BYTES + Long.BYTES), key2);
+    }
+
+    /**
+     * @param record the index of the record
+     * @return a new buffer of the record, positioned at the record
+     */
+    private ByteBuffer getRecord(long record) {
+        ByteBuffer duplicate = chunks[(int) (record >>> RECORDS_PER_CHUNK_BITS)].duplicate();
+        int offset = (int) (record & RECORDS_PER_CHUNK_MASK) * RECORD_SIZE_IN_BYTES;
+        duplicate.limit(offset + RECORD_SIZE_IN_BYTES);
+        duplicate.position(offset);
+        return duplicate.slice();
+    }
+
+    @Override
+    public void forEachHash160(Consumer<ByteBuffer> consumer) {
+        for (long i = 0; i < count; i++) {
+            consumer.accept(getRecord(i));
+        }
+    }
+
+    @Override
+    public void writeAllAmountsToAddressFile(File file, CAddressFileOutputFormat addressFileOutputFormat, AtomicBoolean shouldRun) throws IOException {
+        try (FileWriter writer = new FileWriter(file)) {
+            for (long i = 0; i < count; i++) {
+                if (!shouldRun.get()) {
+                    return;
+                }
+                LegacyAddress address = keyUtility.byteBufferToAddress(getRecord(i));
+                final String line;
+                switch(addressFileOutputFormat) {
+                    case HexHash:
+                        line = Hex.encodeHexString(address.getHash()) + System.lineSeparator();
+                        break;
+                    case FixedWidthBase58BitcoinAddress:
+                        line = String.format("%-34s", address.toBase58()) + System.lineSeparator();
+                        break;
+                    case DynamicWidthBase58BitcoinAddressWithAmount:
+                        // no amounts stored
+                        line = address.toBase58() + AddressTxtLine.COMMA + Coin.ZERO.getValue() + System.lineSeparator();
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown addressFileOutputFormat: " + addressFileOutputFormat);
+                }
+                writer.write(line);
+            }
+        }
+    }
+
+    @Override
+    public void changeAmount(ByteBuffer hash160, Coin amountToChange) {
+        throw new UnsupportedOperationException("The sorted hash160 file is read-only.");
+    }
+
+    @Override
+    public void putNewAmount(ByteBuffer hash160, Coin toWrite) {
+        throw new UnsupportedOperationException("The sorted hash160 file is read-only.");
+    }
+
+    @Override
+    public void putAllAmounts(Map<ByteBuffer, Coin> amounts) throws IOException {
+        throw new UnsupportedOperationException("The sorted hash160 file is read-only.");
+    }
+
+    @Override
+    public Coin getAllAmountsFromAddresses(List<ByteBuffer> hash160s) {
+        return Coin.ZERO;
+    }
+
+    @Override
+    public long getDatabaseSize() {
+        return fileSize;
+    }
+
+    @Override
+    public void increaseDatabaseSize(long toIncrease) {
+        throw new UnsupportedOperationException("The sorted hash160 file is read-only.");
+    }
+
+    @Override
+    public long getIncreasedCounter() {
+        return 0;
+    }
+
+    @Override
+    public long getIncreasedSum() {
+        return 0;
+    }
+
+    @Override
+    public void logStats() {
+        logger.info("##### BEGIN: sorted hash160 file stats #####");
+        logger.info("File: " + sortedHash160FileConfigurationReadOnly.sortedHash160File);
+        logger.info("FileSize: " + new ByteConversion().bytesToMib(getDatabaseSize()) + " MiB");
+        logger.info("PrefixBits: " + prefixBits);
+        logger.info("Sorted hash160 file contains " + count + " unique entries.");
+        logger.info("##### END: sorted hash160 file stats #####");
+    }
+}
@@ -0,0 +1,133 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder.persistence.sorted;
+
+import com.google.common.primitives.UnsignedBytes;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import net.ladenthin.bitcoinaddressfinder.PublicKeyBytes;
+
+/**
+ * Writes a file for the {@link SortedHash160FilePersistence}. The hash160s must
+ * be added in unsigned lexicographical order, duplicates are skipped.
+ */
+public class SortedHash160FileWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final Comparator<byte[]> COMPARATOR = UnsignedBytes.lexicographicalComparator();
+
+    private final int prefixBits;
+    private final long[] bucketCounts;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel fileChannel;
+    private final DataOutputStream dataOutputStream;
+    private final byte[] last = new byte[PublicKeyBytes.HASH160_SIZE];
+    private final byte[] current = new byte[PublicKeyBytes.HASH160_SIZE];
+    private long count = 0;
+
+    public SortedHash160FileWriter(File file, int prefixBits) throws IOException {
+        SortedHash160FilePersistence.assertPrefixBitsCorrect(prefixBits);
+        this.prefixBits = prefixBits;
+        this.bucketCounts = new long[1 << prefixBits];
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        fileChannel = randomAccessFile.getChannel();
+        fileChannel.truncate(0);
+        fileChannel.position(SortedHash160FilePersistence.HEADER_SIZE_IN_BYTES + SortedHash160FilePersistence.getIndexSizeInBytes(prefixBits));
+        dataOutputStream = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(fileChannel), BUFFER_SIZE));
+    }
+
+    /**
+     * @param hash160 the hash160 from its position to its limit, the position is not changed
+     * @throws IllegalArgumentException if the hash160 is less than the previous one
+     */
+    public void add(ByteBuffer hash160) throws IOException {
+        if (hash160.remaining() != PublicKeyBytes.HASH160_SIZE) {
+            throw new IllegalArgumentException("Invalid hash160 length: " + hash160.remaining());
+        }
+        hash160.duplicate().get(current);
+        if (count > 0) {
+            int compare = COMPARATOR.compare(last, current);
+            if (compare == 0) {
+                return;
+            }
+            if (compare > 0) {
+                throw new IllegalArgumentException("The hash160s are not sorted.");
+            }
+        }
+        dataOutputStream.write(current);
+        System.arraycopy(current, 0, last, 0, current.length);
+        int bucket = (int) (ByteBuffer.wrap(current).getLong() >>> (Long.SIZE - prefixBits));
+        bucketCounts[bucket]++;
+        count++;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Sorts the given hash160s in place and adds them.
+     */
+    public void addUnsorted(byte[][] hash160s) throws IOException {
+        Arrays.sort(hash160s, COMPARATOR);
+        for (byte[] hash160 : hash160s) {
+            add(ByteBuffer.wrap(hash160));
+        }
+    }
+
+    /**
+     * Writes the header and the prefix index.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            dataOutputStream.flush();
+            ByteBuffer headerAndIndex = ByteBuffer.allocate((int) (SortedHash160FilePersistence.HEADER_SIZE_IN_BYTES + SortedHash160FilePersistence.getIndexSizeInBytes(prefixBits)));
+            headerAndIndex.putLong(SortedHash160FilePersistence.FILE_MAGIC);
+            headerAndIndex.putInt(SortedHash160FilePersistence.FILE_VERSION);
+            headerAndIndex.putInt(prefixBits);
+            headerAndIndex.putLong(count);
+            long start = 0;
+            for (long bucketCount : bucketCounts) {
+                headerAndIndex.putLong(start);
+                start += bucketCount;
+            }
+            headerAndIndex.putLong(start);
+            headerAndIndex.flip();
+            fileChannel.position(0);
+            while (headerAndIndex.hasRemaining()) {
+                fileChannel.write(headerAndIndex);
+            }
+            fileChannel.force(false);
+        } finally {
+            dataOutputStream.close();
+            randomAccessFile.close();
+        }
+    }
+}
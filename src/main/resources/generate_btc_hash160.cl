@@ -0,0 +1,300 @@
+/**
+ * Author......: Bernard Ladenthin, 2023
+ * License.....: MIT
+ */
+
+#define COMPRESSED_PUBLIC_KEY_BYTES 33
+#define PUBLIC_KEY_PARITY_BYTE_EVEN 2
+#define PUBLIC_KEY_PARITY_BYTE_ODD 3
+// the hash160 of the uncompressed and the compressed public key back to back
+#define HASH160_RESULT_BYTES (2 * RIPEMD160_HASH_BYTES)
+
+// the blocked Bloom filter of the host, see BlockedBloomFilter
+#define BLOCKED_BLOOM_FILTER_WORDS_PER_BLOCK 8
+#define BLOCKED_BLOOM_FILTER_BIT_SHIFT 23
+// a candidate entry: the work item id shifted left by one, the lowest bit is set for the compressed public key
+#define CANDIDATE_COMPRESSED 1
+
+__attribute__((always_inline)) void generate_hash160(__global uchar *r, const u32 *k_local_u32, const int work_item_id);
+__attribute__((always_inline)) void generate_hash160_filtered(__global uint *r, const u32 *k_local_u32, const int work_item_id, __global const ulong *filter, const ulong number_of_blocks, const uint number_of_hash_functions);
+__attribute__((always_inline)) void calculate_hash160s(const u32 *k_local_u32, u32 *ripemd160_hash_uncompressed, u32 *ripemd160_hash_compressed);
+__attribute__((always_inline)) int blocked_bloom_filter_might_contain(__global const ulong *filter, const ulong number_of_blocks, const uint number_of_hash_functions, const u32 *ripemd160_hash);
+__attribute__((always_inline)) void calculate_sha256_from_compressed_public_key(PRIVATE_AS const uchar *digest_bytes, u32 *sha256_hash);
+__attribute__((always_inline)) void store_ripemd160_hash(__global uchar *r, const int r_offset, const u32 *ripemd160_hash);
+
+/*
+ * Kernel for the search of addresses: only the hash160 of the uncompressed and the compressed
+ * public key is written into the result buffer, 40 bytes per work item instead of the coordinates.
+ * The private key is not written, it is known by the host. The given private key is combined
+ * with the global_id to calculate a new key.
+ *
+ * OUTPUT uchar *r: Pointer to the result buffer storing the hash160s
+ * INPUT u32 *k:    Pointer to the source buffer storing one private key
+ */
+__kernel void generate_hash160_chunk(__global uchar *r, __global const u32 *k){
+
+    // id of current work item
+    int work_item_id = get_global_id(0);
+    u32 k_local_u32[PRIVATE_KEY_LENGTH];
+
+    // get first private key from private key grid and "create" a new one
+    k_local_u32[0] = k[0] | work_item_id;
+    k_local_u32[1] = k[1];
+    k_local_u32[2] = k[2];
+    k_local_u32[3] = k[3];
+    k_local_u32[4] = k[4];
+    k_local_u32[5] = k[5];
+    k_local_u32[6] = k[6];
+    k_local_u32[7] = k[7];
+
+    generate_hash160(r, k_local_u32, work_item_id);
+}
+
+/*
+ * Same as generate_hash160_chunk with a private key per work item.
+ *
+ * OUTPUT uchar *r: Pointer to the result buffer storing the hash160s
+ * INPUT u32 *k:    Pointer to the source buffer storing all private keys
+ */
+__kernel void generate_hash160_nonchunk(__global uchar *r, __global const u32 *k){
+
+    // id of current work item
+    int work_item_id = get_global_id(0);
+    u32 k_local_u32[PRIVATE_KEY_LENGTH];
+
+    // calculating offset to read private key
+    int k_offset = PRIVATE_KEY_LENGTH * work_item_id;
+
+    // get private key from private key grid
+    k_local_u32[0] = k[0 + k_offset];
+    k_local_u32[1] = k[1 + k_offset];
+    k_local_u32[2] = k[2 + k_offset];
+    k_local_u32[3] = k[3 + k_offset];
+    k_local_u32[4] = k[4 + k_offset];
+    k_local_u32[5] = k[5 + k_offset];
+    k_local_u32[6] = k[6 + k_offset];
+    k_local_u32[7] = k[7 + k_offset];
+
+    generate_hash160(r, k_local_u32, work_item_id);
+}
+
+/*
+ * Kernel for the search of addresses with a filter on the device: the hash160 of the uncompressed and the
+ * compressed public key is tested against the blocked Bloom filter of the addresses, only the candidates
+ * are appended to the result buffer. The host reads the count and the candidates only.
+ *
+ * OUTPUT uint *r:                      Pointer to the result buffer: the number of candidates followed by the candidates
+ * INPUT u32 *k:                        Pointer to the source buffer storing one private key
+ * INPUT ulong *filter:                 Pointer to the blocks of the filter
+ * PARAM ulong number_of_blocks:        The number of blocks of the filter
+ * PARAM uint number_of_hash_functions: The number of bits set per key in its block
+ */
+__kernel void generate_hash160_filtered_chunk(__global uint *r, __global const u32 *k, __global const ulong *filter, const ulong number_of_blocks, const uint number_of_hash_functions){
+
+    // id of current work item
+    int work_item_id = get_global_id(0);
+    u32 k_local_u32[PRIVATE_KEY_LENGTH];
+
+    // get first private key from private key grid and "create" a new one
+    k_local_u32[0] = k[0] | work_item_id;
+    k_local_u32[1] = k[1];
+    k_local_u32[2] = k[2];
+    k_local_u32[3] = k[3];
+    k_local_u32[4] = k[4];
+    k_local_u32[5] = k[5];
+    k_local_u32[6] = k[6];
+    k_local_u32[7] = k[7];
+
+    generate_hash160_filtered(r, k_local_u32, work_item_id, filter, number_of_blocks, number_of_hash_functions);
+}
+
+/*
+ * Same as generate_hash160_filtered_chunk with a private key per work item.
+ *
+ * OUTPUT uint *r:                      Pointer to the result buffer: the number of candidates followed by the candidates
+ * INPUT u32 *k:                        Pointer to the source buffer storing all private keys
+ * INPUT ulong *filter:                 Pointer to the blocks of the filter
+ * PARAM ulong number_of_blocks:        The number of blocks of the filter
+ * PARAM uint number_of_hash_functions: The number of bits set per key in its block
+ */
+__kernel void generate_hash160_filtered_nonchunk(__global uint *r, __global const u32 *k, __global const ulong *filter, const ulong number_of_blocks, const uint number_of_hash_functions){
+
+    // id of current work item
+    int work_item_id = get_global_id(0);
+    u32 k_local_u32[PRIVATE_KEY_LENGTH];
+
+    // calculating offset to read private key
+    int k_offset = PRIVATE_KEY_LENGTH * work_item_id;
+
+    // get private key from private key grid
+    k_local_u32[0] = k[0 + k_offset];
+    k_local_u32[1] = k[1 + k_offset];
+    k_local_u32[2] = k[2 + k_offset];
+    k_local_u32[3] = k[3 + k_offset];
+    k_local_u32[4] = k[4 + k_offset];
+    k_local_u32[5] = k[5 + k_offset];
+    k_local_u32[6] = k[6 + k_offset];
+    k_local_u32[7] = k[7 + k_offset];
+
+    generate_hash160_filtered(r, k_local_u32, work_item_id, filter, number_of_blocks, number_of_hash_functions);
+}
+
+/*
+ * Writes the RIPEMD-160 hash of the SHA-256 hash of the uncompressed and the compressed public key
+ * into the result buffer.
+ *
+ * OUTPUT uchar *r:         Pointer to the result buffer storing the hash160s
+ * INPUT u32 k_local_u32:   The private key
+ * INPUT int work_item_id:  The ID of the current work-item
+ */
+__attribute__((always_inline)) void generate_hash160(__global uchar *r, const u32 *k_local_u32, const int work_item_id){
+
+    u32 ripemd160_hash_uncompressed[RIPEMD160_HASH_BYTES / 4];
+    u32 ripemd160_hash_compressed[RIPEMD160_HASH_BYTES / 4];
+
+    int r_offset = HASH160_RESULT_BYTES * work_item_id;
+
+    calculate_hash160s(k_local_u32, ripemd160_hash_uncompressed, ripemd160_hash_compressed);
+    store_ripemd160_hash(r, r_offset, ripemd160_hash_uncompressed);
+    store_ripemd160_hash(r, r_offset + RIPEMD160_HASH_BYTES, ripemd160_hash_compressed);
+}
+
+/*
+ * Appends the work item to the candidates if the hash160 of the uncompressed or the compressed
+ * public key might be contained in the filter. r[0] is the number of candidates, it must be 0
+ * before the launch. The result buffer has space for two candidates per work item.
+ *
+ * OUTPUT uint *r:                      Pointer to the result buffer: the number of candidates followed by the candidates
+ * INPUT u32 k_local_u32:               The private key
+ * INPUT int work_item_id:              The ID of the current work-item
+ * INPUT ulong *filter:                 Pointer to the blocks of the filter
+ * PARAM ulong number_of_blocks:        The number of blocks of the filter
+ * PARAM uint number_of_hash_functions: The number of bits set per key in its block
+ */
+__attribute__((always_inline)) void generate_hash160_filtered(__global uint *r, const u32 *k_local_u32, const int work_item_id, __global const ulong *filter, const ulong number_of_blocks, const uint number_of_hash_functions){
+
+    u32 ripemd160_hash_uncompressed[RIPEMD160_HASH_BYTES / 4];
+    u32 ripemd160_hash_compressed[RIPEMD160_HASH_BYTES / 4];
+
+    calculate_hash160s(k_local_u32, ripemd160_hash_uncompressed, ripemd160_hash_compressed);
+
+    if (blocked_bloom_filter_might_contain(filter, number_of_blocks, number_of_hash_functions, ripemd160_hash_uncompressed)) {
+        uint index = atomic_inc(&r[0]);
+        r[1 + index] = ((uint) work_item_id) << 1;
+    }
+    if (blocked_bloom_filter_might_contain(filter, number_of_blocks, number_of_hash_functions, ripemd160_hash_compressed)) {
+        uint index = atomic_inc(&r[0]);
+        r[1 + index] = (((uint) work_item_id) << 1) | CANDIDATE_COMPRESSED;
+    }
+}
+
+/*
+ * Calculates the public key of the private key and the RIPEMD-160 hash of the SHA-256 hash
+ * of the uncompressed and the compressed public key.
+ *
+ * INPUT u32 k_local_u32:                       The private key
+ * OUTPUT u32 *ripemd160_hash_uncompressed:     Pointer to the hash160 of the uncompressed public key
+ * OUTPUT u32 *ripemd160_hash_compressed:       Pointer to the hash160 of the compressed public key
+ */
+__attribute__((always_inline)) void calculate_hash160s(const u32 *k_local_u32, u32 *ripemd160_hash_uncompressed, u32 *ripemd160_hash_compressed){
+
+    u32 x_local_u32[PUBLIC_KEY_ONE_COORDINATE_LENGTH];
+    u32 y_local_u32[PUBLIC_KEY_ONE_COORDINATE_LENGTH];
+    secp256k1_t g_xy_local;
+
+    uchar public_key[PUBLIC_KEY_BYTES_WITH_PARITY];
+    u32 sha256_hash[PUBLIC_KEY_ONE_COORDINATE_LENGTH];
+
+    // calculating the public key coordinates
+    set_precomputed_basepoint_g(&g_xy_local);
+    point_mul_xy(x_local_u32, y_local_u32, k_local_u32, &g_xy_local);
+
+    // uncompressed public key: parity byte, x-coordinate, y-coordinate
+    create_public_key_from_coordinates(public_key, x_local_u32, y_local_u32);
+    calculate_sha256_from_public_key(public_key, sha256_hash);
+    calculate_ripemd160_from_u32(sha256_hash, ripemd160_hash_uncompressed);
+
+    // compressed public key: the parity of the y-coordinate followed by the x-coordinate of the uncompressed public key
+    public_key[0] = (y_local_u32[0] & 1) ? PUBLIC_KEY_PARITY_BYTE_ODD : PUBLIC_KEY_PARITY_BYTE_EVEN;
+    calculate_sha256_from_compressed_public_key(public_key, sha256_hash);
+    calculate_ripemd160_from_u32(sha256_hash, ripemd160_hash_compressed);
+}
+
+/*
+ * Same as BlockedBloomFilter.mightContain of the host. The filter reads the first 16 bytes of the
+ * hash160 as two big endian longs h1 and h2: h1 selects the block, h2 the bits within the block.
+ *
+ * INPUT ulong *filter:                 Pointer to the blocks of the filter, little endian words
+ * PARAM ulong number_of_blocks:        The number of blocks of the filter
+ * PARAM uint number_of_hash_functions: The number of bits set per key in its block
+ * INPUT u32 *ripemd160_hash:           Pointer to the RIPEMD-160 hash as an u32 array
+ * RETURN: 0 if the hash is definitely not contained, 1 if the hash might be contained
+ */
+__attribute__((always_inline)) int blocked_bloom_filter_might_contain(__global const ulong *filter, const ulong number_of_blocks, const uint number_of_hash_functions, const u32 *ripemd160_hash) {
+    // the bytes of a hash word are in little endian order, the upper 32 bits of h1 are the first word
+    ulong block_index = (((ulong) hc_swap32_S(ripemd160_hash[0])) * number_of_blocks) >> 32;
+    __global const ulong *block = filter + block_index * BLOCKED_BLOOM_FILTER_WORDS_PER_BLOCK;
+    // the lower and the upper 32 bits of h2
+    uint a = hc_swap32_S(ripemd160_hash[3]);
+    uint b = hc_swap32_S(ripemd160_hash[2]) | 1;
+    for (uint i = 0; i < number_of_hash_functions; i++) {
+        uint bit = (a + i * b) >> BLOCKED_BLOOM_FILTER_BIT_SHIFT;
+        if ((block[bit >> 6] & (1UL << (bit & 63))) == 0) {
+            return 0;
+        }
+    }
+    return 1;
+}
+
+ /*
+  * Calculates the SHA-256 hash from a compressed public key.
+  *
+  * INPUT uchar *digest_bytes:  Pointer to the compressed public key as byte array
+  * OUTPUT u32 *sha256_hash:    Pointer to the resulting hash as an u32 array
+  */
+__attribute__((always_inline)) void calculate_sha256_from_compressed_public_key(PRIVATE_AS const uchar *digest_bytes, u32 *sha256_hash) {
+
+    // digest to be hashed, a compressed public key fits in a single block
+    u32 padded_digest_u32[SINGLE_SIZED_SHA256_INPUT_U32];
+
+    // padded byte array for correct sha256 digest length
+    uchar padded_digest_bytes[SINGLE_SIZED_SHA256_INPUT_BYTES];
+
+    // size in bytes of the input to be hashed
+    int padded_digest_size;
+
+    // prepare hash
+    sha256_padding(digest_bytes, COMPRESSED_PUBLIC_KEY_BYTES, padded_digest_bytes, &padded_digest_size);
+    storeByteArrayToU32Array(padded_digest_bytes, padded_digest_u32, padded_digest_size);
+
+    // perform hash
+    sha256_ctx_t ctx;
+    sha256_init(&ctx);
+    sha256_update(&ctx, padded_digest_u32, padded_digest_size);
+
+    // store hash in output
+    sha256_hash[0] = ctx.h[0];
+    sha256_hash[1] = ctx.h[1];
+    sha256_hash[2] = ctx.h[2];
+    sha256_hash[3] = ctx.h[3];
+    sha256_hash[4] = ctx.h[4];
+    sha256_hash[5] = ctx.h[5];
+    sha256_hash[6] = ctx.h[6];
+    sha256_hash[7] = ctx.h[7];
+}
+
+/*
+ * Writes the 5x 32-bit RIPEMD-160 result into 20x 8-bit of the result buffer.
+ *
+ * OUTPUT uchar *r:             Pointer to the result buffer
+ * PARAM int r_offset:          Offset of the hash in the result buffer
+ * INPUT u32 *ripemd160_hash:   Pointer to the RIPEMD-160 hash as an u32 array
+ */
+__attribute__((always_inline)) void store_ripemd160_hash(__global uchar *r, const int r_offset, const u32 *ripemd160_hash) {
+    for (int i = 0; i < RIPEMD160_HASH_BYTES / 4; i++) {
+        r[r_offset + i * 4 + 0] = (ripemd160_hash[i] >> 0) & 0xFF;
+        r[r_offset + i * 4 + 1] = (ripemd160_hash[i] >> 8) & 0xFF;
+        r[r_offset + i * 4 + 2] = (ripemd160_hash[i] >> 16) & 0xFF;
+        r[r_offset + i * 4 + 3] = (ripemd160_hash[i] >> 24) & 0xFF;
+    }
+}
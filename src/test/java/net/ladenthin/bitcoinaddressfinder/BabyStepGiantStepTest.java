@@ -0,0 +1,156 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import net.ladenthin.bitcoinaddressfinder.configuration.CBabyStepGiantStep;
+import org.bitcoinj.core.ECKey;
+import org.bouncycastle.util.encoders.Hex;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BabyStepGiantStepTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final BigInteger RANGE_START = new BigInteger("400000000", 16);
+    /**
+     * 2^34 secrets, more than one chunk with a table of 1 MiB.
+     */
+    private static final BigInteger RANGE_END = RANGE_START.add(BigInteger.ONE.shiftLeft(34));
+
+    private String publicKey(BigInteger secret, boolean compressed) {
+        return Hex.toHexString(ECKey.publicPointFromPrivate(secret).getEncoded(compressed));
+    }
+
+    private CBabyStepGiantStep createConfiguration() {
+        CBabyStepGiantStep cBabyStepGiantStep = new CBabyStepGiantStep();
+        cBabyStepGiantStep.rangeStart = RANGE_START.toString(16);
+        cBabyStepGiantStep.rangeEnd = RANGE_END.toString(16);
+        cBabyStepGiantStep.babyStepTableMemoryInMiB = 1;
+        cBabyStepGiantStep.threads = 2;
+        return cBabyStepGiantStep;
+    }
+
+    @Test
+    public void run_secretsInRange_allFound() {
+        // arrange
+        BigInteger secretMiddle = RANGE_START.add(new BigInteger("2F0E1D2C3", 16));
+        BigInteger secretLast = RANGE_END.subtract(BigInteger.ONE);
+        CBabyStepGiantStep cBabyStepGiantStep = createConfiguration();
+        cBabyStepGiantStep.publicKeys.add(publicKey(RANGE_START, false));
+        cBabyStepGiantStep.publicKeys.add(publicKey(secretMiddle, true));
+        cBabyStepGiantStep.publicKeys.add(publicKey(secretLast, true));
+        BabyStepGiantStep babyStepGiantStep = new BabyStepGiantStep(cBabyStepGiantStep, new AtomicBoolean(true));
+
+        // act
+        babyStepGiantStep.run();
+
+        // assert
+        Map<String, BigInteger> secrets = babyStepGiantStep.getSecrets();
+        assertThat(secrets.size(), is(equalTo(3)));
+        assertThat(secrets.get(publicKey(RANGE_START, false)), is(equalTo(RANGE_START)));
+        assertThat(secrets.get(publicKey(secretMiddle, true)), is(equalTo(secretMiddle)));
+        assertThat(secrets.get(publicKey(secretLast, true)), is(equalTo(secretLast)));
+    }
+
+    @Test
+    public void run_secretOutsideRange_notFound() {
+        // arrange
+        CBabyStepGiantStep cBabyStepGiantStep = createConfiguration();
+        cBabyStepGiantStep.rangeEnd = RANGE_START.add(BigInteger.valueOf(1_000_000)).toString(16);
+        cBabyStepGiantStep.publicKeys.add(publicKey(RANGE_START.subtract(BigInteger.ONE), true));
+        BabyStepGiantStep babyStepGiantStep = new BabyStepGiantStep(cBabyStepGiantStep, new AtomicBoolean(true));
+
+        // act
+        babyStepGiantStep.run();
+
+        // assert
+        assertThat(babyStepGiantStep.getSecrets().isEmpty(), is(equalTo(true)));
+    }
+
+    @Test
+    public void run_privateKeyMaxNumBitsGiven_smallSecretFound() {
+        // arrange
+        CBabyStepGiantStep cBabyStepGiantStep = createConfiguration();
+        cBabyStepGiantStep.rangeStart = null;
+        cBabyStepGiantStep.rangeEnd = null;
+        cBabyStepGiantStep.privateKeyMaxNumBits = 20;
+        cBabyStepGiantStep.publicKeys.add(publicKey(BigInteger.valueOf(2), true));
+        cBabyStepGiantStep.publicKeys.add(publicKey(BigInteger.valueOf(0xABCDE), false));
+        BabyStepGiantStep babyStepGiantStep = new BabyStepGiantStep(cBabyStepGiantStep, new AtomicBoolean(true));
+
+        // act
+        babyStepGiantStep.run();
+
+        // assert
+        assertThat(babyStepGiantStep.getSecrets().get(publicKey(BigInteger.valueOf(2), true)), is(equalTo(BigInteger.valueOf(2))));
+        assertThat(babyStepGiantStep.getSecrets().get(publicKey(BigInteger.valueOf(0xABCDE), false)), is(equalTo(BigInteger.valueOf(0xABCDE))));
+    }
+
+    @Test
+    public void run_checkpointFileGiven_progressAndSecretStoredAndResumed() throws IOException {
+        // arrange
+        BigInteger secret = RANGE_START.add(new BigInteger("123456789", 16));
+        File checkpointFile = new File(folder.newFolder(), "checkpoint.properties");
+        CBabyStepGiantStep cBabyStepGiantStep = createConfiguration();
+        cBabyStepGiantStep.checkpointFile = checkpointFile.getAbsolutePath();
+        cBabyStepGiantStep.publicKeys.add(publicKey(secret, true));
+        cBabyStepGiantStep.publicKeys.add(publicKey(RANGE_END.shiftLeft(1), true));
+
+        // act
+        new BabyStepGiantStep(cBabyStepGiantStep, new AtomicBoolean(true)).run();
+        BabyStepGiantStep resumed = new BabyStepGiantStep(cBabyStepGiantStep, new AtomicBoolean(true));
+        resumed.run();
+
+        // assert
+        Properties checkpoint = new Properties();
+        try (InputStream inputStream = new FileInputStream(checkpointFile)) {
+            checkpoint.load(inputStream);
+        }
+        assertThat(checkpoint.getProperty("completedChunks"), is(equalTo("2")));
+        assertThat(checkpoint.getProperty("secret." + publicKey(secret, true)), is(equalTo(secret.toString(16))));
+        assertThat(resumed.getSecrets().get(publicKey(secret, true)), is(equalTo(secret)));
+        assertThat(resumed.getSecrets().get(publicKey(RANGE_END.shiftLeft(1), true)), is(nullValue()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void run_emptyRange_exceptionThrown() {
+        // arrange
+        CBabyStepGiantStep cBabyStepGiantStep = createConfiguration();
+        cBabyStepGiantStep.rangeEnd = cBabyStepGiantStep.rangeStart;
+        cBabyStepGiantStep.publicKeys.add(publicKey(RANGE_START, true));
+
+        // act
+        new BabyStepGiantStep(cBabyStepGiantStep, new AtomicBoolean(true)).run();
+    }
+}
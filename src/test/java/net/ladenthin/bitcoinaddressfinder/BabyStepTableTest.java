@@ -0,0 +1,95 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import org.junit.Test;
+
+public class BabyStepTableTest {
+
+    private long[] x(long limb0) {
+        return new long[]{limb0, 1L, 2L, 3L};
+    }
+
+    @Test
+    public void nextCandidate_entriesPut_babyStepsFound() {
+        // arrange
+        BabyStepTable babyStepTable = new BabyStepTable(16);
+        // same slot, different fingerprints
+        babyStepTable.put(x(0x0000000100000003L), 7);
+        babyStepTable.put(x(0x0000000200000003L), 8);
+
+        // act
+        long first = babyStepTable.nextCandidate(x(0x0000000200000003L), babyStepTable.homeSlot(x(0x0000000200000003L)));
+        long missing = babyStepTable.nextCandidate(x(0x0000000300000003L), babyStepTable.homeSlot(x(0x0000000300000003L)));
+
+        // assert
+        assertThat(babyStepTable.getBabyStep(first), is(equalTo(8)));
+        assertThat(missing, is(equalTo(BabyStepTable.NO_CANDIDATE)));
+        assertThat(babyStepTable.size(), is(equalTo(2L)));
+        babyStepTable.free();
+    }
+
+    @Test
+    public void nextCandidate_sameFingerprintTwice_bothCandidatesIterated() {
+        // arrange
+        BabyStepTable babyStepTable = new BabyStepTable(8);
+        babyStepTable.put(x(0x0000000100000007L), 1);
+        babyStepTable.put(x(0x0000000100000007L), 2);
+
+        // act
+        long first = babyStepTable.nextCandidate(x(0x0000000100000007L), babyStepTable.homeSlot(x(0x0000000100000007L)));
+        long second = babyStepTable.nextCandidate(x(0x0000000100000007L), babyStepTable.nextSlot(first));
+        long third = babyStepTable.nextCandidate(x(0x0000000100000007L), babyStepTable.nextSlot(second));
+
+        // assert, the probing wraps around
+        assertThat(babyStepTable.getBabyStep(first), is(equalTo(1)));
+        assertThat(babyStepTable.getBabyStep(second), is(equalTo(2)));
+        assertThat(second, is(equalTo(0L)));
+        assertThat(third, is(equalTo(BabyStepTable.NO_CANDIDATE)));
+        babyStepTable.free();
+    }
+
+    @Test
+    public void capacityForMemory_oneMiBGiven_powerOfTwo() {
+        // act
+        long capacity = BabyStepTable.capacityForMemory(1024 * 1024 + 17);
+
+        // assert
+        assertThat(capacity, is(equalTo(131072L)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_noPowerOfTwo_exceptionThrown() {
+        // act
+        new BabyStepTable(12);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void put_tableFull_exceptionThrown() {
+        // arrange
+        BabyStepTable babyStepTable = new BabyStepTable(2);
+        babyStepTable.put(x(0L), 1);
+
+        // act
+        babyStepTable.put(x(1L), 2);
+    }
+}
@@ -0,0 +1,145 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import net.ladenthin.bitcoinaddressfinder.persistence.filter.BlockedBloomFilter;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BlockedBloomFilterTest {
+
+    private static final int INSERTIONS = 10_000;
+    private static final int PROBES = 100_000;
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.001;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ByteBuffer createRandomHash160s(long seed, int count) {
+        Random random = new Random(seed);
+        byte[] bytes = new byte[count * PublicKeyBytes.HASH160_SIZE];
+        random.nextBytes(bytes);
+        ByteBuffer hash160s = ByteBuffer.allocateDirect(bytes.length);
+        hash160s.put(bytes);
+        hash160s.flip();
+        return hash160s;
+    }
+
+    private ByteBuffer slice(ByteBuffer hash160s, int index) {
+        ByteBuffer duplicate = hash160s.duplicate();
+        duplicate.position(index * PublicKeyBytes.HASH160_SIZE);
+        duplicate.limit(duplicate.position() + PublicKeyBytes.HASH160_SIZE);
+        return duplicate;
+    }
+
+    @Test
+    public void mightContain_insertedKeys_allContained() {
+        // arrange
+        BlockedBloomFilter blockedBloomFilter = BlockedBloomFilter.create(INSERTIONS, FALSE_POSITIVE_PROBABILITY);
+        ByteBuffer hash160s = createRandomHash160s(1L, INSERTIONS);
+        for (int i = 0; i < INSERTIONS; i++) {
+            blockedBloomFilter.put(slice(hash160s, i));
+        }
+
+        // act, assert
+        for (int i = 0; i < INSERTIONS; i++) {
+            assertThat(blockedBloomFilter.mightContain(slice(hash160s, i)), is(equalTo(true)));
+        }
+        blockedBloomFilter.free();
+    }
+
+    @Test
+    public void mightContain_byteOrderOfKeyDiffers_sameResult() {
+        // arrange
+        BlockedBloomFilter blockedBloomFilter = BlockedBloomFilter.create(INSERTIONS, FALSE_POSITIVE_PROBABILITY);
+        ByteBuffer hash160s = createRandomHash160s(1L, INSERTIONS);
+        for (int i = 0; i < INSERTIONS; i++) {
+            blockedBloomFilter.put(slice(hash160s, i));
+        }
+
+        // act, assert
+        for (int i = 0; i < INSERTIONS; i++) {
+            assertThat(blockedBloomFilter.mightContain(slice(hash160s, i).order(ByteOrder.LITTLE_ENDIAN)), is(equalTo(true)));
+        }
+        blockedBloomFilter.free();
+    }
+
+    @Test
+    public void mightContain_unknownKeys_falsePositiveRateBounded() {
+        // arrange
+        BlockedBloomFilter blockedBloomFilter = BlockedBloomFilter.create(INSERTIONS, FALSE_POSITIVE_PROBABILITY);
+        ByteBuffer hash160s = createRandomHash160s(1L, INSERTIONS);
+        for (int i = 0; i < INSERTIONS; i++) {
+            blockedBloomFilter.put(slice(hash160s, i));
+        }
+        ByteBuffer unknownHash160s = createRandomHash160s(2L, PROBES);
+
+        // act
+        int falsePositives = 0;
+        for (int i = 0; i < PROBES; i++) {
+            if (blockedBloomFilter.mightContain(slice(unknownHash160s, i))) {
+                falsePositives++;
+            }
+        }
+
+        // assert, a blocked bloom filter is a bit worse than a classic one, allow a factor of three
+        assertThat((double) falsePositives / PROBES, is(lessThan(FALSE_POSITIVE_PROBABILITY * 3)));
+        blockedBloomFilter.free();
+    }
+
+    @Test
+    public void readFromFile_writtenFilter_sameContent() throws IOException {
+        // arrange
+        BlockedBloomFilter blockedBloomFilter = BlockedBloomFilter.create(INSERTIONS, FALSE_POSITIVE_PROBABILITY);
+        ByteBuffer hash160s = createRandomHash160s(1L, INSERTIONS);
+        for (int i = 0; i < INSERTIONS; i++) {
+            blockedBloomFilter.put(slice(hash160s, i));
+        }
+        File file = new File(folder.getRoot(), "filter.bin");
+
+        // act
+        blockedBloomFilter.writeToFile(file);
+        BlockedBloomFilter read = BlockedBloomFilter.readFromFile(file);
+
+        // assert
+        assertThat(read.getNumberOfBlocks(), is(equalTo(blockedBloomFilter.getNumberOfBlocks())));
+        assertThat(read.getNumberOfHashFunctions(), is(equalTo(blockedBloomFilter.getNumberOfHashFunctions())));
+        assertThat(read.getChunks()[0].duplicate().clear(), is(equalTo(blockedBloomFilter.getChunks()[0].duplicate().clear())));
+        for (int i = 0; i < INSERTIONS; i++) {
+            assertThat(read.mightContain(slice(hash160s, i)), is(equalTo(true)));
+        }
+        read.free();
+        blockedBloomFilter.free();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_invalidFalsePositiveProbability_throwsException() {
+        BlockedBloomFilter.create(INSERTIONS, 1.0d);
+    }
+}
@@ -20,6 +20,7 @@ package net.ladenthin.bitcoinaddressfinder;
 
 import com.tngtech.java.junit.dataprovider.DataProvider;
 import net.ladenthin.bitcoinaddressfinder.configuration.CProducerOpenCL;
+import net.ladenthin.bitcoinaddressfinder.configuration.CWaitStrategy;
 import net.ladenthin.bitcoinaddressfinder.staticaddresses.StaticP2PKHAddress;
 import net.ladenthin.bitcoinaddressfinder.staticaddresses.StaticP2SHAddress;
 import net.ladenthin.bitcoinaddressfinder.staticaddresses.StaticUnsupportedAddress;
@@ -418,4 +419,14 @@ public class CommonDataProvider {
             {false},
         };
     }
+    
+    /**
+     * For {@link MpmcRingBuffer}.
+     */
+    public final static String DATA_PROVIDER_WAIT_STRATEGY = "waitStrategy";
+
+    @DataProvider
+    public static Object[][] waitStrategy() {
+        return transformFlatToObjectArrayArray(CWaitStrategy.values());
+    }
 }
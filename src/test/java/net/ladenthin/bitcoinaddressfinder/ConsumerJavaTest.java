@@ -27,13 +27,17 @@ import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
 import java.math.BigInteger;
-import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.ladenthin.bitcoinaddressfinder.configuration.CAddressFilter;
 import net.ladenthin.bitcoinaddressfinder.configuration.CConsumerJava;
+import net.ladenthin.bitcoinaddressfinder.configuration.CCreateSortedHash160File;
 import net.ladenthin.bitcoinaddressfinder.configuration.CLMDBConfigurationReadOnly;
 import net.ladenthin.bitcoinaddressfinder.configuration.CProducerJava;
+import net.ladenthin.bitcoinaddressfinder.configuration.CSortedHash160FileConfigurationReadOnly;
+import net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Endomorphism;
 import net.ladenthin.bitcoinaddressfinder.persistence.PersistenceUtils;
 import net.ladenthin.bitcoinaddressfinder.staticaddresses.TestAddresses1337;
 import net.ladenthin.bitcoinaddressfinder.staticaddresses.TestAddresses42;
@@ -47,6 +51,7 @@ import org.bitcoinj.crypto.MnemonicException;
 import org.bitcoinj.params.MainNetParams;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
@@ -101,7 +106,7 @@ public class ConsumerJavaTest {
         List<String> arguments = logCaptor.getAllValues();
         verify(logger, atLeast(3)).info(logCaptor.capture());
 
-        assertThat(arguments.get(0), is(equalTo("Statistics: [Checked 0 M keys in 0 minutes] [0 k keys/second] [0 M keys/minute] [Times an empty consumer: 0] [Average contains time: 0 ms] [keys queue size: 0] [Hits: 0]")));
+        assertThat(arguments.get(0), is(equalTo("Statistics: [Checked 0 M keys in 0 minutes] [0 k keys/second] [0 M keys/minute] [Times an empty consumer: 0] [Average contains time: 0 ms] [keys queue size: 0 of 16] [Consumer wait time: 0 ms] [Producer wait time: 0 ms] [Hits: 0]")));
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -141,7 +146,7 @@ public class ConsumerJavaTest {
         Logger logger = mock(Logger.class);
         consumerJava.setLogger(logger);
         producerJava.produceKeys();
-        consumerJava.consumeKeys(createHash160ByteBuffer());
+        consumerJava.consumeKeys();
 
         // assert
         assertThat(consumerJava.hits.get(), is(equalTo(1L)));
@@ -175,6 +180,184 @@ public class ConsumerJavaTest {
         assertThat(arguments.get(5), is(equalTo(hitMessageFull)));
     }
 
+    @Test
+    @UseDataProvider(value = CommonDataProvider.DATA_PROVIDER_COMPRESSED, location = CommonDataProvider.class)
+    public void runProber_sliceSizeSmallerThanBatch_hitExpected(boolean compressed) throws IOException, InterruptedException, MnemonicException.MnemonicLengthException {
+        TestAddressesLMDB testAddressesLMDB = new TestAddressesLMDB();
+
+        TestAddressesFiles testAddresses = new TestAddressesFiles(compressed);
+        File lmdbFolderPath = testAddressesLMDB.createTestLMDB(folder, testAddresses, true, false);
+
+        CConsumerJava cConsumerJava = new CConsumerJava();
+        cConsumerJava.lmdbConfigurationReadOnly = new CLMDBConfigurationReadOnly();
+        cConsumerJava.lmdbConfigurationReadOnly.lmdbDirectory = lmdbFolderPath.getAbsolutePath();
+        cConsumerJava.sliceSize = 7;
+
+        AtomicBoolean shouldRun = new AtomicBoolean(true);
+
+        ConsumerJava consumerJava = new ConsumerJava(cConsumerJava, shouldRun, keyUtility, persistenceUtils);
+        consumerJava.initLMDB();
+
+        Random randomForProducer = new Random(TestAddresses42.RANDOM_SEED);
+
+        CProducerJava cProducerJava = new CProducerJava();
+        ProducerJava producerJava = new ProducerJava(cProducerJava, shouldRun, consumerJava, keyUtility, randomForProducer);
+
+        Logger logger = mock(Logger.class);
+        consumerJava.setLogger(logger);
+        producerJava.produceKeys();
+        consumerJava.consumeKeys();
+
+        // assert
+        assertThat(consumerJava.hits.get(), is(equalTo(1L)));
+        assertThat(consumerJava.checkedKeys.get(), is(equalTo((long) cProducerJava.getWorkSize() * PublicKeyBytesBatch.HASH160S_PER_KEY)));
+        assertThat(consumerJava.keysQueue.isEmpty(), is(equalTo(true)));
+    }
+
+    @Test
+    @UseDataProvider(value = CommonDataProvider.DATA_PROVIDER_COMPRESSED, location = CommonDataProvider.class)
+    public void runProber_vectorApiHash160Enabled_hitExpected(boolean compressed) throws IOException, InterruptedException, MnemonicException.MnemonicLengthException {
+        TestAddressesLMDB testAddressesLMDB = new TestAddressesLMDB();
+
+        TestAddressesFiles testAddresses = new TestAddressesFiles(compressed);
+        File lmdbFolderPath = testAddressesLMDB.createTestLMDB(folder, testAddresses, true, false);
+
+        CConsumerJava cConsumerJava = new CConsumerJava();
+        cConsumerJava.lmdbConfigurationReadOnly = new CLMDBConfigurationReadOnly();
+        cConsumerJava.lmdbConfigurationReadOnly.lmdbDirectory = lmdbFolderPath.getAbsolutePath();
+        cConsumerJava.useVectorApiHash160 = true;
+
+        AtomicBoolean shouldRun = new AtomicBoolean(true);
+
+        ConsumerJava consumerJava = new ConsumerJava(cConsumerJava, shouldRun, keyUtility, persistenceUtils);
+        consumerJava.initLMDB();
+
+        Random randomForProducer = new Random(TestAddresses42.RANDOM_SEED);
+
+        CProducerJava cProducerJava = new CProducerJava();
+        ProducerJava producerJava = new ProducerJava(cProducerJava, shouldRun, consumerJava, keyUtility, randomForProducer);
+
+        Logger logger = mock(Logger.class);
+        consumerJava.setLogger(logger);
+        producerJava.produceKeys();
+        consumerJava.consumeKeys();
+
+        // assert
+        assertThat(consumerJava.hits.get(), is(equalTo(1L)));
+        assertThat(consumerJava.checkedKeys.get(), is(equalTo((long) cProducerJava.getWorkSize() * PublicKeyBytesBatch.HASH160S_PER_KEY)));
+        assertThat(consumerJava.keysQueue.isEmpty(), is(equalTo(true)));
+    }
+
+    @Test
+    @UseDataProvider(value = CommonDataProvider.DATA_PROVIDER_COMPRESSED, location = CommonDataProvider.class)
+    public void runProber_endomorphismKeysEnabled_hitExpectedAndSixKeysChecked(boolean compressed) throws IOException, InterruptedException, MnemonicException.MnemonicLengthException {
+        TestAddressesLMDB testAddressesLMDB = new TestAddressesLMDB();
+
+        TestAddressesFiles testAddresses = new TestAddressesFiles(compressed);
+        File lmdbFolderPath = testAddressesLMDB.createTestLMDB(folder, testAddresses, true, false);
+
+        CConsumerJava cConsumerJava = new CConsumerJava();
+        cConsumerJava.lmdbConfigurationReadOnly = new CLMDBConfigurationReadOnly();
+        cConsumerJava.lmdbConfigurationReadOnly.lmdbDirectory = lmdbFolderPath.getAbsolutePath();
+        cConsumerJava.endomorphismKeys = true;
+
+        AtomicBoolean shouldRun = new AtomicBoolean(true);
+
+        ConsumerJava consumerJava = new ConsumerJava(cConsumerJava, shouldRun, keyUtility, persistenceUtils);
+        consumerJava.initLMDB();
+
+        Random randomForProducer = new Random(TestAddresses42.RANDOM_SEED);
+
+        CProducerJava cProducerJava = new CProducerJava();
+        ProducerJava producerJava = new ProducerJava(cProducerJava, shouldRun, consumerJava, keyUtility, randomForProducer);
+
+        Logger logger = mock(Logger.class);
+        consumerJava.setLogger(logger);
+        producerJava.produceKeys();
+        consumerJava.consumeKeys();
+
+        // assert
+        assertThat(consumerJava.hits.get(), is(equalTo(1L)));
+        assertThat(consumerJava.checkedKeys.get(), is(equalTo((long) cProducerJava.getWorkSize() * Secp256k1Endomorphism.VARIANTS * PublicKeyBytesBatch.HASH160S_PER_KEY)));
+        assertThat(consumerJava.keysQueue.isEmpty(), is(equalTo(true)));
+        consumerJava.freeEndomorphismBatch();
+    }
+
+    @Test
+    @UseDataProvider(value = CommonDataProvider.DATA_PROVIDER_COMPRESSED_AND_STATIC_AMOUNT, location = CommonDataProvider.class)
+    public void runProber_addressFilterEnabled_hitExpectedAndFilterWritten(boolean compressed, boolean useStaticAmount) throws IOException, InterruptedException, MnemonicException.MnemonicLengthException {
+        TestAddressesLMDB testAddressesLMDB = new TestAddressesLMDB();
+
+        TestAddressesFiles testAddresses = new TestAddressesFiles(compressed);
+        File lmdbFolderPath = testAddressesLMDB.createTestLMDB(folder, testAddresses, useStaticAmount, false);
+        File filterFile = new File(folder.newFolder(), "addressFilter.bin");
+
+        CConsumerJava cConsumerJava = new CConsumerJava();
+        cConsumerJava.lmdbConfigurationReadOnly = new CLMDBConfigurationReadOnly();
+        cConsumerJava.lmdbConfigurationReadOnly.lmdbDirectory = lmdbFolderPath.getAbsolutePath();
+        cConsumerJava.addressFilter = new CAddressFilter();
+        cConsumerJava.addressFilter.filterFile = filterFile.getAbsolutePath();
+
+        AtomicBoolean shouldRun = new AtomicBoolean(true);
+
+        ConsumerJava consumerJava = new ConsumerJava(cConsumerJava, shouldRun, keyUtility, persistenceUtils);
+        consumerJava.initLMDB();
+        assertThat(filterFile.exists(), is(equalTo(true)));
+
+        // a second consumer loads the prebuilt filter
+        ConsumerJava consumerJavaFromFile = new ConsumerJava(cConsumerJava, shouldRun, keyUtility, persistenceUtils);
+        consumerJavaFromFile.initLMDB();
+
+        Random randomForProducer = new Random(TestAddresses42.RANDOM_SEED);
+
+        CProducerJava cProducerJava = new CProducerJava();
+        ProducerJava producerJava = new ProducerJava(cProducerJava, shouldRun, consumerJavaFromFile, keyUtility, randomForProducer);
+
+        Logger logger = mock(Logger.class);
+        consumerJavaFromFile.setLogger(logger);
+        producerJava.produceKeys();
+        consumerJavaFromFile.consumeKeys();
+
+        // assert
+        assertThat(consumerJavaFromFile.hits.get(), is(equalTo(1L)));
+        assertThat(consumerJavaFromFile.filterHits.get() + consumerJavaFromFile.filterMisses.get(), is(equalTo(consumerJavaFromFile.checkedKeys.get())));
+        assertThat(consumerJavaFromFile.filterHits.get(), is(greaterThanOrEqualTo(1L)));
+    }
+
+    @Test
+    @UseDataProvider(value = CommonDataProvider.DATA_PROVIDER_COMPRESSED, location = CommonDataProvider.class)
+    public void runProber_sortedHash160FileGiven_hitExpected(boolean compressed) throws IOException, InterruptedException, MnemonicException.MnemonicLengthException {
+        TestAddressesFiles testAddresses = new TestAddressesFiles(compressed);
+        File sortedHash160File = new File(folder.newFolder(), "sorted.bin");
+
+        CCreateSortedHash160File cCreateSortedHash160File = new CCreateSortedHash160File();
+        cCreateSortedHash160File.addressesFiles.addAll(testAddresses.createAddressesFiles(folder, false));
+        cCreateSortedHash160File.sortedHash160File = sortedHash160File.getAbsolutePath();
+        new CreateSortedHash160File(cCreateSortedHash160File, new AtomicBoolean(true)).run();
+
+        CConsumerJava cConsumerJava = new CConsumerJava();
+        cConsumerJava.sortedHash160FileConfigurationReadOnly = new CSortedHash160FileConfigurationReadOnly();
+        cConsumerJava.sortedHash160FileConfigurationReadOnly.sortedHash160File = sortedHash160File.getAbsolutePath();
+
+        AtomicBoolean shouldRun = new AtomicBoolean(true);
+
+        ConsumerJava consumerJava = new ConsumerJava(cConsumerJava, shouldRun, keyUtility, persistenceUtils);
+        consumerJava.initLMDB();
+
+        Random randomForProducer = new Random(TestAddresses42.RANDOM_SEED);
+
+        CProducerJava cProducerJava = new CProducerJava();
+        ProducerJava producerJava = new ProducerJava(cProducerJava, shouldRun, consumerJava, keyUtility, randomForProducer);
+
+        Logger logger = mock(Logger.class);
+        consumerJava.setLogger(logger);
+        producerJava.produceKeys();
+        consumerJava.consumeKeys();
+
+        // assert
+        assertThat(consumerJava.hits.get(), is(equalTo(1L)));
+    }
+
     @Test
     @UseDataProvider(value = CommonDataProvider.DATA_PROVIDER_COMPRESSED_AND_STATIC_AMOUNT, location = CommonDataProvider.class)
     public void runProber_unknownAddressGiven_missExpected(boolean compressed, boolean useStaticAmount) throws IOException, InterruptedException, MnemonicException.MnemonicLengthException {
@@ -204,7 +387,7 @@ public class ConsumerJavaTest {
         consumerJava.setLogger(logger);
         producerJava.produceKeys();
         
-        consumerJava.consumeKeys(createHash160ByteBuffer());
+        consumerJava.consumeKeys();
 
         // assert
         assertThat(consumerJava.hits.get(), is(equalTo(0L)));
@@ -243,9 +426,8 @@ public class ConsumerJavaTest {
         consumerJava.setLogger(logger);
 
         PublicKeyBytes invalidPublicKeyBytes = PublicKeyBytes.INVALID_KEY_ONE;
-        PublicKeyBytes[] publicKeyBytesArray = new PublicKeyBytes[]{invalidPublicKeyBytes};
-        consumerJava.consumeKeys(publicKeyBytesArray);
-        consumerJava.consumeKeys(createHash160ByteBuffer());
+        consumerJava.consumeKeys(PublicKeyBytesBatch.of(invalidPublicKeyBytes));
+        consumerJava.consumeKeys();
     }
     
     @Test
@@ -276,9 +458,8 @@ public class ConsumerJavaTest {
         } else {
             invalidPublicKeyBytes.getUncompressed()[7] = 0;
         }
-        PublicKeyBytes[] publicKeyBytesArray = new PublicKeyBytes[]{invalidPublicKeyBytes};
-        consumerJava.consumeKeys(publicKeyBytesArray);
-        consumerJava.consumeKeys(createHash160ByteBuffer());
+        consumerJava.consumeKeys(PublicKeyBytesBatch.of(invalidPublicKeyBytes));
+        consumerJava.consumeKeys();
         
         // assert
         assertThat(consumerJava.hits.get(), is(equalTo(0L)));
@@ -336,10 +517,9 @@ public class ConsumerJavaTest {
 
         // https://privatekeys.pw/key/0000000000000000000000000000000000000000000000000000000000000049
         PublicKeyBytes publicKeyBytes = PublicKeyBytes.fromPrivate(BigInteger.valueOf(73));
-        PublicKeyBytes[] publicKeyBytesArray = new PublicKeyBytes[]{publicKeyBytes};
         
-        consumerJava.consumeKeys(publicKeyBytesArray);
-        consumerJava.consumeKeys(createHash160ByteBuffer());
+        consumerJava.consumeKeys(PublicKeyBytesBatch.of(publicKeyBytes));
+        consumerJava.consumeKeys();
         
         // assert
         assertThat(consumerJava.hits.get(), is(equalTo(0L)));
@@ -365,8 +545,80 @@ public class ConsumerJavaTest {
         }
     }
 
-    private ByteBuffer createHash160ByteBuffer() {
-        ByteBuffer threadLocalReuseableByteBuffer = ByteBuffer.allocateDirect(PublicKeyBytes.HASH160_SIZE);
-        return threadLocalReuseableByteBuffer;
+    @Test
+    public void consumeKeys_slicedBatchGiven_consumedCallbackRunAfterAllSlicesChecked() throws IOException, InterruptedException, MnemonicException.MnemonicLengthException {
+        // arrange
+        TestAddressesLMDB testAddressesLMDB = new TestAddressesLMDB();
+
+        TestAddressesFiles testAddresses = new TestAddressesFiles(false);
+        File lmdbFolderPath = testAddressesLMDB.createTestLMDB(folder, testAddresses, true, false);
+
+        CConsumerJava cConsumerJava = new CConsumerJava();
+        cConsumerJava.lmdbConfigurationReadOnly = new CLMDBConfigurationReadOnly();
+        cConsumerJava.lmdbConfigurationReadOnly.lmdbDirectory = lmdbFolderPath.getAbsolutePath();
+        cConsumerJava.sliceSize = 7;
+
+        AtomicBoolean shouldRun = new AtomicBoolean(true);
+
+        ConsumerJava consumerJava = new ConsumerJava(cConsumerJava, shouldRun, keyUtility, persistenceUtils);
+        consumerJava.initLMDB();
+
+        BigInteger secretBase = BigInteger.valueOf(256);
+        PublicKeyBytesBatch publicKeyBytesBatch = new PublicKeyBytesBatch(32, secretBase);
+        for (int i = 0; i < 32; i++) {
+            publicKeyBytesBatch.add(i, PublicKeyBytes.fromPrivate(AbstractProducer.calculateSecretKey(secretBase, i)).getUncompressed());
+        }
+        AtomicInteger consumed = new AtomicInteger();
+        publicKeyBytesBatch.setConsumedCallback(consumed::incrementAndGet);
+
+        // act
+        boolean queued = consumerJava.consumeKeys(publicKeyBytesBatch);
+        int consumedBeforeCheck = consumed.get();
+        consumerJava.consumeKeys();
+
+        // assert
+        assertThat(queued, is(equalTo(true)));
+        assertThat(consumedBeforeCheck, is(equalTo(0)));
+        assertThat(consumed.get(), is(equalTo(1)));
+        assertThat(consumerJava.checkedKeys.get(), is(equalTo(32L * PublicKeyBytesBatch.HASH160S_PER_KEY)));
+    }
+
+    @Test
+    public void consumeKeys_queueFullAndShutdownRequested_batchDroppedAndConsumedCallbackNotRun() throws IOException, InterruptedException, MnemonicException.MnemonicLengthException {
+        // arrange
+        TestAddressesLMDB testAddressesLMDB = new TestAddressesLMDB();
+
+        TestAddressesFiles testAddresses = new TestAddressesFiles(false);
+        File lmdbFolderPath = testAddressesLMDB.createTestLMDB(folder, testAddresses, true, false);
+
+        CConsumerJava cConsumerJava = new CConsumerJava();
+        cConsumerJava.lmdbConfigurationReadOnly = new CLMDBConfigurationReadOnly();
+        cConsumerJava.lmdbConfigurationReadOnly.lmdbDirectory = lmdbFolderPath.getAbsolutePath();
+        cConsumerJava.queueSize = 1;
+
+        AtomicBoolean shouldRun = new AtomicBoolean(false);
+
+        ConsumerJava consumerJava = new ConsumerJava(cConsumerJava, shouldRun, keyUtility, persistenceUtils);
+        consumerJava.initLMDB();
+
+        AtomicInteger consumed = new AtomicInteger();
+        int queuedBatches = 0;
+        boolean dropped = false;
+
+        // act
+        while (!dropped) {
+            PublicKeyBytesBatch publicKeyBytesBatch = PublicKeyBytesBatch.of(PublicKeyBytes.fromPrivate(BigInteger.valueOf(73)));
+            publicKeyBytesBatch.setConsumedCallback(consumed::incrementAndGet);
+            if (consumerJava.consumeKeys(publicKeyBytesBatch)) {
+                queuedBatches++;
+            } else {
+                dropped = true;
+            }
+        }
+        consumerJava.consumeKeys();
+
+        // assert
+        assertThat(queuedBatches, is(greaterThanOrEqualTo(1)));
+        assertThat(consumed.get(), is(equalTo(queuedBatches)));
     }
 }
@@ -0,0 +1,104 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.List;
+import net.ladenthin.bitcoinaddressfinder.DistinguishedPointStore.DistinguishedPoint;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DistinguishedPointStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String IDENTITY = "kangaroo test";
+    private static final String WILD = "02abcdef";
+
+    @Test
+    public void merge_writtenStore_allPointsRead() throws IOException {
+        // arrange
+        DistinguishedPointStore store = new DistinguishedPointStore(IDENTITY);
+        store.putIfAbsent(new DistinguishedPoint(BigInteger.valueOf(0x10), BigInteger.valueOf(0x20), DistinguishedPointStore.TAME));
+        store.putIfAbsent(new DistinguishedPoint(BigInteger.valueOf(0x11), BigInteger.valueOf(0x21), WILD));
+        File file = folder.newFile();
+        store.write(file);
+        DistinguishedPointStore merged = new DistinguishedPointStore(IDENTITY);
+
+        // act
+        List<DistinguishedPoint[]> collisions = merged.merge(file);
+
+        // assert
+        assertThat(collisions.size(), is(equalTo(0)));
+        assertThat(merged.size(), is(equalTo(2)));
+        DistinguishedPoint wild = merged.putIfAbsent(new DistinguishedPoint(BigInteger.valueOf(0x11), BigInteger.ONE, WILD));
+        assertThat(wild.distance, is(equalTo(BigInteger.valueOf(0x21))));
+        assertThat(wild.herd, is(equalTo(WILD)));
+    }
+
+    @Test
+    public void merge_tameAndWildSamePoint_collisionReturned() throws IOException {
+        // arrange
+        DistinguishedPointStore store = new DistinguishedPointStore(IDENTITY);
+        store.putIfAbsent(new DistinguishedPoint(BigInteger.valueOf(0x10), BigInteger.valueOf(0x20), WILD));
+        File file = folder.newFile();
+        store.write(file);
+        DistinguishedPointStore merged = new DistinguishedPointStore(IDENTITY);
+        merged.putIfAbsent(new DistinguishedPoint(BigInteger.valueOf(0x10), BigInteger.valueOf(0x30), DistinguishedPointStore.TAME));
+
+        // act
+        List<DistinguishedPoint[]> collisions = merged.merge(file);
+
+        // assert
+        assertThat(collisions.size(), is(equalTo(1)));
+        assertThat(collisions.get(0)[0].isTame(), is(equalTo(Boolean.TRUE)));
+        assertThat(collisions.get(0)[1].herd, is(equalTo(WILD)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void merge_otherIdentity_throwsException() throws IOException {
+        // arrange
+        DistinguishedPointStore store = new DistinguishedPointStore("kangaroo other");
+        File file = folder.newFile();
+        store.write(file);
+
+        // act
+        new DistinguishedPointStore(IDENTITY).merge(file);
+    }
+
+    @Test
+    public void putIfAbsent_newPoint_returnsNull() {
+        // arrange
+        DistinguishedPointStore store = new DistinguishedPointStore(IDENTITY);
+
+        // act
+        DistinguishedPoint existing = store.putIfAbsent(new DistinguishedPoint(BigInteger.ONE, BigInteger.ONE, WILD));
+
+        // assert
+        assertThat(existing, is(nullValue()));
+    }
+}
@@ -0,0 +1,107 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+import com.tngtech.java.junit.dataprovider.UseDataProvider;
+import java.util.BitSet;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(DataProviderRunner.class)
+public class FeistelPermutationTest {
+
+    @DataProvider
+    public static Object[][] domains() {
+        return new Object[][]{{1L}, {2L}, {3L}, {255L}, {256L}, {1000L}, {65537L}};
+    }
+
+    @Test
+    @UseDataProvider("domains")
+    public void permute_allValues_bijection(long domain) {
+        // arrange
+        FeistelPermutation permutation = new FeistelPermutation(domain, "key");
+        BitSet seen = new BitSet();
+
+        // act
+        for (long i = 0; i < domain; i++) {
+            seen.set((int) permutation.permute(i));
+        }
+
+        // assert
+        assertThat(seen.cardinality(), is(equalTo((int) domain)));
+        assertThat(seen.nextSetBit((int) domain), is(equalTo(-1)));
+    }
+
+    @Test
+    public void permute_sameKey_samePermutation() {
+        // arrange
+        FeistelPermutation permutation = new FeistelPermutation(1000, "key");
+        FeistelPermutation other = new FeistelPermutation(1000, "key");
+
+        // act, assert
+        for (long i = 0; i < 1000; i++) {
+            assertThat(permutation.permute(i), is(equalTo(other.permute(i))));
+        }
+    }
+
+    @Test
+    public void permute_otherKey_otherPermutation() {
+        // arrange
+        FeistelPermutation permutation = new FeistelPermutation(1000, "key");
+        FeistelPermutation other = new FeistelPermutation(1000, "other key");
+        int equal = 0;
+
+        // act
+        for (long i = 0; i < 1000; i++) {
+            if (permutation.permute(i) == other.permute(i)) {
+                equal++;
+            }
+        }
+
+        // assert
+        assertThat(equal, is(lessThan(20)));
+    }
+
+    @Test
+    public void permute_domainWithAll63Bits_valueInDomain() {
+        // arrange
+        long domain = Long.MAX_VALUE;
+        FeistelPermutation permutation = new FeistelPermutation(domain, "key");
+
+        // act
+        for (long i = 0; i < 1000; i++) {
+            long value = permutation.permute(domain - 1 - i);
+
+            // assert
+            assertThat(value >= 0, is(equalTo(true)));
+            assertThat(value, is(lessThan(domain)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void permute_valueOutsideDomain_throwsException() {
+        new FeistelPermutation(10, "key").permute(10);
+    }
+}
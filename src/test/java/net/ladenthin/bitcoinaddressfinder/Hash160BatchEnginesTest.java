@@ -0,0 +1,103 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assume.assumeThat;
+import org.junit.Test;
+
+public class Hash160BatchEnginesTest {
+
+    /**
+     * Not a multiple of the lanes, the remaining keys are hashed by the scalar engine.
+     */
+    private static final int KEYS = 16 * 5 + 3;
+
+    private void assumeVectorApiAvailable() {
+        assumeThat("Vector API available", Hash160BatchEngines.isVectorApiAvailable(), is(equalTo(true)));
+    }
+
+    @Test
+    public void create_vectorApiNotPreferred_scalarEngineOfCurrentThread() {
+        // act
+        Hash160BatchEngine hash160BatchEngine = Hash160BatchEngines.create(false);
+
+        // assert
+        assertThat(hash160BatchEngine, is(sameInstance(Hash160Engine.get())));
+    }
+
+    @Test
+    public void create_vectorApiPreferredAndAvailable_vectorEngine() {
+        // arrange
+        assumeVectorApiAvailable();
+
+        // act
+        Hash160BatchEngine hash160BatchEngine = Hash160BatchEngines.create(true);
+
+        // assert
+        assertThat(hash160BatchEngine, is(not(instanceOf(Hash160Engine.class))));
+        assertThat(hash160BatchEngine.getClass().getName(), is(equalTo(Hash160BatchEngines.VECTOR_HASH160_ENGINE_CLASS_NAME)));
+    }
+
+    @Test
+    public void hash160s_vectorEngineUncompressedKeys_sameAsScalarEngine() {
+        assumeVectorApiAvailable();
+        assertSameAsScalarEngine(PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES);
+    }
+
+    @Test
+    public void hash160s_vectorEngineCompressedKeys_sameAsScalarEngine() {
+        assumeVectorApiAvailable();
+        assertSameAsScalarEngine(PublicKeyBytes.PUBLIC_KEY_COMPRESSED_BYTES);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void hash160s_vectorEngineUnsupportedLength_throwsException() {
+        assumeVectorApiAvailable();
+        ByteBuffer src = ByteBuffer.allocateDirect(KEYS * PublicKeyBytes.HASH160_SIZE);
+        ByteBuffer dst = ByteBuffer.allocateDirect(KEYS * PublicKeyBytes.HASH160_SIZE);
+        Hash160BatchEngines.create(true).hash160s(src, 0, PublicKeyBytes.HASH160_SIZE, PublicKeyBytes.HASH160_SIZE, KEYS, dst, 0, PublicKeyBytes.HASH160_SIZE);
+    }
+
+    private void assertSameAsScalarEngine(int length) {
+        // arrange
+        final int srcStride = length + 3;
+        final int dstStride = PublicKeyBytes.HASH160_SIZE + 5;
+        byte[] publicKeys = new byte[KEYS * srcStride];
+        new Random(1L).nextBytes(publicKeys);
+        ByteBuffer src = ByteBuffer.allocateDirect(publicKeys.length);
+        src.put(publicKeys);
+        ByteBuffer expected = ByteBuffer.allocateDirect(KEYS * dstStride);
+        ByteBuffer actual = ByteBuffer.allocateDirect(KEYS * dstStride);
+        Hash160Engine.get().hash160s(src, 0, srcStride, length, KEYS, expected, 0, dstStride);
+
+        // act
+        Hash160BatchEngines.create(true).hash160s(src, 0, srcStride, length, KEYS, actual, 0, dstStride);
+
+        // assert
+        assertThat(actual, is(equalTo(expected)));
+    }
+}
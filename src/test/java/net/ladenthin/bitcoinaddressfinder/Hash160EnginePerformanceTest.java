@@ -0,0 +1,96 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares {@link Hash160Engine} with {@link PublicKeyBytes#sha256hash160Fast(byte[])}
+ * and the vector engine (if available).
+ */
+public class Hash160EnginePerformanceTest {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final static int KEYS = 1024 * 16;
+    private final static int ROUNDS = 8;
+
+    @Test
+    public void hash160_performanceTest() {
+        // arrange
+        Random random = new Random(1L);
+        byte[] publicKeys = new byte[KEYS * PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES];
+        random.nextBytes(publicKeys);
+        ByteBuffer src = ByteBuffer.allocateDirect(publicKeys.length);
+        src.put(publicKeys);
+        ByteBuffer dst = ByteBuffer.allocateDirect(KEYS * PublicKeyBytes.HASH160_SIZE);
+        byte[] publicKey = new byte[PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES];
+        byte[] lastHash160 = null;
+        Hash160Engine hash160Engine = Hash160Engine.get();
+        Hash160BatchEngine vectorHash160Engine = Hash160BatchEngines.createVectorHash160Engine().orElse(null);
+        ByteBuffer vectorDst = ByteBuffer.allocateDirect(KEYS * PublicKeyBytes.HASH160_SIZE);
+
+        // act, the first rounds warm up the JIT
+        long sha256hash160FastNanos = 0;
+        long hash160EngineNanos = 0;
+        long vectorHash160EngineNanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long timeBefore = System.nanoTime();
+            for (int i = 0; i < KEYS; i++) {
+                System.arraycopy(publicKeys, i * publicKey.length, publicKey, 0, publicKey.length);
+                lastHash160 = PublicKeyBytes.sha256hash160Fast(publicKey);
+            }
+            sha256hash160FastNanos = System.nanoTime() - timeBefore;
+
+            timeBefore = System.nanoTime();
+            hash160Engine.hash160s(src, 0, PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES, PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES, KEYS, dst, 0, PublicKeyBytes.HASH160_SIZE);
+            hash160EngineNanos = System.nanoTime() - timeBefore;
+
+            if (vectorHash160Engine != null) {
+                timeBefore = System.nanoTime();
+                vectorHash160Engine.hash160s(src, 0, PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES, PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES, KEYS, vectorDst, 0, PublicKeyBytes.HASH160_SIZE);
+                vectorHash160EngineNanos = System.nanoTime() - timeBefore;
+            }
+        }
+
+        // assert
+        logger.info("sha256hash160Fast: " + keysPerSecond(sha256hash160FastNanos) + " k keys/second");
+        logger.info("Hash160Engine: " + keysPerSecond(hash160EngineNanos) + " k keys/second");
+        if (vectorHash160Engine != null) {
+            logger.info("VectorHash160Engine: " + keysPerSecond(vectorHash160EngineNanos) + " k keys/second");
+            assertThat(vectorDst, is(equalTo(dst)));
+        }
+
+        byte[] lastHash160FromEngine = new byte[PublicKeyBytes.HASH160_SIZE];
+        dst.position((KEYS - 1) * PublicKeyBytes.HASH160_SIZE);
+        dst.get(lastHash160FromEngine);
+        assertThat(lastHash160FromEngine, is(equalTo(lastHash160)));
+    }
+
+    private long keysPerSecond(long nanos) {
+        return KEYS * 1_000_000L / Math.max(nanos, 1);
+    }
+}
@@ -0,0 +1,99 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import net.ladenthin.bitcoinaddressfinder.staticaddresses.TestAddresses42;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.Utils;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import org.junit.Test;
+
+public class Hash160EngineTest {
+
+    private static final int RANDOM_INPUTS = 1_000;
+
+    @Test
+    public void hash160_publicKeysGiven_sameAsPubKeyHash() {
+        // arrange
+        ECKey keyUncompressed = new TestAddresses42(1, false).getECKeys().get(0);
+        ECKey keyCompressed = new TestAddresses42(1, true).getECKeys().get(0);
+        Hash160Engine hash160Engine = Hash160Engine.get();
+
+        // act, assert
+        assertThat(hash160Engine.hash160(keyUncompressed.getPubKey()), is(equalTo(keyUncompressed.getPubKeyHash())));
+        assertThat(hash160Engine.hash160(keyCompressed.getPubKey()), is(equalTo(keyCompressed.getPubKeyHash())));
+    }
+
+    @Test
+    public void hash160_randomInputsGiven_sameAsSha256hash160() {
+        // arrange
+        Random random = new Random(1L);
+        Hash160Engine hash160Engine = Hash160Engine.get();
+        byte[] uncompressed = new byte[PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES];
+        byte[] compressed = new byte[PublicKeyBytes.PUBLIC_KEY_COMPRESSED_BYTES];
+
+        // act, assert
+        for (int i = 0; i < RANDOM_INPUTS; i++) {
+            random.nextBytes(uncompressed);
+            random.nextBytes(compressed);
+            assertThat(hash160Engine.hash160(uncompressed), is(equalTo(Utils.sha256hash160(uncompressed))));
+            assertThat(hash160Engine.hash160(compressed), is(equalTo(Utils.sha256hash160(compressed))));
+        }
+    }
+
+    @Test
+    public void hash160s_stridedDirectBuffersGiven_sameAsSingleHashes() {
+        // arrange
+        final int count = 16;
+        final int srcStride = PublicKeyBytes.PUBLIC_KEY_COMPRESSED_BYTES + 3;
+        final int dstStride = PublicKeyBytes.HASH160_SIZE + 5;
+        ByteBuffer src = ByteBuffer.allocateDirect(count * srcStride).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer dst = ByteBuffer.allocateDirect(count * dstStride);
+        byte[][] publicKeys = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            publicKeys[i] = PublicKeyBytes.fromPrivate(BigInteger.valueOf(2 + i)).getCompressed();
+            for (int j = 0; j < publicKeys[i].length; j++) {
+                src.put(i * srcStride + j, publicKeys[i][j]);
+            }
+        }
+
+        // act
+        Hash160Engine.get().hash160s(src, 0, srcStride, PublicKeyBytes.PUBLIC_KEY_COMPRESSED_BYTES, count, dst, 0, dstStride);
+
+        // assert
+        for (int i = 0; i < count; i++) {
+            byte[] hash160 = new byte[PublicKeyBytes.HASH160_SIZE];
+            for (int j = 0; j < hash160.length; j++) {
+                hash160[j] = dst.get(i * dstStride + j);
+            }
+            assertThat(hash160, is(equalTo(Utils.sha256hash160(publicKeys[i]))));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void hash160_unsupportedLengthGiven_throwsException() {
+        Hash160Engine.get().hash160(new byte[PublicKeyBytes.HASH160_SIZE]);
+    }
+}
@@ -0,0 +1,160 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import net.ladenthin.bitcoinaddressfinder.DistinguishedPointStore.DistinguishedPoint;
+import net.ladenthin.bitcoinaddressfinder.configuration.CKangaroo;
+import org.bitcoinj.core.ECKey;
+import org.bouncycastle.util.encoders.Hex;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class KangarooTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final BigInteger RANGE_START = new BigInteger("300000000", 16);
+    /**
+     * 2^32 secrets, about 2^17 jumps.
+     */
+    private static final BigInteger RANGE_END = RANGE_START.add(BigInteger.ONE.shiftLeft(32));
+
+    private String publicKey(BigInteger secret, boolean compressed) {
+        return Hex.toHexString(ECKey.publicPointFromPrivate(secret).getEncoded(compressed));
+    }
+
+    private CKangaroo createConfiguration() {
+        CKangaroo cKangaroo = new CKangaroo();
+        cKangaroo.rangeStart = RANGE_START.toString(16);
+        cKangaroo.rangeEnd = RANGE_END.toString(16);
+        cKangaroo.threads = 2;
+        cKangaroo.kangaroosPerThread = 16;
+        return cKangaroo;
+    }
+
+    @Test
+    public void run_secretsInRange_allFound() {
+        // arrange
+        BigInteger secretLow = RANGE_START.add(new BigInteger("1234567", 16));
+        BigInteger secretHigh = RANGE_END.subtract(new BigInteger("89ABCDE", 16));
+        CKangaroo cKangaroo = createConfiguration();
+        cKangaroo.publicKeys.add(publicKey(secretLow, true));
+        cKangaroo.publicKeys.add(publicKey(secretHigh, false));
+        Kangaroo kangaroo = new Kangaroo(cKangaroo, new AtomicBoolean(true));
+
+        // act
+        kangaroo.run();
+
+        // assert
+        Map<String, BigInteger> secrets = kangaroo.getSecrets();
+        assertThat(secrets.size(), is(equalTo(2)));
+        assertThat(secrets.get(publicKey(secretLow, true)), is(equalTo(secretLow)));
+        assertThat(secrets.get(publicKey(secretHigh, false)), is(equalTo(secretHigh)));
+    }
+
+    @Test
+    public void run_distinguishedPointFileConfigured_fileWrittenAndResumable() throws IOException {
+        // arrange
+        BigInteger secret = RANGE_START.add(new BigInteger("ABCDEF01", 16));
+        File distinguishedPointFile = new File(folder.getRoot(), "distinguishedPoints.txt");
+        CKangaroo cKangaroo = createConfiguration();
+        cKangaroo.publicKeys.add(publicKey(secret, true));
+        cKangaroo.distinguishedPointFile = distinguishedPointFile.getAbsolutePath();
+        Kangaroo kangaroo = new Kangaroo(cKangaroo, new AtomicBoolean(true));
+
+        // act
+        kangaroo.run();
+
+        // assert
+        assertThat(kangaroo.getSecrets().get(publicKey(secret, true)), is(equalTo(secret)));
+        assertThat(distinguishedPointFile.exists(), is(equalTo(Boolean.TRUE)));
+        Kangaroo resumed = new Kangaroo(cKangaroo, new AtomicBoolean(false));
+        resumed.run();
+        assertThat(distinguishedPointFile.length(), is(greaterThan(0L)));
+    }
+
+    @Test
+    public void run_mergedFilesCollide_secretFoundWithoutJumps() throws IOException {
+        // arrange
+        BigInteger secret = RANGE_START.add(new BigInteger("10203040", 16));
+        BigInteger tameDistance = new BigInteger("90000000", 16);
+        BigInteger wildDistance = RANGE_START.add(tameDistance).subtract(secret);
+        BigInteger x = ECKey.publicPointFromPrivate(RANGE_START.add(tameDistance)).normalize().getAffineXCoord().toBigInteger();
+        String identity = "kangaroo rangeStart=" + RANGE_START.toString(16) + " rangeEnd=" + RANGE_END.toString(16) + " jumps=20 distinguishedPointBits=4";
+
+        DistinguishedPointStore tameStore = new DistinguishedPointStore(identity);
+        tameStore.putIfAbsent(new DistinguishedPoint(x, tameDistance, DistinguishedPointStore.TAME));
+        File tameFile = folder.newFile();
+        tameStore.write(tameFile);
+        DistinguishedPointStore wildStore = new DistinguishedPointStore(identity);
+        wildStore.putIfAbsent(new DistinguishedPoint(x, wildDistance, publicKey(secret, true)));
+        File wildFile = folder.newFile();
+        wildStore.write(wildFile);
+
+        CKangaroo cKangaroo = createConfiguration();
+        cKangaroo.publicKeys.add(publicKey(secret, true));
+        cKangaroo.jumps = 20;
+        cKangaroo.distinguishedPointBits = 4;
+        cKangaroo.mergeDistinguishedPointFiles.add(tameFile.getAbsolutePath());
+        cKangaroo.mergeDistinguishedPointFiles.add(wildFile.getAbsolutePath());
+        Kangaroo kangaroo = new Kangaroo(cKangaroo, new AtomicBoolean(false));
+
+        // act
+        kangaroo.run();
+
+        // assert
+        assertThat(kangaroo.getSecrets().get(publicKey(secret, true)), is(equalTo(secret)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void run_rangeStartNotBelowRangeEnd_throwsException() {
+        // arrange
+        CKangaroo cKangaroo = createConfiguration();
+        cKangaroo.publicKeys.add(publicKey(RANGE_START, true));
+        cKangaroo.rangeEnd = RANGE_START.toString(16);
+        Kangaroo kangaroo = new Kangaroo(cKangaroo, new AtomicBoolean(true));
+
+        // act
+        kangaroo.run();
+    }
+
+    @Test
+    public void addDistance_carryOverLimbs_added() {
+        // arrange
+        long[] distance = {-1L, -1L, 0L, 0L};
+        long[] jump = {1L, 0L, 0L, 0L};
+
+        // act
+        Kangaroo.addDistance(distance, jump);
+
+        // assert
+        assertThat(distance, is(equalTo(new long[]{0L, 0L, 1L, 0L})));
+    }
+}
@@ -83,9 +83,9 @@ public class LMDBPersistencePerformanceTest {
         consumerJava.initLMDB();
         
         // create producer
-        PublicKeyBytes[] publicKeyByteses = createPublicKeyBytesArray();
+        PublicKeyBytes publicKeyBytes = PublicKeyBytes.fromPrivate(PRIVATE_KEY);
         ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor) Executors.newFixedThreadPool(PRODUCER_THREADS);
-        createProducerThreads(threadPoolExecutor, shouldRun, consumerJava, publicKeyByteses);
+        createProducerThreads(threadPoolExecutor, shouldRun, consumerJava, publicKeyBytes);
         
         // act
         consumerJava.startConsumer();
@@ -97,12 +97,13 @@ public class LMDBPersistencePerformanceTest {
         consumerJava.timer.cancel();
     }
 
-    private void createProducerThreads(ThreadPoolExecutor threadPoolExecutor, AtomicBoolean shouldRun, ConsumerJava consumerJava, PublicKeyBytes[] publicKeyByteses) {
+    private void createProducerThreads(ThreadPoolExecutor threadPoolExecutor, AtomicBoolean shouldRun, ConsumerJava consumerJava, PublicKeyBytes publicKeyBytes) {
         for (int i = 0; i < PRODUCER_THREADS; i++) {
             threadPoolExecutor.submit(() ->{
                 while(shouldRun.get()) {
                     try {
-                        consumerJava.consumeKeys(publicKeyByteses);
+                        // the consumer frees the batch, create a new one every time
+                        consumerJava.consumeKeys(createPublicKeyBytesBatch(publicKeyBytes));
                     } catch (InterruptedException e) {
                         throw new RuntimeException(e);
                     }
@@ -111,12 +112,11 @@ public class LMDBPersistencePerformanceTest {
         }
     }
 
-    private PublicKeyBytes[] createPublicKeyBytesArray() {
-        PublicKeyBytes publicKeyBytes = PublicKeyBytes.fromPrivate(PRIVATE_KEY);
-        PublicKeyBytes[] publicKeyByteses = new PublicKeyBytes[ARRAY_SIZE];
-        for (int i = 0; i < publicKeyByteses.length; i++) {
-            publicKeyByteses[i] = publicKeyBytes;
+    private PublicKeyBytesBatch createPublicKeyBytesBatch(PublicKeyBytes publicKeyBytes) {
+        PublicKeyBytesBatch publicKeyBytesBatch = new PublicKeyBytesBatch(ARRAY_SIZE, publicKeyBytes.getSecretKey());
+        for (int i = 0; i < ARRAY_SIZE; i++) {
+            publicKeyBytesBatch.add(0, publicKeyBytes.getUncompressed(), publicKeyBytes.getCompressed());
         }
-        return publicKeyByteses;
+        return publicKeyBytesBatch;
     }
 }
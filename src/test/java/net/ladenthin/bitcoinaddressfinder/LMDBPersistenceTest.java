@@ -24,10 +24,22 @@ import java.io.File;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import net.ladenthin.bitcoinaddressfinder.configuration.CLMDBConfigurationReadOnly;
 import net.ladenthin.bitcoinaddressfinder.configuration.CLMDBConfigurationWrite;
 import net.ladenthin.bitcoinaddressfinder.persistence.PersistenceUtils;
 import net.ladenthin.bitcoinaddressfinder.persistence.lmdb.LMDBPersistence;
+import net.ladenthin.bitcoinaddressfinder.staticaddresses.TestAddresses1337;
+import net.ladenthin.bitcoinaddressfinder.staticaddresses.TestAddresses42;
+import net.ladenthin.bitcoinaddressfinder.staticaddresses.TestAddressesFiles;
+import net.ladenthin.bitcoinaddressfinder.staticaddresses.TestAddressesLMDB;
 import org.bitcoinj.core.Coin;
 import org.bitcoinj.core.ECKey;
 import org.bitcoinj.core.NetworkParameters;
@@ -238,6 +250,109 @@ public class LMDBPersistenceTest {
     }
     // </editor-fold>
     
+    // <editor-fold defaultstate="collapsed" desc="containsAddresses">
+    @Test
+    public void containsAddresses_knownAndUnknownKeysGiven_sameResultAsContainsAddress() throws IOException {
+        // arrange
+        int keys = 1024;
+        File lmdbFolder = folder.newFolder("lmdb");
+
+        CLMDBConfigurationWrite cLMDBConfigurationWrite = new CLMDBConfigurationWrite();
+        cLMDBConfigurationWrite.lmdbDirectory = lmdbFolder.getAbsolutePath();
+
+        LMDBPersistence lmdbPersistence = new LMDBPersistence(cLMDBConfigurationWrite, persistenceUtils);
+        lmdbPersistence.init();
+
+        // every even key is known, every odd key is unknown
+        ByteBuffer hash160s = ByteBuffer.allocateDirect(keys * PublicKeyBytes.HASH160_SIZE);
+        for (int i = 0; i < keys; i++) {
+            BigInteger secret = keyUtility.createSecret(PublicKeyBytes.PRIVATE_KEY_MAX_NUM_BITS, random);
+            byte[] hash160 = keyUtility.createECKey(secret, true).getPubKeyHash();
+            if (i % 2 == 0) {
+                lmdbPersistence.putNewAmount(byteBufferUtility.byteArrayToByteBuffer(hash160), Coin.SATOSHI);
+            }
+            hash160s.put(hash160);
+        }
+        hash160s.flip();
+
+        // act
+        BitSet containsAddresses = lmdbPersistence.containsAddresses(hash160s, keys);
+
+        // assert
+        assertThat(containsAddresses.cardinality(), is(equalTo(keys / 2)));
+        for (int i = 0; i < keys; i++) {
+            assertThat(containsAddresses.get(i), is(equalTo(i % 2 == 0)));
+        }
+        assertThat(hash160s.position(), is(equalTo(0)));
+    }
+
+    @Test
+    public void containsAddresses_emptyBatchGiven_returnEmptyBitSet() throws IOException {
+        // arrange
+        File lmdbFolder = folder.newFolder("lmdb");
+
+        CLMDBConfigurationWrite cLMDBConfigurationWrite = new CLMDBConfigurationWrite();
+        cLMDBConfigurationWrite.lmdbDirectory = lmdbFolder.getAbsolutePath();
+
+        LMDBPersistence lmdbPersistence = new LMDBPersistence(cLMDBConfigurationWrite, persistenceUtils);
+        lmdbPersistence.init();
+
+        // act
+        BitSet containsAddresses = lmdbPersistence.containsAddresses(ByteBuffer.allocateDirect(0), 0);
+
+        // assert
+        assertThat(containsAddresses.isEmpty(), is(equalTo(true)));
+    }
+    // </editor-fold>
+    
+    // <editor-fold defaultstate="collapsed" desc="reuseReadTransactionPerThread">
+    @Test
+    @UseDataProvider(value = CommonDataProvider.DATA_PROVIDER_COMPRESSED, location = CommonDataProvider.class)
+    public void containsAddress_reuseReadTransactionPerThread_sameResultsInMultipleThreads(boolean compressed) throws IOException, InterruptedException, ExecutionException {
+        // arrange
+        File lmdbFolder = new TestAddressesLMDB().createTestLMDB(folder, new TestAddressesFiles(compressed), false, false);
+
+        CLMDBConfigurationReadOnly cLMDBConfigurationReadOnly = new CLMDBConfigurationReadOnly();
+        cLMDBConfigurationReadOnly.lmdbDirectory = lmdbFolder.getAbsolutePath();
+        cLMDBConfigurationReadOnly.reuseReadTransactionPerThread = true;
+        // renew on every lookup
+        cLMDBConfigurationReadOnly.renewReadTransactionIntervalInMilliseconds = 0;
+
+        LMDBPersistence lmdbPersistence = new LMDBPersistence(cLMDBConfigurationReadOnly, persistenceUtils);
+        lmdbPersistence.init();
+
+        List<ECKey> ecKeys = new TestAddresses42(TestAddressesFiles.NUMBER_OF_ADRESSES, compressed).getECKeys();
+        ECKey unknownKey = new TestAddresses1337(1, compressed).getECKeys().get(0);
+
+        // act
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            futures.add(executorService.submit(() -> {
+                boolean allCorrect = true;
+                for (int round = 0; round < 100; round++) {
+                    for (ECKey ecKey : ecKeys) {
+                        allCorrect &= lmdbPersistence.containsAddress(byteBufferUtility.byteArrayToByteBuffer(ecKey.getPubKeyHash()));
+                    }
+                    allCorrect &= !lmdbPersistence.containsAddress(byteBufferUtility.byteArrayToByteBuffer(unknownKey.getPubKeyHash()));
+                }
+                return allCorrect;
+            }));
+        }
+
+        // assert
+        try {
+            for (Future<Boolean> future : futures) {
+                assertThat(future.get(), is(equalTo(true)));
+            }
+            assertThat(lmdbPersistence.getAmount(byteBufferUtility.byteArrayToByteBuffer(ecKeys.get(0).getPubKeyHash())), is(equalTo(TestAddressesFiles.amountFirstAddress)));
+        } finally {
+            executorService.shutdown();
+            lmdbPersistence.close();
+        }
+    }
+    // </editor-fold>
+    
     private void fillWithRandomKeys(int keysToAdd, LMDBPersistence lmdbPersistence) {
         // arrange - fill
         for (int i = 0; i < keysToAdd; i++) {
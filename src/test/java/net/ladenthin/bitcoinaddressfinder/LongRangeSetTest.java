@@ -0,0 +1,104 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import org.junit.Test;
+
+public class LongRangeSetTest {
+
+    @Test
+    public void add_ascendingValues_oneRange() {
+        // arrange
+        LongRangeSet longRangeSet = new LongRangeSet();
+
+        // act
+        for (long i = 0; i < 1000; i++) {
+            longRangeSet.add(i);
+        }
+
+        // assert
+        assertThat(longRangeSet.getRangeCount(), is(equalTo(1)));
+        assertThat(longRangeSet.toString(), is(equalTo("0-1000")));
+    }
+
+    @Test
+    public void add_gapClosed_rangesMerged() {
+        // arrange
+        LongRangeSet longRangeSet = new LongRangeSet();
+        longRangeSet.add(1);
+        longRangeSet.add(3);
+        longRangeSet.add(10, 20);
+
+        // act
+        boolean added = longRangeSet.add(2);
+        boolean addedAgain = longRangeSet.add(2);
+        longRangeSet.add(4, 12);
+
+        // assert
+        assertThat(added, is(equalTo(true)));
+        assertThat(addedAgain, is(equalTo(false)));
+        assertThat(longRangeSet.toString(), is(equalTo("1-20")));
+    }
+
+    @Test
+    public void nextAbsent_valueInRange_endOfRange() {
+        // arrange
+        LongRangeSet longRangeSet = LongRangeSet.parse("0-5,6-8");
+
+        // act, assert
+        assertThat(longRangeSet.nextAbsent(0), is(equalTo(5L)));
+        assertThat(longRangeSet.nextAbsent(5), is(equalTo(5L)));
+        assertThat(longRangeSet.nextAbsent(7), is(equalTo(8L)));
+        assertThat(longRangeSet.nextAbsent(100), is(equalTo(100L)));
+    }
+
+    @Test
+    public void count_partialOverlap_containedValuesCounted() {
+        // arrange
+        LongRangeSet longRangeSet = LongRangeSet.parse("0-5,6-8,20-30");
+
+        // act, assert
+        assertThat(longRangeSet.count(0, 100), is(equalTo(17L)));
+        assertThat(longRangeSet.count(3, 7), is(equalTo(3L)));
+        assertThat(longRangeSet.count(25, 26), is(equalTo(1L)));
+        assertThat(longRangeSet.count(8, 20), is(equalTo(0L)));
+    }
+
+    @Test
+    public void parse_toString_roundTrip() {
+        // arrange
+        String text = "0-5,6-8,1000000000-5000000000";
+
+        // act
+        LongRangeSet longRangeSet = LongRangeSet.parse(text);
+
+        // assert
+        assertThat(longRangeSet.toString(), is(equalTo(text)));
+        assertThat(longRangeSet.contains(4999999999L), is(equalTo(true)));
+        assertThat(longRangeSet.contains(5), is(equalTo(false)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_emptyRange_throwsException() {
+        LongRangeSet.parse("5-5");
+    }
+}
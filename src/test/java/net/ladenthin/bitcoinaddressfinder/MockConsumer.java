@@ -20,18 +20,27 @@ package net.ladenthin.bitcoinaddressfinder;
 
 import java.util.ArrayList;
 import java.util.List;
+import net.ladenthin.bitcoinaddressfinder.persistence.filter.BlockedBloomFilter;
 
 public class MockConsumer implements Consumer {
     
     public List<PublicKeyBytes[]> publicKeyBytesArrayList = new ArrayList<>();
 
     @Override
-    public void consumeKeys(PublicKeyBytes[] publicKeyBytes) throws InterruptedException {
-        publicKeyBytesArrayList.add(publicKeyBytes);
+    public boolean consumeKeys(PublicKeyBytesBatch publicKeyBytesBatch) throws InterruptedException {
+        publicKeyBytesArrayList.add(publicKeyBytesBatch.toPublicKeyBytesArray());
+        publicKeyBytesBatch.consumed();
+        publicKeyBytesBatch.free();
+        return true;
     }
 
     @Override
     public void startConsumer() {
     }
+
+    @Override
+    public BlockedBloomFilter getAddressFilter() {
+        return null;
+    }
     
 }
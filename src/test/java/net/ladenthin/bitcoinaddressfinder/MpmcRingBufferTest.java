@@ -0,0 +1,143 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+import com.tngtech.java.junit.dataprovider.UseDataProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import net.ladenthin.bitcoinaddressfinder.configuration.CWaitStrategy;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(DataProviderRunner.class)
+public class MpmcRingBufferTest {
+
+    private static final long PARK_TIME_IN_NANOSECONDS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final long MAX_WAIT_IN_NANOSECONDS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    public void capacity_notPowerOfTwoGiven_roundedUp() {
+        assertThat(new MpmcRingBuffer<>(1, CWaitStrategy.Blocking, PARK_TIME_IN_NANOSECONDS).capacity(), is(equalTo(2)));
+        assertThat(new MpmcRingBuffer<>(2, CWaitStrategy.Blocking, PARK_TIME_IN_NANOSECONDS).capacity(), is(equalTo(2)));
+        assertThat(new MpmcRingBuffer<>(10, CWaitStrategy.Blocking, PARK_TIME_IN_NANOSECONDS).capacity(), is(equalTo(16)));
+        assertThat(new MpmcRingBuffer<>(16, CWaitStrategy.Blocking, PARK_TIME_IN_NANOSECONDS).capacity(), is(equalTo(16)));
+    }
+
+    @Test
+    public void offer_minimumCapacityOneGiven_bounded() {
+        // arrange
+        MpmcRingBuffer<Integer> ringBuffer = new MpmcRingBuffer<>(1, CWaitStrategy.Blocking, PARK_TIME_IN_NANOSECONDS);
+
+        // act, assert
+        assertThat(ringBuffer.offer(0), is(equalTo(true)));
+        assertThat(ringBuffer.offer(1), is(equalTo(true)));
+        assertThat(ringBuffer.offer(2), is(equalTo(false)));
+        assertThat(ringBuffer.poll(), is(equalTo(0)));
+        assertThat(ringBuffer.poll(), is(equalTo(1)));
+        assertThat(ringBuffer.poll(), is(nullValue()));
+    }
+
+    @Test
+    public void offerAndPoll_singleThread_fifoAndBounded() {
+        // arrange
+        MpmcRingBuffer<Integer> ringBuffer = new MpmcRingBuffer<>(4, CWaitStrategy.Blocking, PARK_TIME_IN_NANOSECONDS);
+
+        // act, assert
+        assertThat(ringBuffer.poll(), is(nullValue()));
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 4; i++) {
+                assertThat(ringBuffer.offer(i), is(equalTo(true)));
+            }
+            assertThat(ringBuffer.offer(4), is(equalTo(false)));
+            assertThat(ringBuffer.size(), is(equalTo(4)));
+            for (int i = 0; i < 4; i++) {
+                assertThat(ringBuffer.poll(), is(equalTo(i)));
+            }
+            assertThat(ringBuffer.poll(), is(nullValue()));
+            assertThat(ringBuffer.isEmpty(), is(equalTo(true)));
+        }
+    }
+
+    @Test
+    @UseDataProvider(value = CommonDataProvider.DATA_PROVIDER_WAIT_STRATEGY, location = CommonDataProvider.class)
+    public void offerAndPoll_multipleProducersAndConsumers_allElementsConsumedOnce(CWaitStrategy waitStrategy) throws Exception {
+        // arrange
+        final int threads = 2;
+        final int elementsPerProducer = 2_000;
+        MpmcRingBuffer<Long> ringBuffer = new MpmcRingBuffer<>(8, waitStrategy, PARK_TIME_IN_NANOSECONDS);
+        AtomicLong sum = new AtomicLong();
+        AtomicLong consumed = new AtomicLong();
+        final long expectedElements = (long) threads * elementsPerProducer;
+
+        ExecutorService executorService = Executors.newFixedThreadPool(2 * threads);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // act
+        for (int t = 0; t < threads; t++) {
+            futures.add(executorService.submit(() -> {
+                for (long i = 1; i <= elementsPerProducer; i++) {
+                    while (!ringBuffer.offer(i)) {
+                        ringBuffer.awaitNotFull(MAX_WAIT_IN_NANOSECONDS);
+                    }
+                }
+                return null;
+            }));
+            futures.add(executorService.submit(() -> {
+                while (consumed.get() < expectedElements) {
+                    Long element = ringBuffer.poll();
+                    if (element == null) {
+                        ringBuffer.awaitNotEmpty(MAX_WAIT_IN_NANOSECONDS);
+                        continue;
+                    }
+                    sum.addAndGet(element);
+                    consumed.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        // assert
+        try {
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        long expectedSum = (long) threads * elementsPerProducer * (elementsPerProducer + 1) / 2;
+        assertThat(consumed.get(), is(equalTo(expectedElements)));
+        assertThat(sum.get(), is(equalTo(expectedSum)));
+        assertThat(ringBuffer.isEmpty(), is(equalTo(true)));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void offer_nullGiven_throwsException() {
+        new MpmcRingBuffer<>(4, CWaitStrategy.Blocking, PARK_TIME_IN_NANOSECONDS).offer(null);
+    }
+}
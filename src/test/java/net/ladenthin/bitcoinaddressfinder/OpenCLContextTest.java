@@ -4,11 +4,17 @@ import org.jocl.CL;
 import org.junit.Test;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import net.ladenthin.bitcoinaddressfinder.persistence.filter.BlockedBloomFilter;
 
 import static net.ladenthin.bitcoinaddressfinder.TestHelper.*;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.is;
 
 /**
@@ -929,4 +935,92 @@ public class OpenCLContextTest {
         assertThatRipemd160Bytes(resultedRipemd160Bytes).isEqualTo(expectedRipemd160Bytes);
         assertThat(openCLContext.getErrorCodeString(), is(equalTo(ERROR_CODE_SUCCESS)));
     }
+
+    @Test
+    public void test_generate256PublicKeyBytes_twoRandomSinglePrivateKeys_chunkModeAsync() throws Exception {
+        // arrange
+        BigInteger[] firstPrivateKey = TestHelper.generateRandomPrivateKeys(1);
+        BigInteger[] secondPrivateKey = TestHelper.generateRandomPrivateKeys(1);
+        OpenCLContext openCLContext = TestHelper.createOpenCLContext(CHUNK_MODE, OpenCLContext.GEN_XY_COORDINATES_ONLY_MODE, SHIFT_8_BITS_FOR_256_CHUNK_SIZE, 2);
+
+        // act
+        CompletableFuture<OpenCLGridResult> firstFuture = openCLContext.createResultAsync(firstPrivateKey);
+        CompletableFuture<OpenCLGridResult> secondFuture = openCLContext.createResultAsync(secondPrivateKey);
+        OpenCLGridResult firstResult = firstFuture.get();
+        OpenCLGridResult secondResult = secondFuture.get();
+        PublicKeyBytes[] firstPublicKeyBytes = firstResult.getPublicKeyBytes();
+        PublicKeyBytes[] secondPublicKeyBytes = secondResult.getPublicKeyBytes();
+
+        // cleanup
+        firstResult.freeResult();
+        secondResult.freeResult();
+        openCLContext.release();
+
+        // assert
+        BigInteger[] firstPrivateKeysChunk = TestHelper.calculatePrivateKeyChunkFromSinglePrivateKey(firstPrivateKey[0], CHUNK_SIZE);
+        BigInteger[] secondPrivateKeysChunk = TestHelper.calculatePrivateKeyChunkFromSinglePrivateKey(secondPrivateKey[0], CHUNK_SIZE);
+        assertThatKeyMap(TestHelper.createResultedMapOfPrivateKeysAndTheirPublicKeys(firstPrivateKeysChunk, firstPublicKeyBytes)).isEqualTo(TestHelper.createExpectedMapOfPrivateKeysToPublicKeys(firstPrivateKeysChunk));
+        assertThatKeyMap(TestHelper.createResultedMapOfPrivateKeysAndTheirPublicKeys(secondPrivateKeysChunk, secondPublicKeyBytes)).isEqualTo(TestHelper.createExpectedMapOfPrivateKeysToPublicKeys(secondPrivateKeysChunk));
+        assertThat(openCLContext.getErrorCodeString(), is(equalTo(ERROR_CODE_SUCCESS)));
+    }
+
+    @Test
+    public void test_generate256Hash160s_randomSinglePrivateKey_chunkMode() throws InvalidWorkSizeException {
+        // arrange
+        BigInteger[] randomSinglePrivateKey = TestHelper.generateRandomPrivateKeys(1);
+        OpenCLContext openCLContext = TestHelper.createOpenCLContext(CHUNK_MODE, OpenCLContext.GEN_HASH160_MODE, SHIFT_8_BITS_FOR_256_CHUNK_SIZE);
+
+        // act
+        OpenCLGridResult openCLGridResult = openCLContext.createResult(randomSinglePrivateKey);
+        PublicKeyBytesBatch publicKeyBytesBatch = openCLGridResult.getPublicKeyBytesBatch();
+
+        // cleanup
+        openCLContext.release();
+        openCLGridResult.freeResult();
+
+        // assert
+        assertThat(publicKeyBytesBatch.size(), is(equalTo(CHUNK_SIZE)));
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            if (publicKeyBytesBatch.isInvalid(i)) {
+                continue;
+            }
+            PublicKeyBytes expected = PublicKeyBytes.fromPrivate(AbstractProducer.calculateSecretKey(randomSinglePrivateKey[0], i));
+            assertThat(publicKeyBytesBatch.getUncompressedKeyHash(i), is(equalTo(expected.getUncompressedKeyHash())));
+            assertThat(publicKeyBytesBatch.getCompressedKeyHash(i), is(equalTo(expected.getCompressedKeyHash())));
+        }
+        publicKeyBytesBatch.free();
+        assertThat(openCLContext.getErrorCodeString(), is(equalTo(ERROR_CODE_SUCCESS)));
+    }
+
+    @Test
+    public void test_generate256Hash160sFiltered_randomSinglePrivateKey_onlyCandidatesRead() throws InvalidWorkSizeException {
+        // arrange
+        BigInteger[] randomSinglePrivateKey = TestHelper.generateRandomPrivateKeys(1);
+        PublicKeyBytes uncompressedHit = PublicKeyBytes.fromPrivate(AbstractProducer.calculateSecretKey(randomSinglePrivateKey[0], 7));
+        PublicKeyBytes compressedHit = PublicKeyBytes.fromPrivate(AbstractProducer.calculateSecretKey(randomSinglePrivateKey[0], 42));
+        BlockedBloomFilter addressFilter = BlockedBloomFilter.create(2, 1.0E-9);
+        addressFilter.put(ByteBuffer.wrap(uncompressedHit.getUncompressedKeyHash()));
+        addressFilter.put(ByteBuffer.wrap(compressedHit.getCompressedKeyHash()));
+        OpenCLContext openCLContext = TestHelper.createOpenCLContext(CHUNK_MODE, OpenCLContext.GEN_HASH160_FILTERED_MODE, SHIFT_8_BITS_FOR_256_CHUNK_SIZE, 0, addressFilter);
+
+        // act
+        OpenCLGridResult openCLGridResult = openCLContext.createResult(randomSinglePrivateKey);
+        PublicKeyBytesBatch publicKeyBytesBatch = openCLGridResult.getPublicKeyBytesBatch();
+
+        // cleanup
+        openCLContext.release();
+        openCLGridResult.freeResult();
+        addressFilter.free();
+
+        // assert
+        assertThat(publicKeyBytesBatch.isPrefiltered(), is(true));
+        assertThat(publicKeyBytesBatch.size() + publicKeyBytesBatch.getRejectedKeys(), is(equalTo(CHUNK_SIZE)));
+        Set<Integer> offsets = new HashSet<>();
+        for (int i = 0; i < publicKeyBytesBatch.size(); i++) {
+            offsets.add(publicKeyBytesBatch.getOffset(i));
+        }
+        assertThat(offsets, hasItems(7, 42));
+        publicKeyBytesBatch.free();
+        assertThat(openCLContext.getErrorCodeString(), is(equalTo(ERROR_CODE_SUCCESS)));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import org.junit.Test;
+
+public class OpenCLGridResultTest {
+
+    private static final int WORK_SIZE = 256;
+    private static final BigInteger SECRET_BASE = BigInteger.valueOf(1024);
+
+    /**
+     * @param candidates the work item ids shifted left by one, the lowest bit is set for the compressed public key
+     */
+    private OpenCLResultBufferPool.ResultBuffer createCandidatesResultBuffer(int... candidates) {
+        int sizeInBytes = Integer.BYTES * (1 + PublicKeyBytesBatch.HASH160S_PER_KEY * WORK_SIZE);
+        OpenCLResultBufferPool pool = new OpenCLResultBufferPool(null, 0, sizeInBytes, 0, false);
+        ByteBuffer hostBuffer = ByteBuffer.allocate(sizeInBytes).order(OpenCLResultBufferPool.CANDIDATES_BYTE_ORDER);
+        hostBuffer.putInt(candidates.length);
+        for (int candidate : candidates) {
+            hostBuffer.putInt(candidate);
+        }
+        return new OpenCLResultBufferPool.ResultBuffer(pool, false, null, hostBuffer, null, null);
+    }
+
+    @Test
+    public void getPublicKeyBytesBatch_filteredMode_distinctCandidatesInOrder() {
+        // arrange
+        OpenCLResultBufferPool.ResultBuffer resultBuffer = createCandidatesResultBuffer((9 << 1), (5 << 1) | 1, (5 << 1));
+        OpenCLGridResult openCLGridResult = new OpenCLGridResult(new BigInteger[]{SECRET_BASE}, WORK_SIZE, resultBuffer, true, OpenCLContext.GEN_HASH160_FILTERED_MODE);
+
+        // act
+        PublicKeyBytesBatch publicKeyBytesBatch = openCLGridResult.getPublicKeyBytesBatch();
+
+        // assert
+        assertThat(publicKeyBytesBatch.isPrefiltered(), is(true));
+        assertThat(publicKeyBytesBatch.size(), is(equalTo(2)));
+        assertThat(publicKeyBytesBatch.getRejectedKeys(), is(equalTo(WORK_SIZE - 2)));
+        assertThat(publicKeyBytesBatch.getOffset(0), is(equalTo(5)));
+        assertThat(publicKeyBytesBatch.getOffset(1), is(equalTo(9)));
+        PublicKeyBytes expected = PublicKeyBytes.fromPrivate(AbstractProducer.calculateSecretKey(SECRET_BASE, 9));
+        assertThat(publicKeyBytesBatch.getUncompressed(1), is(equalTo(expected.getUncompressed())));
+        assertThat(publicKeyBytesBatch.getCompressed(1), is(equalTo(expected.getCompressed())));
+        publicKeyBytesBatch.free();
+    }
+
+    @Test
+    public void getPublicKeyBytesBatch_filteredModeWithoutCandidates_emptyBatch() {
+        // arrange
+        OpenCLResultBufferPool.ResultBuffer resultBuffer = createCandidatesResultBuffer();
+        OpenCLGridResult openCLGridResult = new OpenCLGridResult(new BigInteger[]{SECRET_BASE}, WORK_SIZE, resultBuffer, true, OpenCLContext.GEN_HASH160_FILTERED_MODE);
+
+        // act
+        PublicKeyBytesBatch publicKeyBytesBatch = openCLGridResult.getPublicKeyBytesBatch();
+
+        // assert
+        assertThat(publicKeyBytesBatch.size(), is(equalTo(0)));
+        assertThat(publicKeyBytesBatch.getRejectedKeys(), is(equalTo(WORK_SIZE)));
+        publicKeyBytesBatch.free();
+    }
+}
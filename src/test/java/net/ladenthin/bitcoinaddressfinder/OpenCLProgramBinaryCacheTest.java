@@ -0,0 +1,94 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OpenCLProgramBinaryCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final List<String> SOURCES = Arrays.asList("source a", "source b");
+    private static final String DEVICE_NAME = "device";
+    private static final String DRIVER_VERSION = "1.0";
+    private static final String DEVICE_VERSION = "OpenCL 2.0";
+
+    @Test
+    public void createKey_sameParameters_sameKey() {
+        // act
+        String key = OpenCLProgramBinaryCache.createKey(SOURCES, DEVICE_NAME, DRIVER_VERSION, DEVICE_VERSION, null);
+        String sameKey = OpenCLProgramBinaryCache.createKey(Arrays.asList("source a", "source b"), DEVICE_NAME, DRIVER_VERSION, DEVICE_VERSION, null);
+
+        // assert
+        assertThat(key, is(equalTo(sameKey)));
+    }
+
+    @Test
+    public void createKey_changedParameter_otherKey() {
+        // arrange
+        String key = OpenCLProgramBinaryCache.createKey(SOURCES, DEVICE_NAME, DRIVER_VERSION, DEVICE_VERSION, null);
+
+        // act, assert
+        assertThat(OpenCLProgramBinaryCache.createKey(Arrays.asList("source a", "source c"), DEVICE_NAME, DRIVER_VERSION, DEVICE_VERSION, null), is(not(equalTo(key))));
+        assertThat(OpenCLProgramBinaryCache.createKey(Arrays.asList("source as", "ource b"), DEVICE_NAME, DRIVER_VERSION, DEVICE_VERSION, null), is(not(equalTo(key))));
+        assertThat(OpenCLProgramBinaryCache.createKey(SOURCES, "other device", DRIVER_VERSION, DEVICE_VERSION, null), is(not(equalTo(key))));
+        assertThat(OpenCLProgramBinaryCache.createKey(SOURCES, DEVICE_NAME, "1.1", DEVICE_VERSION, null), is(not(equalTo(key))));
+        assertThat(OpenCLProgramBinaryCache.createKey(SOURCES, DEVICE_NAME, DRIVER_VERSION, "OpenCL 3.0", null), is(not(equalTo(key))));
+        assertThat(OpenCLProgramBinaryCache.createKey(SOURCES, DEVICE_NAME, DRIVER_VERSION, DEVICE_VERSION, "-cl-fast-relaxed-math"), is(not(equalTo(key))));
+    }
+
+    @Test
+    public void load_stored_sameBinary() {
+        // arrange
+        OpenCLProgramBinaryCache programBinaryCache = new OpenCLProgramBinaryCache(new File(folder.getRoot(), "cache"));
+        String key = OpenCLProgramBinaryCache.createKey(SOURCES, DEVICE_NAME, DRIVER_VERSION, DEVICE_VERSION, null);
+        byte[] binary = {1, 2, 3};
+
+        // act
+        programBinaryCache.store(key, binary);
+
+        // assert
+        assertThat(programBinaryCache.load(key), is(equalTo(binary)));
+    }
+
+    @Test
+    public void load_removed_null() {
+        // arrange
+        OpenCLProgramBinaryCache programBinaryCache = new OpenCLProgramBinaryCache(folder.getRoot());
+        String key = OpenCLProgramBinaryCache.createKey(SOURCES, DEVICE_NAME, DRIVER_VERSION, DEVICE_VERSION, null);
+        programBinaryCache.store(key, new byte[]{1});
+
+        // act
+        programBinaryCache.remove(key);
+
+        // assert
+        assertThat(programBinaryCache.load(key), is(nullValue()));
+    }
+}
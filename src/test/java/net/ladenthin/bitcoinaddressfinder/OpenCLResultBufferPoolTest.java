@@ -0,0 +1,120 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import org.junit.Test;
+
+public class OpenCLResultBufferPoolTest {
+
+    private static final int SIZE_IN_BYTES = 64;
+
+    /**
+     * Host buffers only, no OpenCL device necessary.
+     */
+    private static class HostOnlyResultBufferPool extends OpenCLResultBufferPool {
+        private final List<ResultBuffer> releasedBuffers = new ArrayList<>();
+
+        HostOnlyResultBufferPool(int maximumPooledBuffers) {
+            super(null, 0, SIZE_IN_BYTES, maximumPooledBuffers, false);
+        }
+
+        @Override
+        protected ResultBuffer createBuffer(boolean pooled) {
+            return new ResultBuffer(this, pooled, null, ByteBuffer.allocate(SIZE_IN_BYTES), null, null);
+        }
+
+        @Override
+        protected void releaseBuffer(ResultBuffer resultBuffer) {
+            releasedBuffers.add(resultBuffer);
+        }
+    }
+
+    @Test
+    public void lease_released_sameBufferReused() {
+        // arrange
+        HostOnlyResultBufferPool pool = new HostOnlyResultBufferPool(2);
+        OpenCLResultBufferPool.ResultBuffer first = pool.lease();
+        ByteBuffer firstByteBuffer = first.getByteBuffer();
+        first.release();
+
+        // act
+        OpenCLResultBufferPool.ResultBuffer second = pool.lease();
+
+        // assert
+        assertThat(second.getByteBuffer(), is(sameInstance(firstByteBuffer)));
+        assertThat(pool.getLeases(), is(2L));
+        assertThat(pool.getReuses(), is(1L));
+        assertThat(pool.getPooledBuffers(), is(1));
+        assertThat(pool.releasedBuffers.isEmpty(), is(true));
+    }
+
+    @Test
+    public void lease_allPooledBuffersLeased_unpooledBufferReleasedOnReturn() {
+        // arrange
+        HostOnlyResultBufferPool pool = new HostOnlyResultBufferPool(2);
+        OpenCLResultBufferPool.ResultBuffer first = pool.lease();
+        OpenCLResultBufferPool.ResultBuffer second = pool.lease();
+
+        // act
+        OpenCLResultBufferPool.ResultBuffer unpooled = pool.lease();
+        unpooled.release();
+
+        // assert
+        assertThat(unpooled.getByteBuffer(), is(not(sameInstance(first.getByteBuffer()))));
+        assertThat(unpooled.getByteBuffer(), is(not(sameInstance(second.getByteBuffer()))));
+        assertThat(pool.getPooledBuffers(), is(2));
+        assertThat(pool.getUnpooledLeases(), is(1L));
+        assertThat(pool.releasedBuffers.size(), is(1));
+        assertThat(pool.releasedBuffers.get(0), is(sameInstance(unpooled)));
+    }
+
+    @Test
+    public void releaseAll_bufferLeased_releasedOnReturn() {
+        // arrange
+        HostOnlyResultBufferPool pool = new HostOnlyResultBufferPool(2);
+        OpenCLResultBufferPool.ResultBuffer leased = pool.lease();
+        pool.lease().release();
+
+        // act
+        pool.releaseAll();
+
+        // assert
+        assertThat(pool.releasedBuffers.size(), is(1));
+        leased.release();
+        assertThat(pool.releasedBuffers.size(), is(2));
+        assertThat(pool.releasedBuffers.get(1), is(sameInstance(leased)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void lease_poolReleased_exceptionThrown() {
+        // arrange
+        HostOnlyResultBufferPool pool = new HostOnlyResultBufferPool(2);
+        pool.releaseAll();
+
+        // act
+        pool.lease();
+    }
+}
@@ -82,27 +82,24 @@ public class ProducerJavaBrainwalletTest {
         producerJavaBrainwallet.produceKeys();
 
         // assert
-        assertThat(mockConsumer.publicKeyBytesArrayList.size(), is(equalTo(6)));
+        // one batch per file
+        assertThat(mockConsumer.publicKeyBytesArrayList.size(), is(equalTo(2)));
         
-        assertThat(mockConsumer.publicKeyBytesArrayList.get(0).length, is(equalTo(1)));
-        assertThat(mockConsumer.publicKeyBytesArrayList.get(1).length, is(equalTo(1)));
-        assertThat(mockConsumer.publicKeyBytesArrayList.get(2).length, is(equalTo(1)));
-        assertThat(mockConsumer.publicKeyBytesArrayList.get(3).length, is(equalTo(1)));
-        assertThat(mockConsumer.publicKeyBytesArrayList.get(4).length, is(equalTo(1)));
-        assertThat(mockConsumer.publicKeyBytesArrayList.get(5).length, is(equalTo(1)));
+        assertThat(mockConsumer.publicKeyBytesArrayList.get(0).length, is(equalTo(3)));
+        assertThat(mockConsumer.publicKeyBytesArrayList.get(1).length, is(equalTo(3)));
         
         // test
         assertThat(mockConsumer.publicKeyBytesArrayList.get(0)[0], is(equalTo(PublicKeyBytes.fromPrivate(new BigInteger("9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08", 16)))));
         // test with space
-        assertThat(mockConsumer.publicKeyBytesArrayList.get(1)[0], is(equalTo(PublicKeyBytes.fromPrivate(new BigInteger("58472980a1d3449939eadc2652370972d5007fa9c059ce84fb3ab98f544e4a08", 16)))));
+        assertThat(mockConsumer.publicKeyBytesArrayList.get(0)[1], is(equalTo(PublicKeyBytes.fromPrivate(new BigInteger("58472980a1d3449939eadc2652370972d5007fa9c059ce84fb3ab98f544e4a08", 16)))));
         // 1337
-        assertThat(mockConsumer.publicKeyBytesArrayList.get(2)[0], is(equalTo(PublicKeyBytes.fromPrivate(new BigInteger("5db1fee4b5703808c48078a76768b155b421b210c0761cd6a5d223f4d99f1eaa", 16)))));
+        assertThat(mockConsumer.publicKeyBytesArrayList.get(0)[2], is(equalTo(PublicKeyBytes.fromPrivate(new BigInteger("5db1fee4b5703808c48078a76768b155b421b210c0761cd6a5d223f4d99f1eaa", 16)))));
         // 73
-        assertThat(mockConsumer.publicKeyBytesArrayList.get(3)[0], is(equalTo(PublicKeyBytes.fromPrivate(new BigInteger("96061e92f58e4bdcdee73df36183fe3ac64747c81c26f6c83aada8d2aabb1864", 16)))));
+        assertThat(mockConsumer.publicKeyBytesArrayList.get(1)[0], is(equalTo(PublicKeyBytes.fromPrivate(new BigInteger("96061e92f58e4bdcdee73df36183fe3ac64747c81c26f6c83aada8d2aabb1864", 16)))));
         // #WithComment
-        assertThat(mockConsumer.publicKeyBytesArrayList.get(4)[0], is(equalTo(PublicKeyBytes.fromPrivate(new BigInteger("7f6cf61e56d81a250918077b480bf568a525e2514d45e380701e68fb5ee3433c", 16)))));
+        assertThat(mockConsumer.publicKeyBytesArrayList.get(1)[1], is(equalTo(PublicKeyBytes.fromPrivate(new BigInteger("7f6cf61e56d81a250918077b480bf568a525e2514d45e380701e68fb5ee3433c", 16)))));
         // schön, für schälen $%&?`´
-        assertThat(mockConsumer.publicKeyBytesArrayList.get(5)[0], is(equalTo(PublicKeyBytes.fromPrivate(new BigInteger("338bd263dc9597858422ed759811aa251bbaae903a40a74dba1017959ae5fd34", 16)))));
+        assertThat(mockConsumer.publicKeyBytesArrayList.get(1)[2], is(equalTo(PublicKeyBytes.fromPrivate(new BigInteger("338bd263dc9597858422ed759811aa251bbaae903a40a74dba1017959ae5fd34", 16)))));
     }
     
     private List<File> createBrainwalletFiles() throws IOException {
@@ -28,6 +28,7 @@ import java.math.BigInteger;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
 import net.ladenthin.bitcoinaddressfinder.configuration.CProducerJava;
+import net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Endomorphism;
 import org.bitcoinj.core.NetworkParameters;
 import org.bitcoinj.params.MainNetParams;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -151,4 +152,127 @@ public class ProducerJavaTest {
         assertThat(mockConsumer.publicKeyBytesArrayList.get(0)[7], is(equalTo(PublicKeyBytes.fromPrivate(BigInteger.valueOf(63)))));
     }
 
+    @Test
+    public void produceKeys_incrementalPointAdditionEnabledAndDisabled_sameKeys() throws IOException, InterruptedException {
+        final AtomicBoolean shouldRun = new AtomicBoolean(true);
+
+        CProducerJava cProducerJavaAddition = new CProducerJava();
+        cProducerJavaAddition.gridNumBits = 6;
+        cProducerJavaAddition.incrementalPointAddition = true;
+        CProducerJava cProducerJavaMultiplication = new CProducerJava();
+        cProducerJavaMultiplication.gridNumBits = 6;
+        cProducerJavaMultiplication.incrementalPointAddition = false;
+
+        MockConsumer mockConsumerAddition = new MockConsumer();
+        MockConsumer mockConsumerMultiplication = new MockConsumer();
+        ProducerJava producerJavaAddition = new ProducerJava(cProducerJavaAddition, shouldRun, mockConsumerAddition, keyUtility, new Random(3));
+        ProducerJava producerJavaMultiplication = new ProducerJava(cProducerJavaMultiplication, shouldRun, mockConsumerMultiplication, keyUtility, new Random(3));
+
+        // act
+        producerJavaAddition.produceKeys();
+        producerJavaMultiplication.produceKeys();
+
+        // assert
+        PublicKeyBytes[] publicKeyBytesAddition = mockConsumerAddition.publicKeyBytesArrayList.get(0);
+        PublicKeyBytes[] publicKeyBytesMultiplication = mockConsumerMultiplication.publicKeyBytesArrayList.get(0);
+        assertThat(publicKeyBytesAddition.length, is(equalTo(cProducerJavaAddition.getWorkSize())));
+        assertThat(publicKeyBytesAddition, is(equalTo(publicKeyBytesMultiplication)));
+    }
+
+    @Test
+    public void produceKeys_endomorphismKeysEnabled_sixKeysPerSecret() throws IOException, InterruptedException {
+        final AtomicBoolean shouldRun = new AtomicBoolean(true);
+
+        CProducerJava cProducerJava = new CProducerJava();
+        cProducerJava.gridNumBits = 4;
+        cProducerJava.endomorphismKeys = true;
+
+        MockConsumer mockConsumer = new MockConsumer();
+        ProducerJava producerJava = new ProducerJava(cProducerJava, shouldRun, mockConsumer, keyUtility, new Random(5));
+
+        // act
+        producerJava.produceKeys();
+
+        // assert
+        PublicKeyBytes[] publicKeyBytes = mockConsumer.publicKeyBytesArrayList.get(0);
+        assertThat(publicKeyBytes.length, is(equalTo(cProducerJava.getWorkSize() * Secp256k1Endomorphism.VARIANTS)));
+        for (PublicKeyBytes key : publicKeyBytes) {
+            assertThat(key, is(equalTo(PublicKeyBytes.fromPrivate(key.getSecretKey()))));
+        }
+    }
+
+    @Test
+    public void produceKeys_incrementalPointAdditionSecretBaseZero_invalidKeysSkipped() throws IOException, InterruptedException {
+        final AtomicBoolean shouldRun = new AtomicBoolean(true);
+
+        CProducerJava cProducerJava = new CProducerJava();
+        cProducerJava.gridNumBits = 3;
+        cProducerJava.privateKeyMaxNumBits = 3;
+        cProducerJava.incrementalPointAddition = true;
+
+        MockConsumer mockConsumer = new MockConsumer();
+        Random random = new Random(1);
+        ProducerJava producerJava = new ProducerJava(cProducerJava, shouldRun, mockConsumer, keyUtility, random);
+
+        // act
+        producerJava.produceKeys();
+
+        // assert
+        PublicKeyBytes[] publicKeyBytes = mockConsumer.publicKeyBytesArrayList.get(0);
+        assertThat(publicKeyBytes[0], is(equalTo(PublicKeyBytes.INVALID_KEY_ONE)));
+        assertThat(publicKeyBytes[1], is(equalTo(PublicKeyBytes.INVALID_KEY_ONE)));
+        for (int i = 2; i < publicKeyBytes.length; i++) {
+            assertThat(publicKeyBytes[i], is(equalTo(PublicKeyBytes.fromPrivate(BigInteger.valueOf(i)))));
+        }
+    }
+
+    @Test
+    public void run_rangeConfigured_consecutiveGridsAndStopsAtRangeEnd() throws IOException, InterruptedException {
+        final AtomicBoolean shouldRun = new AtomicBoolean(true);
+
+        CProducerJava cProducerJava = new CProducerJava();
+        cProducerJava.gridNumBits = 2;
+        cProducerJava.rangeStart = "5";
+        cProducerJava.rangeEnd = "10";
+
+        MockConsumer mockConsumer = new MockConsumer();
+        ProducerJava producerJava = new ProducerJava(cProducerJava, shouldRun, mockConsumer, keyUtility, new Random(1));
+
+        // act
+        producerJava.run();
+
+        // assert
+        assertThat(mockConsumer.publicKeyBytesArrayList.size(), is(equalTo(3)));
+        for (int grid = 0; grid < 3; grid++) {
+            PublicKeyBytes[] publicKeyBytes = mockConsumer.publicKeyBytesArrayList.get(grid);
+            for (int i = 0; i < publicKeyBytes.length; i++) {
+                assertThat(publicKeyBytes[i], is(equalTo(PublicKeyBytes.fromPrivate(BigInteger.valueOf(4 + grid * 4 + i)))));
+            }
+        }
+        assertThat(producerJava.getSecretRange().getCompletedGrids(), is(equalTo(3L)));
+        assertThat(producerJava.isRunning(), is(equalTo(false)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void assertGridNumBitsCorrect_endomorphismKeysAndBatchTooLarge_throwsException() {
+        // arrange
+        CProducerJava cProducerJava = new CProducerJava();
+        cProducerJava.endomorphismKeys = true;
+        cProducerJava.gridNumBits = 23;
+
+        // act
+        cProducerJava.assertGridNumBitsCorrect();
+    }
+
+    @Test
+    public void assertGridNumBitsCorrect_endomorphismKeysAndBatchFits_noExceptionThrown() {
+        // arrange
+        CProducerJava cProducerJava = new CProducerJava();
+        cProducerJava.endomorphismKeys = true;
+        cProducerJava.gridNumBits = 22;
+
+        // act
+        cProducerJava.assertGridNumBitsCorrect();
+    }
+
 }
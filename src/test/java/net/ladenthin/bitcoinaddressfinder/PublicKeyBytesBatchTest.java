@@ -0,0 +1,378 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import net.ladenthin.bitcoinaddressfinder.configuration.CProducer;
+import net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Endomorphism;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assume.assumeTrue;
+import org.junit.Test;
+
+public class PublicKeyBytesBatchTest {
+
+    private static final BigInteger SECRET_BASE = BigInteger.valueOf(1024);
+
+    private PublicKeyBytesBatch createBatch(BigInteger secretBase, int size) {
+        PublicKeyBytesBatch publicKeyBytesBatch = new PublicKeyBytesBatch(size, secretBase);
+        for (int i = 0; i < size; i++) {
+            BigInteger secret = AbstractProducer.calculateSecretKey(secretBase, i);
+            if (PublicKeyBytes.isInvalid(secret)) {
+                publicKeyBytesBatch.add(i, PublicKeyBytes.INVALID_KEY_ONE.getUncompressed());
+                continue;
+            }
+            publicKeyBytesBatch.add(i, PublicKeyBytes.fromPrivate(secret).getUncompressed());
+        }
+        return publicKeyBytesBatch;
+    }
+
+    @Test
+    public void assertGridNumBitsCorrect_maximumGridNumBits_workSizeWithinMaxCapacity() {
+        // arrange
+        CProducer cProducer = new CProducer();
+        cProducer.gridNumBits = CProducer.MAX_GRID_NUM_BITS;
+
+        // act
+        cProducer.assertGridNumBitsCorrect();
+
+        // assert
+        assertThat(cProducer.getWorkSize(), is(lessThanOrEqualTo(PublicKeyBytesBatch.MAX_CAPACITY)));
+    }
+
+    @Test
+    public void constructor_maximumGridNumBits_keysAddedAndHashed() {
+        int capacity = 1 << CProducer.MAX_GRID_NUM_BITS;
+        // the regions of the maximum grid need about 2.4 GB direct memory, limited by the maximum heap by default
+        assumeTrue(Runtime.getRuntime().maxMemory() > (long) capacity * PublicKeyBytesBatch.BYTES_PER_KEY);
+        // arrange
+        PublicKeyBytesBatch publicKeyBytesBatch = new PublicKeyBytesBatch(capacity, SECRET_BASE);
+
+        // act
+        publicKeyBytesBatch.add(2, PublicKeyBytes.fromPrivate(AbstractProducer.calculateSecretKey(SECRET_BASE, 2)).getUncompressed());
+        publicKeyBytesBatch.calculateHash160s(0, 1);
+
+        // assert
+        assertThat(publicKeyBytesBatch.capacity(), is(equalTo(capacity)));
+        assertThat(publicKeyBytesBatch.toPublicKeyBytes(0), is(equalTo(PublicKeyBytes.fromPrivate(AbstractProducer.calculateSecretKey(SECRET_BASE, 2)))));
+        assertThat(publicKeyBytesBatch.getCompressedKeyHash(0), is(equalTo(publicKeyBytesBatch.toPublicKeyBytes(0).getCompressedKeyHash())));
+        publicKeyBytesBatch.free();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_capacityAboveMaxCapacity_throwsException() {
+        new PublicKeyBytesBatch(PublicKeyBytesBatch.MAX_CAPACITY + 1, SECRET_BASE);
+    }
+
+    @Test
+    public void toPublicKeyBytes_keysAdded_sameAsFromPrivate() {
+        // arrange
+        PublicKeyBytesBatch publicKeyBytesBatch = createBatch(SECRET_BASE, 8);
+
+        // act, assert
+        assertThat(publicKeyBytesBatch.size(), is(equalTo(8)));
+        for (int i = 0; i < publicKeyBytesBatch.size(); i++) {
+            PublicKeyBytes expected = PublicKeyBytes.fromPrivate(SECRET_BASE.or(BigInteger.valueOf(i)));
+            PublicKeyBytes publicKeyBytes = publicKeyBytesBatch.toPublicKeyBytes(i);
+            assertThat(publicKeyBytesBatch.isInvalid(i), is(equalTo(false)));
+            assertThat(publicKeyBytes, is(equalTo(expected)));
+            assertThat(publicKeyBytes.getUncompressed(), is(equalTo(expected.getUncompressed())));
+            assertThat(publicKeyBytes.getCompressed(), is(equalTo(expected.getCompressed())));
+        }
+        publicKeyBytesBatch.free();
+    }
+
+    @Test
+    public void calculateHash160s_keysAdded_sameAsPublicKeyBytes() {
+        // arrange
+        PublicKeyBytesBatch publicKeyBytesBatch = createBatch(SECRET_BASE, 8);
+
+        // act
+        publicKeyBytesBatch.calculateHash160s(0, publicKeyBytesBatch.size());
+
+        // assert
+        ByteBuffer hash160s = publicKeyBytesBatch.getHash160s(2, 4);
+        assertThat(hash160s.remaining(), is(equalTo(2 * PublicKeyBytesBatch.HASH160S_PER_KEY * PublicKeyBytes.HASH160_SIZE)));
+        for (int i = 0; i < publicKeyBytesBatch.size(); i++) {
+            PublicKeyBytes expected = PublicKeyBytes.fromPrivate(SECRET_BASE.or(BigInteger.valueOf(i)));
+            assertThat(publicKeyBytesBatch.getUncompressedKeyHash(i), is(equalTo(expected.getUncompressedKeyHash())));
+            assertThat(publicKeyBytesBatch.getCompressedKeyHash(i), is(equalTo(expected.getCompressedKeyHash())));
+        }
+        byte[] firstHash160 = new byte[PublicKeyBytes.HASH160_SIZE];
+        hash160s.get(firstHash160);
+        assertThat(firstHash160, is(equalTo(publicKeyBytesBatch.getUncompressedKeyHash(2))));
+        publicKeyBytesBatch.free();
+    }
+
+    @Test
+    public void isInvalid_secretBaseZero_firstTwoKeysInvalid() {
+        // arrange
+        PublicKeyBytesBatch publicKeyBytesBatch = createBatch(BigInteger.ZERO, 4);
+
+        // act, assert
+        assertThat(publicKeyBytesBatch.isInvalid(0), is(equalTo(true)));
+        assertThat(publicKeyBytesBatch.isInvalid(1), is(equalTo(true)));
+        assertThat(publicKeyBytesBatch.isInvalid(2), is(equalTo(false)));
+        assertThat(publicKeyBytesBatch.toPublicKeyBytes(0), is(equalTo(PublicKeyBytes.INVALID_KEY_ONE)));
+        assertThat(publicKeyBytesBatch.toPublicKeyBytes(2), is(equalTo(PublicKeyBytes.fromPrivate(BigInteger.valueOf(2)))));
+        publicKeyBytesBatch.free();
+    }
+
+    @Test
+    public void of_publicKeyBytesGiven_singleKeyWithSameBytes() {
+        // arrange
+        PublicKeyBytes publicKeyBytes = PublicKeyBytes.fromPrivate(BigInteger.valueOf(1337));
+
+        // act
+        PublicKeyBytesBatch publicKeyBytesBatch = PublicKeyBytesBatch.of(publicKeyBytes);
+
+        // assert
+        assertThat(publicKeyBytesBatch.size(), is(equalTo(1)));
+        assertThat(publicKeyBytesBatch.getSecretKey(0), is(equalTo(BigInteger.valueOf(1337))));
+        assertThat(publicKeyBytesBatch.getUncompressed(0), is(equalTo(publicKeyBytes.getUncompressed())));
+        assertThat(publicKeyBytesBatch.getCompressed(0), is(equalTo(publicKeyBytes.getCompressed())));
+        publicKeyBytesBatch.free();
+    }
+
+    @Test
+    public void addWithSecret_secretsWithoutCommonBaseGiven_everyKeyWithItsSecret() {
+        // arrange
+        BigInteger[] secrets = {BigInteger.valueOf(1337), new BigInteger("9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08", 16), BigInteger.valueOf(73)};
+        PublicKeyBytesBatch publicKeyBytesBatch = new PublicKeyBytesBatch(secrets.length, null);
+
+        // act
+        for (BigInteger secret : secrets) {
+            PublicKeyBytes publicKeyBytes = PublicKeyBytes.fromPrivate(secret);
+            publicKeyBytesBatch.addWithSecret(secret, publicKeyBytes.getUncompressed(), publicKeyBytes.getCompressed());
+        }
+        publicKeyBytesBatch.calculateHash160s(0, publicKeyBytesBatch.size());
+
+        // assert
+        assertThat(publicKeyBytesBatch.getSecretBase(), is(nullValue()));
+        assertThat(publicKeyBytesBatch.size(), is(equalTo(secrets.length)));
+        for (int i = 0; i < secrets.length; i++) {
+            PublicKeyBytes expected = PublicKeyBytes.fromPrivate(secrets[i]);
+            assertThat(publicKeyBytesBatch.isInvalid(i), is(equalTo(false)));
+            assertThat(publicKeyBytesBatch.getSecretKey(i), is(equalTo(secrets[i])));
+            assertThat(publicKeyBytesBatch.toPublicKeyBytes(i), is(equalTo(expected)));
+            assertThat(publicKeyBytesBatch.getCompressedKeyHash(i), is(equalTo(expected.getCompressedKeyHash())));
+        }
+        publicKeyBytesBatch.free();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addWithSecret_batchWithSecretBase_throwsException() {
+        // arrange
+        PublicKeyBytesBatch publicKeyBytesBatch = new PublicKeyBytesBatch(1, SECRET_BASE);
+        PublicKeyBytes publicKeyBytes = PublicKeyBytes.fromPrivate(BigInteger.valueOf(1337));
+
+        // act
+        try {
+            publicKeyBytesBatch.addWithSecret(BigInteger.valueOf(1337), publicKeyBytes.getUncompressed(), publicKeyBytes.getCompressed());
+        } finally {
+            publicKeyBytesBatch.free();
+        }
+    }
+
+    @Test
+    public void addWithEndomorphismKeys_batchWithoutCommonBaseGiven_variantsOfEverySecret() {
+        // arrange
+        BigInteger[] secrets = {BigInteger.valueOf(1337), BigInteger.valueOf(73)};
+        PublicKeyBytesBatch publicKeyBytesBatch = new PublicKeyBytesBatch(secrets.length, null);
+        for (BigInteger secret : secrets) {
+            PublicKeyBytes publicKeyBytes = PublicKeyBytes.fromPrivate(secret);
+            publicKeyBytesBatch.addWithSecret(secret, publicKeyBytes.getUncompressed(), publicKeyBytes.getCompressed());
+        }
+        // reused, had a common secret base before
+        PublicKeyBytesBatch endomorphismBatch = new PublicKeyBytesBatch(secrets.length * Secp256k1Endomorphism.VARIANTS, SECRET_BASE);
+        endomorphismBatch.reset(publicKeyBytesBatch.getSecretBase());
+
+        // act
+        endomorphismBatch.addWithEndomorphismKeys(publicKeyBytesBatch, 0, secrets.length);
+
+        // assert
+        assertThat(endomorphismBatch.size(), is(equalTo(secrets.length * Secp256k1Endomorphism.VARIANTS)));
+        for (int i = 0; i < endomorphismBatch.size(); i++) {
+            BigInteger secret = secrets[i < secrets.length ? i : (i - secrets.length) / (Secp256k1Endomorphism.VARIANTS - 1)];
+            BigInteger expectedSecret = Secp256k1Endomorphism.secretKey(secret, endomorphismBatch.getVariant(i));
+            assertThat(endomorphismBatch.getSecretKey(i), is(equalTo(expectedSecret)));
+            assertThat(endomorphismBatch.toPublicKeyBytes(i), is(equalTo(PublicKeyBytes.fromPrivate(expectedSecret))));
+        }
+        publicKeyBytesBatch.free();
+        endomorphismBatch.free();
+    }
+
+    @Test
+    public void addEndomorphismKeys_keyGiven_variantsSameAsFromPrivate() {
+        // arrange
+        PublicKeyBytesBatch publicKeyBytesBatch = new PublicKeyBytesBatch(Secp256k1Endomorphism.VARIANTS, SECRET_BASE);
+        publicKeyBytesBatch.add(3, PublicKeyBytes.fromPrivate(SECRET_BASE.or(BigInteger.valueOf(3))).getUncompressed());
+
+        // act
+        int added = publicKeyBytesBatch.addEndomorphismKeys(0);
+        publicKeyBytesBatch.calculateHash160s(0, publicKeyBytesBatch.size());
+
+        // assert
+        assertThat(added, is(equalTo(Secp256k1Endomorphism.VARIANTS - 1)));
+        assertThat(publicKeyBytesBatch.size(), is(equalTo(Secp256k1Endomorphism.VARIANTS)));
+        assertThat(publicKeyBytesBatch.hasEndomorphismKeys(), is(equalTo(true)));
+        for (int i = 0; i < publicKeyBytesBatch.size(); i++) {
+            BigInteger expectedSecret = Secp256k1Endomorphism.secretKey(SECRET_BASE.or(BigInteger.valueOf(3)), i);
+            PublicKeyBytes expected = PublicKeyBytes.fromPrivate(expectedSecret);
+            assertThat(publicKeyBytesBatch.getOffset(i), is(equalTo(3)));
+            assertThat(publicKeyBytesBatch.getVariant(i), is(equalTo(i)));
+            assertThat(publicKeyBytesBatch.getSecretKey(i), is(equalTo(expectedSecret)));
+            assertThat(publicKeyBytesBatch.toPublicKeyBytes(i), is(equalTo(expected)));
+            assertThat(publicKeyBytesBatch.getCompressed(i), is(equalTo(expected.getCompressed())));
+            assertThat(publicKeyBytesBatch.getCompressedKeyHash(i), is(equalTo(expected.getCompressedKeyHash())));
+        }
+        publicKeyBytesBatch.free();
+    }
+
+    @Test
+    public void addEndomorphismKeys_invalidKeyGiven_nothingAdded() {
+        // arrange
+        PublicKeyBytesBatch publicKeyBytesBatch = createBatch(BigInteger.ZERO, 4);
+
+        // act
+        int added = publicKeyBytesBatch.addEndomorphismKeys(1);
+
+        // assert
+        assertThat(added, is(equalTo(0)));
+        assertThat(publicKeyBytesBatch.size(), is(equalTo(4)));
+        assertThat(publicKeyBytesBatch.hasEndomorphismKeys(), is(equalTo(false)));
+        publicKeyBytesBatch.free();
+    }
+
+    @Test
+    public void addWithEndomorphismKeys_rangeGiven_keysKeptAndVariantsAppended() {
+        // arrange
+        PublicKeyBytesBatch publicKeyBytesBatch = createBatch(SECRET_BASE, 4);
+        PublicKeyBytesBatch endomorphismBatch = new PublicKeyBytesBatch(2 * Secp256k1Endomorphism.VARIANTS, SECRET_BASE);
+
+        // act
+        endomorphismBatch.addWithEndomorphismKeys(publicKeyBytesBatch, 1, 3);
+
+        // assert
+        assertThat(publicKeyBytesBatch.size(), is(equalTo(4)));
+        assertThat(endomorphismBatch.size(), is(equalTo(2 * Secp256k1Endomorphism.VARIANTS)));
+        assertThat(endomorphismBatch.hasEndomorphismKeys(), is(equalTo(true)));
+        assertThat(endomorphismBatch.toPublicKeyBytes(0), is(equalTo(publicKeyBytesBatch.toPublicKeyBytes(1))));
+        assertThat(endomorphismBatch.toPublicKeyBytes(1), is(equalTo(publicKeyBytesBatch.toPublicKeyBytes(2))));
+        for (int i = 0; i < endomorphismBatch.size(); i++) {
+            assertThat(endomorphismBatch.toPublicKeyBytes(i), is(equalTo(PublicKeyBytes.fromPrivate(endomorphismBatch.getSecretKey(i)))));
+        }
+        publicKeyBytesBatch.free();
+        endomorphismBatch.free();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addWithEndomorphismKeys_otherSecretBase_throwsException() {
+        // arrange
+        PublicKeyBytesBatch publicKeyBytesBatch = createBatch(SECRET_BASE, 4);
+        PublicKeyBytesBatch endomorphismBatch = new PublicKeyBytesBatch(4 * Secp256k1Endomorphism.VARIANTS, SECRET_BASE.add(BigInteger.ONE));
+
+        // act
+        try {
+            endomorphismBatch.addWithEndomorphismKeys(publicKeyBytesBatch, 0, 4);
+        } finally {
+            publicKeyBytesBatch.free();
+            endomorphismBatch.free();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void add_batchFull_throwsException() {
+        PublicKeyBytesBatch publicKeyBytesBatch = createBatch(SECRET_BASE, 2);
+        publicKeyBytesBatch.add(2, PublicKeyBytes.INVALID_KEY_ONE.getUncompressed());
+    }
+
+    /**
+     * The hash160s as written by the {@link OpenCLContext#GEN_HASH160_MODE} kernel.
+     */
+    private ByteBuffer createKernelHash160s(BigInteger secretBase, int size) {
+        ByteBuffer hash160s = ByteBuffer.allocate(size * PublicKeyBytesBatch.HASH160S_PER_KEY * PublicKeyBytes.HASH160_SIZE);
+        for (int i = 0; i < size; i++) {
+            PublicKeyBytes publicKeyBytes = PublicKeyBytes.fromPrivate(AbstractProducer.calculateSecretKey(secretBase, i));
+            hash160s.put(publicKeyBytes.getUncompressedKeyHash());
+            hash160s.put(publicKeyBytes.getCompressedKeyHash());
+        }
+        hash160s.flip();
+        return hash160s;
+    }
+
+    @Test
+    public void addHash160s_hash160sGiven_sameHash160sAndPublicKeysOnDemand() {
+        // arrange
+        ByteBuffer kernelHash160s = createKernelHash160s(SECRET_BASE, 8);
+        PublicKeyBytesBatch publicKeyBytesBatch = PublicKeyBytesBatch.ofHash160s(8, SECRET_BASE);
+        int hash160sPerKeyNumBytes = PublicKeyBytesBatch.HASH160S_PER_KEY * PublicKeyBytes.HASH160_SIZE;
+
+        // act
+        for (int i = 0; i < 8; i++) {
+            publicKeyBytesBatch.addHash160s(i, kernelHash160s, hash160sPerKeyNumBytes * i);
+        }
+        // nothing to calculate
+        publicKeyBytesBatch.calculateHash160s(0, publicKeyBytesBatch.size());
+
+        // assert
+        assertThat(publicKeyBytesBatch.hasPublicKeys(), is(equalTo(false)));
+        assertThat(publicKeyBytesBatch.getHash160s(0, 8), is(equalTo(kernelHash160s)));
+        for (int i = 0; i < publicKeyBytesBatch.size(); i++) {
+            PublicKeyBytes expected = PublicKeyBytes.fromPrivate(SECRET_BASE.or(BigInteger.valueOf(i)));
+            assertThat(publicKeyBytesBatch.getUncompressedKeyHash(i), is(equalTo(expected.getUncompressedKeyHash())));
+            assertThat(publicKeyBytesBatch.getCompressedKeyHash(i), is(equalTo(expected.getCompressedKeyHash())));
+            assertThat(publicKeyBytesBatch.toPublicKeyBytes(i), is(equalTo(expected)));
+            assertThat(publicKeyBytesBatch.getCompressed(i), is(equalTo(expected.getCompressed())));
+        }
+        publicKeyBytesBatch.free();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void add_batchOfHash160s_throwsException() {
+        // arrange
+        PublicKeyBytesBatch publicKeyBytesBatch = PublicKeyBytesBatch.ofHash160s(1, SECRET_BASE);
+
+        // act
+        publicKeyBytesBatch.add(0, PublicKeyBytes.fromPrivate(SECRET_BASE).getUncompressed());
+    }
+
+    @Test
+    public void setRejectedKeys_resetAfterwards_notPrefiltered() {
+        // arrange
+        PublicKeyBytesBatch publicKeyBytesBatch = createBatch(SECRET_BASE, 2);
+        publicKeyBytesBatch.setRejectedKeys(254);
+
+        // pre-assert
+        assertThat(publicKeyBytesBatch.isPrefiltered(), is(true));
+        assertThat(publicKeyBytesBatch.getRejectedKeys(), is(254));
+
+        // act
+        publicKeyBytesBatch.reset(SECRET_BASE);
+
+        // assert
+        assertThat(publicKeyBytesBatch.isPrefiltered(), is(false));
+        assertThat(publicKeyBytesBatch.getRejectedKeys(), is(0));
+        publicKeyBytesBatch.free();
+    }
+}
@@ -0,0 +1,117 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.math.BigInteger;
+import java.util.Random;
+import net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Engine;
+import net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Point;
+import org.bitcoinj.core.ECKey;
+import org.bouncycastle.math.ec.ECPoint;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the key derivation per key by {@link ECKey#fromPrivate(java.math.BigInteger, boolean)}
+ * with the batched normalization of {@link PublicKeyBytes#fromPrivates(java.math.BigInteger[], int)}
+ * and of consecutive points by {@link PublicKeyBytes#toUncompressed(org.bouncycastle.math.ec.ECPoint[], int)}
+ * and by {@link Secp256k1Engine}.
+ */
+public class PublicKeyBytesPerformanceTest {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final static int KEYS = 1024;
+    private final static int ROUNDS = 4;
+
+    @Test
+    public void fromPrivates_performanceTest() {
+        // arrange
+        Random random = new Random(1L);
+        BigInteger[] secretKeys = new BigInteger[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            secretKeys[i] = new BigInteger(PublicKeyBytes.PRIVATE_KEY_MAX_NUM_BITS - 1, random).add(BigInteger.valueOf(2));
+        }
+        ECPoint g = ECKey.CURVE.getG();
+        ECPoint[] points = new ECPoint[KEYS];
+        byte[] lastPubKey = null;
+        PublicKeyBytes[] publicKeyBytes = null;
+        byte[][] consecutive = null;
+        Secp256k1Engine engine = Secp256k1Engine.get();
+        Secp256k1Point[] enginePoints = new Secp256k1Point[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            enginePoints[i] = new Secp256k1Point();
+        }
+
+        // act, the first rounds warm up the JIT
+        long ecKeyNanos = 0;
+        long fromPrivatesNanos = 0;
+        long pointAdditionNanos = 0;
+        long enginePointAdditionNanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long timeBefore = System.nanoTime();
+            for (int i = 0; i < KEYS; i++) {
+                lastPubKey = ECKey.fromPrivate(secretKeys[i], false).getPubKey();
+            }
+            ecKeyNanos = System.nanoTime() - timeBefore;
+
+            timeBefore = System.nanoTime();
+            publicKeyBytes = PublicKeyBytes.fromPrivates(secretKeys, KEYS);
+            fromPrivatesNanos = System.nanoTime() - timeBefore;
+
+            timeBefore = System.nanoTime();
+            ECPoint point = ECKey.publicPointFromPrivate(secretKeys[0]);
+            points[0] = point;
+            for (int i = 1; i < KEYS; i++) {
+                point = point.add(g);
+                points[i] = point;
+            }
+            consecutive = PublicKeyBytes.toUncompressed(points, KEYS);
+            pointAdditionNanos = System.nanoTime() - timeBefore;
+
+            timeBefore = System.nanoTime();
+            engine.multiplyG(enginePoints[0], secretKeys[0]);
+            for (int i = 1; i < KEYS; i++) {
+                engine.addAffine(enginePoints[i], enginePoints[i - 1], Secp256k1Engine.getGx(), Secp256k1Engine.getGy());
+            }
+            engine.normalize(enginePoints, KEYS);
+            enginePointAdditionNanos = System.nanoTime() - timeBefore;
+        }
+
+        // assert
+        logger.info("ECKey.fromPrivate: " + keysPerSecond(ecKeyNanos) + " keys/second");
+        logger.info("PublicKeyBytes.fromPrivates: " + keysPerSecond(fromPrivatesNanos) + " keys/second");
+        logger.info("point addition and PublicKeyBytes.toUncompressed: " + keysPerSecond(pointAdditionNanos) + " keys/second");
+        logger.info("Secp256k1Engine point addition and normalization: " + keysPerSecond(enginePointAdditionNanos) + " keys/second");
+
+        assertThat(publicKeyBytes[KEYS - 1].getUncompressed(), is(equalTo(lastPubKey)));
+        assertThat(consecutive[KEYS - 1], is(equalTo(ECKey.fromPrivate(secretKeys[0].add(BigInteger.valueOf(KEYS - 1)), false).getPubKey())));
+        byte[] engineLast = new byte[PublicKeyBytes.PUBLIC_KEY_UNCOMPRESSED_BYTES];
+        enginePoints[KEYS - 1].encodeUncompressed(engineLast, 0);
+        assertThat(engineLast, is(equalTo(consecutive[KEYS - 1])));
+    }
+
+    private long keysPerSecond(long nanos) {
+        return KEYS * 1_000_000_000L / Math.max(nanos, 1);
+    }
+}
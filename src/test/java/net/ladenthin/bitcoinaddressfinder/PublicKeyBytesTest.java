@@ -21,6 +21,8 @@ package net.ladenthin.bitcoinaddressfinder;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Random;
 import net.ladenthin.bitcoinaddressfinder.staticaddresses.TestAddresses42;
 import org.apache.commons.codec.binary.Hex;
 import org.bitcoinj.core.ECKey;
@@ -28,6 +30,7 @@ import org.bitcoinj.core.LegacyAddress;
 import org.bitcoinj.core.NetworkParameters;
 import org.bitcoinj.core.Utils;
 import org.bitcoinj.params.MainNetParams;
+import org.bouncycastle.math.ec.ECPoint;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
@@ -93,4 +96,42 @@ public class PublicKeyBytesTest {
         // assert
         assertThat(maxPrivateKeyAsHexString.toLowerCase(), is(equalTo("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEBAAEDCE6AF48A03BBFD25E8CD0364141".toLowerCase())));
     }
+
+    @Test
+    public void fromPrivates_randomSecretsGiven_sameAsFromPrivate() {
+        // arrange
+        Random random = new Random(1L);
+        BigInteger[] secretKeys = new BigInteger[17];
+        for (int i = 0; i < secretKeys.length; i++) {
+            secretKeys[i] = new BigInteger(PublicKeyBytes.PRIVATE_KEY_MAX_NUM_BITS - 1, random).add(BigInteger.valueOf(2));
+        }
+
+        // act
+        PublicKeyBytes[] publicKeyBytes = PublicKeyBytes.fromPrivates(secretKeys, secretKeys.length - 1);
+
+        // assert
+        assertThat(publicKeyBytes.length, is(equalTo(secretKeys.length - 1)));
+        for (int i = 0; i < publicKeyBytes.length; i++) {
+            assertThat(publicKeyBytes[i], is(equalTo(PublicKeyBytes.fromPrivate(secretKeys[i]))));
+            assertThat(publicKeyBytes[i].getSecretKey(), is(equalTo(secretKeys[i])));
+        }
+    }
+
+    @Test
+    public void toUncompressed_nullAndInfinityGiven_invalidKeyOne() {
+        // arrange
+        ECPoint[] points = new ECPoint[] {
+            null,
+            ECKey.CURVE.getCurve().getInfinity(),
+            ECKey.publicPointFromPrivate(BigInteger.valueOf(3)).add(ECKey.CURVE.getG())
+        };
+
+        // act
+        byte[][] uncompressed = PublicKeyBytes.toUncompressed(points, points.length);
+
+        // assert
+        assertThat(uncompressed[0], is(equalTo(PublicKeyBytes.INVALID_KEY_ONE.getUncompressed())));
+        assertThat(uncompressed[1], is(equalTo(PublicKeyBytes.INVALID_KEY_ONE.getUncompressed())));
+        assertThat(uncompressed[2], is(equalTo(PublicKeyBytes.fromPrivate(BigInteger.valueOf(4)).getUncompressed())));
+    }
 }
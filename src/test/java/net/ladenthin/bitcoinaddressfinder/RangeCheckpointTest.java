@@ -0,0 +1,185 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Set;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RangeCheckpointTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final int SAVE_EVERY_N_SECONDS = 60;
+    private static final int PRINT_STATISTICS_EVERY_N_SECONDS = 60;
+    private static final BigInteger RANGE_END = BigInteger.valueOf(100L << 4);
+
+    private SecretRange createSecretRange(File file, String permutationKey) {
+        return createSecretRange(file, permutationKey, 4);
+    }
+
+    private SecretRange createSecretRange(File file, String permutationKey, int gridNumBits) {
+        RangeCheckpoint rangeCheckpoint = RangeCheckpoint.acquire(file, SAVE_EVERY_N_SECONDS);
+        return new SecretRange(BigInteger.ZERO, RANGE_END, gridNumBits, permutationKey, 0, -1, rangeCheckpoint, PRINT_STATISTICS_EVERY_N_SECONDS);
+    }
+
+    @Test
+    public void close_restarted_completedGridsSkipped() throws IOException {
+        // arrange
+        File file = new File(folder.getRoot(), "checkpoint.properties");
+        SecretRange secretRange = createSecretRange(file, "key");
+        for (int i = 0; i < 30; i++) {
+            secretRange.completed(secretRange.claim());
+        }
+        // claimed, but not completed
+        secretRange.claim();
+
+        // act
+        secretRange.close();
+        SecretRange restarted = createSecretRange(file, "key");
+
+        // assert
+        assertThat(file.exists(), is(equalTo(true)));
+        assertThat(restarted.getCompletedGrids(), is(equalTo(30L)));
+        assertThat(restarted.claim(), is(equalTo(30L)));
+        restarted.close();
+    }
+
+    @Test
+    public void claim_twoRangesSameFile_noGridTwice() {
+        // arrange
+        File file = new File(folder.getRoot(), "checkpoint.properties");
+        SecretRange first = createSecretRange(file, "key");
+        SecretRange second = createSecretRange(file, "key");
+        Set<Long> grids = new HashSet<>();
+        int claims = 0;
+
+        // act
+        long counter;
+        while ((counter = (claims % 2 == 0 ? first : second).claim()) != SecretRange.NO_COUNTER) {
+            grids.add(first.getGrid(counter));
+            claims++;
+        }
+
+        // assert
+        assertThat(claims, is(equalTo(100)));
+        assertThat(grids.size(), is(equalTo(100)));
+        assertThat(first.isExhausted(), is(equalTo(true)));
+        assertThat(second.isExhausted(), is(equalTo(true)));
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void claim_rangeWithAndWithoutCheckpoint_noGridTwiceAndAllStored() throws IOException {
+        // arrange
+        File file = new File(folder.getRoot(), "checkpoint.properties");
+        SecretRange first = createSecretRange(file, "key");
+        SecretRange second = new SecretRange(BigInteger.ZERO, RANGE_END, 4, "key", 0, -1, null, PRINT_STATISTICS_EVERY_N_SECONDS);
+        Set<Long> grids = new HashSet<>();
+        int claims = 0;
+
+        // act
+        long counter;
+        while ((counter = (claims % 2 == 0 ? first : second).claim()) != SecretRange.NO_COUNTER) {
+            grids.add(first.getGrid(counter));
+            second.completed(counter);
+            claims++;
+        }
+        first.close();
+        second.close();
+
+        // assert
+        assertThat(claims, is(equalTo(100)));
+        assertThat(grids.size(), is(equalTo(100)));
+        SecretRange restarted = createSecretRange(file, "key");
+        assertThat(restarted.getCompletedGrids(), is(equalTo(100L)));
+        restarted.close();
+    }
+
+    @Test
+    public void getProgress_otherPermutationKey_otherProgress() {
+        // arrange
+        File file = new File(folder.getRoot(), "checkpoint.properties");
+        SecretRange secretRange = createSecretRange(file, "key");
+        secretRange.completed(secretRange.claim());
+        secretRange.close();
+
+        // act
+        SecretRange other = createSecretRange(file, "other key");
+
+        // assert
+        assertThat(other.getCompletedGrids(), is(equalTo(0L)));
+        assertThat(other.claim(), is(equalTo(0L)));
+        other.close();
+        SecretRange same = createSecretRange(file, "key");
+        assertThat(same.getCompletedGrids(), is(equalTo(1L)));
+        same.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getProgress_sameFileOtherGridNumBits_throwsException() {
+        // arrange
+        File file = new File(folder.getRoot(), "checkpoint.properties");
+        SecretRange secretRange = createSecretRange(file, "key", 4);
+
+        // act
+        try {
+            createSecretRange(file, "key", 5);
+        } finally {
+            secretRange.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getProgress_restartedWithOtherGridNumBits_throwsException() {
+        // arrange
+        File file = new File(folder.getRoot(), "checkpoint.properties");
+        SecretRange secretRange = createSecretRange(file, "key", 4);
+        secretRange.completed(secretRange.claim());
+        secretRange.close();
+
+        // act
+        createSecretRange(file, "key", 5);
+    }
+
+    @Test
+    public void getProgress_otherRangeOtherGridNumBits_noExceptionThrown() {
+        // arrange
+        File file = new File(folder.getRoot(), "checkpoint.properties");
+        SecretRange secretRange = createSecretRange(file, "key", 4);
+
+        // act
+        SecretRange other = createSecretRange(file, "other key", 5);
+
+        // assert
+        assertThat(other.getCompletedGrids(), is(equalTo(0L)));
+        secretRange.close();
+        other.close();
+    }
+}
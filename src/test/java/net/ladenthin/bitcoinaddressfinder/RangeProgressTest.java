@@ -0,0 +1,135 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import org.junit.Test;
+
+public class RangeProgressTest {
+
+    @Test
+    public void claim_emptyReservation_chunkReserved() {
+        // arrange
+        RangeProgress rangeProgress = new RangeProgress();
+        RangeProgress.Reservation fast = rangeProgress.createReservation();
+        RangeProgress.Reservation slow = rangeProgress.createReservation();
+
+        // act
+        long fastCounter = rangeProgress.claim(fast, 0, 1000, 100);
+        long slowCounter = rangeProgress.claim(slow, 0, 1000, 10);
+
+        // assert
+        assertThat(fastCounter, is(equalTo(0L)));
+        assertThat(rangeProgress.getChunkSize(fast), is(equalTo(100L)));
+        assertThat(slowCounter, is(equalTo(100L)));
+        assertThat(rangeProgress.getChunkSize(slow), is(equalTo(10L)));
+        assertThat(rangeProgress.claim(fast, 0, 1000, 100), is(equalTo(1L)));
+    }
+
+    @Test
+    public void claim_nearTheEnd_chunkShrinks() {
+        // arrange
+        RangeProgress rangeProgress = new RangeProgress();
+        RangeProgress.Reservation first = rangeProgress.createReservation();
+        rangeProgress.createReservation();
+
+        // act
+        rangeProgress.claim(first, 0, 40, 1000);
+
+        // assert
+        // 40 unclaimed counters for two reservations
+        assertThat(rangeProgress.getChunkSize(first), is(equalTo(10L)));
+    }
+
+    @Test
+    public void claim_twoReservations_guidedChunks() {
+        // arrange
+        RangeProgress rangeProgress = new RangeProgress();
+        RangeProgress.Reservation first = rangeProgress.createReservation();
+        RangeProgress.Reservation second = rangeProgress.createReservation();
+
+        // act
+        long firstCounter = rangeProgress.claim(first, 0, 10, 10);
+        long secondCounter = rangeProgress.claim(second, 0, 10, 10);
+
+        // assert
+        // 10 / (2 * 2) = 2 counters for the first, 8 / (2 * 2) = 2 for the second
+        assertThat(firstCounter, is(equalTo(0L)));
+        assertThat(secondCounter, is(equalTo(2L)));
+        assertThat(rangeProgress.getChunkSize(second), is(equalTo(2L)));
+    }
+
+    @Test
+    public void claim_noUnclaimedCounter_upperHalfOfLargestReservationStolen() {
+        // arrange
+        RangeProgress rangeProgress = new RangeProgress();
+        RangeProgress.Reservation victim = rangeProgress.createReservation();
+        // alone, the victim reserves half of the slice: [0, 50)
+        rangeProgress.claim(victim, 0, 100, 100);
+        RangeProgress.Reservation idle = rangeProgress.createReservation();
+
+        // act
+        long counter;
+        do {
+            counter = rangeProgress.claim(idle, 0, 100, 100);
+        } while (counter >= 50);
+
+        // assert
+        // the victim keeps [1, 25), the idle steals [25, 50)
+        assertThat(counter, is(equalTo(25L)));
+        assertThat(rangeProgress.getChunkSize(idle), is(equalTo(25L)));
+        assertThat(rangeProgress.claim(victim, 0, 100, 100), is(equalTo(1L)));
+    }
+
+    @Test
+    public void hasWork_allClaimed_false() {
+        // arrange
+        RangeProgress rangeProgress = new RangeProgress();
+        RangeProgress.Reservation reservation = rangeProgress.createReservation();
+
+        // act
+        int claims = 0;
+        while (rangeProgress.claim(reservation, 0, 20, 3) != RangeProgress.NO_COUNTER) {
+            claims++;
+        }
+
+        // assert
+        assertThat(claims, is(equalTo(20)));
+        assertThat(rangeProgress.hasWork(reservation, 0, 20), is(equalTo(false)));
+    }
+
+    @Test
+    public void claim_completedCountersRestored_skipped() {
+        // arrange
+        RangeProgress rangeProgress = new RangeProgress();
+        rangeProgress.restore(LongRangeSet.parse("0-5,7-8"));
+        RangeProgress.Reservation reservation = rangeProgress.createReservation();
+
+        // act
+        long counter = rangeProgress.claim(reservation, 0, 20, 10);
+
+        // assert
+        assertThat(counter, is(equalTo(5L)));
+        // the chunk ends at the next completed counter
+        assertThat(rangeProgress.getChunkSize(reservation), is(equalTo(2L)));
+        assertThat(rangeProgress.getCompleted(0, 20), is(equalTo(6L)));
+    }
+}
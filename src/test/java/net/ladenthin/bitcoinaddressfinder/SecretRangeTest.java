@@ -0,0 +1,231 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import net.ladenthin.bitcoinaddressfinder.configuration.CProducerJava;
+import net.ladenthin.bitcoinaddressfinder.eckey.Secp256k1Engine;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import org.junit.Test;
+
+public class SecretRangeTest {
+
+    private static final int PRINT_STATISTICS_EVERY_N_SECONDS = 60;
+
+    @Test
+    public void claim_unalignedRange_gridsCoverRangeOnce() {
+        // arrange
+        SecretRange secretRange = new SecretRange(BigInteger.valueOf(0x1F5), BigInteger.valueOf(0x301), 8, PRINT_STATISTICS_EVERY_N_SECONDS);
+
+        // act
+        long first = secretRange.claim();
+        long second = secretRange.claim();
+        long third = secretRange.claim();
+        long exhausted = secretRange.claim();
+
+        // assert
+        assertThat(secretRange.getGrids(), is(equalTo(3L)));
+        assertThat(secretRange.getSecretBase(first), is(equalTo(BigInteger.valueOf(0x100))));
+        assertThat(secretRange.getSecretBase(second), is(equalTo(BigInteger.valueOf(0x200))));
+        assertThat(secretRange.getSecretBase(third), is(equalTo(BigInteger.valueOf(0x300))));
+        assertThat(exhausted, is(equalTo(SecretRange.NO_COUNTER)));
+        assertThat(secretRange.claim(), is(equalTo(SecretRange.NO_COUNTER)));
+        assertThat(secretRange.isExhausted(), is(equalTo(true)));
+        secretRange.close();
+    }
+
+    @Test
+    public void completed_allGrids_fullCoverage() {
+        // arrange
+        SecretRange secretRange = new SecretRange(BigInteger.ZERO, BigInteger.valueOf(0x400), 8, PRINT_STATISTICS_EVERY_N_SECONDS);
+
+        // act
+        long counter;
+        while ((counter = secretRange.claim()) != SecretRange.NO_COUNTER) {
+            secretRange.completed(counter);
+        }
+
+        // assert
+        assertThat(secretRange.getCompletedGrids(), is(equalTo(4L)));
+        assertThat(secretRange.createStatisticsMessage().contains("[Coverage: 100.000000 %]"), is(equalTo(true)));
+        secretRange.close();
+    }
+
+    @Test
+    public void constructor_rangeEndBehindN_cappedAtN() {
+        // act
+        SecretRange secretRange = new SecretRange(Secp256k1Engine.N.subtract(BigInteger.ONE), BigInteger.ONE.shiftLeft(256), 4, PRINT_STATISTICS_EVERY_N_SECONDS);
+
+        // assert
+        assertThat(secretRange.getGrids(), is(equalTo(1L)));
+        secretRange.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rangeStartNotBelowRangeEnd_throwsException() {
+        new SecretRange(BigInteger.TEN, BigInteger.TEN, 4, PRINT_STATISTICS_EVERY_N_SECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_tooManyGrids_throwsException() {
+        new SecretRange(BigInteger.ZERO, BigInteger.ONE.shiftLeft(72), 8, PRINT_STATISTICS_EVERY_N_SECONDS);
+    }
+
+    @Test
+    public void fromConfiguration_noRangeStart_returnsNull() {
+        // act
+        SecretRange secretRange = SecretRange.fromConfiguration(new CProducerJava());
+
+        // assert
+        assertThat(secretRange, is(nullValue()));
+    }
+
+    @Test
+    public void fromConfiguration_noRangeEnd_rangeEndsAtPrivateKeyMaxNumBits() {
+        // arrange
+        CProducerJava cProducerJava = new CProducerJava();
+        cProducerJava.rangeStart = "0";
+        cProducerJava.privateKeyMaxNumBits = 20;
+        cProducerJava.gridNumBits = 8;
+
+        // act
+        SecretRange secretRange = SecretRange.fromConfiguration(cProducerJava);
+
+        // assert
+        assertThat(secretRange.getGrids(), is(equalTo(1L << 12)));
+        secretRange.close();
+    }
+
+    @Test
+    public void claim_permutationKey_allGridsOnceNotAscending() {
+        // arrange
+        SecretRange secretRange = new SecretRange(BigInteger.ZERO, BigInteger.valueOf(1000L << 8), 8, "key", 0, -1, null, PRINT_STATISTICS_EVERY_N_SECONDS);
+        Set<Long> grids = new HashSet<>();
+        List<Long> order = new ArrayList<>();
+
+        // act
+        long grid;
+        while ((grid = secretRange.claim()) != SecretRange.NO_COUNTER) {
+            grids.add(secretRange.getGrid(grid));
+            order.add(secretRange.getGrid(grid));
+        }
+
+        // assert
+        assertThat(grids.size(), is(equalTo(1000)));
+        assertThat(Collections.min(grids), is(equalTo(0L)));
+        assertThat(Collections.max(grids), is(equalTo(999L)));
+        List<Long> ascending = new ArrayList<>(order);
+        Collections.sort(ascending);
+        assertThat(order.equals(ascending), is(equalTo(false)));
+        secretRange.close();
+    }
+
+    @Test
+    public void claim_disjointCounterSlices_noOverlap() {
+        // arrange
+        SecretRange first = new SecretRange(BigInteger.ZERO, BigInteger.valueOf(100L << 4), 4, "key", 0, 40, null, PRINT_STATISTICS_EVERY_N_SECONDS);
+        SecretRange second = new SecretRange(BigInteger.ZERO, BigInteger.valueOf(100L << 4), 4, "key", 40, -1, null, PRINT_STATISTICS_EVERY_N_SECONDS);
+        Set<Long> grids = new HashSet<>();
+
+        // act
+        long grid;
+        while ((grid = first.claim()) != SecretRange.NO_COUNTER) {
+            grids.add(first.getGrid(grid));
+        }
+        while ((grid = second.claim()) != SecretRange.NO_COUNTER) {
+            grids.add(second.getGrid(grid));
+        }
+
+        // assert
+        assertThat(first.getSliceGrids(), is(equalTo(40L)));
+        assertThat(second.getSliceGrids(), is(equalTo(60L)));
+        assertThat(grids.size(), is(equalTo(100)));
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void claim_twoRangesWithoutCheckpoint_noGridTwice() {
+        // arrange
+        SecretRange first = new SecretRange(BigInteger.ZERO, BigInteger.valueOf(100L << 4), 4, "shared key", 0, -1, null, PRINT_STATISTICS_EVERY_N_SECONDS);
+        SecretRange second = new SecretRange(BigInteger.ZERO, BigInteger.valueOf(100L << 4), 4, "shared key", 0, -1, null, PRINT_STATISTICS_EVERY_N_SECONDS);
+        Set<Long> grids = new HashSet<>();
+        int claims = 0;
+
+        // act
+        long counter;
+        while ((counter = (claims % 2 == 0 ? first : second).claim()) != SecretRange.NO_COUNTER) {
+            grids.add(first.getGrid(counter));
+            first.completed(counter);
+            claims++;
+        }
+
+        // assert
+        assertThat(claims, is(equalTo(100)));
+        assertThat(grids.size(), is(equalTo(100)));
+        assertThat(second.isExhausted(), is(equalTo(true)));
+        assertThat(second.getCompletedGrids(), is(equalTo(100L)));
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void claim_otherGridNumBits_otherProgress() {
+        // arrange
+        SecretRange first = new SecretRange(BigInteger.ZERO, BigInteger.valueOf(0x400), 8, PRINT_STATISTICS_EVERY_N_SECONDS);
+        first.completed(first.claim());
+
+        // act
+        SecretRange second = new SecretRange(BigInteger.ZERO, BigInteger.valueOf(0x400), 7, PRINT_STATISTICS_EVERY_N_SECONDS);
+
+        // assert
+        assertThat(second.getCompletedGrids(), is(equalTo(0L)));
+        assertThat(second.claim(), is(equalTo(0L)));
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void close_lastRangeClosed_progressNotShared() {
+        // arrange
+        SecretRange secretRange = new SecretRange(BigInteger.ZERO, BigInteger.valueOf(0x400), 6, PRINT_STATISTICS_EVERY_N_SECONDS);
+        secretRange.completed(secretRange.claim());
+
+        // act
+        secretRange.close();
+        SecretRange other = new SecretRange(BigInteger.ZERO, BigInteger.valueOf(0x400), 6, PRINT_STATISTICS_EVERY_N_SECONDS);
+
+        // assert
+        assertThat(other.getCompletedGrids(), is(equalTo(0L)));
+        other.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_counterEndBehindGrids_throwsException() {
+        new SecretRange(BigInteger.ZERO, BigInteger.valueOf(100L << 4), 4, null, 0, 101, null, PRINT_STATISTICS_EVERY_N_SECONDS);
+    }
+}
@@ -0,0 +1,130 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.ladenthin.bitcoinaddressfinder.configuration.CProducerJava;
+import net.ladenthin.bitcoinaddressfinder.configuration.CSecretSource;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assume.assumeTrue;
+import org.junit.Test;
+
+public class SecretSourceFactoryTest {
+
+    /**
+     * Counts the reads of the strong source.
+     */
+    private static class CountingSecureRandom extends SecureRandom {
+        private final AtomicInteger reads = new AtomicInteger();
+
+        @Override
+        public void nextBytes(byte[] bytes) {
+            reads.incrementAndGet();
+            super.nextBytes(bytes);
+        }
+    }
+
+    private CProducerJava createConfiguration(CSecretSource secretSource) {
+        CProducerJava cProducerJava = new CProducerJava();
+        cProducerJava.secretSource = secretSource;
+        return cProducerJava;
+    }
+
+    @Test
+    public void secretSource_defaultConfiguration_sharedStrong() {
+        // act
+        CProducerJava cProducerJava = new CProducerJava();
+
+        // assert
+        assertThat(cProducerJava.secretSource, is(equalTo(CSecretSource.SharedStrong)));
+    }
+
+    @Test
+    public void createRandom_sharedStrong_strongSourceReturned() {
+        // arrange
+        SecureRandom strongRandom = new SecureRandom();
+        SecretSourceFactory secretSourceFactory = new SecretSourceFactory(strongRandom);
+
+        // act
+        Random random = secretSourceFactory.createRandom(createConfiguration(CSecretSource.SharedStrong));
+
+        // assert
+        assertThat(random, is(sameInstance(strongRandom)));
+    }
+
+    @Test
+    public void createRandom_seededSameSeed_sameSecrets() {
+        // arrange
+        SecretSourceFactory secretSourceFactory = new SecretSourceFactory(new SecureRandom());
+        CProducerJava cProducerJava = createConfiguration(CSecretSource.Seeded);
+        cProducerJava.secretSourceSeed = 42L;
+
+        // act
+        Random random = secretSourceFactory.createRandom(cProducerJava);
+        Random other = secretSourceFactory.createRandom(cProducerJava);
+
+        // assert
+        for (int i = 0; i < 10; i++) {
+            BigInteger secret = KeyUtility.createSecret(PublicKeyBytes.PRIVATE_KEY_MAX_NUM_BITS, random);
+            assertThat(KeyUtility.createSecret(PublicKeyBytes.PRIVATE_KEY_MAX_NUM_BITS, other), is(equalTo(secret)));
+        }
+    }
+
+    @Test
+    public void createRandom_drbg_personalizedOnceFromStrongSource() {
+        assumeTrue(SecretSourceFactory.isDrbgAvailable());
+        // arrange
+        CountingSecureRandom strongRandom = new CountingSecureRandom();
+        SecretSourceFactory secretSourceFactory = new SecretSourceFactory(strongRandom);
+        Random random = secretSourceFactory.createRandom(createConfiguration(CSecretSource.Drbg));
+        int readsAfterSeeding = strongRandom.reads.get();
+
+        // act
+        for (int i = 0; i < 10_000; i++) {
+            KeyUtility.createSecret(PublicKeyBytes.PRIVATE_KEY_MAX_NUM_BITS, random);
+        }
+
+        // assert
+        assertThat(strongRandom.reads.get(), is(equalTo(readsAfterSeeding)));
+    }
+
+    @Test
+    public void createRandom_drbgTwice_independentGenerators() {
+        assumeTrue(SecretSourceFactory.isDrbgAvailable());
+        // arrange
+        SecretSourceFactory secretSourceFactory = new SecretSourceFactory(new SecureRandom());
+        CProducerJava cProducerJava = createConfiguration(CSecretSource.Drbg);
+
+        // act
+        Random random = secretSourceFactory.createRandom(cProducerJava);
+        Random other = secretSourceFactory.createRandom(cProducerJava);
+
+        // assert
+        assertThat(random, is(not(sameInstance(other))));
+        BigInteger secret = KeyUtility.createSecret(PublicKeyBytes.PRIVATE_KEY_MAX_NUM_BITS, random);
+        assertThat(KeyUtility.createSecret(PublicKeyBytes.PRIVATE_KEY_MAX_NUM_BITS, other), is(not(equalTo(secret))));
+    }
+}
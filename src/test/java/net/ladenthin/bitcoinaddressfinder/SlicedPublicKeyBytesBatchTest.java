@@ -0,0 +1,137 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import org.junit.Test;
+
+public class SlicedPublicKeyBytesBatchTest {
+
+    private PublicKeyBytesBatch createBatch(int size) {
+        PublicKeyBytesBatch publicKeyBytesBatch = new PublicKeyBytesBatch(size, BigInteger.valueOf(1024));
+        for (int i = 0; i < size; i++) {
+            publicKeyBytesBatch.add(i, PublicKeyBytes.INVALID_KEY_ONE.getUncompressed());
+        }
+        return publicKeyBytesBatch;
+    }
+
+    @Test
+    public void claimSlice_sliceSizeGiven_slicesCoverBatch() {
+        // arrange
+        PublicKeyBytesBatch publicKeyBytesBatch = createBatch(10);
+        SlicedPublicKeyBytesBatch slicedBatch = new SlicedPublicKeyBytesBatch(publicKeyBytesBatch, 4);
+
+        // act, assert
+        assertThat(slicedBatch.isSliced(), is(equalTo(true)));
+        assertThat(slicedBatch.claimSlice(), is(equalTo(0)));
+        assertThat(slicedBatch.claimSlice(), is(equalTo(4)));
+        assertThat(slicedBatch.claimSlice(), is(equalTo(8)));
+        assertThat(slicedBatch.getSliceEnd(8), is(equalTo(10)));
+        assertThat(slicedBatch.hasUnclaimedSlices(), is(equalTo(false)));
+        assertThat(slicedBatch.claimSlice(), is(equalTo(SlicedPublicKeyBytesBatch.NO_SLICE)));
+
+        assertThat(slicedBatch.finishSlice(4), is(equalTo(false)));
+        assertThat(slicedBatch.finishSlice(8), is(equalTo(false)));
+        assertThat(slicedBatch.finishSlice(0), is(equalTo(true)));
+        publicKeyBytesBatch.free();
+    }
+
+    @Test
+    public void failSlice_oneSliceFailed_batchFailed() {
+        // arrange
+        PublicKeyBytesBatch publicKeyBytesBatch = createBatch(10);
+        SlicedPublicKeyBytesBatch slicedBatch = new SlicedPublicKeyBytesBatch(publicKeyBytesBatch, 5);
+
+        // act
+        slicedBatch.claimSlice();
+        slicedBatch.claimSlice();
+        slicedBatch.failSlice();
+        slicedBatch.finishSlice(5);
+
+        // assert
+        assertThat(slicedBatch.isFailed(), is(equalTo(true)));
+        assertThat(slicedBatch.finishSlice(0), is(equalTo(true)));
+        publicKeyBytesBatch.free();
+    }
+
+    @Test
+    public void claimSlice_sliceSizeZero_singleSlice() {
+        // arrange
+        PublicKeyBytesBatch publicKeyBytesBatch = createBatch(10);
+        SlicedPublicKeyBytesBatch slicedBatch = new SlicedPublicKeyBytesBatch(publicKeyBytesBatch, 0);
+
+        // act, assert
+        assertThat(slicedBatch.isSliced(), is(equalTo(false)));
+        assertThat(slicedBatch.claimSlice(), is(equalTo(0)));
+        assertThat(slicedBatch.getSliceEnd(0), is(equalTo(10)));
+        assertThat(slicedBatch.claimSlice(), is(equalTo(SlicedPublicKeyBytesBatch.NO_SLICE)));
+        assertThat(slicedBatch.finishSlice(0), is(equalTo(true)));
+        publicKeyBytesBatch.free();
+    }
+
+    @Test
+    public void claimSlice_multipleThreads_everyKeyOnceAndOneThreadFinishesLast() throws Exception {
+        // arrange
+        final int size = 10_000;
+        final int threads = 4;
+        PublicKeyBytesBatch publicKeyBytesBatch = createBatch(size);
+        SlicedPublicKeyBytesBatch slicedBatch = new SlicedPublicKeyBytesBatch(publicKeyBytesBatch, 3);
+        AtomicInteger consumedKeys = new AtomicInteger();
+        AtomicInteger lastSliceFinished = new AtomicInteger();
+
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // act
+        for (int t = 0; t < threads; t++) {
+            futures.add(executorService.submit(() -> {
+                int fromIndex;
+                while ((fromIndex = slicedBatch.claimSlice()) != SlicedPublicKeyBytesBatch.NO_SLICE) {
+                    consumedKeys.addAndGet(slicedBatch.getSliceEnd(fromIndex) - fromIndex);
+                    if (slicedBatch.finishSlice(fromIndex)) {
+                        lastSliceFinished.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        // assert
+        try {
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        assertThat(consumedKeys.get(), is(equalTo(size)));
+        assertThat(lastSliceFinished.get(), is(equalTo(1)));
+        publicKeyBytesBatch.free();
+    }
+}
@@ -0,0 +1,185 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder;
+
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+import com.tngtech.java.junit.dataprovider.UseDataProvider;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import net.ladenthin.bitcoinaddressfinder.configuration.CAddressFileOutputFormat;
+import net.ladenthin.bitcoinaddressfinder.configuration.CCreateSortedHash160File;
+import net.ladenthin.bitcoinaddressfinder.configuration.CLMDBConfigurationReadOnly;
+import net.ladenthin.bitcoinaddressfinder.configuration.CSortedHash160FileConfigurationReadOnly;
+import net.ladenthin.bitcoinaddressfinder.persistence.Persistence;
+import net.ladenthin.bitcoinaddressfinder.persistence.PersistenceUtils;
+import net.ladenthin.bitcoinaddressfinder.persistence.lmdb.LMDBPersistence;
+import net.ladenthin.bitcoinaddressfinder.persistence.sorted.SortedHash160FilePersistence;
+import net.ladenthin.bitcoinaddressfinder.persistence.sorted.SortedHash160FileWriter;
+import net.ladenthin.bitcoinaddressfinder.staticaddresses.TestAddressesFiles;
+import net.ladenthin.bitcoinaddressfinder.staticaddresses.TestAddressesLMDB;
+import org.apache.commons.io.FileUtils;
+import org.bitcoinj.core.Coin;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(DataProviderRunner.class)
+public class SortedHash160FilePersistenceTest extends LMDBBase {
+
+    private final PersistenceUtils persistenceUtils = new PersistenceUtils(networkParameters);
+
+    private Persistence openSortedHash160File(File file) {
+        CSortedHash160FileConfigurationReadOnly cSortedHash160FileConfigurationReadOnly = new CSortedHash160FileConfigurationReadOnly();
+        cSortedHash160FileConfigurationReadOnly.sortedHash160File = file.getAbsolutePath();
+        Persistence persistence = new SortedHash160FilePersistence(cSortedHash160FileConfigurationReadOnly, persistenceUtils);
+        persistence.init();
+        return persistence;
+    }
+
+    private ByteBuffer createRandomHash160(Random random) {
+        byte[] hash160 = new byte[PublicKeyBytes.HASH160_SIZE];
+        random.nextBytes(hash160);
+        return ByteBuffer.wrap(hash160);
+    }
+
+    @Test
+    @UseDataProvider(value = CommonDataProvider.DATA_PROVIDER_COMPRESSED, location = CommonDataProvider.class)
+    public void createSortedHash160File_fromLMDB_sameAddressesContained(boolean compressed) throws IOException {
+        // arrange
+        TestAddressesFiles testAddressesFiles = new TestAddressesFiles(compressed);
+        File lmdbFolder = new TestAddressesLMDB().createTestLMDB(folder, testAddressesFiles, false, false);
+        File sortedHash160File = new File(folder.getRoot(), "sorted.bin");
+
+        CCreateSortedHash160File cCreateSortedHash160File = new CCreateSortedHash160File();
+        cCreateSortedHash160File.lmdbConfigurationReadOnly = new CLMDBConfigurationReadOnly();
+        cCreateSortedHash160File.lmdbConfigurationReadOnly.lmdbDirectory = lmdbFolder.getAbsolutePath();
+        cCreateSortedHash160File.sortedHash160File = sortedHash160File.getAbsolutePath();
+
+        // act
+        new CreateSortedHash160File(cCreateSortedHash160File, new AtomicBoolean(true)).run();
+
+        // assert
+        Persistence lmdbPersistence = new LMDBPersistence(cCreateSortedHash160File.lmdbConfigurationReadOnly, persistenceUtils);
+        lmdbPersistence.init();
+        Persistence persistence = openSortedHash160File(sortedHash160File);
+        try {
+            assertThat(persistence.count(), is(equalTo(lmdbPersistence.count())));
+            lmdbPersistence.forEachHash160(hash160 -> assertThat(persistence.containsAddress(hash160), is(equalTo(true))));
+
+            File addressFile = folder.newFile();
+            persistence.writeAllAmountsToAddressFile(addressFile, CAddressFileOutputFormat.HexHash, new AtomicBoolean(true));
+            Set<String> expected = compressed ? TestAddressesFiles.compressedTestAddressesAsHexHash : TestAddressesFiles.uncompressedTestAddressesAsHexHash;
+            assertThat(new HashSet<>(FileUtils.readLines(addressFile, "UTF-8")), is(equalTo(expected)));
+        } finally {
+            persistence.close();
+            lmdbPersistence.close();
+        }
+    }
+
+    @Test
+    @UseDataProvider(value = CommonDataProvider.DATA_PROVIDER_COMPRESSED, location = CommonDataProvider.class)
+    public void createSortedHash160File_fromAddressFiles_sameAddressesContained(boolean compressed) throws IOException {
+        // arrange
+        TestAddressesFiles testAddressesFiles = new TestAddressesFiles(compressed);
+        List<String> addressesFiles = testAddressesFiles.createAddressesFiles(folder, false);
+        File sortedHash160File = new File(folder.getRoot(), "sorted.bin");
+
+        CCreateSortedHash160File cCreateSortedHash160File = new CCreateSortedHash160File();
+        cCreateSortedHash160File.addressesFiles.addAll(addressesFiles);
+        cCreateSortedHash160File.sortedHash160File = sortedHash160File.getAbsolutePath();
+
+        // act
+        new CreateSortedHash160File(cCreateSortedHash160File, new AtomicBoolean(true)).run();
+
+        // assert
+        Persistence persistence = openSortedHash160File(sortedHash160File);
+        try {
+            File addressFile = folder.newFile();
+            persistence.writeAllAmountsToAddressFile(addressFile, CAddressFileOutputFormat.HexHash, new AtomicBoolean(true));
+            Set<String> expected = compressed ? TestAddressesFiles.compressedTestAddressesAsHexHash : TestAddressesFiles.uncompressedTestAddressesAsHexHash;
+            assertThat(new HashSet<>(FileUtils.readLines(addressFile, "UTF-8")), is(equalTo(expected)));
+            assertThat(persistence.count(), is(equalTo((long) expected.size())));
+        } finally {
+            persistence.close();
+        }
+    }
+
+    @Test
+    public void containsAddress_randomHash160sWritten_onlyWrittenContained() throws IOException {
+        // arrange
+        final int numberOfHash160s = 10_000;
+        Random random = new Random(1337);
+        byte[][] hash160s = new byte[numberOfHash160s][];
+        for (int i = 0; i < numberOfHash160s; i++) {
+            hash160s[i] = createRandomHash160(random).array();
+        }
+        File sortedHash160File = new File(folder.getRoot(), "sorted.bin");
+        try (SortedHash160FileWriter writer = new SortedHash160FileWriter(sortedHash160File, 8)) {
+            writer.addUnsorted(hash160s.clone());
+        }
+
+        // act
+        Persistence persistence = openSortedHash160File(sortedHash160File);
+
+        // assert
+        try {
+            assertThat(persistence.count(), is(equalTo((long) numberOfHash160s)));
+            for (byte[] hash160 : hash160s) {
+                assertThat(persistence.containsAddress(ByteBuffer.wrap(hash160)), is(equalTo(true)));
+            }
+            Random otherRandom = new Random(42);
+            for (int i = 0; i < numberOfHash160s; i++) {
+                assertThat(persistence.containsAddress(createRandomHash160(otherRandom)), is(equalTo(false)));
+            }
+        } finally {
+            persistence.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_unsortedHash160sGiven_throwsException() throws IOException {
+        File sortedHash160File = new File(folder.getRoot(), "sorted.bin");
+        try (SortedHash160FileWriter writer = new SortedHash160FileWriter(sortedHash160File, 8)) {
+            byte[] greater = new byte[PublicKeyBytes.HASH160_SIZE];
+            greater[0] = (byte) 0xFF;
+            writer.add(ByteBuffer.wrap(greater));
+            writer.add(ByteBuffer.wrap(new byte[PublicKeyBytes.HASH160_SIZE]));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void putNewAmount_readOnly_throwsException() throws IOException {
+        File sortedHash160File = new File(folder.getRoot(), "sorted.bin");
+        new SortedHash160FileWriter(sortedHash160File, 8).close();
+        Persistence persistence = openSortedHash160File(sortedHash160File);
+        try {
+            persistence.putNewAmount(ByteBuffer.wrap(new byte[PublicKeyBytes.HASH160_SIZE]), Coin.SATOSHI);
+        } finally {
+            persistence.close();
+        }
+    }
+}
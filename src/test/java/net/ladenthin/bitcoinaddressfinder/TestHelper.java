@@ -2,6 +2,7 @@ package net.ladenthin.bitcoinaddressfinder;
 
 import com.google.common.hash.Hashing;
 import net.ladenthin.bitcoinaddressfinder.configuration.CProducerOpenCL;
+import net.ladenthin.bitcoinaddressfinder.persistence.filter.BlockedBloomFilter;
 import org.apache.commons.codec.binary.Hex;
 import org.bitcoinj.core.Base58;
 import org.bitcoinj.core.ECKey;
@@ -35,12 +36,21 @@ public class TestHelper {
      * @return {@link OpenCLContext}
      */
     public static OpenCLContext createOpenCLContext(boolean chunkMode, int kernelMode, int gridNumBits) {
+        return createOpenCLContext(chunkMode, kernelMode, gridNumBits, 0);
+    }
+
+    public static OpenCLContext createOpenCLContext(boolean chunkMode, int kernelMode, int gridNumBits, int pipelineDepth) {
+        return createOpenCLContext(chunkMode, kernelMode, gridNumBits, pipelineDepth, null);
+    }
+
+    public static OpenCLContext createOpenCLContext(boolean chunkMode, int kernelMode, int gridNumBits, int pipelineDepth, BlockedBloomFilter addressFilter) {
         new OpenCLPlatformAssume().assumeOpenCLLibraryLoadableAndOneOpenCL2_0OrGreaterDeviceAvailable();
         CProducerOpenCL producerOpenCL = new CProducerOpenCL();
+        producerOpenCL.pipelineDepth = pipelineDepth;
         producerOpenCL.gridNumBits = gridNumBits;
         producerOpenCL.chunkMode = chunkMode;
         producerOpenCL.kernelMode = kernelMode;
-        OpenCLContext openCLContext = new OpenCLContext(producerOpenCL);
+        OpenCLContext openCLContext = new OpenCLContext(producerOpenCL, addressFilter);
 
         try {
             openCLContext.init();
@@ -0,0 +1,84 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder.eckey;
+
+import java.math.BigInteger;
+import java.util.Random;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import org.bitcoinj.core.ECKey;
+import org.junit.Test;
+
+public class Secp256k1EndomorphismTest {
+
+    private static final int UNCOMPRESSED_LENGTH = 65;
+
+    @Test
+    public void publicKey_allVariantsGiven_sameAsPublicKeyOfSecretKey() {
+        // arrange
+        Random random = new Random(7);
+        Secp256k1Endomorphism endomorphism = Secp256k1Endomorphism.get();
+        byte[] variantPublicKey = new byte[UNCOMPRESSED_LENGTH];
+
+        for (int i = 0; i < 20; i++) {
+            BigInteger secret = new BigInteger(256, random).mod(Secp256k1Engine.N.subtract(BigInteger.ONE)).add(BigInteger.ONE);
+            byte[] publicKey = ECKey.publicPointFromPrivate(secret).getEncoded(false);
+
+            for (int variant = 0; variant < Secp256k1Endomorphism.VARIANTS; variant++) {
+                // act
+                endomorphism.publicKey(publicKey, 0, variant, variantPublicKey, 0);
+                BigInteger variantSecret = Secp256k1Endomorphism.secretKey(secret, variant);
+
+                // assert
+                assertThat(variantPublicKey, is(equalTo(ECKey.publicPointFromPrivate(variantSecret).getEncoded(false))));
+            }
+        }
+    }
+
+    @Test
+    public void secretKey_identityGiven_sameSecret() {
+        // arrange
+        BigInteger secret = BigInteger.valueOf(1337);
+
+        // act
+        BigInteger variantSecret = Secp256k1Endomorphism.secretKey(secret, Secp256k1Endomorphism.IDENTITY);
+
+        // assert
+        assertThat(variantSecret, is(equalTo(secret)));
+    }
+
+    @Test
+    public void secretKey_negatedVariantGiven_orderMinusSecret() {
+        // arrange
+        BigInteger secret = BigInteger.valueOf(1337);
+
+        // act
+        BigInteger variantSecret = Secp256k1Endomorphism.secretKey(secret, 3);
+
+        // assert
+        assertThat(variantSecret, is(equalTo(Secp256k1Engine.N.subtract(secret))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void secretKey_variantOutOfRange_exceptionThrown() {
+        // act
+        Secp256k1Endomorphism.secretKey(BigInteger.ONE, Secp256k1Endomorphism.VARIANTS);
+    }
+}
@@ -0,0 +1,221 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder.eckey;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import org.bitcoinj.core.ECKey;
+import org.junit.Test;
+
+public class Secp256k1EngineTest {
+
+    private static final int UNCOMPRESSED_LENGTH = 65;
+
+    private byte[] encode(Secp256k1Point point) {
+        byte[] encoded = new byte[UNCOMPRESSED_LENGTH];
+        point.encodeUncompressed(encoded, 0);
+        return encoded;
+    }
+
+    private byte[] expected(BigInteger secret) {
+        return ECKey.publicPointFromPrivate(secret).getEncoded(false);
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="multiplyG">
+    @Test
+    public void multiplyG_randomSecretsGiven_sameAsBitcoinj() {
+        // arrange
+        Random random = new Random(42);
+        Secp256k1Engine engine = Secp256k1Engine.get();
+        Secp256k1Point point = new Secp256k1Point();
+
+        for (int i = 0; i < 100; i++) {
+            BigInteger secret = new BigInteger(256, random).mod(Secp256k1Engine.N.subtract(BigInteger.ONE)).add(BigInteger.ONE);
+
+            // act
+            engine.multiplyG(point, secret);
+            engine.normalize(point);
+
+            // assert
+            assertThat(encode(point), is(equalTo(expected(secret))));
+        }
+    }
+
+    @Test
+    public void multiplyG_edgeSecretsGiven_sameAsBitcoinj() {
+        // arrange
+        Secp256k1Engine engine = Secp256k1Engine.get();
+        Secp256k1Point point = new Secp256k1Point();
+        BigInteger[] secrets = {
+            BigInteger.ONE,
+            BigInteger.TWO,
+            BigInteger.valueOf(255),
+            BigInteger.valueOf(256),
+            BigInteger.ONE.shiftLeft(255),
+            Secp256k1Engine.N.subtract(BigInteger.ONE),
+        };
+
+        for (BigInteger secret : secrets) {
+            // act
+            engine.multiplyG(point, secret);
+            engine.normalize(point);
+
+            // assert
+            assertThat(encode(point), is(equalTo(expected(secret))));
+        }
+    }
+
+    @Test
+    public void multiplyG_zeroAndOrderGiven_infinity() {
+        // arrange
+        Secp256k1Engine engine = Secp256k1Engine.get();
+        Secp256k1Point point = new Secp256k1Point();
+
+        // act & assert
+        engine.multiplyG(point, BigInteger.ZERO);
+        assertThat(point.isInfinity(), is(equalTo(true)));
+        engine.multiplyG(point, Secp256k1Engine.N);
+        assertThat(point.isInfinity(), is(equalTo(true)));
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="addAffine">
+    @Test
+    public void addAffine_walkFromSecret_sameAsBitcoinj() {
+        // arrange
+        Secp256k1Engine engine = Secp256k1Engine.get();
+        BigInteger secret = new BigInteger("1000000000000000000000000000000000000000000000000000000000000", 16);
+        Secp256k1Point point = new Secp256k1Point();
+        engine.multiplyG(point, secret);
+
+        for (int i = 1; i <= 20; i++) {
+            // act
+            engine.addAffine(point, point, Secp256k1Engine.getGx(), Secp256k1Engine.getGy());
+            Secp256k1Point copy = new Secp256k1Point();
+            copy.set(point);
+            engine.normalize(copy);
+
+            // assert
+            assertThat(encode(copy), is(equalTo(expected(secret.add(BigInteger.valueOf(i))))));
+        }
+    }
+
+    @Test
+    public void addAffine_samePointGiven_doubled() {
+        // arrange
+        Secp256k1Engine engine = Secp256k1Engine.get();
+        Secp256k1Point point = new Secp256k1Point();
+        point.setAffine(Secp256k1Engine.getGx(), Secp256k1Engine.getGy());
+
+        // act
+        engine.addAffine(point, point, Secp256k1Engine.getGx(), Secp256k1Engine.getGy());
+        engine.normalize(point);
+
+        // assert
+        assertThat(encode(point), is(equalTo(expected(BigInteger.TWO))));
+    }
+
+    @Test
+    public void addAffine_negatedPointGiven_infinity() {
+        // arrange
+        Secp256k1Engine engine = Secp256k1Engine.get();
+        Secp256k1Point point = new Secp256k1Point();
+        engine.multiplyG(point, Secp256k1Engine.N.subtract(BigInteger.ONE));
+
+        // act
+        engine.addAffine(point, point, Secp256k1Engine.getGx(), Secp256k1Engine.getGy());
+
+        // assert
+        assertThat(point.isInfinity(), is(equalTo(true)));
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="add and doublePoint">
+    @Test
+    public void add_jacobianPointsGiven_sameAsBitcoinj() {
+        // arrange
+        Secp256k1Engine engine = Secp256k1Engine.get();
+        BigInteger a = new BigInteger("DEADBEEF", 16);
+        BigInteger b = new BigInteger("123456789ABCDEF0123456789ABCDEF", 16);
+        Secp256k1Point p = new Secp256k1Point();
+        Secp256k1Point q = new Secp256k1Point();
+        engine.multiplyG(p, a);
+        engine.multiplyG(q, b);
+
+        // act
+        engine.add(p, p, q);
+        engine.normalize(p);
+
+        // assert
+        assertThat(encode(p), is(equalTo(expected(a.add(b)))));
+    }
+
+    @Test
+    public void doublePoint_pointGiven_sameAsBitcoinj() {
+        // arrange
+        Secp256k1Engine engine = Secp256k1Engine.get();
+        BigInteger secret = new BigInteger("CAFEBABE", 16);
+        Secp256k1Point point = new Secp256k1Point();
+        engine.multiplyG(point, secret);
+
+        // act
+        engine.doublePoint(point, point);
+        engine.normalize(point);
+
+        // assert
+        assertThat(encode(point), is(equalTo(expected(secret.shiftLeft(1)))));
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="normalize">
+    @Test
+    public void normalize_pointsWithInfinityGiven_sameAsSingleNormalization() {
+        // arrange
+        Secp256k1Engine engine = Secp256k1Engine.get();
+        Secp256k1Point[] points = new Secp256k1Point[8];
+        byte[][] expected = new byte[points.length][];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new Secp256k1Point();
+            if (i % 3 == 0) {
+                continue;
+            }
+            BigInteger secret = BigInteger.valueOf(1000L * i + 7);
+            engine.multiplyG(points[i], secret);
+            engine.doublePoint(points[i], points[i]);
+            expected[i] = expected(secret.shiftLeft(1));
+        }
+
+        // act
+        engine.normalize(points, points.length);
+
+        // assert
+        for (int i = 0; i < points.length; i++) {
+            if (expected[i] == null) {
+                assertThat(points[i].isInfinity(), is(equalTo(true)));
+            } else {
+                assertThat(Arrays.toString(encode(points[i])), is(equalTo(Arrays.toString(expected[i]))));
+            }
+        }
+    }
+    // </editor-fold>
+}
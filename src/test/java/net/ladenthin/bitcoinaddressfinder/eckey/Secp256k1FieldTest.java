@@ -0,0 +1,177 @@
+// @formatter:off
+/**
+ * Copyright 2023 Bernard Ladenthin bernard.ladenthin@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+// @formatter:on
+package net.ladenthin.bitcoinaddressfinder.eckey;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import org.junit.Test;
+
+public class Secp256k1FieldTest {
+
+    private static final BigInteger P = Secp256k1Field.P;
+    private static final int RANDOM_VALUES = 200;
+
+    private List<BigInteger> createValues() {
+        Random random = new Random(1337);
+        List<BigInteger> values = new ArrayList<>();
+        values.add(BigInteger.ZERO);
+        values.add(BigInteger.ONE);
+        values.add(BigInteger.TWO);
+        values.add(P.subtract(BigInteger.ONE));
+        values.add(P.subtract(BigInteger.TWO));
+        values.add(BigInteger.ONE.shiftLeft(255));
+        values.add(BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE));
+        values.add(BigInteger.ONE.shiftLeft(32).add(BigInteger.valueOf(977)));
+        for (int i = 0; i < RANDOM_VALUES; i++) {
+            values.add(new BigInteger(256, random).mod(P));
+        }
+        return values;
+    }
+
+    private long[] field(BigInteger value) {
+        long[] r = Secp256k1Field.create();
+        Secp256k1Field.fromBigInteger(r, value);
+        return r;
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="fromBigInteger">
+    @Test
+    public void fromBigInteger_valuesGiven_roundTrip() {
+        for (BigInteger value : createValues()) {
+            // act
+            BigInteger result = Secp256k1Field.toBigInteger(field(value));
+
+            // assert
+            assertThat(result, is(equalTo(value)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromBigInteger_pGiven_exceptionThrown() {
+        // act
+        field(P);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromBigInteger_negativeGiven_exceptionThrown() {
+        // act
+        field(BigInteger.ONE.negate());
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="toBytes">
+    @Test
+    public void toBytes_valueGiven_bigEndian() {
+        // arrange
+        BigInteger value = P.subtract(BigInteger.TWO);
+        byte[] bytes = new byte[Secp256k1Field.BYTES + 2];
+
+        // act
+        Secp256k1Field.toBytes(field(value), bytes, 1);
+
+        // assert
+        assertThat(bytes[0], is(equalTo((byte) 0)));
+        assertThat(new BigInteger(1, java.util.Arrays.copyOfRange(bytes, 1, 1 + Secp256k1Field.BYTES)), is(equalTo(value)));
+        assertThat(bytes[bytes.length - 1], is(equalTo((byte) 0)));
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="arithmetic">
+    @Test
+    public void addSubMul_valuesGiven_sameAsBigInteger() {
+        // arrange
+        List<BigInteger> values = createValues();
+        long[] r = Secp256k1Field.create();
+
+        for (int i = 0; i < values.size(); i++) {
+            BigInteger a = values.get(i);
+            BigInteger b = values.get((i * 7 + 3) % values.size());
+
+            // act & assert
+            Secp256k1Field.add(r, field(a), field(b));
+            assertThat(Secp256k1Field.toBigInteger(r), is(equalTo(a.add(b).mod(P))));
+
+            Secp256k1Field.sub(r, field(a), field(b));
+            assertThat(Secp256k1Field.toBigInteger(r), is(equalTo(a.subtract(b).mod(P))));
+
+            Secp256k1Field.mul(r, field(a), field(b));
+            assertThat(Secp256k1Field.toBigInteger(r), is(equalTo(a.multiply(b).mod(P))));
+        }
+    }
+
+    @Test
+    public void unaryOperations_valuesGiven_sameAsBigInteger() {
+        // arrange
+        long[] r = Secp256k1Field.create();
+
+        for (BigInteger a : createValues()) {
+            // act & assert
+            Secp256k1Field.sqr(r, field(a));
+            assertThat(Secp256k1Field.toBigInteger(r), is(equalTo(a.pow(2).mod(P))));
+
+            Secp256k1Field.sqr(r, field(a), 3);
+            assertThat(Secp256k1Field.toBigInteger(r), is(equalTo(a.modPow(BigInteger.valueOf(8), P))));
+
+            Secp256k1Field.negate(r, field(a));
+            assertThat(Secp256k1Field.toBigInteger(r), is(equalTo(a.negate().mod(P))));
+
+            Secp256k1Field.twice(r, field(a));
+            assertThat(Secp256k1Field.toBigInteger(r), is(equalTo(a.shiftLeft(1).mod(P))));
+
+            Secp256k1Field.mulSmall(r, field(a), Integer.MAX_VALUE);
+            assertThat(Secp256k1Field.toBigInteger(r), is(equalTo(a.multiply(BigInteger.valueOf(Integer.MAX_VALUE)).mod(P))));
+        }
+    }
+
+    @Test
+    public void inverse_valuesGiven_sameAsBigInteger() {
+        // arrange
+        long[] r = Secp256k1Field.create();
+
+        for (BigInteger a : createValues()) {
+            if (a.signum() == 0) {
+                continue;
+            }
+            // act
+            Secp256k1Field.inverse(r, field(a));
+
+            // assert
+            assertThat(Secp256k1Field.toBigInteger(r), is(equalTo(a.modInverse(P))));
+        }
+    }
+
+    @Test
+    public void mul_aliasedOperandsGiven_sameAsBigInteger() {
+        // arrange
+        BigInteger a = P.subtract(BigInteger.valueOf(12345));
+        long[] r = field(a);
+
+        // act
+        Secp256k1Field.mul(r, r, r);
+
+        // assert
+        assertThat(Secp256k1Field.toBigInteger(r), is(equalTo(a.pow(2).mod(P))));
+    }
+    // </editor-fold>
+}